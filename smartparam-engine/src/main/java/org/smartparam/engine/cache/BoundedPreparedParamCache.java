@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.smartparam.engine.core.index.CompiledLevelIndex;
+import org.smartparam.engine.core.prepared.PreparedParamCache;
+import org.smartparam.engine.core.prepared.ColumnarEntryStore;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+
+/**
+ * {@link PreparedParamCache} holding parameters up to given total weight.
+ * Weight of parameter estimates memory it occupies (in bytes), based on number
+ * of entries and size of compiled index, see {@link #weigh(PreparedParameter)}.
+ *
+ * When budget is exceeded, least frequently used parameters are evicted (least
+ * recently used first among equally used ones). Usage counters saturate at
+ * {@link #MAX_FREQUENCY} and are halved once per aging period (number of puts
+ * equal to number of cached parameters, at least {@link #MIN_AGING_PERIOD}),
+ * so parameters popular long ago do not stay forever.
+ *
+ * Parameters put recently (within admission window of last puts, one eighth
+ * of cache size, at least {@link #MIN_ADMISSION_WINDOW}) which were not read
+ * yet are evicted only after all other parameters, so churn does not evict
+ * newcomers before they had a chance to be used. Parameter which has just
+ * been put is never evicted, even if it alone exceeds the budget.
+ *
+ * Reads are lock free and touch only counters of parameter being read: they
+ * are plain fields, updated without synchronization, so under contention some
+ * updates are lost, which only makes eviction and hit count less accurate.
+ * Reads never write state shared by all parameters. Writes are serialized.
+ *
+ * @author Adam Dubiel
+ */
+public class BoundedPreparedParamCache implements PreparedParamCache {
+
+    static final long PARAMETER_WEIGHT = 1024;
+
+    static final long ENTRY_WEIGHT = 64;
+
+    static final long LEVEL_VALUE_WEIGHT = 48;
+
+    /**
+     * Request which caused parameter to be loaded counts as its first use.
+     */
+    static final int INITIAL_FREQUENCY = 1;
+
+    static final int MAX_FREQUENCY = 15;
+
+    static final int MIN_AGING_PERIOD = 16;
+
+    /**
+     * Number of last puts guarded from eviction, including current one.
+     */
+    static final int MIN_ADMISSION_WINDOW = 2;
+
+    private static final Comparator<CachedParameter> EVICTION_ORDER = new Comparator<CachedParameter>() {
+        @Override
+        public int compare(CachedParameter first, CachedParameter second) {
+            if (first.evictionGuarded != second.evictionGuarded) {
+                return first.evictionGuarded ? 1 : -1;
+            }
+            if (first.evictionFrequency != second.evictionFrequency) {
+                return first.evictionFrequency < second.evictionFrequency ? -1 : 1;
+            }
+            return first.evictionAccess < second.evictionAccess ? -1 : (first.evictionAccess == second.evictionAccess ? 0 : 1);
+        }
+    };
+
+    private final Map<String, CachedParameter> cache = new ConcurrentHashMap<String, CachedParameter>();
+
+    private final long maxWeight;
+
+    private long puts;
+
+    private long putsSinceAging;
+
+    /**
+     * Hits of parameters no longer cached.
+     */
+    private long retiredHits;
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile long weight;
+
+    public BoundedPreparedParamCache(long maxWeight) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("maximum cache weight should be positive, got " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public synchronized void put(String paramName, PreparedParameter pp) {
+        CachedParameter cachedParameter = new CachedParameter(paramName, pp, weigh(pp), ++puts, System.nanoTime());
+
+        CachedParameter previous = cache.put(paramName, cachedParameter);
+        if (previous != null) {
+            cachedParameter.frequency = Math.max(previous.frequency, INITIAL_FREQUENCY);
+            retire(previous);
+        }
+        weight += cachedParameter.weight;
+
+        if (weight > maxWeight) {
+            evict(paramName);
+        }
+        if (++putsSinceAging >= agingPeriod()) {
+            age();
+        }
+    }
+
+    @Override
+    public PreparedParameter get(String paramName) {
+        CachedParameter cachedParameter = cache.get(paramName);
+        if (cachedParameter == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        cachedParameter.touch(System.nanoTime());
+        return cachedParameter.parameter;
+    }
+
+    @Override
+    public synchronized void invalidate(String paramName) {
+        CachedParameter removed = cache.remove(paramName);
+        if (removed != null) {
+            retire(removed);
+        }
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        for (CachedParameter removed : cache.values()) {
+            retiredHits += removed.hits;
+        }
+        cache.clear();
+        weight = 0;
+    }
+
+    @Override
+    public Collection<String> cachedParameterNames() {
+        return Collections.unmodifiableCollection(cache.keySet());
+    }
+
+    private void evict(String protectedName) {
+        List<CachedParameter> parameters = new ArrayList<CachedParameter>(cache.values());
+        long guardedSince = puts - Math.max(MIN_ADMISSION_WINDOW, cache.size() / 8);
+        for (CachedParameter parameter : parameters) {
+            parameter.evictionGuarded = parameter.hits == 0 && parameter.admittedAt > guardedSince;
+            parameter.evictionFrequency = parameter.frequency;
+            parameter.evictionAccess = parameter.lastAccess;
+        }
+        Collections.sort(parameters, EVICTION_ORDER);
+
+        for (CachedParameter victim : parameters) {
+            if (weight <= maxWeight) {
+                break;
+            }
+            if (victim.name.equals(protectedName)) {
+                continue;
+            }
+            cache.remove(victim.name);
+            retire(victim);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private long agingPeriod() {
+        return Math.max(MIN_AGING_PERIOD, cache.size());
+    }
+
+    private void age() {
+        for (CachedParameter cachedParameter : cache.values()) {
+            cachedParameter.frequency >>>= 1;
+        }
+        putsSinceAging = 0;
+    }
+
+    private void retire(CachedParameter removed) {
+        weight -= removed.weight;
+        retiredHits += removed.hits;
+    }
+
+    /**
+     * Estimate memory occupied by prepared parameter, in bytes.
+     */
+    protected long weigh(PreparedParameter parameter) {
+        long parameterWeight = PARAMETER_WEIGHT;
+        CompiledLevelIndex<?> index = parameter.getCompiledIndex();
+        if (index != null) {
+            // compiled index and prepared entries with decoded values, tree is not kept
+            parameterWeight += index.estimatedSize();
+            parameterWeight += index.valueCount() * ENTRY_WEIGHT;
+            ColumnarEntryStore entryStore = parameter.getEntryStore();
+            if (entryStore != null) {
+                parameterWeight += entryStore.estimatedSize();
+            } else {
+                parameterWeight += index.valueCount() * parameter.getLevelCount() * LEVEL_VALUE_WEIGHT;
+            }
+        }
+        return parameterWeight;
+    }
+
+    public synchronized long hitCount() {
+        long hits = retiredHits;
+        for (CachedParameter cachedParameter : cache.values()) {
+            hits += cachedParameter.hits;
+        }
+        return hits;
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns current total weight of cached parameters.
+     */
+    public long weight() {
+        return weight;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static final class CachedParameter {
+
+        private final String name;
+
+        private final PreparedParameter parameter;
+
+        private final long weight;
+
+        private final long admittedAt;
+
+        private int frequency = INITIAL_FREQUENCY;
+
+        private long lastAccess;
+
+        private long hits;
+
+        /**
+         * Counters copied before sorting, so that concurrent reads can't
+         * change order while eviction sorts parameters.
+         */
+        private boolean evictionGuarded;
+
+        private int evictionFrequency;
+
+        private long evictionAccess;
+
+        CachedParameter(String name, PreparedParameter parameter, long weight, long admittedAt, long lastAccess) {
+            this.name = name;
+            this.parameter = parameter;
+            this.weight = weight;
+            this.admittedAt = admittedAt;
+            this.lastAccess = lastAccess;
+        }
+
+        void touch(long now) {
+            hits++;
+            // frequency saturates, so aging can bring hot parameters back to earth quickly
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+            lastAccess = now;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.cache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.smartparam.engine.core.output.DefaultParamValue;
+import org.smartparam.engine.core.prepared.ParamValueCache;
+
+/**
+ * Bounded {@link ParamValueCache} evicting least recently used values. To
+ * keep lock contention low under concurrent traffic, keys are spread among
+ * independently locked segments, each holding its share of maximum size.
+ *
+ * @author Adam Dubiel
+ */
+public class LruParamValueCache implements ParamValueCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public LruParamValueCache(int maxSize) {
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maxSize / MAX_SEGMENTS) {
+            segmentCount <<= 1;
+        }
+        segments = new Segment[segmentCount];
+        for (int index = 0; index < segmentCount; ++index) {
+            segments[index] = new Segment(maxSize / segmentCount + (index < maxSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public DefaultParamValue get(String[] levelValues) {
+        Key key = new Key(levelValues);
+        DefaultParamValue value = segmentFor(key).get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return value.copy();
+    }
+
+    @Override
+    public void put(String[] levelValues, DefaultParamValue value) {
+        Key key = new Key(levelValues.clone());
+        segmentFor(key).put(key, value.copy());
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.get();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class Segment {
+
+        private final Map<Key, DefaultParamValue> values;
+
+        Segment(int maxSize) {
+            values = new LruMap(maxSize);
+        }
+
+        synchronized DefaultParamValue get(Key key) {
+            return values.get(key);
+        }
+
+        synchronized void put(Key key, DefaultParamValue value) {
+            values.put(key, value);
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+    }
+
+    private static final class LruMap extends LinkedHashMap<Key, DefaultParamValue> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, DefaultParamValue> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static final class Key {
+
+        private final String[] levelValues;
+
+        private final int hash;
+
+        Key(String[] levelValues) {
+            this.levelValues = levelValues;
+            this.hash = Arrays.hashCode(levelValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(levelValues, other.levelValues);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.smartparam.engine.core.prepared.ParamValueCache;
+import org.smartparam.engine.core.prepared.ParamValueCacheFactory;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+
+/**
+ * Creates {@link LruParamValueCache} of given size for chosen parameters or
+ * for all parameters if no names were given.
+ *
+ * @author Adam Dubiel
+ */
+public class LruParamValueCacheFactory implements ParamValueCacheFactory {
+
+    private final int maxSize;
+
+    private final Set<String> parameterNames;
+
+    public LruParamValueCacheFactory(int maxSize, String... parameterNames) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maximum cache size should be positive, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.parameterNames = new HashSet<String>();
+        Collections.addAll(this.parameterNames, parameterNames);
+    }
+
+    @Override
+    public ParamValueCache create(PreparedParameter parameter) {
+        if (parameterNames.isEmpty() || parameterNames.contains(parameter.getName())) {
+            return new LruParamValueCache(maxSize);
+        }
+        return null;
+    }
+}
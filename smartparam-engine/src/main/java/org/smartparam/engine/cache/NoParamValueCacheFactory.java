@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.cache;
+
+import org.smartparam.engine.core.prepared.ParamValueCache;
+import org.smartparam.engine.core.prepared.ParamValueCacheFactory;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+
+/**
+ * Default {@link ParamValueCacheFactory}, lookup results are never memoized.
+ *
+ * @author Adam Dubiel
+ */
+public class NoParamValueCacheFactory implements ParamValueCacheFactory {
+
+    @Override
+    public ParamValueCache create(PreparedParameter parameter) {
+        return null;
+    }
+}
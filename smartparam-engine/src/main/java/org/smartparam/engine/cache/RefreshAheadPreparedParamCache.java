@@ -0,0 +1,243 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smartparam.engine.core.parameter.request.ParameterRequest;
+import org.smartparam.engine.core.prepared.PreparedParamCache;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.smartparam.engine.core.prepared.RefreshablePreparedParamCache;
+
+/**
+ * {@link PreparedParamCache} decorator, which does not drop invalidated
+ * parameters. Instead, old version of parameter is still served while new one
+ * is loaded and prepared on background executor, and then replaced atomically.
+ * If parameter no longer exists or it can't be refreshed, it is dropped, so
+ * next request loads it as usual (and reports errors, if any).
+ *
+ * Additionally, parameters can be refreshed periodically, using default
+ * refresh interval or interval set for chosen parameter.
+ *
+ * Invalidations of parameter that is being refreshed at the moment are not
+ * lost, parameter is refreshed once again after current refresh ends.
+ *
+ * Parameters are refreshed using request registered by
+ * {@link org.smartparam.engine.core.parameter.ParameterManager}, until then
+ * invalidation simply drops parameters.
+ *
+ * @author Adam Dubiel
+ */
+public class RefreshAheadPreparedParamCache implements RefreshablePreparedParamCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAheadPreparedParamCache.class);
+
+    private static final long NO_REFRESH_INTERVAL = 0;
+
+    private final PreparedParamCache decoratedCache;
+
+    private final ScheduledExecutorService executorService;
+
+    private volatile ParameterRequest request;
+
+    private volatile long defaultRefreshInterval = NO_REFRESH_INTERVAL;
+
+    private final Map<String, Long> refreshIntervals = new ConcurrentHashMap<String, Long>();
+
+    private final ConcurrentMap<String, ScheduledFuture<?>> periodicRefreshes = new ConcurrentHashMap<String, ScheduledFuture<?>>();
+
+    private final Set<String> refreshesInProgress = new HashSet<String>();
+
+    private final Set<String> repeatedRefreshes = new HashSet<String>();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private final AtomicLong failedRefreshes = new AtomicLong();
+
+    public RefreshAheadPreparedParamCache(PreparedParamCache decoratedCache, ScheduledExecutorService executorService) {
+        this.decoratedCache = decoratedCache;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void refreshUsing(ParameterRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Refresh all parameters periodically, interval is counted from the moment
+     * parameter is cached. Zero disables periodic refresh.
+     */
+    public void setRefreshInterval(long interval, TimeUnit unit) {
+        this.defaultRefreshInterval = unit.toMillis(interval);
+    }
+
+    /**
+     * Refresh given parameter periodically, overriding default interval. Zero
+     * disables periodic refresh of this parameter.
+     */
+    public void setRefreshInterval(String parameterName, long interval, TimeUnit unit) {
+        refreshIntervals.put(parameterName, unit.toMillis(interval));
+    }
+
+    @Override
+    public void put(String paramName, PreparedParameter pp) {
+        decoratedCache.put(paramName, pp);
+        schedulePeriodicRefresh(paramName);
+    }
+
+    @Override
+    public PreparedParameter get(String paramName) {
+        return decoratedCache.get(paramName);
+    }
+
+    @Override
+    public void invalidate(String paramName) {
+        if (request == null || !decoratedCache.cachedParameterNames().contains(paramName)) {
+            drop(paramName);
+            return;
+        }
+        refresh(paramName);
+    }
+
+    @Override
+    public void invalidate() {
+        for (String paramName : new ArrayList<String>(decoratedCache.cachedParameterNames())) {
+            invalidate(paramName);
+        }
+    }
+
+    @Override
+    public Collection<String> cachedParameterNames() {
+        return decoratedCache.cachedParameterNames();
+    }
+
+    /**
+     * Schedule refresh of parameter in background, old version is served
+     * until refresh ends.
+     */
+    public void refresh(String paramName) {
+        synchronized (this) {
+            if (!refreshesInProgress.add(paramName)) {
+                repeatedRefreshes.add(paramName);
+                return;
+            }
+        }
+
+        try {
+            executorService.execute(new RefreshTask(paramName));
+        } catch (RejectedExecutionException exception) {
+            synchronized (this) {
+                refreshesInProgress.remove(paramName);
+                repeatedRefreshes.remove(paramName);
+            }
+            drop(paramName);
+        }
+    }
+
+    public long refreshCount() {
+        return refreshes.get();
+    }
+
+    public long failedRefreshCount() {
+        return failedRefreshes.get();
+    }
+
+    private void runRefresh(String paramName) {
+        boolean repeat;
+        do {
+            reload(paramName);
+            synchronized (this) {
+                repeat = repeatedRefreshes.remove(paramName);
+                if (!repeat) {
+                    refreshesInProgress.remove(paramName);
+                }
+            }
+        } while (repeat);
+    }
+
+    private void reload(String paramName) {
+        try {
+            PreparedParameter refreshedParameter = request.loadAndPrepare(paramName);
+            if (refreshedParameter == null) {
+                drop(paramName);
+            }
+            refreshes.incrementAndGet();
+        } catch (RuntimeException exception) {
+            failedRefreshes.incrementAndGet();
+            logger.warn("Failed to refresh parameter " + paramName + ", it will be loaded again on next request.", exception);
+            drop(paramName);
+        }
+    }
+
+    private void drop(String paramName) {
+        decoratedCache.invalidate(paramName);
+        ScheduledFuture<?> periodicRefresh = periodicRefreshes.remove(paramName);
+        if (periodicRefresh != null) {
+            periodicRefresh.cancel(false);
+        }
+    }
+
+    private void schedulePeriodicRefresh(final String paramName) {
+        Long parameterInterval = refreshIntervals.get(paramName);
+        long interval = parameterInterval != null ? parameterInterval : defaultRefreshInterval;
+        if (interval <= NO_REFRESH_INTERVAL || periodicRefreshes.containsKey(paramName)) {
+            return;
+        }
+
+        ScheduledFuture<?> periodicRefresh = executorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (decoratedCache.cachedParameterNames().contains(paramName)) {
+                    refresh(paramName);
+                } else {
+                    // evicted or dropped in the meantime, it will be scheduled again when cached
+                    drop(paramName);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        if (periodicRefreshes.putIfAbsent(paramName, periodicRefresh) != null) {
+            periodicRefresh.cancel(false);
+        }
+    }
+
+    private class RefreshTask implements Runnable {
+
+        private final String paramName;
+
+        RefreshTask(String paramName) {
+            this.paramName = paramName;
+        }
+
+        @Override
+        public void run() {
+            runRefresh(paramName);
+        }
+    }
+}
@@ -28,8 +28,17 @@ import org.smartparam.engine.annotated.repository.*;
 import org.smartparam.engine.config.pico.ComponentConfig;
 import org.smartparam.engine.cache.MapFunctionCache;
 import org.smartparam.engine.cache.MapPreparedParamCache;
+import org.smartparam.engine.cache.NoParamValueCacheFactory;
 import org.smartparam.engine.core.prepared.BasicLevelPreparer;
 import org.smartparam.engine.core.prepared.BasicParamPreparer;
+import org.smartparam.engine.core.prepared.ColumnarEntryStoreFactory;
+import org.smartparam.engine.core.prepared.NoColumnarEntryStoreFactory;
+import org.smartparam.engine.core.prepared.MappedLevelIndexFactory;
+import org.smartparam.engine.core.prepared.NoMappedLevelIndexFactory;
+import org.smartparam.engine.core.prepared.LevelValueDictionaryFactory;
+import org.smartparam.engine.core.prepared.ParameterScopedDictionaryFactory;
+import org.smartparam.engine.core.index.LevelIndexBuilder;
+import org.smartparam.engine.core.index.SequentialLevelIndexBuilder;
 import org.smartparam.engine.core.matcher.Matcher;
 import org.smartparam.engine.core.function.FunctionInvoker;
 import org.smartparam.engine.core.function.FunctionRepository;
@@ -54,6 +63,7 @@ import org.smartparam.engine.core.parameter.request.ParameterRequestQueue;
 import org.smartparam.engine.core.parameter.request.SimpleParameterRequestQueue;
 import org.smartparam.engine.core.prepared.LevelPreparer;
 import org.smartparam.engine.core.prepared.ParamPreparer;
+import org.smartparam.engine.core.prepared.ParamValueCacheFactory;
 import org.smartparam.engine.core.prepared.PreparedParamCache;
 import org.smartparam.engine.core.type.Type;
 import org.smartparam.engine.core.type.TypeRepository;
@@ -95,6 +105,11 @@ public class ParamEngineConfig extends ComponentConfig {
         components.add(component(ParamPreparer.class, BasicParamPreparer.class));
         components.add(component(LevelPreparer.class, BasicLevelPreparer.class));
         components.add(component(PreparedParamCache.class, MapPreparedParamCache.class));
+        components.add(component(ParamValueCacheFactory.class, NoParamValueCacheFactory.class));
+        components.add(component(LevelIndexBuilder.class, SequentialLevelIndexBuilder.class));
+        components.add(component(LevelValueDictionaryFactory.class, ParameterScopedDictionaryFactory.class));
+        components.add(component(ColumnarEntryStoreFactory.class, NoColumnarEntryStoreFactory.class));
+        components.add(component(MappedLevelIndexFactory.class, NoMappedLevelIndexFactory.class));
         components.add(component(FunctionManager.class, BasicFunctionManager.class));
         components.add(component(FunctionProvider.class, ScanningFunctionProvider.class));
         components.add(component(FunctionCache.class, MapFunctionCache.class));
@@ -18,13 +18,20 @@ package org.smartparam.engine.config;
 import org.smartparam.engine.config.initialization.ComponentInitializer;
 import org.smartparam.engine.config.initialization.ComponentInitializerRunner;
 import java.util.Arrays;
+import java.io.File;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.smartparam.engine.annotated.PackageList;
 import org.smartparam.engine.annotated.RepositoryObjectKey;
 import org.smartparam.engine.annotated.initialization.MethodScannerInitializer;
 import org.smartparam.engine.config.initialization.PostConstructInitializer;
 import org.smartparam.engine.annotated.initialization.TypeScannerInitializer;
 import org.smartparam.engine.config.pico.ComponentDefinition;
+import org.smartparam.engine.cache.BoundedPreparedParamCache;
+import org.smartparam.engine.cache.MapPreparedParamCache;
+import org.smartparam.engine.cache.RefreshAheadPreparedParamCache;
+import org.smartparam.engine.cache.LruParamValueCacheFactory;
 import org.smartparam.engine.core.function.FunctionCache;
 import org.smartparam.engine.core.matcher.Matcher;
 import org.smartparam.engine.core.function.FunctionInvoker;
@@ -34,6 +41,15 @@ import org.smartparam.engine.core.parameter.NamedParamRepository;
 import org.smartparam.engine.core.parameter.ParamRepository;
 import org.smartparam.engine.core.parameter.request.QueuingParameterRequestResolver;
 import org.smartparam.engine.core.parameter.request.ParameterRequestQueue;
+import org.smartparam.engine.core.index.LevelIndexBuilder;
+import org.smartparam.engine.core.index.ParallelLevelIndexBuilder;
+import org.smartparam.engine.core.prepared.BasicColumnarEntryStoreFactory;
+import org.smartparam.engine.core.prepared.ColumnarEntryStoreFactory;
+import org.smartparam.engine.core.prepared.EngineScopedDictionaryFactory;
+import org.smartparam.engine.core.prepared.FileMappedLevelIndexFactory;
+import org.smartparam.engine.core.prepared.MappedLevelIndexFactory;
+import org.smartparam.engine.core.prepared.LevelValueDictionaryFactory;
+import org.smartparam.engine.core.prepared.ParamValueCacheFactory;
 import org.smartparam.engine.core.prepared.PreparedParamCache;
 import org.smartparam.engine.core.repository.RepositoryName;
 import org.smartparam.engine.core.type.Type;
@@ -237,6 +253,76 @@ public final class ParamEngineConfigBuilder {
         return this;
     }
 
+    /**
+     * Use {@link BoundedPreparedParamCache}, which keeps prepared parameters up to given total weight
+     * (estimated memory footprint in bytes), evicting least frequently used ones when budget is exceeded.
+     */
+    public ParamEngineConfigBuilder withBoundedParameterCache(long maxWeight) {
+        paramEngineConfig.setParameterCache(new BoundedPreparedParamCache(maxWeight));
+        return this;
+    }
+
+    /**
+     * Use {@link RefreshAheadPreparedParamCache}, which keeps serving invalidated parameters until their
+     * new version is prepared using given executor. To refresh parameters periodically or to decorate other
+     * cache than default, create {@link RefreshAheadPreparedParamCache} and register it using
+     * {@link #withParameterCache(PreparedParamCache)}.
+     */
+    public ParamEngineConfigBuilder withRefreshAheadParameterCache(ScheduledExecutorService executorService) {
+        paramEngineConfig.setParameterCache(new RefreshAheadPreparedParamCache(new MapPreparedParamCache(), executorService));
+        return this;
+    }
+
+    /**
+     * Memoize lookup results of given parameters (or all cacheable parameters if no names given)
+     * in {@link org.smartparam.engine.cache.LruParamValueCache}, keeping at most maxSize results
+     * per parameter. Useful when most of traffic repeats the same level values. Memoized results
+     * are dropped together with parameter when it is invalidated in {@link PreparedParamCache}.
+     */
+    public ParamEngineConfigBuilder withParamValueCache(int maxSize, String... parameterNames) {
+        withComponent(ParamValueCacheFactory.class, new LruParamValueCacheFactory(maxSize, parameterNames));
+        return this;
+    }
+
+    /**
+     * Build index of large parameters using {@link ParallelLevelIndexBuilder}, which inserts entries
+     * with different first level value concurrently. Batches of less than parallelThreshold entries
+     * are still inserted on preparing thread. Use executor separate from one used for parameter requests.
+     */
+    public ParamEngineConfigBuilder withParallelIndexBuild(ExecutorService executorService, int parallelThreshold) {
+        withComponent(LevelIndexBuilder.class, new ParallelLevelIndexBuilder(executorService, parallelThreshold));
+        return this;
+    }
+
+    /**
+     * Deduplicate level values across all parameters using single, weak {@link EngineScopedDictionaryFactory}
+     * dictionary instead of one dictionary per parameter. Pays off when many parameters share level values.
+     */
+    public ParamEngineConfigBuilder withEngineScopedLevelValueDictionary() {
+        withComponent(LevelValueDictionaryFactory.class, new EngineScopedDictionaryFactory());
+        return this;
+    }
+
+    /**
+     * Keep levels of entries of given parameters (or all cacheable parameters if no names given) in
+     * {@link org.smartparam.engine.core.prepared.ColumnarEntryStore}, dictionary encoded per level,
+     * instead of separate array per entry. Cuts memory of large parameters with repeating level values.
+     */
+    public ParamEngineConfigBuilder withColumnarEntryStore(String... parameterNames) {
+        withComponent(ColumnarEntryStoreFactory.class, new BasicColumnarEntryStoreFactory(parameterNames));
+        return this;
+    }
+
+    /**
+     * Serve given parameters (or all cacheable parameters if no names given) from read only index
+     * mapped from file in given directory, see {@link FileMappedLevelIndexFactory}. JVMs on the same host
+     * share mapped files in page cache, heap holds only thin handle per parameter.
+     */
+    public ParamEngineConfigBuilder withMappedIndex(File directory, String... parameterNames) {
+        withComponent(MappedLevelIndexFactory.class, new FileMappedLevelIndexFactory(directory, parameterNames));
+        return this;
+    }
+
     /**
      * Use {@link QueuingParameterRequestResolver} to queue concurrent requests for the same parameter
      * before it is cached. Useful for systems that serve under heavy traffic and allow on parameter editing.
@@ -246,6 +332,16 @@ public final class ParamEngineConfigBuilder {
         return this;
     }
 
+    /**
+     * Same as {@link #withParameterRequestsQueue(java.util.concurrent.ExecutorService)}, but callers wait
+     * for parameter at most given time, after which {@link org.smartparam.engine.core.parameter.request.ParameterRequestException}
+     * is thrown.
+     */
+    public ParamEngineConfigBuilder withParameterRequestsQueue(ExecutorService service, long timeout, TimeUnit unit) {
+        withComponent(ParameterRequestQueue.class, new QueuingParameterRequestResolver(service, timeout, unit));
+        return this;
+    }
+
     /**
      * Register custom implementation of initialization runner. This goes deep
      * into ParamEngine construction process, so watch out.
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core;
+
+import org.smartparam.engine.core.exception.SmartParamException;
+
+/**
+ * Parallel batch evaluation was interrupted or failed with checked exception.
+ *
+ * @author Adam Dubiel
+ */
+@SuppressWarnings("serial")
+public class BatchEvaluationException extends SmartParamException {
+
+    BatchEvaluationException(String parameterName, Throwable cause) {
+        super("BATCH_EVALUATION_FAILED", cause,
+                "Failed to evaluate batch of contexts for parameter " + parameterName);
+    }
+
+}
@@ -17,6 +17,7 @@ package org.smartparam.engine.core;
 
 import org.smartparam.engine.core.index.FastLevelIndexWalker;
 import org.smartparam.engine.core.index.LevelIndexWalker;
+import org.smartparam.engine.core.prepared.MappedLevelIndexWalker;
 import org.smartparam.engine.core.prepared.PreparedEntry;
 import org.smartparam.engine.core.prepared.PreparedParameter;
 
@@ -28,6 +29,9 @@ class FastLevelIndexWalkerFactory implements LevelIndexWalkerFactory {
 
     @Override
     public LevelIndexWalker<PreparedEntry> create(PreparedParameter preparedParameter, String... values) {
+        if (preparedParameter.getMappedIndex() != null) {
+            return new MappedLevelIndexWalker(preparedParameter.getMappedIndex(), values);
+        }
         return new FastLevelIndexWalker<PreparedEntry>(preparedParameter.getIndex(), values);
     }
 
@@ -15,10 +15,15 @@
  */
 package org.smartparam.engine.core;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.smartparam.engine.core.output.ParamValue;
 
 import org.smartparam.engine.core.context.ParamContext;
 import org.smartparam.engine.core.output.DetailedParamValue;
+import org.smartparam.engine.core.parameter.warmup.WarmUpReport;
+import org.smartparam.engine.core.parameter.warmup.WarmUpRequest;
 
 /**
  * Single point of entry to get all parameters and call functions managed by
@@ -60,6 +65,87 @@ public interface ParamEngine {
      */
     ParamValue get(String paramName, Object... inputLevels);
 
+    /**
+     * Return first output level of first matching row as primitive long, same as
+     * get(parameterName, context).getHolder().longValue(). Meant for hot paths:
+     * for cacheable parameters looking up values on string or exact match levels,
+     * no objects are created in steady state.
+     *
+     * @param parameterName name of parameter to search
+     * @param context       evaluation context
+     * @return value as long
+     * @throws ParameterValueNotFoundException if no row matches, also for nullable parameters
+     */
+    long getLong(String parameterName, ParamContext context);
+
+    /**
+     * Return first output level of first matching row as primitive double,
+     * see {@link #getLong(java.lang.String, org.smartparam.engine.core.context.ParamContext) }.
+     *
+     * @param parameterName name of parameter to search
+     * @param context       evaluation context
+     * @return value as double
+     * @throws ParameterValueNotFoundException if no row matches, also for nullable parameters
+     */
+    double getDouble(String parameterName, ParamContext context);
+
+    /**
+     * Return first output level of first matching row as BigDecimal,
+     * see {@link #getLong(java.lang.String, org.smartparam.engine.core.context.ParamContext) }.
+     *
+     * @param parameterName name of parameter to search
+     * @param context       evaluation context
+     * @return value as BigDecimal, null if no row matches and parameter is nullable
+     */
+    BigDecimal getDecimal(String parameterName, ParamContext context);
+
+    /**
+     * Evaluate parameter for each of provided contexts, just like calling
+     * {@link #get(java.lang.String, org.smartparam.engine.core.context.ParamContext) }
+     * in a loop, but parameter is resolved only once for whole batch.
+     *
+     * @param parameterName name of parameter to search
+     * @param contexts      evaluation contexts
+     * @return resulting submatrices, in the same order as contexts
+     */
+    List<ParamValue> getAll(String parameterName, List<? extends ParamContext> contexts);
+
+    /**
+     * Parallel version of {@link #getAll(java.lang.String, java.util.List) }:
+     * contexts are split into chunks evaluated concurrently using provided
+     * executor (might be a ForkJoinPool), all sharing the same read-only prepared
+     * parameter. Calling thread waits until all chunks are evaluated.
+     * Provided contexts should not be shared with other threads during evaluation.
+     *
+     * @param parameterName   name of parameter to search
+     * @param contexts        evaluation contexts
+     * @param executorService executor used to evaluate chunks of contexts
+     * @return resulting submatrices, in the same order as contexts
+     */
+    List<ParamValue> getAll(String parameterName, List<? extends ParamContext> contexts, ExecutorService executorService);
+
+    /**
+     * Batch version of {@link #get(java.lang.String, java.lang.Object[]) },
+     * each array holds values to match against input levels.
+     *
+     * @param parameterName name of parameter to search
+     * @param inputLevels   array of input level values per query
+     * @return resulting submatrices, in the same order as queries
+     */
+    List<ParamValue> getAll(String parameterName, Object[][] inputLevels);
+
+    /**
+     * Load, prepare and cache parameters from all repositories in parallel,
+     * so that first requests do not pay the cost of loading them. Request can
+     * narrow down parameters using name patterns and prioritize some of them.
+     * Calling thread waits until all parameters are prepared.
+     *
+     * @param request         parameters to prepare
+     * @param executorService executor used to prepare parameters, bounds warm-up parallelism
+     * @return time taken to prepare each parameter and failures
+     */
+    WarmUpReport warmUp(WarmUpRequest request, ExecutorService executorService);
+
     /**
      * Use function engine to call function registered under provided name,
      * passing provided invocation arguments.
@@ -15,14 +15,20 @@
  */
 package org.smartparam.engine.core;
 
+import org.smartparam.engine.core.output.DefaultParamValue;
 import org.smartparam.engine.core.output.ParamValue;
 import org.smartparam.engine.core.prepared.PreparedParameter;
 import org.smartparam.engine.core.prepared.PreparedLevel;
 import org.smartparam.engine.core.prepared.PreparedEntry;
 import org.smartparam.engine.core.context.LevelValues;
 import org.smartparam.engine.core.function.FunctionManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.smartparam.engine.core.context.ParamContext;
@@ -33,7 +39,14 @@ import org.smartparam.engine.core.output.factory.DefaultParamValueFactory;
 import org.smartparam.engine.core.output.factory.DetailedParamValueFactory;
 import org.smartparam.engine.core.output.factory.ParamValueFactory;
 import org.smartparam.engine.core.parameter.ParameterManager;
+import org.smartparam.engine.core.parameter.warmup.WarmUpReport;
+import org.smartparam.engine.core.parameter.warmup.WarmUpRequest;
+import org.smartparam.engine.core.index.CompiledLevelIndex;
+import org.smartparam.engine.core.index.CompiledLevelIndexWalker;
+import org.smartparam.engine.core.index.LevelKeys;
 import org.smartparam.engine.core.prepared.InputValueNormalizer;
+import org.smartparam.engine.core.prepared.OutputValueDecoder;
+import org.smartparam.engine.core.prepared.ParamValueCache;
 import org.smartparam.engine.types.string.StringHolder;
 
 /**
@@ -55,7 +68,30 @@ public class SmartParamEngine implements ParamEngine {
 
     private final DetailedParamValueFactory detailedParamValueFactory;
 
-    private final LevelIndexWalkerFactory fastIndexWalkerFactory = new FastLevelIndexWalkerFactory();
+    /**
+     * Parallel batch is split into at most this many chunks per processor, to
+     * even out differences in lookup cost between chunks.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 256;
+
+    private static final int INITIAL_LOOKUP_BUFFERS = 8;
+
+    private final LevelIndexWalkerFactory fastIndexWalkerFactory = new CompiledLevelIndexWalkerFactory();
+
+    /**
+     * Per thread normalization buffers, reused by consecutive lookups so they
+     * don't produce garbage. Buffers are filled only after level values are
+     * evaluated (which might call engine recursively) and are not retained
+     * after lookup.
+     */
+    private final ThreadLocal<LookupBuffers> lookupBuffers = new ThreadLocal<LookupBuffers>() {
+        @Override
+        protected LookupBuffers initialValue() {
+            return new LookupBuffers();
+        }
+    };
 
     public SmartParamEngine(ParamEngineRuntimeConfigBuilder configBuilder,
             ParameterManager parameterManager,
@@ -100,24 +136,201 @@ public class SmartParamEngine implements ParamEngine {
         // obtain prepared parameter
         PreparedParameter param = getPreparedParameter(parameterName);
 
+        ParamValue result = evaluate(param, customWalkerFactory, paramValueFactory, context);
+
+        logger.debug("leave get[{}], result={}", parameterName, result);
+        return result;
+    }
+
+    @Override
+    public List<ParamValue> getAll(String parameterName, List<? extends ParamContext> contexts) {
+        logger.debug("enter getAll[{}], contexts={}", parameterName, contexts.size());
+
+        // obtain prepared parameter once for whole batch
+        PreparedParameter param = getPreparedParameter(parameterName);
+
+        ParamValue[] results = new ParamValue[contexts.size()];
+        evaluateAll(param, contexts, 0, results.length, results);
+
+        logger.debug("leave getAll[{}]", parameterName);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<ParamValue> getAll(String parameterName, Object[][] inputLevels) {
+        List<ParamContext> contexts = new ArrayList<ParamContext>(inputLevels.length);
+        for (Object[] levelValues : inputLevels) {
+            contexts.add(new LevelValues(levelValues));
+        }
+        return getAll(parameterName, contexts);
+    }
+
+    @Override
+    public List<ParamValue> getAll(String parameterName, List<? extends ParamContext> contexts, ExecutorService executorService) {
+        logger.debug("enter getAll[{}], contexts={}, parallel", parameterName, contexts.size());
+
+        // prepared parameter (and its index) is read-only, so it is shared by all workers
+        PreparedParameter param = getPreparedParameter(parameterName);
+
+        ParamValue[] results = new ParamValue[contexts.size()];
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, results.length / (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR) + 1);
+
+        List<Future<?>> chunks = new ArrayList<Future<?>>();
+        for (int from = 0; from < results.length; from += chunkSize) {
+            chunks.add(executorService.submit(new EvaluationChunk(param, contexts, from, Math.min(from + chunkSize, results.length), results)));
+        }
+        awaitChunks(parameterName, chunks);
+
+        logger.debug("leave getAll[{}]", parameterName);
+        return Arrays.asList(results);
+    }
+
+    private void awaitChunks(String parameterName, List<Future<?>> chunks) {
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException interruptedException) {
+            cancelChunks(chunks);
+            Thread.currentThread().interrupt();
+            throw new BatchEvaluationException(parameterName, interruptedException);
+        } catch (ExecutionException executionException) {
+            cancelChunks(chunks);
+            // rethrow lookup exceptions as they are, same as serial evaluation does
+            if (executionException.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) executionException.getCause();
+            }
+            throw new BatchEvaluationException(parameterName, executionException.getCause());
+        }
+    }
+
+    @Override
+    public WarmUpReport warmUp(WarmUpRequest request, ExecutorService executorService) {
+        WarmUpReport report = parameterManager.warmUp(request, executorService);
+        logger.info("warmed up {} parameters in {}ms, {} failed", new Object[]{report.getPreparedCount(), report.getTotalTime(), report.getFailedCount()});
+        return report;
+    }
+
+    private void cancelChunks(List<Future<?>> chunks) {
+        for (Future<?> chunk : chunks) {
+            chunk.cancel(false);
+        }
+    }
+
+    /**
+     * Evaluate contexts from given range, storing results at the same positions.
+     */
+    private void evaluateAll(PreparedParameter param, List<? extends ParamContext> contexts, int from, int to, ParamValue[] results) {
+        for (int index = from; index < to; ++index) {
+            results[index] = evaluate(param, fastIndexWalkerFactory, defaultParamValueFactory, contexts.get(index));
+        }
+    }
+
+    private ParamValue evaluate(PreparedParameter param, LevelIndexWalkerFactory customWalkerFactory, ParamValueFactory paramValueFactory,
+            ParamContext context) {
+        prepareLevelValues(param, context);
+
+        // memoized results are valid only for default lookup path
+        ParamValueCache valueCache = null;
+        boolean defaultLookup = customWalkerFactory == fastIndexWalkerFactory;
+        if (defaultLookup && paramValueFactory == defaultParamValueFactory) {
+            valueCache = param.getValueCache();
+        }
+
         // find entries matching given context
-        PreparedEntry[] rows = findParameterEntries(customWalkerFactory, param, context);
+        PreparedEntry[] rows;
+        String[] levelValues = null;
+        if (defaultLookup && valueCache == null && param.getCompiledIndex() != null) {
+            // String form of level values is not needed, so typed keys can be used
+            rows = findParameterEntries(param, levelKeys(param, context));
+        } else {
+            levelValues = normalizeLevelValues(param, context);
+            if (valueCache != null) {
+                ParamValue cachedResult = valueCache.get(levelValues);
+                if (cachedResult != null) {
+                    return cachedResult;
+                }
+            }
+            rows = findParameterEntries(customWalkerFactory, param, levelValues);
+        }
 
+        ParamValue result;
         if (rows.length == 0) {
-            if (param.isNullable()) {
-                logger.debug("leave get[{}], result=null", parameterName);
-                return paramValueFactory.empty();
+            if (!param.isNullable()) {
+                throw new ParameterValueNotFoundException(param.getName(), context);
             }
+            result = paramValueFactory.empty();
+        } else {
+            result = paramValueFactory.create(param, rows);
+        }
+
+        if (valueCache != null && result instanceof DefaultParamValue) {
+            valueCache.put(levelValues, (DefaultParamValue) result);
+        }
+        return result;
+    }
+
+    @Override
+    public long getLong(String parameterName, ParamContext context) {
+        return findSingleValue(parameterName, context, true).longValue();
+    }
+
+    @Override
+    public double getDouble(String parameterName, ParamContext context) {
+        return findSingleValue(parameterName, context, true).doubleValue();
+    }
 
-            throw new ParameterValueNotFoundException(parameterName, context);
+    @Override
+    public BigDecimal getDecimal(String parameterName, ParamContext context) {
+        ValueHolder holder = findSingleValue(parameterName, context, false);
+        return holder != null ? holder.getBigDecimal() : null;
+    }
+
+    /**
+     * Returns first output level of first matching row, same as
+     * get(parameterName, context).getHolder() would. For parameters with compiled
+     * index and non-array first output level it goes straight from index leaf to
+     * value decoded when preparing parameter, without creating any objects along the way.
+     */
+    private ValueHolder findSingleValue(String parameterName, ParamContext context, boolean valueRequired) {
+        PreparedParameter param = getPreparedParameter(parameterName);
+
+        if (!supportsSingleValueLookup(param)) {
+            ParamValue value = get(parameterName, context);
+            return value.isEmpty() ? missingValue(param, context, valueRequired) : value.getHolder();
         }
 
-        ParamValue result = paramValueFactory.create(param, rows);
+        prepareLevelValues(param, context);
 
-        logger.debug("leave get[{}], result={}", parameterName, result);
-        return result;
+        CompiledLevelIndex<PreparedEntry> index = param.getCompiledIndex();
+        int node = CompiledLevelIndexWalker.findNode(index, levelKeys(param, context));
+        if (node == CompiledLevelIndex.NO_NODE || index.leafCount(node) == 0) {
+            return missingValue(param, context, valueRequired);
+        }
+
+        PreparedEntry entry = index.leaf(node, 0);
+        Object[] outputValues = entry.getOutputValues();
+        if (outputValues == null) {
+            outputValues = OutputValueDecoder.decode(param, entry);
+        }
+        return (ValueHolder) outputValues[0];
+    }
+
+    private boolean supportsSingleValueLookup(PreparedParameter param) {
+        int inputLevelCount = param.getInputLevelsCount();
+        return param.getCompiledIndex() != null
+                && param.getLevelCount() > inputLevelCount
+                && !param.getLevels()[inputLevelCount].isArray();
+    }
+
+    private ValueHolder missingValue(PreparedParameter param, ParamContext context, boolean valueRequired) {
+        if (valueRequired || !param.isNullable()) {
+            throw new ParameterValueNotFoundException(param.getName(), context);
+        }
+        return null;
     }
 
+
     @Override
     public ParamValue get(String paramName, Object... inputLevels) {
         ParamContext ctx = new LevelValues(inputLevels);
@@ -188,15 +401,37 @@ public class SmartParamEngine implements ParamEngine {
         ctx.setLevelValues(values);
     }
 
-    private PreparedEntry[] findParameterEntries(LevelIndexWalkerFactory indexWalkerFactory, PreparedParameter param, ParamContext ctx) {
+    private void prepareLevelValues(PreparedParameter param, ParamContext ctx) {
         if (ctx.getLevelValues() == null) {
             evaluateLevelValues(param, ctx);
         }
 
         validateLevelValues(ctx.getLevelValues(), param.getInputLevelsCount());
+    }
 
-        String[] normalizedInputValues = InputValueNormalizer.normalize(param, ctx.getLevelValues());
-        return findParameterEntries(indexWalkerFactory, param, normalizedInputValues);
+    private String[] normalizeLevelValues(PreparedParameter param, ParamContext ctx) {
+        // values passed to repository might be retained, so buffer is used only for cacheable parameters
+        String[] buffer = param.isCacheable() ? lookupBuffers.get().values(param.getInputLevelsCount()) : null;
+        return InputValueNormalizer.normalize(param, ctx.getLevelValues(), buffer);
+    }
+
+    private LevelKeys levelKeys(PreparedParameter param, ParamContext ctx) {
+        LevelKeys buffer = lookupBuffers.get().keys(param.getInputLevelsCount());
+        return InputValueNormalizer.normalize(param, ctx.getLevelValues(), buffer);
+    }
+
+    private PreparedEntry[] findParameterEntries(PreparedParameter param, LevelKeys levelKeys) {
+        CompiledLevelIndex<PreparedEntry> index = param.getCompiledIndex();
+        int node = CompiledLevelIndexWalker.findNode(index, levelKeys);
+        if (node == CompiledLevelIndex.NO_NODE) {
+            return new PreparedEntry[0];
+        }
+
+        PreparedEntry[] entries = new PreparedEntry[index.leafCount(node)];
+        for (int position = 0; position < entries.length; ++position) {
+            entries[position] = index.leaf(node, position);
+        }
+        return entries;
     }
 
     private PreparedEntry[] findParameterEntries(LevelIndexWalkerFactory indexWalkerFactory, PreparedParameter param, String[] levelValues) {
@@ -227,4 +462,57 @@ public class SmartParamEngine implements ParamEngine {
         }
         return param;
     }
+
+    private class EvaluationChunk implements Runnable {
+
+        private final PreparedParameter param;
+
+        private final List<? extends ParamContext> contexts;
+
+        private final int from;
+
+        private final int to;
+
+        private final ParamValue[] results;
+
+        EvaluationChunk(PreparedParameter param, List<? extends ParamContext> contexts, int from, int to, ParamValue[] results) {
+            this.param = param;
+            this.contexts = contexts;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            evaluateAll(param, contexts, from, to, results);
+        }
+    }
+
+    private static final class LookupBuffers {
+
+        private String[][] values = new String[INITIAL_LOOKUP_BUFFERS][];
+
+        private LevelKeys[] keys = new LevelKeys[INITIAL_LOOKUP_BUFFERS];
+
+        String[] values(int length) {
+            if (length >= values.length) {
+                values = Arrays.copyOf(values, length + 1);
+            }
+            if (values[length] == null) {
+                values[length] = new String[length];
+            }
+            return values[length];
+        }
+
+        LevelKeys keys(int length) {
+            if (length >= keys.length) {
+                keys = Arrays.copyOf(keys, length + 1);
+            }
+            if (keys[length] == null) {
+                keys[length] = new LevelKeys(length);
+            }
+            return keys[length];
+        }
+    }
 }
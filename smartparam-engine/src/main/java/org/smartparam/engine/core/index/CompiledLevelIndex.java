@@ -0,0 +1,802 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import org.smartparam.engine.core.matcher.CompiledPattern;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.matcher.RangeMatcher;
+import org.smartparam.engine.core.matcher.RangePattern;
+import org.smartparam.engine.core.type.LongKeyedType;
+import org.smartparam.engine.core.type.ObjectKeyedType;
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+import org.smartparam.engine.util.EngineUtil;
+
+/**
+ * Immutable, array based form of {@link LevelIndex}. Whole tree is flattened
+ * into few arrays: nodes are identified by int offsets, children of each node
+ * are stored in continuous block and all leaf values live in single array.
+ *
+ * Children of nodes at each level are laid out according to
+ * {@link LevelStrategy} chosen for this level from {@link LevelIndexStatistics}:
+ * small blocks are scanned linearly, big ones are looked up using per-node
+ * open addressing hash table or binary search. Children of nodes at
+ * {@link RangeMatcher} levels are indexed by decoded range bounds (see
+ * {@link RangeIndex}), children of other matcher levels keep source tree order.
+ * Children of nodes at exact-match levels of {@link LongKeyedType} or
+ * {@link ObjectKeyedType} are additionally keyed by typed keys, so they can be
+ * looked up without encoding level value to String (see {@link LevelKeys}).
+ *
+ * Compiled index is read-only, it is safe to share it between threads.
+ *
+ * @param <T> leaf type
+ *
+ * @author Adam Dubiel
+ */
+public class CompiledLevelIndex<T> {
+
+    public static final int NO_NODE = -1;
+
+    public static final int STRING_KEY = 0;
+
+    public static final int LONG_KEY = 1;
+
+    public static final int OBJECT_KEY = 2;
+
+    private static final int CHILD_OFFSET = 0;
+
+    private static final int CHILD_COUNT = 1;
+
+    private static final int TABLE_OFFSET = 2;
+
+    private static final int TABLE_MASK = 3;
+
+    private static final int DEFAULT_NODE = 4;
+
+    private static final int LEAF_OFFSET = 5;
+
+    private static final int LEAF_COUNT = 6;
+
+    private static final int RANGE_INDEX = 7;
+
+    private static final int KEY_TABLE_OFFSET = 8;
+
+    private static final int KEY_COUNT = 9;
+
+    private static final int LAYOUT = 10;
+
+    private static final int NODE_SIZE = 11;
+
+    private static final int EMPTY_SLOT = 0;
+
+    private static final int LINEAR_LAYOUT = 0;
+
+    private static final int HASH_LAYOUT = 1;
+
+    private static final int SORTED_LAYOUT = 2;
+
+    private final int levelCount;
+
+    private final Matcher[] matchers;
+
+    private final Type<?>[] types;
+
+    private final int[] keyKinds;
+
+    private final LevelIndexStatistics statistics;
+
+    /**
+     * Node descriptors, NODE_SIZE ints per node, node id is index of first
+     * descriptor field.
+     */
+    private final int[] nodes;
+
+    /**
+     * Children patterns, block of childCount values per node. At exact-match
+     * levels children with typed keys come first (keyCount of them, sorted if
+     * node is searched using binary search), at matcher levels order of
+     * source tree is preserved.
+     */
+    private final String[] childKeys;
+
+    /**
+     * Children patterns compiled by level matcher (or nulls), parallel to childKeys.
+     */
+    private final CompiledPattern[] childPatterns;
+
+    /**
+     * Children node ids, parallel to childKeys.
+     */
+    private final int[] childNodes;
+
+    /**
+     * Open addressing hash tables, slot holds (child position + 1) or EMPTY_SLOT,
+     * built only for nodes with hash layout.
+     */
+    private final int[] tables;
+
+    /**
+     * Typed keys of children, parallel to childKeys, filled only at typed levels.
+     */
+    private final long[] childLongKeys;
+
+    private final Object[] childObjectKeys;
+
+    /**
+     * Open addressing hash tables indexing children by typed keys, same layout as tables.
+     */
+    private final int[] keyTables;
+
+    private final Object[] leaves;
+
+    private final RangeIndex[] rangeIndexes;
+
+    public CompiledLevelIndex(LevelIndex<T> source) {
+        this(source, LevelIndexStatistics.gather(source));
+    }
+
+    public CompiledLevelIndex(LevelIndex<T> source, LevelIndexStatistics statistics) {
+        this.levelCount = source.getLevelCount();
+        this.statistics = statistics;
+        this.matchers = source.getMatchers().clone();
+        this.types = source.getTypes().clone();
+        this.keyKinds = new int[levelCount];
+        for (int depth = 0; depth < levelCount; ++depth) {
+            keyKinds[depth] = keyKind(matchers[depth], types[depth]);
+        }
+
+        LevelStrategy[] strategies = new LevelStrategy[levelCount];
+        for (int depth = 0; depth < levelCount; ++depth) {
+            strategies[depth] = statistics.getStrategy(depth);
+        }
+
+        Builder<T> builder = new Builder<T>(matchers, types, keyKinds, strategies);
+        builder.add(source.getRoot(), 0);
+
+        this.nodes = builder.nodes.toArray();
+        this.childKeys = builder.childKeys.toArray(new String[builder.childKeys.size()]);
+        this.childPatterns = builder.childPatterns.toArray(new CompiledPattern[builder.childPatterns.size()]);
+        this.childNodes = builder.childNodes.toArray();
+        this.tables = builder.tables.toArray();
+        this.childLongKeys = builder.childLongKeys.toArray();
+        this.childObjectKeys = builder.childObjectKeys.toArray();
+        this.keyTables = builder.keyTables.toArray();
+        this.leaves = builder.leaves.toArray();
+        this.rangeIndexes = builder.rangeIndexes.toArray(new RangeIndex[builder.rangeIndexes.size()]);
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    /**
+     * Return id of child node stored under exactly the same pattern or
+     * {@link #NO_NODE} if there is none.
+     */
+    public int child(int node, String pattern) {
+        int childCount = nodes[node + CHILD_COUNT];
+        if (childCount == 0) {
+            return NO_NODE;
+        }
+
+        int childOffset = nodes[node + CHILD_OFFSET];
+        if (nodes[node + LAYOUT] == LINEAR_LAYOUT) {
+            for (int position = childOffset; position < childOffset + childCount; ++position) {
+                String key = childKeys[position];
+                if (key == pattern || (key != null && key.equals(pattern))) {
+                    return childNodes[position];
+                }
+            }
+            return NO_NODE;
+        }
+
+        int tableOffset = nodes[node + TABLE_OFFSET];
+        int mask = nodes[node + TABLE_MASK];
+
+        int slot = spread(pattern) & mask;
+        int position;
+        while ((position = tables[tableOffset + slot]) != EMPTY_SLOT) {
+            String key = childKeys[childOffset + position - 1];
+            if (key == pattern || (key != null && key.equals(pattern))) {
+                return childNodes[childOffset + position - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Return id of child node stored under given long key or {@link #NO_NODE}
+     * if there is none or node has no children indexed by long keys.
+     */
+    public int child(int node, long key) {
+        int keyCount = nodes[node + KEY_COUNT];
+        if (keyCount == 0) {
+            return NO_NODE;
+        }
+
+        int childOffset = nodes[node + CHILD_OFFSET];
+        int layout = nodes[node + LAYOUT];
+        if (layout == SORTED_LAYOUT) {
+            int position = Arrays.binarySearch(childLongKeys, childOffset, childOffset + keyCount, key);
+            return position >= 0 ? childNodes[position] : NO_NODE;
+        }
+        if (layout == LINEAR_LAYOUT) {
+            for (int position = childOffset; position < childOffset + keyCount; ++position) {
+                if (childLongKeys[position] == key) {
+                    return childNodes[position];
+                }
+            }
+            return NO_NODE;
+        }
+
+        int tableOffset = nodes[node + KEY_TABLE_OFFSET];
+        int mask = nodes[node + TABLE_MASK];
+
+        int slot = spread(key) & mask;
+        int position;
+        while ((position = keyTables[tableOffset + slot]) != EMPTY_SLOT) {
+            if (childLongKeys[childOffset + position - 1] == key) {
+                return childNodes[childOffset + position - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Return id of child node stored under given object key or {@link #NO_NODE}
+     * if there is none or node has no children indexed by object keys.
+     */
+    public int child(int node, Object key) {
+        int keyCount = nodes[node + KEY_COUNT];
+        if (keyCount == 0) {
+            return NO_NODE;
+        }
+
+        int childOffset = nodes[node + CHILD_OFFSET];
+        if (nodes[node + LAYOUT] != HASH_LAYOUT) {
+            for (int position = childOffset; position < childOffset + keyCount; ++position) {
+                if (key.equals(childObjectKeys[position])) {
+                    return childNodes[position];
+                }
+            }
+            return NO_NODE;
+        }
+
+        int tableOffset = nodes[node + KEY_TABLE_OFFSET];
+        int mask = nodes[node + TABLE_MASK];
+
+        int slot = spread(key.hashCode()) & mask;
+        int position;
+        while ((position = keyTables[tableOffset + slot]) != EMPTY_SLOT) {
+            if (key.equals(childObjectKeys[childOffset + position - 1])) {
+                return childNodes[childOffset + position - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_NODE;
+    }
+
+    public int childCount(int node) {
+        return nodes[node + CHILD_COUNT];
+    }
+
+    public String childKey(int node, int position) {
+        return childKeys[nodes[node + CHILD_OFFSET] + position];
+    }
+
+    public CompiledPattern childPattern(int node, int position) {
+        return childPatterns[nodes[node + CHILD_OFFSET] + position];
+    }
+
+    public int childNode(int node, int position) {
+        return childNodes[nodes[node + CHILD_OFFSET] + position];
+    }
+
+    /**
+     * Return range index of node children or null if node has none, in which
+     * case all children should be checked using level matcher.
+     */
+    RangeIndex rangeIndex(int node) {
+        int rangeIndex = nodes[node + RANGE_INDEX];
+        return rangeIndex != NO_NODE ? rangeIndexes[rangeIndex] : null;
+    }
+
+    public int defaultNode(int node) {
+        return nodes[node + DEFAULT_NODE];
+    }
+
+    public int leafCount(int node) {
+        return nodes[node + LEAF_COUNT];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T leaf(int node, int position) {
+        return (T) leaves[nodes[node + LEAF_OFFSET] + position];
+    }
+
+    /**
+     * Return read-only view of values stored in node or null if node holds no
+     * values (same contract as {@link LevelNode#getLeafList()}).
+     */
+    public List<T> leafList(int node) {
+        int count = nodes[node + LEAF_COUNT];
+        return count > 0 ? new LeafList<T>(leaves, nodes[node + LEAF_OFFSET], count) : null;
+    }
+
+    public Matcher getMatcher(int depth) {
+        return matchers[depth];
+    }
+
+    public Type<?> getType(int depth) {
+        return types[depth];
+    }
+
+    /**
+     * Returns kind of keys ({@link #STRING_KEY}, {@link #LONG_KEY} or
+     * {@link #OBJECT_KEY}) that can be used to look up values at given level.
+     */
+    public int getKeyKind(int depth) {
+        return keyKinds[depth];
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Returns strategy used to lay out children of nodes at given level.
+     */
+    public LevelStrategy getStrategy(int depth) {
+        return statistics.getStrategy(depth);
+    }
+
+    /**
+     * Returns statistics of source index, which were used to choose level
+     * strategies.
+     */
+    public LevelIndexStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int nodeCount() {
+        return nodes.length / NODE_SIZE;
+    }
+
+    /**
+     * Returns number of values stored in all leaves.
+     */
+    public int valueCount() {
+        return leaves.length;
+    }
+
+    /**
+     * Rough estimate of heap occupied by index arrays (in bytes), not counting
+     * keys and values shared with source {@link LevelIndex}.
+     */
+    public long estimatedSize() {
+        return 4L * (nodes.length + childNodes.length + tables.length + keyTables.length)
+                + 8L * (childKeys.length + childPatterns.length + childLongKeys.length + childObjectKeys.length + leaves.length + rangeIndexes.length);
+    }
+
+    /**
+     * Rebuild pointer based {@link LevelIndex} holding the same patterns and
+     * leaves, for consumers that need to walk the tree (reports, customizable
+     * walkers). Compiled index stays untouched.
+     */
+    public LevelIndex<T> toLevelIndex() {
+        LevelIndex<T> index = new LevelIndex<T>(levelCount, types, matchers);
+        addTo(index, root(), new String[levelCount], 0);
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addTo(LevelIndex<T> index, int node, String[] path, int depth) {
+        int leafOffset = nodes[node + LEAF_OFFSET];
+        int leafCount = nodes[node + LEAF_COUNT];
+        for (int leaf = leafOffset; leaf < leafOffset + leafCount; ++leaf) {
+            index.add(path, (T) leaves[leaf]);
+        }
+
+        int childOffset = nodes[node + CHILD_OFFSET];
+        int childCount = nodes[node + CHILD_COUNT];
+        for (int child = childOffset; child < childOffset + childCount; ++child) {
+            path[depth] = childKeys[child];
+            addTo(index, childNodes[child], path, depth + 1);
+        }
+
+        int defaultNode = nodes[node + DEFAULT_NODE];
+        if (defaultNode != NO_NODE) {
+            path[depth] = "*";
+            addTo(index, defaultNode, path, depth + 1);
+        }
+    }
+
+    private static int spread(String key) {
+        return key != null ? spread(key.hashCode()) : 0;
+    }
+
+    private static int spread(long key) {
+        return spread((int) (key ^ (key >>> 32)));
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    static int keyKind(Matcher matcher, Type<?> type) {
+        if (matcher != null) {
+            return STRING_KEY;
+        }
+        if (type instanceof LongKeyedType && ((LongKeyedType<?>) type).hasLongKeys()) {
+            return LONG_KEY;
+        }
+        if (type instanceof ObjectKeyedType) {
+            return OBJECT_KEY;
+        }
+        return STRING_KEY;
+    }
+
+    private static int tableSize(int childCount) {
+        int size = 2;
+        while (size < childCount * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static final class Builder<T> {
+
+        private final IntList nodes = new IntList();
+
+        private final List<String> childKeys = new ArrayList<String>();
+
+        private final List<CompiledPattern> childPatterns = new ArrayList<CompiledPattern>();
+
+        private final IntList childNodes = new IntList();
+
+        private final IntList tables = new IntList();
+
+        private final List<Object> leaves = new ArrayList<Object>();
+
+        private final List<RangeIndex> rangeIndexes = new ArrayList<RangeIndex>();
+
+        private final LongList childLongKeys = new LongList();
+
+        private final List<Object> childObjectKeys = new ArrayList<Object>();
+
+        private final IntList keyTables = new IntList();
+
+        private final Matcher[] matchers;
+
+        private final Type<?>[] types;
+
+        private final int[] keyKinds;
+
+        private final LevelStrategy[] strategies;
+
+        Builder(Matcher[] matchers, Type<?>[] types, int[] keyKinds, LevelStrategy[] strategies) {
+            this.matchers = matchers;
+            this.types = types;
+            this.keyKinds = keyKinds;
+            this.strategies = strategies;
+        }
+
+        int add(LevelNode<T> source, int depth) {
+            int node = nodes.size();
+            nodes.grow(NODE_SIZE);
+
+            List<T> leafList = source.getLeafList();
+            nodes.set(node + LEAF_OFFSET, leaves.size());
+            nodes.set(node + LEAF_COUNT, leafList != null ? leafList.size() : 0);
+            if (leafList != null) {
+                leaves.addAll(leafList);
+            }
+
+            Map<String, LevelNode<T>> children = source.getChildren();
+            int childCount = children != null ? children.size() : 0;
+            int childOffset = childKeys.size();
+            nodes.set(node + CHILD_OFFSET, childOffset);
+            nodes.set(node + CHILD_COUNT, childCount);
+            nodes.set(node + TABLE_OFFSET, NO_NODE);
+            nodes.set(node + RANGE_INDEX, NO_NODE);
+            nodes.set(node + KEY_TABLE_OFFSET, NO_NODE);
+            nodes.set(node + LAYOUT, LINEAR_LAYOUT);
+
+            if (childCount > 0) {
+                LevelStrategy strategy = strategies[depth];
+                List<Child<T>> orderedChildren = orderChildren(children, depth, strategy);
+
+                int keyCount = 0;
+                childNodes.grow(childCount);
+                childLongKeys.grow(childCount);
+                for (Child<T> child : orderedChildren) {
+                    childLongKeys.set(childKeys.size(), child.longKey);
+                    childKeys.add(child.key);
+                    childPatterns.add(child.node.getPattern());
+                    childObjectKeys.add(child.objectKey);
+                    keyCount += child.typed ? 1 : 0;
+                }
+                nodes.set(node + KEY_COUNT, keyCount);
+
+                if (strategy == LevelStrategy.HASH || strategy == LevelStrategy.SORTED) {
+                    int tableSize = tableSize(childCount);
+                    nodes.set(node + TABLE_OFFSET, buildTable(childOffset, childCount, tableSize));
+                    nodes.set(node + TABLE_MASK, tableSize - 1);
+                    nodes.set(node + LAYOUT, HASH_LAYOUT);
+
+                    if (strategy == LevelStrategy.SORTED && keyKinds[depth] == LONG_KEY) {
+                        nodes.set(node + LAYOUT, SORTED_LAYOUT);
+                    } else if (keyCount > 0) {
+                        nodes.set(node + KEY_TABLE_OFFSET, buildKeyTable(childOffset, keyCount, tableSize, depth));
+                    }
+                }
+
+                int position = 0;
+                for (Child<T> child : orderedChildren) {
+                    childNodes.set(childOffset + position, add(child.node, depth + 1));
+                    position++;
+                }
+
+                if (strategy == LevelStrategy.RANGE) {
+                    RangeIndex rangeIndex = buildRangeIndex(childOffset, childCount, depth);
+                    if (rangeIndex != null) {
+                        nodes.set(node + RANGE_INDEX, rangeIndexes.size());
+                        rangeIndexes.add(rangeIndex);
+                    }
+                }
+            }
+
+            LevelNode<T> defaultNode = source.getDefaultNode();
+            nodes.set(node + DEFAULT_NODE, defaultNode != null ? add(defaultNode, depth + 1) : NO_NODE);
+
+            return node;
+        }
+
+        /**
+         * Returns children in order of source tree, except for exact-match
+         * typed levels, where children with typed keys come first (sorted by
+         * key when level uses binary search).
+         */
+        private List<Child<T>> orderChildren(Map<String, LevelNode<T>> children, int depth, LevelStrategy strategy) {
+            List<Child<T>> orderedChildren = new ArrayList<Child<T>>(children.size());
+            for (Map.Entry<String, LevelNode<T>> child : children.entrySet()) {
+                orderedChildren.add(new Child<T>(child.getKey(), child.getValue()));
+            }
+
+            if (depth >= keyKinds.length || keyKinds[depth] == STRING_KEY) {
+                return orderedChildren;
+            }
+
+            for (Child<T> child : orderedChildren) {
+                decodeKey(child, depth);
+            }
+            Collections.sort(orderedChildren, strategy == LevelStrategy.SORTED ? SORTED_ORDER : TYPED_FIRST_ORDER);
+            return orderedChildren;
+        }
+
+        private void decodeKey(Child<T> child, int depth) {
+            if (!EngineUtil.hasText(child.key)) {
+                // blank values are looked up only as strings
+                return;
+            }
+            try {
+                if (keyKinds[depth] == LONG_KEY) {
+                    child.longKey = ((LongKeyedType<?>) types[depth]).longKey(child.key);
+                } else {
+                    child.objectKey = ((ObjectKeyedType<?>) types[depth]).objectKey(child.key);
+                }
+                child.typed = true;
+            } catch (RuntimeException corruptedPattern) {
+                // no decodable value can match it, it stays reachable by String value
+            }
+        }
+
+        private int buildTable(int childOffset, int childCount, int tableSize) {
+            int tableOffset = tables.size();
+            tables.grow(tableSize);
+
+            for (int position = 0; position < childCount; ++position) {
+                int slot = spread(childKeys.get(childOffset + position)) & (tableSize - 1);
+                while (tables.get(tableOffset + slot) != EMPTY_SLOT) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                tables.set(tableOffset + slot, position + 1);
+            }
+            return tableOffset;
+        }
+
+        private int buildKeyTable(int childOffset, int keyCount, int tableSize, int depth) {
+            int tableOffset = keyTables.size();
+            keyTables.grow(tableSize);
+
+            for (int position = 0; position < keyCount; ++position) {
+                int hash;
+                if (keyKinds[depth] == LONG_KEY) {
+                    hash = spread(childLongKeys.get(childOffset + position));
+                } else {
+                    hash = spread(childObjectKeys.get(childOffset + position).hashCode());
+                }
+
+                int slot = hash & (tableSize - 1);
+                while (keyTables.get(tableOffset + slot) != EMPTY_SLOT) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                keyTables.set(tableOffset + slot, position + 1);
+            }
+            return tableOffset;
+        }
+
+        private RangeIndex buildRangeIndex(int childOffset, int childCount, int depth) {
+            if (childCount < 2 || !(matchers[depth] instanceof RangeMatcher) || types[depth] == null) {
+                return null;
+            }
+
+            RangeMatcher matcher = (RangeMatcher) matchers[depth];
+            RangePattern[] ranges = new RangePattern[childCount];
+            try {
+                for (int position = 0; position < childCount; ++position) {
+                    ranges[position] = decodeRange(matcher, childKeys.get(childOffset + position), types[depth]);
+                }
+            } catch (RuntimeException corruptedPattern) {
+                // pattern can't be decoded, leave it to matcher to deal with it at lookup time
+                return null;
+            }
+            return RangeIndex.build(ranges);
+        }
+
+        private <V extends ValueHolder> RangePattern decodeRange(RangeMatcher matcher, String pattern, Type<V> type) {
+            return matcher.decodeRange(pattern, type);
+        }
+    }
+
+    private static final class Child<T> {
+
+        private final String key;
+
+        private final LevelNode<T> node;
+
+        private boolean typed;
+
+        private long longKey;
+
+        private Object objectKey;
+
+        Child(String key, LevelNode<T> node) {
+            this.key = key;
+            this.node = node;
+        }
+    }
+
+    private static final Comparator<Child<?>> TYPED_FIRST_ORDER = new Comparator<Child<?>>() {
+        @Override
+        public int compare(Child<?> first, Child<?> second) {
+            return (first.typed ? 0 : 1) - (second.typed ? 0 : 1);
+        }
+    };
+
+    private static final Comparator<Child<?>> SORTED_ORDER = new Comparator<Child<?>>() {
+        @Override
+        public int compare(Child<?> first, Child<?> second) {
+            if (first.typed != second.typed) {
+                return first.typed ? -1 : 1;
+            }
+            return first.longKey < second.longKey ? -1 : (first.longKey == second.longKey ? 0 : 1);
+        }
+    };
+
+    private static final class IntList {
+
+        private int[] values = new int[64];
+
+        private int size;
+
+        void grow(int count) {
+            if (size + count > values.length) {
+                int[] newValues = new int[Math.max(values.length << 1, size + count)];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            size += count;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            int[] array = new int[size];
+            System.arraycopy(values, 0, array, 0, size);
+            return array;
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] values = new long[64];
+
+        private int size;
+
+        void grow(int count) {
+            if (size + count > values.length) {
+                long[] newValues = new long[Math.max(values.length << 1, size + count)];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            size += count;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        void set(int index, long value) {
+            values[index] = value;
+        }
+
+        long[] toArray() {
+            long[] array = new long[size];
+            System.arraycopy(values, 0, array, 0, size);
+            return array;
+        }
+    }
+
+    private static final class LeafList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Object[] leaves;
+
+        private final int offset;
+
+        private final int size;
+
+        LeafList(Object[] leaves, int offset, int size) {
+            this.leaves = leaves;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) leaves[offset + index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.List;
+import org.smartparam.engine.core.matcher.CompilableMatcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+
+/**
+ * Walks {@link CompiledLevelIndex}, returns exactly the same results as
+ * {@link FastLevelIndexWalker} would return for source {@link LevelIndex}.
+ *
+ * @author Adam Dubiel
+ */
+public class CompiledLevelIndexWalker<T> implements LevelIndexWalker<T> {
+
+    private final CompiledLevelIndex<T> index;
+
+    private final LevelKeys levelKeys;
+
+    public CompiledLevelIndexWalker(CompiledLevelIndex<T> index, String... levelValues) {
+        this(index, LevelKeys.of(levelValues));
+    }
+
+    public CompiledLevelIndexWalker(CompiledLevelIndex<T> index, LevelKeys levelKeys) {
+        this.index = index;
+        this.levelKeys = levelKeys;
+    }
+
+    @Override
+    public List<T> find() {
+        int node = findNode(index, levelKeys);
+        return node != CompiledLevelIndex.NO_NODE ? index.leafList(node) : null;
+    }
+
+    /**
+     * Return id of node holding values matching given level values or
+     * {@link CompiledLevelIndex#NO_NODE}. Does not allocate any objects, unless
+     * level matcher needs to decode level value.
+     */
+    public static int findNode(CompiledLevelIndex<?> index, LevelKeys levelKeys) {
+        return find(index, levelKeys, index.root(), 0);
+    }
+
+    private static int find(CompiledLevelIndex<?> index, LevelKeys levelKeys, int currentNode, int currentDepth) {
+        if (currentDepth >= levelKeys.size()) {
+            // last node reached - final station
+            return currentNode;
+        }
+
+        Matcher matcher = index.getMatcher(currentDepth);
+
+        int matchedNode = CompiledLevelIndex.NO_NODE;
+        if (index.childCount(currentNode) > 0) {
+            if (matcher == null) {
+                // no other child can equal value, so there is no need for scanning all children
+                int child = exactChild(index, levelKeys, currentNode, currentDepth);
+                if (child != CompiledLevelIndex.NO_NODE) {
+                    matchedNode = find(index, levelKeys, child, currentDepth + 1);
+                }
+            } else {
+                matchedNode = match(index, levelKeys, currentNode, levelKeys.value(currentDepth), matcher, index.getType(currentDepth), currentDepth);
+            }
+        }
+
+        int defaultNode = index.defaultNode(currentNode);
+        if (matchedNode == CompiledLevelIndex.NO_NODE && defaultNode != CompiledLevelIndex.NO_NODE) {
+            matchedNode = find(index, levelKeys, defaultNode, currentDepth + 1);
+        }
+
+        return matchedNode;
+    }
+
+    private static int exactChild(CompiledLevelIndex<?> index, LevelKeys levelKeys, int currentNode, int currentDepth) {
+        switch (levelKeys.kind(currentDepth)) {
+            case CompiledLevelIndex.LONG_KEY:
+                return index.child(currentNode, levelKeys.longKey(currentDepth));
+            case CompiledLevelIndex.OBJECT_KEY:
+                return index.child(currentNode, levelKeys.objectKey(currentDepth));
+            default:
+                return index.child(currentNode, levelKeys.value(currentDepth));
+        }
+    }
+
+    private static int match(CompiledLevelIndex<?> index, LevelKeys levelKeys, int currentNode, String value, Matcher matcher, Type<?> type, int currentDepth) {
+        RangeIndex rangeIndex = index.rangeIndex(currentNode);
+        if (rangeIndex != null) {
+            ValueHolder decodedValue = (ValueHolder) decodeValue((CompilableMatcher) matcher, value, type);
+            return matchRange(index, levelKeys, currentNode, rangeIndex, decodedValue, currentDepth);
+        }
+
+        Object decodedValue = null;
+        boolean decoded = false;
+
+        int childCount = index.childCount(currentNode);
+        for (int position = 0; position < childCount; ++position) {
+            CompiledPattern pattern = index.childPattern(currentNode, position);
+
+            boolean matches;
+            if (pattern != null) {
+                if (!decoded) {
+                    decodedValue = decodeValue((CompilableMatcher) matcher, value, type);
+                    decoded = true;
+                }
+                matches = pattern.matches(decodedValue);
+            } else {
+                matches = matcher.matches(value, index.childKey(currentNode, position), type);
+            }
+
+            if (matches) {
+                int leaf = find(index, levelKeys, index.childNode(currentNode, position), currentDepth + 1);
+                if (leaf != CompiledLevelIndex.NO_NODE) {
+                    return leaf;
+                }
+            }
+        }
+        return CompiledLevelIndex.NO_NODE;
+    }
+
+    private static <V extends ValueHolder> Object decodeValue(CompilableMatcher matcher, String value, Type<V> type) {
+        return matcher.decodeValue(value, type);
+    }
+
+    private static int matchRange(CompiledLevelIndex<?> index, LevelKeys levelKeys, int currentNode, RangeIndex rangeIndex, ValueHolder value, int currentDepth) {
+        int segment = rangeIndex.segment(value);
+        int candidatesTo = rangeIndex.candidatesTo(segment);
+        for (int candidate = rangeIndex.candidatesFrom(segment); candidate < candidatesTo; ++candidate) {
+            int leaf = find(index, levelKeys, index.childNode(currentNode, rangeIndex.candidate(candidate)), currentDepth + 1);
+            if (leaf != CompiledLevelIndex.NO_NODE) {
+                return leaf;
+            }
+        }
+        return CompiledLevelIndex.NO_NODE;
+    }
+}
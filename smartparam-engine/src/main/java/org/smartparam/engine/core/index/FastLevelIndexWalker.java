@@ -18,8 +18,11 @@ package org.smartparam.engine.core.index;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import org.smartparam.engine.core.matcher.CompilableMatcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
 import org.smartparam.engine.core.matcher.Matcher;
 import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
 
 /**
  * Fastest way to get value from index - default ParamEngine mode optimized for speed.
@@ -82,9 +85,24 @@ public class FastLevelIndexWalker<T> implements LevelIndexWalker<T> {
         Iterator<Map.Entry<String, LevelNode<T>>> childrenIterator = currentNode.getChildren().entrySet().iterator();
 
         Map.Entry<String, LevelNode<T>> entry;
+        Object decodedValue = null;
+        boolean decoded = false;
         while (leaf == null && childrenIterator.hasNext()) {
             entry = childrenIterator.next();
-            if (patternMatches(val, matcher, type, entry.getKey())) {
+            CompiledPattern pattern = entry.getValue().getPattern();
+
+            boolean matches;
+            if (pattern != null) {
+                if (!decoded) {
+                    decodedValue = decodeValue((CompilableMatcher) matcher, val, type);
+                    decoded = true;
+                }
+                matches = pattern.matches(decodedValue);
+            } else {
+                matches = patternMatches(val, matcher, type, entry.getKey());
+            }
+
+            if (matches) {
                 leaf = traverseChildNode(entry.getValue(), currentDepth);
             }
         }
@@ -92,6 +110,10 @@ public class FastLevelIndexWalker<T> implements LevelIndexWalker<T> {
         return leaf;
     }
 
+    private <V extends ValueHolder> Object decodeValue(CompilableMatcher matcher, String value, Type<V> type) {
+        return matcher.decodeValue(value, type);
+    }
+
     private boolean patternMatches(String value, Matcher matcher, Type<?> type, String pattern) {
         if (matcher == null) {
             if (pattern == null) {
@@ -15,8 +15,11 @@
  */
 package org.smartparam.engine.core.index;
 
+import org.smartparam.engine.core.matcher.CompilableMatcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
 import org.smartparam.engine.core.matcher.Matcher;
 import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
 import org.smartparam.engine.util.Formatter;
 
 /**
@@ -101,6 +104,26 @@ public class LevelIndex<T> {
         return builder.toString();
     }
 
+    /**
+     * Compile pattern using matcher of given level, returns null if matcher
+     * is not compilable or pattern can't be compiled.
+     */
+    CompiledPattern compilePattern(String pattern, int depth) {
+        if (!(matchers[depth] instanceof CompilableMatcher)) {
+            return null;
+        }
+        try {
+            return compile((CompilableMatcher) matchers[depth], pattern, types[depth]);
+        } catch (RuntimeException corruptedPattern) {
+            // leave it to matcher to deal with it at lookup time
+            return null;
+        }
+    }
+
+    private <V extends ValueHolder> CompiledPattern compile(CompilableMatcher matcher, String pattern, Type<V> type) {
+        return matcher.compile(pattern, type);
+    }
+
     Matcher[] getMatchers() {
         return matchers;
     }
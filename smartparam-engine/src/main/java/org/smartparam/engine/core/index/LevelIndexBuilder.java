@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.List;
+
+/**
+ * Strategy of inserting entries into {@link LevelIndex}. Implementations
+ * have to preserve order of leaves that end up in the same node, as lookup
+ * returns first matching entry.
+ *
+ * @author Adam Dubiel
+ */
+public interface LevelIndexBuilder {
+
+    /**
+     * Add leaves to index, i-th leaf under i-th level values path.
+     */
+    <T> void addAll(LevelIndex<T> index, List<String[]> levelValues, List<T> leaves);
+
+}
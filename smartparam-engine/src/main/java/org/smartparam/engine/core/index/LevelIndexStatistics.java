@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.matcher.RangeMatcher;
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.util.Formatter;
+
+/**
+ * Cardinality and matcher statistics of each level of {@link LevelIndex},
+ * used to choose {@link LevelStrategy} of each level when compiling index.
+ *
+ * @author Adam Dubiel
+ */
+public final class LevelIndexStatistics {
+
+    /**
+     * Levels with at most that many children per node are scanned linearly.
+     */
+    static final int INLINE_CHILD_LIMIT = 8;
+
+    /**
+     * Levels with long keys and at most that many children per node are
+     * searched using binary search, bigger ones are hashed.
+     */
+    static final int SORTED_CHILD_LIMIT = 64;
+
+    private final LevelStatistics[] levels;
+
+    private LevelIndexStatistics(LevelStatistics[] levels) {
+        this.levels = levels;
+    }
+
+    public static LevelIndexStatistics gather(LevelIndex<?> index) {
+        int levelCount = index.getLevelCount();
+        Counters counters = new Counters(levelCount);
+        counters.visit(index.getRoot(), 0);
+
+        LevelStatistics[] levels = new LevelStatistics[levelCount];
+        for (int depth = 0; depth < levelCount; ++depth) {
+            LevelStrategy strategy = chooseStrategy(index.getMatcher(depth), index.getType(depth),
+                    counters.childCount[depth], counters.maxChildCount[depth]);
+            levels[depth] = new LevelStatistics(depth, counters.nodeCount[depth], counters.childCount[depth],
+                    counters.maxChildCount[depth], counters.distinctValues.get(depth).size(), counters.defaultCount[depth], strategy);
+        }
+        return new LevelIndexStatistics(levels);
+    }
+
+    static LevelStrategy chooseStrategy(Matcher matcher, Type<?> type, int childCount, int maxChildCount) {
+        if (childCount == 0) {
+            return LevelStrategy.DEFAULT_ONLY;
+        }
+        if (matcher instanceof RangeMatcher && type != null) {
+            return LevelStrategy.RANGE;
+        }
+        if (matcher != null) {
+            return LevelStrategy.SCAN;
+        }
+        if (maxChildCount <= INLINE_CHILD_LIMIT) {
+            return LevelStrategy.INLINE;
+        }
+        if (maxChildCount <= SORTED_CHILD_LIMIT && CompiledLevelIndex.keyKind(matcher, type) == CompiledLevelIndex.LONG_KEY) {
+            return LevelStrategy.SORTED;
+        }
+        return LevelStrategy.HASH;
+    }
+
+    public LevelStatistics getLevel(int depth) {
+        return levels[depth];
+    }
+
+    public LevelStrategy getStrategy(int depth) {
+        return levels[depth].getStrategy();
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Pretty printing statistics and chosen strategy of each level.
+     */
+    public String printStatistics() {
+        StringBuilder builder = new StringBuilder(Formatter.INITIAL_STR_LEN_256);
+        for (LevelStatistics level : levels) {
+            builder.append(level).append(Formatter.NL);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return printStatistics();
+    }
+
+    private static final class Counters {
+
+        private final int[] nodeCount;
+
+        private final int[] childCount;
+
+        private final int[] maxChildCount;
+
+        private final int[] defaultCount;
+
+        private final List<Set<String>> distinctValues;
+
+        Counters(int levelCount) {
+            nodeCount = new int[levelCount];
+            childCount = new int[levelCount];
+            maxChildCount = new int[levelCount];
+            defaultCount = new int[levelCount];
+            distinctValues = new ArrayList<Set<String>>(levelCount);
+            for (int depth = 0; depth < levelCount; ++depth) {
+                distinctValues.add(new HashSet<String>());
+            }
+        }
+
+        <T> void visit(LevelNode<T> node, int depth) {
+            if (depth >= nodeCount.length) {
+                return;
+            }
+
+            Map<String, LevelNode<T>> children = node.getChildren();
+            int count = children != null ? children.size() : 0;
+            LevelNode<T> defaultNode = node.getDefaultNode();
+            if (count == 0 && defaultNode == null) {
+                return;
+            }
+
+            nodeCount[depth]++;
+            childCount[depth] += count;
+            maxChildCount[depth] = Math.max(maxChildCount[depth], count);
+            if (children != null) {
+                distinctValues.get(depth).addAll(children.keySet());
+                for (LevelNode<T> child : children.values()) {
+                    visit(child, depth + 1);
+                }
+            }
+            if (defaultNode != null) {
+                defaultCount[depth]++;
+                visit(defaultNode, depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.Arrays;
+
+/**
+ * Level values prepared for {@link CompiledLevelIndex} lookup. Each level
+ * holds either normalized String value or typed key (see
+ * {@link CompiledLevelIndex#getKeyKind(int)}). Mutable and meant to be reused
+ * by single thread for consecutive lookups.
+ *
+ * @author Adam Dubiel
+ */
+public final class LevelKeys {
+
+    private final String[] values;
+
+    private final long[] longKeys;
+
+    private final Object[] objectKeys;
+
+    private final int[] kinds;
+
+    public LevelKeys(int levelCount) {
+        values = new String[levelCount];
+        longKeys = new long[levelCount];
+        objectKeys = new Object[levelCount];
+        kinds = new int[levelCount];
+    }
+
+    public static LevelKeys of(String... values) {
+        LevelKeys keys = new LevelKeys(values.length);
+        for (int depth = 0; depth < values.length; ++depth) {
+            keys.setValue(depth, values[depth]);
+        }
+        return keys;
+    }
+
+    public void setValue(int depth, String value) {
+        values[depth] = value;
+        objectKeys[depth] = null;
+        kinds[depth] = CompiledLevelIndex.STRING_KEY;
+    }
+
+    public void setLongKey(int depth, long key) {
+        values[depth] = null;
+        objectKeys[depth] = null;
+        longKeys[depth] = key;
+        kinds[depth] = CompiledLevelIndex.LONG_KEY;
+    }
+
+    public void setObjectKey(int depth, Object key) {
+        values[depth] = null;
+        objectKeys[depth] = key;
+        kinds[depth] = CompiledLevelIndex.OBJECT_KEY;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    int kind(int depth) {
+        return kinds[depth];
+    }
+
+    String value(int depth) {
+        return values[depth];
+    }
+
+    long longKey(int depth) {
+        return longKeys[depth];
+    }
+
+    Object objectKey(int depth) {
+        return objectKeys[depth];
+    }
+
+    @Override
+    public String toString() {
+        Object[] keys = new Object[values.length];
+        for (int depth = 0; depth < keys.length; ++depth) {
+            switch (kinds[depth]) {
+                case CompiledLevelIndex.LONG_KEY:
+                    keys[depth] = longKeys[depth];
+                    break;
+                case CompiledLevelIndex.OBJECT_KEY:
+                    keys[depth] = objectKeys[depth];
+                    break;
+                default:
+                    keys[depth] = values[depth];
+            }
+        }
+        return "[LevelKeys " + Arrays.toString(keys) + "]";
+    }
+}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.smartparam.engine.core.matcher.CompiledPattern;
 import org.smartparam.engine.util.Formatter;
 import org.smartparam.engine.util.Printer;
 
@@ -36,6 +37,8 @@ public class LevelNode<T> {
 
     private String level;
 
+    private CompiledPattern pattern;
+
     private Map<String, LevelNode<T>> children;
 
     private LevelNode<T> defaultNode;
@@ -65,22 +68,7 @@ public class LevelNode<T> {
     void add(String[] levels, T leafValue, int depth) {
 
         if (!reachedLeafDepth(depth)) {
-            String levelVal = levels[depth];
-
-            if ("*".equals(levelVal)) {
-                if (defaultNode == null) {
-                    defaultNode = new LevelNode<T>(levelVal, this, index);
-                }
-                defaultNode.add(levels, leafValue, depth + 1);
-            } else {
-                ensureChildrenIsReady();
-                LevelNode<T> child = children.get(levelVal);
-                if (child == null) {
-                    child = new LevelNode<T>(levelVal, this, index);
-                    children.put(levelVal, child);
-                }
-                child.add(levels, leafValue, depth + 1);
-            }
+            childFor(levels[depth], depth).add(levels, leafValue, depth + 1);
         } else {
             if (leafList == null) {
                 leafList = new ArrayList<T>(1);
@@ -95,6 +83,27 @@ public class LevelNode<T> {
         }
     }
 
+    /**
+     * Return child node for given level value, creating it if needed.
+     */
+    LevelNode<T> childFor(String levelVal, int depth) {
+        if ("*".equals(levelVal)) {
+            if (defaultNode == null) {
+                defaultNode = new LevelNode<T>(levelVal, this, index);
+            }
+            return defaultNode;
+        }
+
+        ensureChildrenIsReady();
+        LevelNode<T> child = children.get(levelVal);
+        if (child == null) {
+            child = new LevelNode<T>(levelVal, this, index);
+            child.pattern = index.compilePattern(levelVal, depth);
+            children.put(levelVal, child);
+        }
+        return child;
+    }
+
     private boolean reachedLeafDepth(int depth) {
         return depth >= index.getLevelCount();
     }
@@ -117,6 +126,14 @@ public class LevelNode<T> {
         return children;
     }
 
+    /**
+     * Returns level pattern compiled by level matcher, null if matcher is not
+     * compilable.
+     */
+    public CompiledPattern getPattern() {
+        return pattern;
+    }
+
     public LevelNode<T> getDefaultNode() {
         return defaultNode;
     }
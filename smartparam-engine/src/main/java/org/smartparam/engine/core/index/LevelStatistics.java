@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+/**
+ * Shape of single level of index tree along with strategy chosen for it.
+ *
+ * @author Adam Dubiel
+ */
+public final class LevelStatistics {
+
+    private final int depth;
+
+    private final int nodeCount;
+
+    private final int childCount;
+
+    private final int maxChildCount;
+
+    private final int distinctValueCount;
+
+    private final int defaultCount;
+
+    private final LevelStrategy strategy;
+
+    LevelStatistics(int depth, int nodeCount, int childCount, int maxChildCount, int distinctValueCount, int defaultCount, LevelStrategy strategy) {
+        this.depth = depth;
+        this.nodeCount = nodeCount;
+        this.childCount = childCount;
+        this.maxChildCount = maxChildCount;
+        this.distinctValueCount = distinctValueCount;
+        this.defaultCount = defaultCount;
+        this.strategy = strategy;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Number of nodes at this level, which hold children or default node.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Number of concrete (non-default) children of all nodes at this level.
+     */
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public int getMaxChildCount() {
+        return maxChildCount;
+    }
+
+    /**
+     * Number of distinct concrete values at this level (cardinality).
+     */
+    public int getDistinctValueCount() {
+        return distinctValueCount;
+    }
+
+    /**
+     * Number of default (*) children of all nodes at this level.
+     */
+    public int getDefaultCount() {
+        return defaultCount;
+    }
+
+    public LevelStrategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public String toString() {
+        return "level " + depth + ": " + strategy + " [nodes: " + nodeCount + ", children: " + childCount
+                + ", max children: " + maxChildCount + ", distinct values: " + distinctValueCount + ", defaults: " + defaultCount + "]";
+    }
+}
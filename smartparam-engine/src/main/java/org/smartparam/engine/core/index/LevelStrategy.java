@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+/**
+ * Representation of children of nodes at given level of
+ * {@link CompiledLevelIndex}, chosen per level from {@link LevelStatistics}.
+ *
+ * @author Adam Dubiel
+ */
+public enum LevelStrategy {
+
+    /**
+     * Level has no concrete values, only default (*) nodes.
+     */
+    DEFAULT_ONLY,
+    /**
+     * Few children per node, looked up by linear scan of keys, no hash
+     * tables are built.
+     */
+    INLINE,
+    /**
+     * Children looked up in per-node open addressing hash table.
+     */
+    HASH,
+    /**
+     * Children sorted by long key and looked up using binary search, String
+     * keys are still hashed.
+     */
+    SORTED,
+    /**
+     * Children of range matcher level, indexed by decoded range bounds.
+     */
+    RANGE,
+    /**
+     * Children checked one by one using level matcher.
+     */
+    SCAN
+}
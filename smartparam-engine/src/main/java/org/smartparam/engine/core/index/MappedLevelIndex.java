@@ -0,0 +1,330 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.type.Type;
+
+/**
+ * Read only index living outside of heap, in buffer mapped from file written
+ * by {@link MappedLevelIndexWriter}. Processes mapping the same file share
+ * single copy of it in page cache, heap holds only this thin handle.
+ *
+ * Lookup visits nodes in the same order as {@link FastLevelIndexWalker} and
+ * returns leaves as rows of String values, decoded from buffer on each lookup.
+ * Buffer is read only with absolute getters, so index is safe to use from
+ * many threads.
+ *
+ * @author Adam Dubiel
+ */
+public class MappedLevelIndex {
+
+    static final int MAGIC = 0x53504d49;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int NO_NODE = -1;
+
+    static final int NULL_STRING = -1;
+
+    static final int NODE_INTS = 5;
+
+    static final int CHILD_START = 0;
+
+    static final int CHILD_COUNT = 1;
+
+    static final int DEFAULT_NODE = 2;
+
+    static final int LEAF_START = 3;
+
+    static final int LEAF_COUNT = 4;
+
+    private static final int CHILD_INTS = 3;
+
+    private static final int HEADER_INTS = 9;
+
+    private static final int INT_SIZE = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+
+    private final int levelCount;
+
+    private final int nodeCount;
+
+    private final int entryCount;
+
+    private final int nodesStart;
+
+    private final int childrenStart;
+
+    private final int childOrderStart;
+
+    private final int leavesStart;
+
+    private final int entryOffsetsStart;
+
+    private final int entryDataStart;
+
+    private final int stringsStart;
+
+    private final Type<?>[] types;
+
+    private final Matcher[] matchers;
+
+    /**
+     * Wrap buffer holding serialized index, types and matchers of levels are
+     * not part of serialized form and have to be provided.
+     */
+    public MappedLevelIndex(ByteBuffer buffer, Type<?>[] types, Matcher[] matchers) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * INT_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(INT_SIZE) != FORMAT_VERSION) {
+            throw new IOException("unknown format of mapped index");
+        }
+        levelCount = header(2);
+        nodeCount = header(3);
+        int childCount = header(4);
+        int leafCount = header(5);
+        entryCount = header(6);
+        int entryDataCount = header(7);
+        int stringsSize = header(8);
+
+        nodesStart = HEADER_INTS * INT_SIZE;
+        childrenStart = nodesStart + nodeCount * NODE_INTS * INT_SIZE;
+        childOrderStart = childrenStart + childCount * CHILD_INTS * INT_SIZE;
+        leavesStart = childOrderStart + childCount * INT_SIZE;
+        entryOffsetsStart = leavesStart + leafCount * INT_SIZE;
+        entryDataStart = entryOffsetsStart + entryCount * INT_SIZE;
+        stringsStart = entryDataStart + entryDataCount * INT_SIZE;
+        if (stringsStart + stringsSize != buffer.capacity()) {
+            throw new IOException("mapped index is truncated or corrupted");
+        }
+
+        this.types = new Type<?>[levelCount];
+        this.matchers = new Matcher[levelCount];
+        if (types != null) {
+            System.arraycopy(types, 0, this.types, 0, Math.min(types.length, levelCount));
+        }
+        if (matchers != null) {
+            System.arraycopy(matchers, 0, this.matchers, 0, Math.min(matchers.length, levelCount));
+        }
+    }
+
+    /**
+     * Map whole file into memory (read only), file can be closed or even
+     * removed afterwards, mapping stays valid until this object is collected.
+     */
+    public static MappedLevelIndex map(File file, Type<?>[] types, Matcher[] matchers) throws IOException {
+        RandomAccessFile indexFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = indexFile.getChannel();
+            return new MappedLevelIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), types, matchers);
+        } finally {
+            indexFile.close();
+        }
+    }
+
+    private int header(int position) {
+        return buffer.getInt(position * INT_SIZE);
+    }
+
+    /**
+     * Returns rows of first node matching given level values or null if none matches.
+     */
+    public List<String[]> find(String... levelValues) {
+        int node = findNode(0, 0, levelValues);
+        if (node == NO_NODE) {
+            return null;
+        }
+
+        int leafStart = nodeField(node, LEAF_START);
+        int leafCount = nodeField(node, LEAF_COUNT);
+        List<String[]> rows = new ArrayList<String[]>(leafCount);
+        for (int leaf = 0; leaf < leafCount; ++leaf) {
+            rows.add(row(buffer.getInt(leavesStart + (leafStart + leaf) * INT_SIZE)));
+        }
+        return rows;
+    }
+
+    private int findNode(int node, int depth, String[] levelValues) {
+        if (depth >= levelValues.length) {
+            return node;
+        }
+
+        String levelValue = levelValues[depth];
+        Matcher matcher = matchers[depth];
+
+        int childStart = nodeField(node, CHILD_START);
+        int childCount = nodeField(node, CHILD_COUNT);
+        if (childCount > 0) {
+            int found = matcher == null
+                    ? findExact(childStart, childCount, levelValue, depth, levelValues)
+                    : findMatching(childStart, childCount, levelValue, matcher, depth, levelValues);
+            if (found != NO_NODE) {
+                return found;
+            }
+        }
+
+        int defaultNode = nodeField(node, DEFAULT_NODE);
+        return defaultNode != NO_NODE ? findNode(defaultNode, depth + 1, levelValues) : NO_NODE;
+    }
+
+    private int findExact(int childStart, int childCount, String levelValue, int depth, String[] levelValues) {
+        int hash = MappedLevelIndexWriter.hash(levelValue);
+
+        // children are ordered by key hash, find first one with matching hash
+        int low = childStart;
+        int high = childStart + childCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (childField(orderedChild(middle), 0) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        for (int position = low; position < childStart + childCount; ++position) {
+            int child = orderedChild(position);
+            if (childField(child, 0) != hash) {
+                break;
+            }
+            String key = string(childField(child, 1));
+            if (key == null ? levelValue == null : key.equals(levelValue)) {
+                return findNode(childField(child, 2), depth + 1, levelValues);
+            }
+        }
+        return NO_NODE;
+    }
+
+    private int findMatching(int childStart, int childCount, String levelValue, Matcher matcher, int depth, String[] levelValues) {
+        for (int child = childStart; child < childStart + childCount; ++child) {
+            if (matcher.matches(levelValue, string(childField(child, 1)), types[depth])) {
+                int found = findNode(childField(child, 2), depth + 1, levelValues);
+                if (found != NO_NODE) {
+                    return found;
+                }
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Rebuild heap tree holding all entries of this index, for walkers that
+     * need to traverse it on their own (i.e. reports). Costs about as much as
+     * preparing the index again.
+     */
+    public <T> LevelIndex<T> toLevelIndex(LeafDecoder<T> decoder) {
+        LevelIndex<T> index = new LevelIndex<T>(levelCount, types, matchers);
+        addTo(index, decoder, new Object[entryCount], 0, new String[levelCount], 0);
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void addTo(LevelIndex<T> index, LeafDecoder<T> decoder, Object[] decoded, int node, String[] path, int depth) {
+        int leafStart = nodeField(node, LEAF_START);
+        int leafCount = nodeField(node, LEAF_COUNT);
+        for (int leaf = leafStart; leaf < leafStart + leafCount; ++leaf) {
+            int entry = buffer.getInt(leavesStart + leaf * INT_SIZE);
+            if (decoded[entry] == null) {
+                decoded[entry] = decoder.decode(row(entry));
+            }
+            index.add(path, (T) decoded[entry]);
+        }
+
+        int childStart = nodeField(node, CHILD_START);
+        int childCount = nodeField(node, CHILD_COUNT);
+        for (int child = childStart; child < childStart + childCount; ++child) {
+            path[depth] = string(childField(child, 1));
+            addTo(index, decoder, decoded, childField(child, 2), path, depth + 1);
+        }
+
+        int defaultNode = nodeField(node, DEFAULT_NODE);
+        if (defaultNode != NO_NODE) {
+            path[depth] = "*";
+            addTo(index, decoder, decoded, defaultNode, path, depth + 1);
+        }
+    }
+
+    private int nodeField(int node, int field) {
+        return buffer.getInt(nodesStart + (node * NODE_INTS + field) * INT_SIZE);
+    }
+
+    private int childField(int child, int field) {
+        return buffer.getInt(childrenStart + (child * CHILD_INTS + field) * INT_SIZE);
+    }
+
+    private int orderedChild(int position) {
+        return buffer.getInt(childOrderStart + position * INT_SIZE);
+    }
+
+    private String[] row(int entry) {
+        int offset = entryDataStart + buffer.getInt(entryOffsetsStart + entry * INT_SIZE) * INT_SIZE;
+        String[] row = new String[buffer.getInt(offset)];
+        for (int level = 0; level < row.length; ++level) {
+            row[level] = string(buffer.getInt(offset + (level + 1) * INT_SIZE));
+        }
+        return row;
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_STRING) {
+            return null;
+        }
+        int position = stringsStart + ref;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = buffer.get(position + INT_SIZE + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Size of mapped buffer (in bytes), occupied outside of heap.
+     */
+    public int size() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Turns row of String values read from index file back into leaf.
+     */
+    public interface LeafDecoder<T> {
+
+        T decode(String[] row);
+    }
+}
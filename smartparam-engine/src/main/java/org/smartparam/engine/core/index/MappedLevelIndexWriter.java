@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes {@link LevelIndex} to format read by {@link MappedLevelIndex}.
+ * Children are written in the same order in which {@link FastLevelIndexWalker}
+ * visits them, so lookups over both indexes return the same leaves. Leaves
+ * are written as rows of String values produced by {@link LeafEncoder}.
+ *
+ * @author Adam Dubiel
+ */
+public final class MappedLevelIndexWriter<T> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final LevelIndex<T> index;
+
+    private final LeafEncoder<T> encoder;
+
+    private final List<LevelNode<T>> nodes = new ArrayList<LevelNode<T>>();
+
+    private final Map<LevelNode<T>, Integer> nodeIds = new IdentityHashMap<LevelNode<T>, Integer>();
+
+    private final List<T> entries = new ArrayList<T>();
+
+    private final Map<T, Integer> entryIds = new IdentityHashMap<T, Integer>();
+
+    private final Map<String, Integer> stringRefs = new HashMap<String, Integer>();
+
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+
+    private final DataOutputStream stringsOutput = new DataOutputStream(strings);
+
+    private MappedLevelIndexWriter(LevelIndex<T> index, LeafEncoder<T> encoder) {
+        this.index = index;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Returns serialized form of index, same index always gives the same bytes.
+     */
+    public static <T> byte[] serialize(LevelIndex<T> index, LeafEncoder<T> encoder) {
+        try {
+            return new MappedLevelIndexWriter<T>(index, encoder).serialize();
+        } catch (IOException exception) {
+            // writing to memory
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        collectNodes();
+
+        int[] nodeTable = new int[nodes.size() * MappedLevelIndex.NODE_INTS];
+        List<int[]> children = new ArrayList<int[]>();
+        List<Integer> childOrder = new ArrayList<Integer>();
+        List<Integer> leaves = new ArrayList<Integer>();
+
+        for (int nodeId = 0; nodeId < nodes.size(); ++nodeId) {
+            LevelNode<T> node = nodes.get(nodeId);
+            int base = nodeId * MappedLevelIndex.NODE_INTS;
+
+            int childStart = children.size();
+            if (node.getChildren() != null) {
+                for (Map.Entry<String, LevelNode<T>> child : node.getChildren().entrySet()) {
+                    children.add(new int[]{hash(child.getKey()), stringRef(child.getKey()), nodeIds.get(child.getValue())});
+                }
+            }
+            int childCount = children.size() - childStart;
+            for (Integer child : sortedByHash(children, childStart, childCount)) {
+                childOrder.add(child);
+            }
+
+            int leafStart = leaves.size();
+            if (node.getLeafList() != null) {
+                for (T leaf : node.getLeafList()) {
+                    leaves.add(entryId(leaf));
+                }
+            }
+
+            nodeTable[base + MappedLevelIndex.CHILD_START] = childStart;
+            nodeTable[base + MappedLevelIndex.CHILD_COUNT] = childCount;
+            nodeTable[base + MappedLevelIndex.DEFAULT_NODE] = node.getDefaultNode() != null ? nodeIds.get(node.getDefaultNode()) : MappedLevelIndex.NO_NODE;
+            nodeTable[base + MappedLevelIndex.LEAF_START] = leafStart;
+            nodeTable[base + MappedLevelIndex.LEAF_COUNT] = leaves.size() - leafStart;
+        }
+
+        List<Integer> entryOffsets = new ArrayList<Integer>(entries.size());
+        List<Integer> entryData = new ArrayList<Integer>();
+        for (T entry : entries) {
+            entryOffsets.add(entryData.size());
+            String[] row = encoder.encode(entry);
+            entryData.add(row.length);
+            for (String value : row) {
+                entryData.add(stringRef(value));
+            }
+        }
+        stringsOutput.flush();
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(content);
+        output.writeInt(MappedLevelIndex.MAGIC);
+        output.writeInt(MappedLevelIndex.FORMAT_VERSION);
+        output.writeInt(index.getLevelCount());
+        output.writeInt(nodes.size());
+        output.writeInt(children.size());
+        output.writeInt(leaves.size());
+        output.writeInt(entries.size());
+        output.writeInt(entryData.size());
+        output.writeInt(strings.size());
+
+        for (int value : nodeTable) {
+            output.writeInt(value);
+        }
+        for (int[] child : children) {
+            output.writeInt(child[0]);
+            output.writeInt(child[1]);
+            output.writeInt(child[2]);
+        }
+        writeInts(output, childOrder);
+        writeInts(output, leaves);
+        writeInts(output, entryOffsets);
+        writeInts(output, entryData);
+        strings.writeTo(output);
+        output.flush();
+
+        return content.toByteArray();
+    }
+
+    private void collectNodes() {
+        // breadth first, so that children of node are numbered one after another
+        addNode(index.getRoot());
+        for (int nodeId = 0; nodeId < nodes.size(); ++nodeId) {
+            LevelNode<T> node = nodes.get(nodeId);
+            if (node.getChildren() != null) {
+                for (LevelNode<T> child : node.getChildren().values()) {
+                    addNode(child);
+                }
+            }
+            if (node.getDefaultNode() != null) {
+                addNode(node.getDefaultNode());
+            }
+        }
+    }
+
+    private void addNode(LevelNode<T> node) {
+        nodeIds.put(node, nodes.size());
+        nodes.add(node);
+    }
+
+    private int entryId(T leaf) {
+        Integer entryId = entryIds.get(leaf);
+        if (entryId == null) {
+            entryId = entries.size();
+            entries.add(leaf);
+            entryIds.put(leaf, entryId);
+        }
+        return entryId;
+    }
+
+    private int stringRef(String value) throws IOException {
+        if (value == null) {
+            return MappedLevelIndex.NULL_STRING;
+        }
+        Integer ref = stringRefs.get(value);
+        if (ref == null) {
+            ref = stringsOutput.size();
+            byte[] bytes = value.getBytes(UTF_8);
+            stringsOutput.writeInt(bytes.length);
+            stringsOutput.write(bytes);
+            stringRefs.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static Integer[] sortedByHash(final List<int[]> children, int childStart, int childCount) {
+        Integer[] order = new Integer[childCount];
+        for (int i = 0; i < childCount; ++i) {
+            order[i] = childStart + i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int firstHash = children.get(first)[0];
+                int secondHash = children.get(second)[0];
+                return firstHash < secondHash ? -1 : (firstHash == secondHash ? 0 : 1);
+            }
+        });
+        return order;
+    }
+
+    static int hash(String key) {
+        return key != null ? key.hashCode() : 0;
+    }
+
+    private static void writeInts(DataOutputStream output, List<Integer> values) throws IOException {
+        for (Integer value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    /**
+     * Turns leaf into row of String values stored in index file.
+     */
+    public interface LeafEncoder<T> {
+
+        String[] encode(T leaf);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Builds subtrees of first level concurrently. Entries are partitioned by
+ * their first level value, first level nodes are created on calling thread
+ * and each partition is inserted into its own subtree by separate task.
+ * Since partitions are disjoint no synchronization is needed and since each
+ * partition keeps original order of its entries, order of leaves in every
+ * node is the same as in sequential build.
+ *
+ * Executor should not be the one that prepares parameters (i.e. used by
+ * {@link org.smartparam.engine.core.parameter.request.QueuingParameterRequestResolver}),
+ * as bounded pool could end up waiting for itself.
+ *
+ * @author Adam Dubiel
+ */
+public class ParallelLevelIndexBuilder implements LevelIndexBuilder {
+
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+
+    private final ExecutorService executorService;
+
+    private final int parallelThreshold;
+
+    private final LevelIndexBuilder sequentialBuilder = new SequentialLevelIndexBuilder();
+
+    public ParallelLevelIndexBuilder(ExecutorService executorService) {
+        this(executorService, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Batches smaller than parallel threshold are added on calling thread.
+     */
+    public ParallelLevelIndexBuilder(ExecutorService executorService, int parallelThreshold) {
+        this.executorService = executorService;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public <T> void addAll(LevelIndex<T> index, List<String[]> levelValues, List<T> leaves) {
+        if (index.getLevelCount() == 0 || leaves.size() < parallelThreshold) {
+            sequentialBuilder.addAll(index, levelValues, leaves);
+            return;
+        }
+
+        Map<LevelNode<T>, List<Integer>> partitions = partition(index.getRoot(), levelValues);
+        if (partitions.size() == 1) {
+            sequentialBuilder.addAll(index, levelValues, leaves);
+            return;
+        }
+
+        List<Future<?>> subtrees = new ArrayList<Future<?>>(partitions.size());
+        for (Map.Entry<LevelNode<T>, List<Integer>> partition : partitions.entrySet()) {
+            subtrees.add(execute(new SubtreeBuild<T>(partition.getKey(), partition.getValue(), levelValues, leaves)));
+        }
+        awaitSubtrees(subtrees);
+    }
+
+    private <T> Map<LevelNode<T>, List<Integer>> partition(LevelNode<T> root, List<String[]> levelValues) {
+        Map<LevelNode<T>, List<Integer>> partitions = new IdentityHashMap<LevelNode<T>, List<Integer>>();
+        for (int i = 0; i < levelValues.size(); ++i) {
+            LevelNode<T> subtree = root.childFor(levelValues.get(i)[0], 0);
+            List<Integer> partition = partitions.get(subtree);
+            if (partition == null) {
+                partition = new ArrayList<Integer>();
+                partitions.put(subtree, partition);
+            }
+            partition.add(i);
+        }
+        return partitions;
+    }
+
+    private Future<?> execute(SubtreeBuild<?> subtreeBuild) {
+        FutureTask<Void> task = new FutureTask<Void>(subtreeBuild);
+        try {
+            executorService.execute(task);
+        } catch (RejectedExecutionException exception) {
+            // executor is saturated or shut down, build subtree on calling thread
+            task.run();
+        }
+        return task;
+    }
+
+    private void awaitSubtrees(List<Future<?>> subtrees) {
+        try {
+            for (Future<?> subtree : subtrees) {
+                subtree.get();
+            }
+        } catch (InterruptedException interruptedException) {
+            cancelSubtrees(subtrees);
+            Thread.currentThread().interrupt();
+            throw new LevelIndexBuildException(interruptedException);
+        } catch (ExecutionException executionException) {
+            cancelSubtrees(subtrees);
+            if (executionException.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) executionException.getCause();
+            }
+            throw new LevelIndexBuildException(executionException.getCause());
+        }
+    }
+
+    private void cancelSubtrees(List<Future<?>> subtrees) {
+        for (Future<?> subtree : subtrees) {
+            subtree.cancel(false);
+        }
+    }
+
+    private static class SubtreeBuild<T> implements Callable<Void> {
+
+        private final LevelNode<T> subtree;
+
+        private final List<Integer> partition;
+
+        private final List<String[]> levelValues;
+
+        private final List<T> leaves;
+
+        SubtreeBuild(LevelNode<T> subtree, List<Integer> partition, List<String[]> levelValues, List<T> leaves) {
+            this.subtree = subtree;
+            this.partition = partition;
+            this.levelValues = levelValues;
+            this.leaves = leaves;
+        }
+
+        @Override
+        public Void call() {
+            for (Integer entry : partition) {
+                subtree.add(levelValues.get(entry), leaves.get(entry), 1);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.smartparam.engine.core.matcher.RangePattern;
+import org.smartparam.engine.core.type.ValueHolder;
+
+/**
+ * Index of range patterns of single node. All range bounds are sorted, which
+ * splits domain into segments: bound points and open intervals between them.
+ * For each segment index holds positions of ranges containing it (in ascending
+ * order), so finding ranges that match value is a binary search over bounds.
+ * <pre>
+ * segment:  0       1      2       3      ...   2k
+ * domain:  (-*, b0) [b0] (b0, b1) [b1]   ...  (b(k-1), +*)
+ * </pre>
+ *
+ * @author Adam Dubiel
+ */
+final class RangeIndex {
+
+    /**
+     * Ranges covering too many segments (heavily overlapping) would blow up
+     * index size, use linear scan instead.
+     */
+    private static final int MAX_SEGMENTS_PER_RANGE = 32;
+
+    private static final Comparator<ValueHolder> BOUND_COMPARATOR = new Comparator<ValueHolder>() {
+        @Override
+        public int compare(ValueHolder left, ValueHolder right) {
+            return left.compareTo(right);
+        }
+    };
+
+    private final ValueHolder[] bounds;
+
+    private final int[] segmentOffsets;
+
+    private final int[] positions;
+
+    private RangeIndex(ValueHolder[] bounds, int[] segmentOffsets, int[] positions) {
+        this.bounds = bounds;
+        this.segmentOffsets = segmentOffsets;
+        this.positions = positions;
+    }
+
+    /**
+     * Build index out of decoded patterns, ranges position in array is its
+     * position among node children. Returns null if ranges overlap too much
+     * for index to pay off.
+     */
+    static RangeIndex build(RangePattern[] ranges) {
+        ValueHolder[] bounds = sortedBounds(ranges);
+        int segmentCount = 2 * bounds.length + 1;
+
+        int[] firstSegments = new int[ranges.length];
+        int[] lastSegments = new int[ranges.length];
+        int[] segmentSizes = new int[segmentCount + 1];
+        int total = 0;
+
+        for (int position = 0; position < ranges.length; ++position) {
+            int first = firstSegment(ranges[position], bounds);
+            int last = lastSegment(ranges[position], bounds);
+            firstSegments[position] = first;
+            lastSegments[position] = last;
+
+            if (first <= last) {
+                total += last - first + 1;
+                segmentSizes[first]++;
+                segmentSizes[last + 1]--;
+            }
+        }
+
+        if (total > MAX_SEGMENTS_PER_RANGE * ranges.length) {
+            return null;
+        }
+
+        int[] segmentOffsets = new int[segmentCount + 1];
+        int running = 0;
+        for (int segment = 0; segment < segmentCount; ++segment) {
+            running += segmentSizes[segment];
+            segmentOffsets[segment + 1] = segmentOffsets[segment] + running;
+        }
+
+        int[] positions = new int[total];
+        int[] fill = Arrays.copyOf(segmentOffsets, segmentCount);
+        for (int position = 0; position < ranges.length; ++position) {
+            for (int segment = firstSegments[position]; segment <= lastSegments[position]; ++segment) {
+                positions[fill[segment]++] = position;
+            }
+        }
+
+        return new RangeIndex(bounds, segmentOffsets, positions);
+    }
+
+    private static ValueHolder[] sortedBounds(RangePattern[] ranges) {
+        List<ValueHolder> bounds = new ArrayList<ValueHolder>(ranges.length * 2);
+        for (RangePattern range : ranges) {
+            if (range.lower() != null) {
+                bounds.add(range.lower());
+            }
+            if (range.upper() != null) {
+                bounds.add(range.upper());
+            }
+        }
+
+        ValueHolder[] sorted = bounds.toArray(new ValueHolder[bounds.size()]);
+        Arrays.sort(sorted, BOUND_COMPARATOR);
+
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (distinct == 0 || sorted[distinct - 1].compareTo(sorted[i]) != 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    private static int firstSegment(RangePattern range, ValueHolder[] bounds) {
+        if (range.lower() == null) {
+            return 0;
+        }
+        int bound = Arrays.binarySearch(bounds, range.lower(), BOUND_COMPARATOR);
+        return range.isLowerInclusive() ? 2 * bound + 1 : 2 * bound + 2;
+    }
+
+    private static int lastSegment(RangePattern range, ValueHolder[] bounds) {
+        if (range.upper() == null) {
+            return 2 * bounds.length;
+        }
+        int bound = Arrays.binarySearch(bounds, range.upper(), BOUND_COMPARATOR);
+        return range.isUpperInclusive() ? 2 * bound + 1 : 2 * bound;
+    }
+
+    /**
+     * Return segment containing given value.
+     */
+    int segment(ValueHolder value) {
+        int bound = Arrays.binarySearch(bounds, value, BOUND_COMPARATOR);
+        return bound >= 0 ? 2 * bound + 1 : 2 * (-bound - 1);
+    }
+
+    int candidatesFrom(int segment) {
+        return segmentOffsets[segment];
+    }
+
+    int candidatesTo(int segment) {
+        return segmentOffsets[segment + 1];
+    }
+
+    /**
+     * Return position of matching child stored at given candidate offset.
+     */
+    int candidate(int offset) {
+        return positions[offset];
+    }
+}
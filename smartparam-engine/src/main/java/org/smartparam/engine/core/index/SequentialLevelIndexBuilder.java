@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.List;
+
+/**
+ * Adds entries one by one on calling thread.
+ *
+ * @author Adam Dubiel
+ */
+public class SequentialLevelIndexBuilder implements LevelIndexBuilder {
+
+    @Override
+    public <T> void addAll(LevelIndex<T> index, List<String[]> levelValues, List<T> leaves) {
+        for (int i = 0; i < leaves.size(); ++i) {
+            index.add(levelValues.get(i), leaves.get(i));
+        }
+    }
+
+}
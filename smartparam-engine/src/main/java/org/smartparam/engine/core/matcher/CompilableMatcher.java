@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.matcher;
+
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+
+/**
+ * Optional {@link Matcher} extension. Compilable matcher parses each pattern
+ * once, when index is built, and value once per lookup, so walking index
+ * does not need to parse pattern strings for every candidate.
+ *
+ * For any pattern and value following has to hold:
+ * <pre>
+ * compile(pattern, type).matches(decodeValue(value, type)) == matches(value, pattern, type)
+ * </pre>
+ *
+ * @author Adam Dubiel
+ */
+public interface CompilableMatcher extends Matcher {
+
+    /**
+     * Compile pattern from parameter matrix. Might throw exception if pattern
+     * is corrupted, in which case engine falls back to
+     * {@link Matcher#matches(java.lang.String, java.lang.String, org.smartparam.engine.core.type.Type) }.
+     *
+     * @param <T> level type
+     * @param pattern pattern from parameter matrix
+     * @param type type of level, might be null if none was set
+     * @return reusable, thread safe compiled pattern
+     */
+    <T extends ValueHolder> CompiledPattern compile(String pattern, Type<T> type);
+
+    /**
+     * Decode value from query to form accepted by compiled patterns.
+     *
+     * @param <T> level type
+     * @param value value from query (provided by user)
+     * @param type type of level, might be null if none was set
+     * @return decoded value
+     */
+    <T extends ValueHolder> Object decodeValue(String value, Type<T> type);
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.matcher;
+
+/**
+ * Pattern compiled by {@link CompilableMatcher}.
+ *
+ * @author Adam Dubiel
+ */
+public interface CompiledPattern {
+
+    /**
+     * Check if value matches the pattern.
+     *
+     * @param decodedValue value decoded using {@link CompilableMatcher#decodeValue(java.lang.String, org.smartparam.engine.core.type.Type) }
+     * @return true if value matched, false otherwise
+     */
+    boolean matches(Object decodedValue);
+}
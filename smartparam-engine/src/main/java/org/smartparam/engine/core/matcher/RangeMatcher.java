@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.matcher;
+
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+
+/**
+ * Matcher that checks if value fits in range of values defined by pattern.
+ * Range matchers can decode patterns once (when preparing parameter), so
+ * index can keep ranges sorted and find matching ones without calling
+ * {@link Matcher#matches(java.lang.String, java.lang.String, org.smartparam.engine.core.type.Type) }
+ * for each pattern. Range pattern is also compiled pattern, so
+ * {@link #decodeValue(java.lang.String, org.smartparam.engine.core.type.Type) }
+ * has to return value decoded using level type.
+ *
+ * @author Adam Dubiel
+ */
+public interface RangeMatcher extends CompilableMatcher {
+
+    /**
+     * Decode range pattern. Decoded range has to match exactly the same values
+     * as {@link #matches(java.lang.String, java.lang.String, org.smartparam.engine.core.type.Type) }
+     * would for given pattern.
+     *
+     * @param <T> level type
+     * @param pattern pattern from parameter matrix
+     * @param type type of value, never null
+     * @return decoded range
+     */
+    <T extends ValueHolder> RangePattern decodeRange(String pattern, Type<T> type);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.matcher;
+
+import org.smartparam.engine.core.type.ValueHolder;
+
+/**
+ * Decoded range pattern, bound set to null means range is unbounded on this
+ * side.
+ *
+ * @author Adam Dubiel
+ */
+public final class RangePattern implements CompiledPattern {
+
+    private final ValueHolder lower;
+
+    private final boolean lowerInclusive;
+
+    private final ValueHolder upper;
+
+    private final boolean upperInclusive;
+
+    public RangePattern(ValueHolder lower, boolean lowerInclusive, ValueHolder upper, boolean upperInclusive) {
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    @Override
+    public boolean matches(Object decodedValue) {
+        return contains((ValueHolder) decodedValue);
+    }
+
+    public boolean contains(ValueHolder value) {
+        return lowerCondition(value) && upperCondition(value);
+    }
+
+    private boolean lowerCondition(ValueHolder value) {
+        if (lower == null) {
+            return true;
+        }
+        return lowerInclusive ? lower.compareTo(value) <= 0 : lower.compareTo(value) < 0;
+    }
+
+    private boolean upperCondition(ValueHolder value) {
+        if (upper == null) {
+            return true;
+        }
+        return upperInclusive ? value.compareTo(upper) <= 0 : value.compareTo(upper) < 0;
+    }
+
+    public ValueHolder lower() {
+        return lower;
+    }
+
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    public ValueHolder upper() {
+        return upper;
+    }
+
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    @Override
+    public String toString() {
+        return (lowerInclusive ? "[" : "(") + (lower != null ? lower : "*") + " ~ "
+                + (upper != null ? upper : "*") + (upperInclusive ? "]" : ")");
+    }
+}
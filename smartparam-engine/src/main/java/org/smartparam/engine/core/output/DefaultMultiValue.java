@@ -59,6 +59,28 @@ public class DefaultMultiValue implements MultiValue {
         this.key = key;
     }
 
+    private DefaultMultiValue(Map<String, Integer> indexMap, ParameterEntryKey key, Object[] sharedValues) {
+        this.values = sharedValues;
+        this.indexMap = indexMap;
+        this.key = key;
+    }
+
+    /**
+     * Create multi value backed by given array (not copied), array has to be
+     * immutable, i.e. values decoded once when preparing parameter.
+     */
+    public static DefaultMultiValue wrap(ParameterEntryKey key, Object[] sharedValues, Map<String, Integer> indexMap) {
+        return new DefaultMultiValue(indexMap, key, sharedValues);
+    }
+
+    /**
+     * Create copy sharing values held by this object, but with fresh iteration
+     * state (next* methods start from first value).
+     */
+    public DefaultMultiValue copy() {
+        return new DefaultMultiValue(indexMap, key, values);
+    }
+
     @Override
     public ParameterEntryKey getKey() {
         if (key == null) {
@@ -196,8 +218,16 @@ public class DefaultMultiValue implements MultiValue {
         }
     }
 
+    /**
+     * Returns copy of array, values might be shared with cached parameter
+     * (see {@link #wrap(org.smartparam.engine.core.parameter.entry.ParameterEntryKey, java.lang.Object[], java.util.Map)}).
+     */
     @Override
     public ValueHolder[] getArray(int position) {
+        return arrayCells(position).clone();
+    }
+
+    private ValueHolder[] arrayCells(int position) {
         Object obj = getAbstractHolder(position);
 
         if (obj instanceof ValueHolder[]) {
@@ -236,7 +266,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public String[] getStringArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         String[] result = new String[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getString();
@@ -246,7 +276,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public Date[] getDateArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         Date[] result = new Date[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getDate();
@@ -256,7 +286,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public Integer[] getIntegerArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         Integer[] result = new Integer[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getInteger();
@@ -266,7 +296,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public Long[] getLongArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         Long[] result = new Long[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getLong();
@@ -276,7 +306,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public Boolean[] getBooleanArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         Boolean[] result = new Boolean[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getBoolean();
@@ -286,7 +316,7 @@ public class DefaultMultiValue implements MultiValue {
 
     @Override
     public BigDecimal[] getBigDecimalArray(int position) {
-        ValueHolder[] array = getArray(position);
+        ValueHolder[] array = arrayCells(position);
         BigDecimal[] result = new BigDecimal[array.length];
         for (int i = 0; i < result.length; i++) {
             result[i] = array[i].getBigDecimal();
@@ -33,6 +33,18 @@ public class DefaultParamValue extends AbstractParamValue {
         this.rows = rows;
     }
 
+    /**
+     * Create copy of this value, which shares all decoded rows but has its own
+     * row iteration state, so it can be handed out to another caller.
+     */
+    public DefaultParamValue copy() {
+        List<MultiValue> copiedRows = new ArrayList<MultiValue>(rows.size());
+        for (MultiValue row : rows) {
+            copiedRows.add(row instanceof DefaultMultiValue ? ((DefaultMultiValue) row).copy() : row);
+        }
+        return new DefaultParamValue(copiedRows, sourceRepository());
+    }
+
     public static ParamValue empty() {
         return new DefaultParamValue(new ArrayList<MultiValue>(), null);
     }
@@ -18,13 +18,9 @@ package org.smartparam.engine.core.output.factory;
 import java.util.ArrayList;
 import java.util.List;
 import org.smartparam.engine.core.output.MultiValue;
+import org.smartparam.engine.core.prepared.OutputValueDecoder;
 import org.smartparam.engine.core.prepared.PreparedEntry;
-import org.smartparam.engine.core.prepared.PreparedLevel;
 import org.smartparam.engine.core.prepared.PreparedParameter;
-import org.smartparam.engine.core.type.Type;
-import org.smartparam.engine.core.type.ValueHolder;
-import org.smartparam.engine.core.type.decode.TypeDecoder;
-import org.smartparam.engine.util.EngineUtil;
 
 /**
  *
@@ -32,31 +28,20 @@ import org.smartparam.engine.util.EngineUtil;
  */
 abstract class AbstractParamValueFactory<M extends MultiValue> {
 
+    /**
+     * Create row out of entry and its output values. When values were decoded
+     * when preparing parameter (see {@link PreparedEntry#getOutputValues()}),
+     * array is shared between all rows created from this entry and must not
+     * be modified.
+     */
     protected abstract M createMultiValue(PreparedParameter parameter, PreparedEntry preparedEntry, Object[] values);
 
     protected List<M> createRows(PreparedParameter parameter, PreparedEntry[] preparedEntries) {
-        int inputLevelCount = parameter.getInputLevelsCount();
-        int oputputLevelCount = parameter.getLevelCount() - inputLevelCount;
-
         List<M> multiValueRows = new ArrayList<M>(preparedEntries.length);
         for (PreparedEntry preparedEntry : preparedEntries) {
-            PreparedLevel[] levels = parameter.getLevels();
-            Object[] vector = new Object[oputputLevelCount];
-
-            for (int columnIndex = 0; columnIndex < oputputLevelCount; ++columnIndex) {
-                String cellText = preparedEntry.getLevel(inputLevelCount + columnIndex);
-                PreparedLevel level = levels[inputLevelCount + columnIndex];
-
-                Type<?> cellType = level.getType();
-                Object cellValue;
-
-                if (level.isArray()) {
-                    cellValue = evaluateStringAsArray(cellText, cellType, ',');
-                } else {
-                    cellValue = TypeDecoder.decode(cellType, cellText);
-                }
-
-                vector[columnIndex] = cellValue;
+            Object[] vector = preparedEntry.getOutputValues();
+            if (vector == null) {
+                vector = OutputValueDecoder.decode(parameter, preparedEntry);
             }
 
             multiValueRows.add(createMultiValue(parameter, preparedEntry, vector));
@@ -64,18 +49,4 @@ abstract class AbstractParamValueFactory<M extends MultiValue> {
 
         return multiValueRows;
     }
-
-    private ValueHolder[] evaluateStringAsArray(String value, Type<?> type, char separator) {
-        if (EngineUtil.hasText(value)) {
-            String[] tokens = EngineUtil.split(value, separator);
-            ValueHolder[] array = type.newArray(tokens.length);
-            for (int i = 0; i < tokens.length; i++) {
-                array[i] = TypeDecoder.decode(type, tokens[i]);
-            }
-            return array;
-
-        } else {
-            return type.newArray(0);
-        }
-    }
 }
@@ -18,13 +18,19 @@ package org.smartparam.engine.core.parameter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.request.CacheAwareParameterRequest;
 import org.smartparam.engine.core.parameter.request.ParameterRequest;
 import org.smartparam.engine.core.parameter.request.ParameterRequestQueue;
+import org.smartparam.engine.core.parameter.warmup.ParameterWarmUp;
+import org.smartparam.engine.core.parameter.warmup.WarmUpReport;
+import org.smartparam.engine.core.parameter.warmup.WarmUpRequest;
 import org.smartparam.engine.core.prepared.ParamPreparer;
 import org.smartparam.engine.core.prepared.PreparedEntry;
 import org.smartparam.engine.core.prepared.PreparedParamCache;
 import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.smartparam.engine.core.prepared.RefreshablePreparedParamCache;
 
 /**
  *
@@ -52,13 +58,21 @@ public class BasicParameterManager implements ParameterManager {
         this.requestQueue = requestQueue;
 
         request = createRequest();
+        if (cache instanceof RefreshablePreparedParamCache) {
+            ((RefreshablePreparedParamCache) cache).refreshUsing(request);
+        }
     }
 
     private ParameterRequest createRequest() {
-        return new ParameterRequest() {
+        return new CacheAwareParameterRequest() {
+            @Override
+            public PreparedParameter findPrepared(String parameterName) {
+                return cache.get(parameterName);
+            }
+
             @Override
             public PreparedParameter loadAndPrepare(String parameterName) {
-                ParameterFromRepository parameter = parameterProvider.load(parameterName);
+                ParameterFromRepository parameter = parameterProvider.batchLoad(parameterName);
                 if (parameter == null) {
                     return null;
                 }
@@ -94,4 +108,8 @@ public class BasicParameterManager implements ParameterManager {
         return result;
     }
 
+    @Override
+    public WarmUpReport warmUp(WarmUpRequest warmUpRequest, ExecutorService executorService) {
+        return new ParameterWarmUp(this, parameterProvider).warmUp(warmUpRequest, executorService);
+    }
 }
@@ -43,6 +43,33 @@ public class BasicParameterProvider implements ParameterProvider {
         return null;
     }
 
+    @Override
+    public ParameterFromRepository batchLoad(String parameterName) {
+        for (NamedParamRepository repository : innerRepository.getItems()) {
+            ParameterBatchLoader batchLoader = batchLoad(repository.repository(), parameterName);
+            if (batchLoader == null) {
+                // batch loading not supported
+                Parameter parameter = repository.repository().load(parameterName);
+                if (parameter != null) {
+                    return new ParameterFromRepository(parameter, repository.name());
+                }
+            } else if (batchLoader.getMetadata() != null) {
+                return new ParameterFromRepository(batchLoader.getMetadata(), repository.name(), batchLoader.getEntryLoader());
+            } else if (batchLoader.getEntryLoader() != null) {
+                batchLoader.getEntryLoader().close();
+            }
+        }
+        return null;
+    }
+
+    private ParameterBatchLoader batchLoad(ParamRepository repository, String parameterName) {
+        try {
+            return repository.batchLoad(parameterName);
+        } catch (UnsupportedOperationException notSupported) {
+            return null;
+        }
+    }
+
     @Override
     public Set<ParameterEntry> findEntries(String parameterName, String[] levelValues) {
         Set<ParameterEntry> entries = null;
@@ -15,6 +15,7 @@
  */
 package org.smartparam.engine.core.parameter;
 
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
 import org.smartparam.engine.core.repository.RepositoryName;
 
 /**
@@ -27,9 +28,20 @@ public class ParameterFromRepository {
 
     private final RepositoryName repositoryName;
 
+    private final ParameterEntryBatchLoader entryLoader;
+
     public ParameterFromRepository(Parameter parameter, RepositoryName repositoryName) {
-        this.parameter = parameter;
+        this(parameter, repositoryName, null);
+    }
+
+    /**
+     * Parameter metadata with entries to be read in batches using loader,
+     * whoever consumes entries is responsible for closing it.
+     */
+    public ParameterFromRepository(Parameter metadata, RepositoryName repositoryName, ParameterEntryBatchLoader entryLoader) {
+        this.parameter = metadata;
         this.repositoryName = repositoryName;
+        this.entryLoader = entryLoader;
     }
 
     public Parameter parameter() {
@@ -39,4 +51,12 @@ public class ParameterFromRepository {
     public RepositoryName repositoryName() {
         return repositoryName;
     }
+
+    /**
+     * Returns loader of parameter entries or null, if entries were loaded
+     * along with parameter.
+     */
+    public ParameterEntryBatchLoader entryLoader() {
+        return entryLoader;
+    }
 }
@@ -16,6 +16,9 @@
 package org.smartparam.engine.core.parameter;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.smartparam.engine.core.parameter.warmup.WarmUpReport;
+import org.smartparam.engine.core.parameter.warmup.WarmUpRequest;
 import org.smartparam.engine.core.prepared.PreparedEntry;
 import org.smartparam.engine.core.prepared.PreparedParameter;
 
@@ -42,4 +45,14 @@ public interface ParameterManager {
      * @return list of matching prepared entries (or empty list)
      */
     List<PreparedEntry> findEntries(String paramName, String[] levelValues);
+
+    /**
+     * Prepare and cache parameters described by request in parallel, using
+     * given executor. Calling thread waits until all parameters are prepared.
+     *
+     * @param request which parameters and in what order should be prepared
+     * @param executorService executor used to prepare parameters
+     * @return time taken to prepare each parameter and failures
+     */
+    WarmUpReport warmUp(WarmUpRequest request, ExecutorService executorService);
 }
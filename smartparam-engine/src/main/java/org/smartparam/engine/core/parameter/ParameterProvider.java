@@ -27,6 +27,13 @@ public interface ParameterProvider {
 
     ParameterFromRepository load(String parameterName);
 
+    /**
+     * Load parameter metadata along with loader, which reads entries in
+     * batches, if repository supports it. Otherwise returns parameter loaded
+     * at once, just like {@link #load(java.lang.String)}.
+     */
+    ParameterFromRepository batchLoad(String parameterName);
+
     Set<ParameterEntry> findEntries(String parameterName, String[] levelValues);
 
     void register(NamedParamRepository repository);
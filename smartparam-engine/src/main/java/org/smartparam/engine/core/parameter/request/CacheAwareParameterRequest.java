@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.request;
+
+import org.smartparam.engine.core.prepared.PreparedParameter;
+
+/**
+ * Request which can tell if parameter has been prepared and cached in the
+ * meantime. {@link QueuingParameterRequestResolver} asks it before starting
+ * new request, so caller which missed cache just before previous request
+ * completed does not load parameter again.
+ *
+ * @author Adam Dubiel
+ */
+public interface CacheAwareParameterRequest extends ParameterRequest {
+
+    /**
+     * Returns already prepared parameter or null if it has to be loaded.
+     */
+    PreparedParameter findPrepared(String parameterName);
+}
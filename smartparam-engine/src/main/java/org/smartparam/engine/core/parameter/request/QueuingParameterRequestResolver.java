@@ -20,40 +20,143 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.smartparam.engine.core.prepared.PreparedParameter;
 
 /**
+ * Single-flight resolver: only one request per parameter is executed at a
+ * time (on given executor), all concurrent callers asking for the same
+ * parameter wait for its result. Request is forgotten as soon as it completes,
+ * at which point prepared parameter is already in cache; callers coming later
+ * find it there if request is {@link CacheAwareParameterRequest}.
+ *
+ * Callers can wait for limited time only, if timeout is set.
  *
  * @author Adam Dubiel
  */
 public class QueuingParameterRequestResolver implements ParameterRequestQueue {
 
+    private static final long NO_TIMEOUT = 0;
+
     private final ExecutorService executorService;
 
+    private final long timeoutMillis;
+
     private final ConcurrentHashMap<String, Future<PreparedParameter>> currentRequests = new ConcurrentHashMap<String, Future<PreparedParameter>>();
 
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    private final AtomicLong timedOutRequests = new AtomicLong();
+
     public QueuingParameterRequestResolver(ExecutorService executorService) {
+        this(executorService, NO_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Callers wait at most given time for parameter, zero means no timeout.
+     */
+    public QueuingParameterRequestResolver(ExecutorService executorService, long timeout, TimeUnit unit) {
         this.executorService = executorService;
+        this.timeoutMillis = unit.toMillis(timeout);
     }
 
     @Override
     public PreparedParameter resolve(String parameterName, ParameterRequest request) {
+        // request which has already completed is joined as well, it is removed only by done()
         Future<PreparedParameter> waitingRequest = currentRequests.get(parameterName);
         if (waitingRequest == null) {
-            waitingRequest = executorService.submit(new ParameterResolvingCallable(parameterName, request));
-            currentRequests.put(parameterName, waitingRequest);
+            PreparedParameter preparedParameter = findPrepared(parameterName, request);
+            if (preparedParameter != null) {
+                coalescedRequests.incrementAndGet();
+                return preparedParameter;
+            }
+
+            FutureTask<PreparedParameter> newRequest = new ParameterResolvingTask(parameterName, request);
+            waitingRequest = currentRequests.putIfAbsent(parameterName, newRequest);
+            if (waitingRequest == null) {
+                waitingRequest = newRequest;
+                requests.incrementAndGet();
+                execute(newRequest);
+            } else {
+                coalescedRequests.incrementAndGet();
+            }
+        } else {
+            coalescedRequests.incrementAndGet();
         }
         return resolvePromise(parameterName, waitingRequest);
     }
 
+    /**
+     * Previous request might have completed and been forgotten after caller
+     * missed cache, its result is used instead of loading parameter again.
+     */
+    private PreparedParameter findPrepared(String parameterName, ParameterRequest request) {
+        if (request instanceof CacheAwareParameterRequest) {
+            return ((CacheAwareParameterRequest) request).findPrepared(parameterName);
+        }
+        return null;
+    }
+
+    private void execute(FutureTask<PreparedParameter> request) {
+        try {
+            executorService.execute(request);
+        } catch (RejectedExecutionException exception) {
+            // executor is saturated or shut down, do not leave waiters hanging
+            request.run();
+        }
+    }
+
     private PreparedParameter resolvePromise(String parameterName, Future<PreparedParameter> promise) {
         try {
-            currentRequests.remove(parameterName);
-            return promise.get();
+            return timeoutMillis > NO_TIMEOUT ? promise.get(timeoutMillis, TimeUnit.MILLISECONDS) : promise.get();
         } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
             throw new ParameterRequestException(parameterName, interruptedException);
         } catch (ExecutionException executionException) {
             throw new ParameterRequestException(parameterName, executionException);
+        } catch (TimeoutException timeoutException) {
+            timedOutRequests.incrementAndGet();
+            throw new ParameterRequestException(parameterName, timeoutException);
+        }
+    }
+
+    /**
+     * Number of requests executed.
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of callers, which joined request already in progress instead of
+     * executing their own.
+     */
+    public long coalescedRequestCount() {
+        return coalescedRequests.get();
+    }
+
+    public long timedOutRequestCount() {
+        return timedOutRequests.get();
+    }
+
+    private class ParameterResolvingTask extends FutureTask<PreparedParameter> {
+
+        private final String parameterName;
+
+        ParameterResolvingTask(String parameterName, ParameterRequest request) {
+            super(new ParameterResolvingCallable(parameterName, request));
+            this.parameterName = parameterName;
+        }
+
+        @Override
+        protected void done() {
+            currentRequests.remove(parameterName, this);
         }
     }
 
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+/**
+ * Tells which version of parameter is current in source repository. Snapshot
+ * is used only if it was written for the same version.
+ *
+ * @author Adam Dubiel
+ */
+public interface ParameterVersionSource {
+
+    /**
+     * Returns current version of parameter or null if it is unknown, in which
+     * case snapshot is bypassed.
+     */
+    String versionOf(String parameterName);
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Binary layout of snapshot file:
+ * <pre>
+ * int magic, int format version
+ * string parameter version, string parameter name, string parameter key
+ * int input levels, boolean cacheable, boolean nullable, boolean identify entries, char array separator
+ * int level count, [string key, name, level creator, type, matcher, boolean array] per level
+ * [boolean true, string entry key, int level count, string level value...] per entry
+ * boolean false
+ * </pre>
+ * Strings are written as UTF-8 bytes prefixed with length, -1 stands for null.
+ * File without closing false marker is treated as corrupted.
+ *
+ * @author Adam Dubiel
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x53505350;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final String FILE_EXTENSION = ".snapshot";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int NULL_LENGTH = -1;
+
+    private SnapshotFormat() {
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import org.smartparam.engine.core.parameter.ParameterKey;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryKey;
+import org.smartparam.engine.core.parameter.level.LevelKey;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotKey implements ParameterKey, LevelKey, ParameterEntryKey {
+
+    private final String value;
+
+    private SnapshotKey(String value) {
+        this.value = value;
+    }
+
+    static SnapshotKey from(String value) {
+        return value != null ? new SnapshotKey(value) : null;
+    }
+
+    @Override
+    public String value() {
+        return value;
+    }
+}
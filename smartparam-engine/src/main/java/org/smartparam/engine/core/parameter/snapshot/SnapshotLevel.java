@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.engine.core.parameter.level.LevelKey;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotLevel implements Level {
+
+    private final LevelKey key;
+
+    private final String name;
+
+    private final String levelCreator;
+
+    private final String type;
+
+    private final String matcher;
+
+    private final boolean array;
+
+    SnapshotLevel(LevelKey key, String name, String levelCreator, String type, String matcher, boolean array) {
+        this.key = key;
+        this.name = name;
+        this.levelCreator = levelCreator;
+        this.type = type;
+        this.matcher = matcher;
+        this.array = array;
+    }
+
+    @Override
+    public LevelKey getKey() {
+        return key;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getLevelCreator() {
+        return levelCreator;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public boolean isArray() {
+        return array;
+    }
+
+    @Override
+    public String getMatcher() {
+        return matcher;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smartparam.engine.core.parameter.ParamRepository;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.engine.core.parameter.ParameterBatchLoader;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+
+/**
+ * Decorates repository with local, binary snapshot of cacheable parameters,
+ * one file per parameter, stamped with parameter version. Parameter is read
+ * from snapshot if it was written for current version (see
+ * {@link ParameterVersionSource}), otherwise it is loaded from decorated
+ * repository and snapshot is (re)written on the way. Nodes restarting with
+ * snapshot in place do not have to pull parameters from source repository.
+ *
+ * Snapshot is only an optimization: missing, stale or corrupted files are
+ * silently replaced and failing to write snapshot never fails the load.
+ * Non-cacheable parameters and queries for entries go straight to decorated
+ * repository.
+ *
+ * @author Adam Dubiel
+ */
+public class SnapshotParamRepository implements ParamRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotParamRepository.class);
+
+    private final ParamRepository repository;
+
+    private final File snapshotDirectory;
+
+    private final ParameterVersionSource versionSource;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public SnapshotParamRepository(ParamRepository repository, File snapshotDirectory, ParameterVersionSource versionSource) {
+        this.repository = repository;
+        this.snapshotDirectory = snapshotDirectory;
+        this.versionSource = versionSource;
+        if (!snapshotDirectory.isDirectory() && !snapshotDirectory.mkdirs()) {
+            throw new IllegalArgumentException("can't create snapshot directory " + snapshotDirectory);
+        }
+    }
+
+    @Override
+    public Parameter load(String parameterName) {
+        String version = versionSource.versionOf(parameterName);
+        if (version == null) {
+            return repository.load(parameterName);
+        }
+
+        SnapshotReader snapshot = openSnapshot(parameterName, version);
+        if (snapshot != null) {
+            try {
+                Parameter parameter = snapshot.readAll();
+                hits.incrementAndGet();
+                return parameter;
+            } catch (IOException exception) {
+                discardSnapshot(parameterName, exception);
+            }
+        }
+
+        misses.incrementAndGet();
+        Parameter parameter = repository.load(parameterName);
+        if (parameter != null && parameter.isCacheable()) {
+            writeSnapshot(parameter, version);
+        }
+        return parameter;
+    }
+
+    @Override
+    public ParameterBatchLoader batchLoad(String parameterName) {
+        String version = versionSource.versionOf(parameterName);
+        if (version == null) {
+            return repository.batchLoad(parameterName);
+        }
+
+        SnapshotReader snapshot = openSnapshot(parameterName, version);
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return new ParameterBatchLoader(snapshot.metadata(), snapshot);
+        }
+
+        misses.incrementAndGet();
+        ParameterBatchLoader batchLoader = repository.batchLoad(parameterName);
+        if (batchLoader == null || batchLoader.getMetadata() == null || !batchLoader.getMetadata().isCacheable()) {
+            return batchLoader;
+        }
+        SnapshotWriter writer = openWriter(batchLoader.getMetadata(), version);
+        if (writer == null) {
+            return batchLoader;
+        }
+        return new ParameterBatchLoader(batchLoader.getMetadata(), new SnapshotWritingEntryLoader(batchLoader.getEntryLoader(), writer, parameterName));
+    }
+
+    private SnapshotReader openSnapshot(String parameterName, String version) {
+        File file = snapshotFile(parameterName);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return SnapshotReader.open(file, version);
+        } catch (IOException exception) {
+            discardSnapshot(parameterName, exception);
+            return null;
+        }
+    }
+
+    private void discardSnapshot(String parameterName, IOException exception) {
+        logger.warn("Discarding corrupted snapshot of parameter " + parameterName + ", it will be loaded from repository.", exception);
+        snapshotFile(parameterName).delete();
+    }
+
+    private void writeSnapshot(Parameter parameter, String version) {
+        SnapshotWriter writer = openWriter(parameter, version);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.writeEntries(parameter.getEntries());
+            writer.commit();
+        } catch (IOException exception) {
+            writer.abort();
+            logger.warn("Failed to write snapshot of parameter " + parameter.getName(), exception);
+        }
+    }
+
+    private SnapshotWriter openWriter(Parameter metadata, String version) {
+        try {
+            return SnapshotWriter.open(snapshotFile(metadata.getName()), metadata, version);
+        } catch (IOException exception) {
+            logger.warn("Failed to write snapshot of parameter " + metadata.getName(), exception);
+            return null;
+        }
+    }
+
+    File snapshotFile(String parameterName) {
+        try {
+            return new File(snapshotDirectory, URLEncoder.encode(parameterName, "UTF-8") + SnapshotFormat.FILE_EXTENSION);
+        } catch (UnsupportedEncodingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Remove snapshot of parameter, it will be written again on next load.
+     */
+    public void invalidate(String parameterName) {
+        snapshotFile(parameterName).delete();
+    }
+
+    @Override
+    public Set<ParameterEntry> findEntries(String parameterName, String[] levelValues) {
+        return repository.findEntries(parameterName, levelValues);
+    }
+
+    @Override
+    public Set<String> listParameters() {
+        return repository.listParameters();
+    }
+
+    /**
+     * Number of parameters read from snapshot.
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Number of parameters loaded from decorated repository, because snapshot
+     * was missing, stale or corrupted.
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Writes entries to snapshot as they are streamed from source repository,
+     * snapshot is committed only if all entries were read.
+     */
+    private static class SnapshotWritingEntryLoader implements ParameterEntryBatchLoader {
+
+        private final ParameterEntryBatchLoader entryLoader;
+
+        private final String parameterName;
+
+        private SnapshotWriter writer;
+
+        SnapshotWritingEntryLoader(ParameterEntryBatchLoader entryLoader, SnapshotWriter writer, String parameterName) {
+            this.entryLoader = entryLoader;
+            this.writer = writer;
+            this.parameterName = parameterName;
+        }
+
+        @Override
+        public boolean hasMore() {
+            return entryLoader.hasMore();
+        }
+
+        @Override
+        public Collection<ParameterEntry> nextBatch(int batchSize) {
+            Collection<ParameterEntry> batch = entryLoader.nextBatch(batchSize);
+            if (writer != null) {
+                try {
+                    writer.writeEntries(batch);
+                } catch (IOException exception) {
+                    abortWriting(exception);
+                }
+            }
+            return batch;
+        }
+
+        private void abortWriting(IOException exception) {
+            writer.abort();
+            writer = null;
+            logger.warn("Failed to write snapshot of parameter " + parameterName, exception);
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (writer != null && !entryLoader.hasMore()) {
+                    writer.commit();
+                } else if (writer != null) {
+                    writer.abort();
+                }
+            } catch (IOException exception) {
+                abortWriting(exception);
+            } finally {
+                entryLoader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.engine.core.parameter.ParameterKey;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.level.Level;
+
+/**
+ * Parameter read from snapshot, entries keep order in which they were written.
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotParameter implements Parameter {
+
+    private final ParameterKey key;
+
+    private final String name;
+
+    private final List<Level> levels;
+
+    private final int inputLevels;
+
+    private final boolean cacheable;
+
+    private final boolean nullable;
+
+    private final boolean identifyEntries;
+
+    private final char arraySeparator;
+
+    private final Set<ParameterEntry> entries = new LinkedHashSet<ParameterEntry>();
+
+    SnapshotParameter(ParameterKey key, String name, List<Level> levels, int inputLevels,
+            boolean cacheable, boolean nullable, boolean identifyEntries, char arraySeparator) {
+        this.key = key;
+        this.name = name;
+        this.levels = levels;
+        this.inputLevels = inputLevels;
+        this.cacheable = cacheable;
+        this.nullable = nullable;
+        this.identifyEntries = identifyEntries;
+        this.arraySeparator = arraySeparator;
+    }
+
+    @Override
+    public ParameterKey getKey() {
+        return key;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<Level> getLevels() {
+        return levels;
+    }
+
+    @Override
+    public int getInputLevels() {
+        return inputLevels;
+    }
+
+    @Override
+    public Set<ParameterEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    @Override
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    @Override
+    public char getArraySeparator() {
+        return arraySeparator;
+    }
+
+    @Override
+    public boolean isIdentifyEntries() {
+        return identifyEntries;
+    }
+}
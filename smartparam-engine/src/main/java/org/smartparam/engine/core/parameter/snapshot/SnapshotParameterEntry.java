@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryKey;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotParameterEntry implements ParameterEntry {
+
+    private final ParameterEntryKey key;
+
+    private final String[] levels;
+
+    SnapshotParameterEntry(ParameterEntryKey key, String[] levels) {
+        this.key = key;
+        this.levels = levels;
+    }
+
+    @Override
+    public ParameterEntryKey getKey() {
+        return key;
+    }
+
+    @Override
+    public String[] getLevels() {
+        return levels;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import org.smartparam.engine.core.exception.SmartParamException;
+
+/**
+ * Snapshot file turned out to be corrupted while streaming its entries.
+ *
+ * @author Adam Dubiel
+ */
+@SuppressWarnings("serial")
+public class SnapshotReadException extends SmartParamException {
+
+    SnapshotReadException(String parameterName, Throwable cause) {
+        super("SNAPSHOT_READ_FAILED", cause, "Failed to read snapshot of parameter " + parameterName);
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.engine.core.parameter.level.Level;
+import static org.smartparam.engine.core.parameter.snapshot.SnapshotFormat.*;
+
+/**
+ * Reads snapshot file, entries are streamed in batches.
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotReader implements ParameterEntryBatchLoader {
+
+    private final File file;
+
+    private final DataInputStream input;
+
+    private final SnapshotParameter metadata;
+
+    private boolean hasMore;
+
+    private SnapshotReader(File file, DataInputStream input, SnapshotParameter metadata) throws IOException {
+        this.file = file;
+        this.input = input;
+        this.metadata = metadata;
+        this.hasMore = input.readBoolean();
+    }
+
+    /**
+     * Returns reader positioned at first entry or null if snapshot was written
+     * for other version of parameter.
+     */
+    static SnapshotReader open(File file, String version) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("unknown format of snapshot file " + file);
+            }
+            if (!version.equals(readString(input))) {
+                input.close();
+                return null;
+            }
+            return new SnapshotReader(file, input, readHeader(input));
+        } catch (IOException exception) {
+            input.close();
+            throw exception;
+        }
+    }
+
+    private static SnapshotParameter readHeader(DataInputStream input) throws IOException {
+        String name = readString(input);
+        SnapshotKey key = SnapshotKey.from(readString(input));
+
+        int inputLevels = input.readInt();
+        boolean cacheable = input.readBoolean();
+        boolean nullable = input.readBoolean();
+        boolean identifyEntries = input.readBoolean();
+        char arraySeparator = input.readChar();
+
+        int levelCount = input.readInt();
+        List<Level> levels = new ArrayList<Level>(levelCount);
+        for (int i = 0; i < levelCount; ++i) {
+            SnapshotKey levelKey = SnapshotKey.from(readString(input));
+            String levelName = readString(input);
+            String levelCreator = readString(input);
+            String type = readString(input);
+            String matcher = readString(input);
+            levels.add(new SnapshotLevel(levelKey, levelName, levelCreator, type, matcher, input.readBoolean()));
+        }
+
+        return new SnapshotParameter(key, name, levels, inputLevels, cacheable, nullable, identifyEntries, arraySeparator);
+    }
+
+    SnapshotParameter metadata() {
+        return metadata;
+    }
+
+    /**
+     * Read all remaining entries into metadata entry set and close reader.
+     */
+    SnapshotParameter readAll() throws IOException {
+        try {
+            while (hasMore) {
+                metadata.getEntries().add(readEntry());
+            }
+            return metadata;
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public Collection<ParameterEntry> nextBatch(int batchSize) {
+        List<ParameterEntry> batch = new ArrayList<ParameterEntry>(batchSize);
+        try {
+            while (hasMore && batch.size() < batchSize) {
+                batch.add(readEntry());
+            }
+        } catch (IOException exception) {
+            // do not fail again on next load
+            close();
+            file.delete();
+            throw new SnapshotReadException(metadata.getName(), exception);
+        }
+        return batch;
+    }
+
+    private ParameterEntry readEntry() throws IOException {
+        SnapshotKey key = SnapshotKey.from(readString(input));
+        String[] levels = new String[input.readInt()];
+        for (int i = 0; i < levels.length; ++i) {
+            levels[i] = readString(input);
+        }
+        hasMore = input.readBoolean();
+        return new SnapshotParameterEntry(key, levels);
+    }
+
+    @Override
+    public void close() {
+        hasMore = false;
+        try {
+            input.close();
+        } catch (IOException exception) {
+            // read only file, nothing to lose
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.engine.core.parameter.ParameterKey;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryKey;
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.engine.core.parameter.level.LevelKey;
+import static org.smartparam.engine.core.parameter.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes snapshot to temporary file, which replaces target file only when
+ * whole parameter was written, so readers never see half written snapshot.
+ *
+ * @author Adam Dubiel
+ */
+class SnapshotWriter {
+
+    private final File target;
+
+    private final File temporary;
+
+    private final DataOutputStream output;
+
+    private SnapshotWriter(File target, File temporary, DataOutputStream output) {
+        this.target = target;
+        this.temporary = temporary;
+        this.output = output;
+    }
+
+    static SnapshotWriter open(File target, Parameter metadata, String version) throws IOException {
+        File temporary = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        SnapshotWriter writer = new SnapshotWriter(target, temporary, output);
+        try {
+            writer.writeHeader(metadata, version);
+        } catch (IOException exception) {
+            writer.abort();
+            throw exception;
+        }
+        return writer;
+    }
+
+    private void writeHeader(Parameter metadata, String version) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        writeString(output, version);
+        writeString(output, metadata.getName());
+        ParameterKey key = metadata.getKey();
+        writeString(output, key != null ? key.value() : null);
+
+        output.writeInt(metadata.getInputLevels());
+        output.writeBoolean(metadata.isCacheable());
+        output.writeBoolean(metadata.isNullable());
+        output.writeBoolean(metadata.isIdentifyEntries());
+        output.writeChar(metadata.getArraySeparator());
+
+        output.writeInt(metadata.getLevels().size());
+        for (Level level : metadata.getLevels()) {
+            LevelKey levelKey = level.getKey();
+            writeString(output, levelKey != null ? levelKey.value() : null);
+            writeString(output, level.getName());
+            writeString(output, level.getLevelCreator());
+            writeString(output, level.getType());
+            writeString(output, level.getMatcher());
+            output.writeBoolean(level.isArray());
+        }
+    }
+
+    void writeEntries(Collection<ParameterEntry> entries) throws IOException {
+        for (ParameterEntry entry : entries) {
+            output.writeBoolean(true);
+            ParameterEntryKey key = entry.getKey();
+            writeString(output, key != null ? key.value() : null);
+            String[] levels = entry.getLevels();
+            output.writeInt(levels.length);
+            for (String level : levels) {
+                writeString(output, level);
+            }
+        }
+    }
+
+    void commit() throws IOException {
+        output.writeBoolean(false);
+        output.close();
+        // renameTo does not replace existing files on all platforms
+        if ((target.exists() && !target.delete()) || !temporary.renameTo(target)) {
+            temporary.delete();
+            throw new IOException("failed to replace snapshot file " + target);
+        }
+    }
+
+    void abort() {
+        try {
+            output.close();
+        } catch (IOException exception) {
+            // nothing to do, file is removed anyway
+        }
+        temporary.delete();
+    }
+}
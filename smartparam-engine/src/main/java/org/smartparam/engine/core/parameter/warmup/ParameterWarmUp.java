@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.smartparam.engine.core.parameter.NamedParamRepository;
+import org.smartparam.engine.core.parameter.ParameterManager;
+import org.smartparam.engine.core.parameter.ParameterProvider;
+
+/**
+ * Prepares (and caches) parameters from all registered repositories in
+ * parallel, so first requests do not pay the cost of loading them.
+ *
+ * @author Adam Dubiel
+ */
+public class ParameterWarmUp {
+
+    private final ParameterManager parameterManager;
+
+    private final ParameterProvider parameterProvider;
+
+    public ParameterWarmUp(ParameterManager parameterManager, ParameterProvider parameterProvider) {
+        this.parameterManager = parameterManager;
+        this.parameterProvider = parameterProvider;
+    }
+
+    /**
+     * Prepare parameters described by request using given executor, calling
+     * thread waits until all parameters are prepared.
+     */
+    public WarmUpReport warmUp(WarmUpRequest request, ExecutorService executorService) {
+        long start = System.currentTimeMillis();
+        WarmUpReport report = new WarmUpReport();
+
+        List<String> parameterNames = parametersToPrepare(request);
+        AtomicInteger completed = new AtomicInteger();
+
+        List<Future<?>> tasks = new ArrayList<Future<?>>(parameterNames.size());
+        for (String parameterName : parameterNames) {
+            tasks.add(executorService.submit(new PreparingTask(parameterName, request.getListener(), report, completed, parameterNames.size())));
+        }
+        awaitAll(tasks);
+
+        report.finished(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private List<String> parametersToPrepare(WarmUpRequest request) {
+        Set<String> parameterNames = new TreeSet<String>();
+        for (NamedParamRepository repository : parameterProvider.registeredItems()) {
+            parameterNames.addAll(repository.repository().listParameters());
+        }
+
+        Set<String> orderedNames = new LinkedHashSet<String>();
+        for (String parameterName : request.getPriorities()) {
+            if (parameterNames.contains(parameterName)) {
+                orderedNames.add(parameterName);
+            }
+        }
+        for (String parameterName : parameterNames) {
+            if (request.accepts(parameterName)) {
+                orderedNames.add(parameterName);
+            }
+        }
+        return new ArrayList<String>(orderedNames);
+    }
+
+    private void awaitAll(List<Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException interruptedException) {
+                for (Future<?> pendingTask : tasks) {
+                    pendingTask.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException executionException) {
+                // tasks report their own failures, keep waiting for the rest
+            }
+        }
+    }
+
+    private class PreparingTask implements Runnable {
+
+        private final String parameterName;
+
+        private final WarmUpListener listener;
+
+        private final WarmUpReport report;
+
+        private final AtomicInteger completed;
+
+        private final int total;
+
+        PreparingTask(String parameterName, WarmUpListener listener, WarmUpReport report, AtomicInteger completed, int total) {
+            this.parameterName = parameterName;
+            this.listener = listener;
+            this.report = report;
+            this.completed = completed;
+            this.total = total;
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            try {
+                parameterManager.getPreparedParameter(parameterName);
+            } catch (RuntimeException exception) {
+                report.failed(parameterName, exception);
+                notifyFailed(exception, completed.incrementAndGet());
+                return;
+            }
+
+            long preparationTime = System.currentTimeMillis() - start;
+            report.prepared(parameterName, preparationTime);
+            notifyPrepared(preparationTime, completed.incrementAndGet());
+        }
+
+        private void notifyPrepared(long preparationTime, int completedCount) {
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.parameterPrepared(parameterName, preparationTime, completedCount, total);
+            } catch (RuntimeException listenerException) {
+                report.listenerFailed(parameterName, listenerException);
+            }
+        }
+
+        private void notifyFailed(Exception exception, int failedCount) {
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.parameterFailed(parameterName, exception, failedCount, total);
+            } catch (RuntimeException listenerException) {
+                report.listenerFailed(parameterName, listenerException);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.warmup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of parameter warm-up: time taken to prepare each parameter and
+ * failures, if any. Exceptions thrown by {@link WarmUpListener} are recorded
+ * separately and do not stop warm-up.
+ *
+ * @author Adam Dubiel
+ */
+public final class WarmUpReport {
+
+    private final Map<String, Long> preparationTimes = new LinkedHashMap<String, Long>();
+
+    private final Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+
+    private final Map<String, Exception> listenerFailures = new LinkedHashMap<String, Exception>();
+
+    private long totalTime;
+
+    synchronized void prepared(String parameterName, long preparationTime) {
+        preparationTimes.put(parameterName, preparationTime);
+    }
+
+    synchronized void failed(String parameterName, Exception exception) {
+        failures.put(parameterName, exception);
+    }
+
+    synchronized void listenerFailed(String parameterName, Exception exception) {
+        listenerFailures.put(parameterName, exception);
+    }
+
+    synchronized void finished(long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * Returns time (in milliseconds) taken to prepare each parameter, in order
+     * of completion.
+     */
+    public synchronized Map<String, Long> getPreparationTimes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(preparationTimes));
+    }
+
+    public synchronized Map<String, Exception> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Exception>(failures));
+    }
+
+    /**
+     * Returns exceptions thrown by listener when notified about given
+     * parameter.
+     */
+    public synchronized Map<String, Exception> getListenerFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Exception>(listenerFailures));
+    }
+
+    public synchronized int getPreparedCount() {
+        return preparationTimes.size();
+    }
+
+    public synchronized int getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * Returns wall clock time (in milliseconds) of whole warm-up.
+     */
+    public synchronized long getTotalTime() {
+        return totalTime;
+    }
+}
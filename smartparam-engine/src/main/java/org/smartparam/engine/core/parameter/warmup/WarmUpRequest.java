@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Describes which parameters should be prepared during warm-up and in which
+ * order. By default all parameters from all repositories are prepared.
+ *
+ * @author Adam Dubiel
+ */
+public final class WarmUpRequest {
+
+    private final List<Pattern> namePatterns = new ArrayList<Pattern>();
+
+    private final List<String> priorities = new ArrayList<String>();
+
+    private WarmUpListener listener;
+
+    private WarmUpRequest() {
+    }
+
+    public static WarmUpRequest warmUpRequest() {
+        return new WarmUpRequest();
+    }
+
+    /**
+     * Prepare only parameters with names matching any of given regular
+     * expressions.
+     */
+    public WarmUpRequest matching(String... namePatterns) {
+        for (String namePattern : namePatterns) {
+            this.namePatterns.add(Pattern.compile(namePattern));
+        }
+        return this;
+    }
+
+    /**
+     * Prepare given parameters first (in given order), before all other
+     * parameters. Prioritized parameters are prepared even if they do not
+     * match name patterns.
+     */
+    public WarmUpRequest withPriority(String... parameterNames) {
+        Collections.addAll(priorities, parameterNames);
+        return this;
+    }
+
+    public WarmUpRequest withListener(WarmUpListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public boolean accepts(String parameterName) {
+        if (namePatterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern namePattern : namePatterns) {
+            if (namePattern.matcher(parameterName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getPriorities() {
+        return Collections.unmodifiableList(priorities);
+    }
+
+    public WarmUpListener getListener() {
+        return listener;
+    }
+}
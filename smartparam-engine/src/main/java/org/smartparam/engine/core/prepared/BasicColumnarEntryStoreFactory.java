@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Creates {@link ColumnarEntryStore} for chosen parameters or for all
+ * parameters if no names were given.
+ *
+ * @author Adam Dubiel
+ */
+public class BasicColumnarEntryStoreFactory implements ColumnarEntryStoreFactory {
+
+    private final Set<String> parameterNames;
+
+    public BasicColumnarEntryStoreFactory(String... parameterNames) {
+        this.parameterNames = new HashSet<String>();
+        Collections.addAll(this.parameterNames, parameterNames);
+    }
+
+    @Override
+    public ColumnarEntryStore create(PreparedParameter parameter) {
+        if (parameterNames.isEmpty() || parameterNames.contains(parameter.getName())) {
+            return new ColumnarEntryStore(parameter.getLevelCount());
+        }
+        return null;
+    }
+}
@@ -15,18 +15,27 @@
  */
 package org.smartparam.engine.core.prepared;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.smartparam.engine.cache.NoParamValueCacheFactory;
+import org.smartparam.engine.core.index.CompiledLevelIndex;
 import org.smartparam.engine.core.index.LevelIndex;
+import org.smartparam.engine.core.index.LevelIndexBuilder;
+import org.smartparam.engine.core.index.LevelIndexStatistics;
+import org.smartparam.engine.core.index.MappedLevelIndex;
+import org.smartparam.engine.core.index.SequentialLevelIndexBuilder;
 import org.smartparam.engine.core.matcher.Matcher;
 import org.smartparam.engine.core.type.Type;
 import org.smartparam.engine.core.parameter.level.Level;
 import org.smartparam.engine.core.parameter.Parameter;
 import org.smartparam.engine.core.parameter.ParameterFromRepository;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
 
 /**
  *
@@ -35,14 +44,56 @@ import org.smartparam.engine.core.parameter.entry.ParameterEntry;
  */
 public class BasicParamPreparer implements ParamPreparer {
 
+    /**
+     * Number of entries read at once, when repository supports batch loading.
+     */
+    private static final int ENTRY_BATCH_SIZE = 5000;
+
     private final LevelPreparer levelPreparer;
 
+    private final ParamValueCacheFactory valueCacheFactory;
+
+    private final LevelIndexBuilder indexBuilder;
+
+    private final LevelValueDictionaryFactory dictionaryFactory;
+
+    private final ColumnarEntryStoreFactory entryStoreFactory;
+
+    private final MappedLevelIndexFactory mappedIndexFactory;
+
     public BasicParamPreparer(LevelPreparer levelPreparer) {
+        this(levelPreparer, new NoParamValueCacheFactory());
+    }
+
+    public BasicParamPreparer(LevelPreparer levelPreparer, ParamValueCacheFactory valueCacheFactory) {
+        this(levelPreparer, valueCacheFactory, new SequentialLevelIndexBuilder(), new ParameterScopedDictionaryFactory(),
+                new NoColumnarEntryStoreFactory(), new NoMappedLevelIndexFactory());
+    }
+
+    public BasicParamPreparer(LevelPreparer levelPreparer, ParamValueCacheFactory valueCacheFactory, LevelIndexBuilder indexBuilder,
+            LevelValueDictionaryFactory dictionaryFactory, ColumnarEntryStoreFactory entryStoreFactory,
+            MappedLevelIndexFactory mappedIndexFactory) {
         this.levelPreparer = levelPreparer;
+        this.valueCacheFactory = valueCacheFactory;
+        this.indexBuilder = indexBuilder;
+        this.dictionaryFactory = dictionaryFactory;
+        this.entryStoreFactory = entryStoreFactory;
+        this.mappedIndexFactory = mappedIndexFactory;
     }
 
     @Override
     public PreparedParameter prepare(ParameterFromRepository parameterFromRepository) {
+        ParameterEntryBatchLoader entryLoader = parameterFromRepository.entryLoader();
+        try {
+            return prepare(parameterFromRepository, entryLoader);
+        } finally {
+            if (entryLoader != null) {
+                entryLoader.close();
+            }
+        }
+    }
+
+    private PreparedParameter prepare(ParameterFromRepository parameterFromRepository, ParameterEntryBatchLoader entryLoader) {
         Parameter parameter = parameterFromRepository.parameter();
 
         int levelCount = getLevelCount(parameter);
@@ -63,36 +114,90 @@ public class BasicParamPreparer implements ParamPreparer {
         preparedParameter.setLevelNameMap(buildLevelNameToIndexMap(preparedParameter));
 
         if (parameter.isCacheable()) {
-            preparedParameter.setIndex(buildIndex(parameter, types, matchers));
+            LevelValueDictionary dictionary = dictionaryFactory.create(preparedParameter);
+            // identifiable entries carry their keys, they are always kept as rows
+            ColumnarEntryStore entryStore = parameter.isIdentifyEntries() ? null : entryStoreFactory.create(preparedParameter);
+            EntryFactory entryFactory = new EntryFactory(dictionary, entryStore);
+            LevelIndex<PreparedEntry> index = buildIndex(preparedParameter, parameter, entryLoader, entryFactory, types, matchers);
+            if (entryStore != null) {
+                entryStore.compact();
+            }
+
+            // identifiable entries would lose their keys in mapped index
+            MappedLevelIndex mappedIndex = parameter.isIdentifyEntries() ? null : mappedIndexFactory.create(preparedParameter, index);
+            if (mappedIndex != null) {
+                // heap index and entries are dropped, only mapped handle stays
+                preparedParameter.setMappedIndex(mappedIndex);
+            } else {
+                preparedParameter.setEntryStore(entryStore);
+                // layout of each level is chosen from its shape (cardinality, matchers)
+                LevelIndexStatistics statistics = LevelIndexStatistics.gather(index);
+                // only compiled index is kept, tree is rebuilt on demand (see PreparedParameter#getIndex)
+                preparedParameter.setCompiledIndex(new CompiledLevelIndex<PreparedEntry>(index, statistics));
+            }
+            preparedParameter.setValueCache(valueCacheFactory.create(preparedParameter));
         }
 
         return preparedParameter;
     }
 
-    private LevelIndex<PreparedEntry> buildIndex(Parameter parameter, Type<?>[] types, Matcher[] matchers) {
+    private LevelIndex<PreparedEntry> buildIndex(PreparedParameter preparedParameter, Parameter parameter, ParameterEntryBatchLoader entryLoader,
+            EntryFactory entryFactory, Type<?>[] types, Matcher[] matchers) {
         int inputLevelCount = parameter.getInputLevels();
         Type<?>[] inputLevelTypes = Arrays.copyOf(types, inputLevelCount);
         Matcher[] inputLevelMatchers = Arrays.copyOf(matchers, inputLevelCount);
 
         LevelIndex<PreparedEntry> index = new LevelIndex<PreparedEntry>(inputLevelCount, inputLevelTypes, inputLevelMatchers);
 
+        if (entryLoader == null) {
+            addEntries(index, preparedParameter, parameter, parameter.getEntries(), entryFactory, types, matchers);
+            return index;
+        }
+
+        // raw entries are released batch by batch, only prepared ones stay in memory
+        while (entryLoader.hasMore()) {
+            addEntries(index, preparedParameter, parameter, entryLoader.nextBatch(ENTRY_BATCH_SIZE), entryFactory, types, matchers);
+        }
+        return index;
+    }
+
+    private void addEntries(LevelIndex<PreparedEntry> index, PreparedParameter preparedParameter, Parameter parameter,
+            Collection<ParameterEntry> entries, EntryFactory entryFactory, Type<?>[] types, Matcher[] matchers) {
+        int inputLevelCount = index.getLevelCount();
+
+        List<String[]> levelValues = new ArrayList<String[]>(entries.size());
+        List<PreparedEntry> preparedEntries = new ArrayList<PreparedEntry>(entries.size());
+
         String[] keys;
-        for (ParameterEntry parameterEntry : parameter.getEntries()) {
+        for (ParameterEntry parameterEntry : entries) {
 
             // raw level patterns (read from repository)
             keys = getFirstNLevels(parameterEntry, inputLevelCount);
 
-            // normalize level patters
+            // normalize level patters, index keys share instances with entry levels
             for (int i = 0; i < inputLevelCount; i++) {
                 if (matchers[i] == null) {
                     keys[i] = InputValueNormalizer.normalize(types[i], keys[i]);
                 }
+                keys[i] = entryFactory.dictionary.canonical(keys[i]);
             }
 
-            index.add(keys, prepareEntry(parameterEntry, parameter.isIdentifyEntries()));
+            PreparedEntry preparedEntry = entryFactory.create(parameterEntry, parameter.isIdentifyEntries());
+            decodeOutputValues(preparedParameter, preparedEntry);
+
+            levelValues.add(keys);
+            preparedEntries.add(preparedEntry);
         }
 
-        return index;
+        indexBuilder.addAll(index, levelValues, preparedEntries);
+    }
+
+    private void decodeOutputValues(PreparedParameter preparedParameter, PreparedEntry preparedEntry) {
+        try {
+            preparedEntry.setOutputValues(OutputValueDecoder.decode(preparedParameter, preparedEntry));
+        } catch (RuntimeException corruptedValue) {
+            // leave it to be decoded (and reported) when entry is returned
+        }
     }
 
     private Map<String, Integer> buildLevelNameToIndexMap(PreparedParameter preparedParameter) {
@@ -131,7 +236,25 @@ public class BasicParamPreparer implements ParamPreparer {
         return new IdentifiablePreparedEntry(parameterEntry);
     }
 
-    private PreparedEntry prepareEntry(ParameterEntry parameterEntry, boolean identifyEntries) {
-        return identifyEntries ? new IdentifiablePreparedEntry(parameterEntry) : new PreparedEntry(parameterEntry);
+    private static final class EntryFactory {
+
+        private final LevelValueDictionary dictionary;
+
+        private final ColumnarEntryStore entryStore;
+
+        EntryFactory(LevelValueDictionary dictionary, ColumnarEntryStore entryStore) {
+            this.dictionary = dictionary;
+            this.entryStore = entryStore;
+        }
+
+        PreparedEntry create(ParameterEntry parameterEntry, boolean identifyEntries) {
+            if (identifyEntries) {
+                return new IdentifiablePreparedEntry(parameterEntry, dictionary);
+            }
+            if (entryStore != null) {
+                return entryStore.append(parameterEntry.getLevels(), dictionary);
+            }
+            return new PreparedEntry(parameterEntry, dictionary);
+        }
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar storage of prepared entries levels. Each level has its own
+ * dictionary of distinct values and each row is stored as array of codes
+ * pointing to dictionary. Entries are {@link ColumnarPreparedEntry} views,
+ * holding only row number instead of own String array.
+ *
+ * Rows are appended while parameter is prepared, afterwards store is
+ * compacted: dictionaries are frozen and codes narrowed to byte or char
+ * if level has few distinct values. Compacted store is immutable and
+ * safe to read concurrently.
+ *
+ * Values of levels not defined by parameter (beyond level count) are
+ * not stored.
+ *
+ * @author Adam Dubiel
+ */
+public class ColumnarEntryStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final int BYTE_CODE_LIMIT = 1 << 8;
+
+    private static final int CHAR_CODE_LIMIT = 1 << 16;
+
+    /**
+     * Rough size of distinct value held in dictionary (String with its char array).
+     */
+    static final long DICTIONARY_VALUE_WEIGHT = 48;
+
+    private final LevelColumn[] columns;
+
+    private int rowCount;
+
+    private boolean compacted;
+
+    public ColumnarEntryStore(int levelCount) {
+        this.columns = new LevelColumn[levelCount];
+        for (int level = 0; level < levelCount; ++level) {
+            columns[level] = new LevelColumn();
+        }
+    }
+
+    /**
+     * Append row of level values (deduplicated using given dictionary, if any)
+     * and return entry view of it.
+     */
+    public ColumnarPreparedEntry append(String[] levels, LevelValueDictionary dictionary) {
+        if (compacted) {
+            throw new IllegalStateException("can't append rows to compacted columnar entry store");
+        }
+        int row = rowCount++;
+        for (int level = 0; level < columns.length; ++level) {
+            String value = levels != null && level < levels.length ? levels[level] : null;
+            columns[level].append(row, dictionary != null ? dictionary.canonical(value) : value);
+        }
+        return new ColumnarPreparedEntry(this, row);
+    }
+
+    /**
+     * Freeze dictionaries and narrow codes, no rows can be appended afterwards.
+     */
+    public void compact() {
+        if (compacted) {
+            return;
+        }
+        for (LevelColumn column : columns) {
+            column.compact(rowCount);
+        }
+        compacted = true;
+    }
+
+    String getLevel(int row, int level) {
+        return level >= 0 && level < columns.length ? columns[level].get(row) : null;
+    }
+
+    String[] getLevels(int row) {
+        int length = columns.length;
+        while (length > 0 && columns[length - 1].get(row) == null) {
+            --length;
+        }
+
+        String[] levels = new String[length];
+        for (int level = 0; level < length; ++level) {
+            levels[level] = columns[level].get(row);
+        }
+        return levels;
+    }
+
+    public int getLevelCount() {
+        return columns.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Number of distinct values stored at given level (not counting null).
+     */
+    public int getDistinctValueCount(int level) {
+        return columns[level].distinctValueCount();
+    }
+
+    /**
+     * Rough estimate of heap occupied by codes and dictionaries (in bytes).
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (LevelColumn column : columns) {
+            size += column.estimatedSize(rowCount);
+        }
+        return size;
+    }
+
+    private static final class LevelColumn {
+
+        private Map<String, Integer> codes = new HashMap<String, Integer>();
+
+        private List<String> dictionary = new ArrayList<String>();
+
+        private String[] values;
+
+        private int[] intRows = new int[INITIAL_CAPACITY];
+
+        private char[] charRows;
+
+        private byte[] byteRows;
+
+        LevelColumn() {
+            // code 0 is reserved for null
+            dictionary.add(null);
+        }
+
+        void append(int row, String value) {
+            if (row == intRows.length) {
+                intRows = Arrays.copyOf(intRows, intRows.length * 2);
+            }
+            intRows[row] = encode(value);
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String get(int row) {
+            if (values == null) {
+                return dictionary.get(intRows[row]);
+            }
+            if (byteRows != null) {
+                return values[byteRows[row] & 0xFF];
+            }
+            if (charRows != null) {
+                return values[charRows[row]];
+            }
+            return values[intRows[row]];
+        }
+
+        void compact(int rowCount) {
+            values = dictionary.toArray(new String[dictionary.size()]);
+            dictionary = null;
+            codes = null;
+
+            if (values.length <= BYTE_CODE_LIMIT) {
+                byteRows = new byte[rowCount];
+                for (int row = 0; row < rowCount; ++row) {
+                    byteRows[row] = (byte) intRows[row];
+                }
+                intRows = null;
+            } else if (values.length <= CHAR_CODE_LIMIT) {
+                charRows = new char[rowCount];
+                for (int row = 0; row < rowCount; ++row) {
+                    charRows[row] = (char) intRows[row];
+                }
+                intRows = null;
+            } else {
+                intRows = Arrays.copyOf(intRows, rowCount);
+            }
+        }
+
+        int distinctValueCount() {
+            return (values != null ? values.length : dictionary.size()) - 1;
+        }
+
+        long estimatedSize(int rowCount) {
+            long codeSize = byteRows != null ? 1 : (charRows != null ? 2 : 4);
+            return codeSize * rowCount + (distinctValueCount() + 1) * DICTIONARY_VALUE_WEIGHT;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+/**
+ * Lightweight view of single row of {@link ColumnarEntryStore}.
+ *
+ * @author Adam Dubiel
+ */
+public class ColumnarPreparedEntry extends PreparedEntry {
+
+    private final ColumnarEntryStore store;
+
+    private final int row;
+
+    ColumnarPreparedEntry(ColumnarEntryStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Returns new array with levels of this row, prefer {@link #getLevel(int)}.
+     */
+    @Override
+    public String[] getLevels() {
+        return store.getLevels(row);
+    }
+
+    @Override
+    public String getLevel(int k) {
+        return store.getLevel(row, k);
+    }
+}
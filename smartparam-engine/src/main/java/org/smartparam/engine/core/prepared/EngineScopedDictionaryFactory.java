@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+/**
+ * All parameters share single {@link WeakLevelValueDictionary}, so values
+ * repeating across parameters are stored once. Values are reclaimed when
+ * no prepared parameter references them anymore.
+ *
+ * @author Adam Dubiel
+ */
+public class EngineScopedDictionaryFactory implements LevelValueDictionaryFactory {
+
+    private final WeakLevelValueDictionary dictionary = new WeakLevelValueDictionary();
+
+    @Override
+    public LevelValueDictionary create(PreparedParameter parameter) {
+        return dictionary;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smartparam.engine.core.index.LevelIndex;
+import org.smartparam.engine.core.index.MappedLevelIndex;
+import org.smartparam.engine.core.index.MappedLevelIndexWriter;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.type.Type;
+
+/**
+ * Writes index of chosen parameters (or all cacheable parameters if no names
+ * were given) to file in given directory and maps it into memory. File name
+ * contains fingerprint of index content, so JVMs on the same host preparing
+ * the same parameter map the same file and share it in page cache. Files
+ * are never modified once written. When parameter is replaced, file of its
+ * previous version is removed (processes which still map it keep their
+ * mapping). Files left behind by other or crashed processes can be removed
+ * with {@link #cleanUp(long, TimeUnit)}, which is best run on startup.
+ *
+ * Index is kept on heap if it can't be written or mapped.
+ *
+ * @author Adam Dubiel
+ */
+public class FileMappedLevelIndexFactory implements MappedLevelIndexFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMappedLevelIndexFactory.class);
+
+    private static final String FILE_EXTENSION = ".index";
+
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final int FINGERPRINT_BYTES = 8;
+
+    private static final MappedLevelIndexWriter.LeafEncoder<PreparedEntry> ENTRY_ENCODER = new MappedLevelIndexWriter.LeafEncoder<PreparedEntry>() {
+        @Override
+        public String[] encode(PreparedEntry leaf) {
+            return leaf.getLevels();
+        }
+    };
+
+    private final File directory;
+
+    private final Set<String> parameterNames;
+
+    private final ConcurrentMap<String, File> mappedFiles = new ConcurrentHashMap<String, File>();
+
+    public FileMappedLevelIndexFactory(File directory, String... parameterNames) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("can't create index directory " + directory);
+        }
+        this.directory = directory;
+        this.parameterNames = new HashSet<String>();
+        Collections.addAll(this.parameterNames, parameterNames);
+    }
+
+    @Override
+    public MappedLevelIndex create(PreparedParameter parameter, LevelIndex<PreparedEntry> index) {
+        if (!parameterNames.isEmpty() && !parameterNames.contains(parameter.getName())) {
+            return null;
+        }
+
+        try {
+            byte[] content = MappedLevelIndexWriter.serialize(index, ENTRY_ENCODER);
+            File file = new File(directory, URLEncoder.encode(parameter.getName(), "UTF-8") + "-" + fingerprint(content) + FILE_EXTENSION);
+            if (!file.isFile()) {
+                write(file, content);
+            } else {
+                // mark file as used, so it is not swept by clean up
+                file.setLastModified(System.currentTimeMillis());
+            }
+            MappedLevelIndex mappedIndex = MappedLevelIndex.map(file, types(index), matchers(index));
+            removeReplaced(parameter.getName(), file);
+            return mappedIndex;
+        } catch (IOException exception) {
+            logger.warn("Failed to map index of parameter " + parameter.getName() + ", keeping it on heap.", exception);
+            return null;
+        }
+    }
+
+    private void removeReplaced(String parameterName, File file) {
+        File replacedFile = mappedFiles.put(parameterName, file);
+        if (replacedFile != null && !replacedFile.equals(file) && !replacedFile.delete() && replacedFile.exists()) {
+            // some platforms won't delete mapped file, it is left for clean up
+            logger.debug("Could not remove index file {} of replaced parameter {}.", replacedFile, parameterName);
+        }
+    }
+
+    /**
+     * Removes index files (and leftovers of interrupted writes) which were not
+     * written or mapped for given time, skipping files mapped by this factory.
+     * Processes which still map removed file keep their mapping.
+     *
+     * @return number of removed files
+     */
+    public int cleanUp(long maxAge, TimeUnit unit) {
+        long threshold = System.currentTimeMillis() - unit.toMillis(maxAge);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (File file : files) {
+            String fileName = file.getName();
+            boolean indexFile = fileName.endsWith(FILE_EXTENSION) || fileName.endsWith(TEMPORARY_FILE_EXTENSION);
+            if (indexFile && file.lastModified() < threshold && !mappedFiles.containsValue(file) && file.delete()) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void write(File file, byte[] content) throws IOException {
+        File temporary = File.createTempFile(file.getName(), TEMPORARY_FILE_EXTENSION, directory);
+        FileOutputStream output = new FileOutputStream(temporary);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+        // other process might have written the same content in the meantime
+        if (!temporary.renameTo(file) && !file.isFile()) {
+            temporary.delete();
+            throw new IOException("failed to create index file " + file);
+        }
+        temporary.delete();
+    }
+
+    private String fingerprint(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder fingerprint = new StringBuilder(FINGERPRINT_BYTES * 2);
+            for (int i = 0; i < FINGERPRINT_BYTES; ++i) {
+                fingerprint.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // every JVM has to support SHA-1
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private Type<?>[] types(LevelIndex<PreparedEntry> index) {
+        Type<?>[] types = new Type<?>[index.getLevelCount()];
+        for (int level = 0; level < types.length; ++level) {
+            types[level] = index.getType(level);
+        }
+        return types;
+    }
+
+    private Matcher[] matchers(LevelIndex<PreparedEntry> index) {
+        Matcher[] matchers = new Matcher[index.getLevelCount()];
+        for (int level = 0; level < matchers.length; ++level) {
+            matchers[level] = index.getMatcher(level);
+        }
+        return matchers;
+    }
+}
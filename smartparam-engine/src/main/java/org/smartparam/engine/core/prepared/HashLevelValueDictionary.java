@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plain, not thread safe dictionary, meant to be used by single thread
+ * preparing single parameter.
+ *
+ * @author Adam Dubiel
+ */
+public class HashLevelValueDictionary implements LevelValueDictionary {
+
+    private final Map<String, String> values = new HashMap<String, String>();
+
+    @Override
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = values.get(value);
+        if (canonical == null) {
+            values.put(value, value);
+            canonical = value;
+        }
+        return canonical;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
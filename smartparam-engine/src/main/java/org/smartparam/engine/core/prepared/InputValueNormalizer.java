@@ -15,9 +15,14 @@
  */
 package org.smartparam.engine.core.prepared;
 
+import org.smartparam.engine.core.index.CompiledLevelIndex;
+import org.smartparam.engine.core.index.LevelKeys;
+import org.smartparam.engine.core.type.LongKeyedType;
+import org.smartparam.engine.core.type.ObjectKeyedType;
 import org.smartparam.engine.core.type.ValueHolder;
 import org.smartparam.engine.core.type.Type;
 import org.smartparam.engine.types.string.StringType;
+import org.smartparam.engine.util.EngineUtil;
 
 /**
  *
@@ -61,9 +66,18 @@ public final class InputValueNormalizer {
     }
 
     public static String[] normalize(PreparedParameter param, Object[] levelValues) {
+        int size = Math.min(levelValues.length, param.getInputLevelsCount());
+        return normalize(param, levelValues, new String[size]);
+    }
+
+    /**
+     * Normalize level values into given buffer, which is reused if it has
+     * proper length (new array is returned otherwise).
+     */
+    public static String[] normalize(PreparedParameter param, Object[] levelValues, String[] buffer) {
 
         int size = Math.min(levelValues.length, param.getInputLevelsCount());
-        String[] normalized = new String[size];
+        String[] normalized = buffer != null && buffer.length == size ? buffer : new String[size];
 
         for (int i = 0; i < size; i++) {
             PreparedLevel level = param.getLevels()[i];
@@ -73,4 +87,43 @@ public final class InputValueNormalizer {
 
         return normalized;
     }
+
+    /**
+     * Prepare level values for lookup in compiled index: levels supporting
+     * typed keys get typed keys (no String encoding involved), all other levels
+     * get normalized String values.
+     */
+    public static LevelKeys normalize(PreparedParameter param, Object[] levelValues, LevelKeys keys) {
+        CompiledLevelIndex<PreparedEntry> index = param.getCompiledIndex();
+        PreparedLevel[] levels = param.getLevels();
+
+        for (int i = 0; i < keys.size(); i++) {
+            Type<?> type = levels[i].getType();
+            Object levelValue = levelValues[i];
+
+            int keyKind = index.getKeyKind(i);
+            if (keyKind != CompiledLevelIndex.STRING_KEY && hasTypedKey(levelValue)) {
+                try {
+                    if (keyKind == CompiledLevelIndex.LONG_KEY) {
+                        keys.setLongKey(i, ((LongKeyedType<?>) type).longKey(levelValue));
+                    } else {
+                        keys.setObjectKey(i, ((ObjectKeyedType<?>) type).objectKey(levelValue));
+                    }
+                    continue;
+                } catch (RuntimeException corruptedValue) {
+                    // fall back to String value, same as normalize does
+                }
+            }
+            keys.setValue(i, normalize(type, levelValue));
+        }
+
+        return keys;
+    }
+
+    private static boolean hasTypedKey(Object levelValue) {
+        if (levelValue instanceof String) {
+            return !"*".equals(levelValue) && EngineUtil.hasText((String) levelValue);
+        }
+        return levelValue != null;
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+/**
+ * Deduplicates level values of prepared entries, so that all equal values
+ * share single String instance. Replaces String#intern, which contends on
+ * JVM string table and keeps strings after parameter is gone.
+ *
+ * @author Adam Dubiel
+ */
+public interface LevelValueDictionary {
+
+    /**
+     * Returns canonical instance equal to given value (or value itself if
+     * it is the first occurrence), null for null.
+     */
+    String canonical(String value);
+
+}
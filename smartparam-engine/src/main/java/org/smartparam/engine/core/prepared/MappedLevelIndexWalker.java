@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.smartparam.engine.core.index.LevelIndexWalker;
+import org.smartparam.engine.core.index.MappedLevelIndex;
+
+/**
+ * Walks {@link MappedLevelIndex}, matching rows are returned as new
+ * {@link PreparedEntry} objects, their output values are decoded on demand.
+ *
+ * Nothing is kept between lookups: each one reads level values from buffer,
+ * allocates new entries and decodes output values again, so lookup of mapped
+ * parameter costs more than lookup of parameter held on heap (results can
+ * still be kept in parameter value cache).
+ *
+ * @author Adam Dubiel
+ */
+public class MappedLevelIndexWalker implements LevelIndexWalker<PreparedEntry> {
+
+    private final MappedLevelIndex index;
+
+    private final String[] levelValues;
+
+    public MappedLevelIndexWalker(MappedLevelIndex index, String... levelValues) {
+        this.index = index;
+        this.levelValues = levelValues;
+    }
+
+    @Override
+    public List<PreparedEntry> find() {
+        List<String[]> rows = index.find(levelValues);
+        if (rows == null) {
+            return null;
+        }
+        List<PreparedEntry> entries = new ArrayList<PreparedEntry>(rows.size());
+        for (String[] row : rows) {
+            entries.add(new PreparedEntry(row));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+import org.smartparam.engine.core.type.decode.TypeDecoder;
+import org.smartparam.engine.util.EngineUtil;
+
+/**
+ * Decodes output levels of entry into vector of {@link ValueHolder} (or
+ * ValueHolder[] for array levels).
+ *
+ * @author Adam Dubiel
+ */
+public final class OutputValueDecoder {
+
+    private static final char ARRAY_SEPARATOR = ',';
+
+    private OutputValueDecoder() {
+    }
+
+    public static Object[] decode(PreparedParameter parameter, PreparedEntry preparedEntry) {
+        int inputLevelCount = parameter.getInputLevelsCount();
+        int outputLevelCount = parameter.getLevelCount() - inputLevelCount;
+        PreparedLevel[] levels = parameter.getLevels();
+
+        Object[] vector = new Object[outputLevelCount];
+        for (int columnIndex = 0; columnIndex < outputLevelCount; ++columnIndex) {
+            String cellText = preparedEntry.getLevel(inputLevelCount + columnIndex);
+            PreparedLevel level = levels[inputLevelCount + columnIndex];
+
+            Type<?> cellType = level.getType();
+            Object cellValue;
+
+            if (level.isArray()) {
+                cellValue = decodeArray(cellText, cellType, ARRAY_SEPARATOR);
+            } else {
+                cellValue = TypeDecoder.decode(cellType, cellText);
+            }
+
+            vector[columnIndex] = cellValue;
+        }
+        return vector;
+    }
+
+    private static ValueHolder[] decodeArray(String value, Type<?> type, char separator) {
+        if (EngineUtil.hasText(value)) {
+            String[] tokens = EngineUtil.split(value, separator);
+            ValueHolder[] array = type.newArray(tokens.length);
+            for (int i = 0; i < tokens.length; i++) {
+                array[i] = TypeDecoder.decode(type, tokens[i]);
+            }
+            return array;
+
+        } else {
+            return type.newArray(0);
+        }
+    }
+}
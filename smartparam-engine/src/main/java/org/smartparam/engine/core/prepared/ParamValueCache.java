@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import org.smartparam.engine.core.output.DefaultParamValue;
+
+/**
+ * Memoizes results of parameter lookups, keyed by normalized level values.
+ * Each {@link PreparedParameter} holds its own instance, so all memoized
+ * results are dropped together with prepared parameter when it is evicted
+ * from {@link PreparedParamCache}.
+ *
+ * Implementation must be thread safe!
+ *
+ * @author Adam Dubiel
+ */
+public interface ParamValueCache {
+
+    /**
+     * Returns value memoized for given normalized level values or null if none found.
+     * Returned value does not share iteration state with any other returned value.
+     */
+    DefaultParamValue get(String[] levelValues);
+
+    /**
+     * Memoize value for given normalized level values.
+     */
+    void put(String[] levelValues, DefaultParamValue value);
+
+    /**
+     * Number of lookups that returned memoized value.
+     */
+    long hitCount();
+
+    /**
+     * Number of lookups that found nothing.
+     */
+    long missCount();
+
+    /**
+     * Number of currently memoized values.
+     */
+    int size();
+}
@@ -31,21 +31,47 @@ public class PreparedEntry {
 
     private final String[] levels;
 
+    /**
+     * Output levels decoded when preparing parameter, null if not decoded.
+     */
+    private Object[] outputValues;
+
     public PreparedEntry(ParameterEntry parameterEntry) {
-        this.levels = normalizeLevels(parameterEntry.getLevels());
+        this(parameterEntry.getLevels(), null);
     }
 
     public PreparedEntry(String[] levels) {
-        this.levels = normalizeLevels(levels);
+        this(levels, null);
+    }
+
+    /**
+     * Create entry with level values deduplicated using given dictionary
+     * (no deduplication if null).
+     */
+    public PreparedEntry(ParameterEntry parameterEntry, LevelValueDictionary dictionary) {
+        this(parameterEntry.getLevels(), dictionary);
+    }
+
+    public PreparedEntry(String[] levels, LevelValueDictionary dictionary) {
+        this.levels = normalizeLevels(levels, dictionary);
+    }
+
+    /**
+     * For entries that keep levels elsewhere and override level getters.
+     */
+    protected PreparedEntry() {
+        this.levels = EMPTY_ARRAY;
     }
 
     public String[] getLevels() {
         return levels;
     }
 
-    private String[] normalizeLevels(String[] rawLevels) {
+    private String[] normalizeLevels(String[] rawLevels, LevelValueDictionary dictionary) {
         String[] normalizedLevels = trimRight(rawLevels);
-        internalizeLevelValues(normalizedLevels);
+        if (dictionary != null) {
+            deduplicateLevelValues(normalizedLevels, dictionary);
+        }
         return normalizedLevels;
     }
 
@@ -62,11 +88,9 @@ public class PreparedEntry {
         return len < array.length ? Arrays.copyOf(array, len) : array;
     }
 
-    private void internalizeLevelValues(String[] levels) {
+    private void deduplicateLevelValues(String[] levels, LevelValueDictionary dictionary) {
         for (int i = 0; i < levels.length; i++) {
-            if (levels[i] != null) {
-                levels[i] = levels[i].intern();
-            }
+            levels[i] = dictionary.canonical(levels[i]);
         }
     }
 
@@ -74,9 +98,22 @@ public class PreparedEntry {
         return (k >= 0 && k < levels.length) ? levels[k] : null;
     }
 
+    /**
+     * Returns output levels decoded when preparing parameter (see
+     * {@link OutputValueDecoder}) or null if they have to be decoded on demand.
+     * Returned array is shared and must not be modified.
+     */
+    public Object[] getOutputValues() {
+        return outputValues;
+    }
+
+    public void setOutputValues(Object[] outputValues) {
+        this.outputValues = outputValues;
+    }
+
     @Override
     public String toString() {
-        return "[PreparedEntry " + Arrays.toString(levels) + "]";
+        return "[PreparedEntry " + Arrays.toString(getLevels()) + "]";
     }
 
 
@@ -17,7 +17,9 @@ package org.smartparam.engine.core.prepared;
 
 import java.util.Collections;
 import java.util.HashMap;
+import org.smartparam.engine.core.index.CompiledLevelIndex;
 import org.smartparam.engine.core.index.LevelIndex;
+import org.smartparam.engine.core.index.MappedLevelIndex;
 
 import java.util.Map;
 import org.smartparam.engine.core.parameter.Parameter;
@@ -37,6 +39,13 @@ import org.smartparam.engine.core.repository.RepositoryName;
  */
 public class PreparedParameter {
 
+    private static final MappedLevelIndex.LeafDecoder<PreparedEntry> ENTRY_DECODER = new MappedLevelIndex.LeafDecoder<PreparedEntry>() {
+        @Override
+        public PreparedEntry decode(String[] row) {
+            return new PreparedEntry(row);
+        }
+    };
+
     /**
      * Unique name of parameter.
      */
@@ -50,10 +59,37 @@ public class PreparedParameter {
     private final PreparedLevel[] levels;
 
     /**
-     * Search index built for this parameter.
+     * Search index built for this parameter, null if parameter keeps only
+     * compiled index.
      */
     private LevelIndex<PreparedEntry> index;
 
+    /**
+     * Tree rebuilt from compiled or mapped index on first demand, kept for as
+     * long as parameter is.
+     */
+    private volatile LevelIndex<PreparedEntry> rebuiltIndex;
+
+    /**
+     * Read-only, array based form of search index used on fast lookup path.
+     */
+    private CompiledLevelIndex<PreparedEntry> compiledIndex;
+
+    /**
+     * Memoized lookup results, null if they are not memoized.
+     */
+    private ParamValueCache valueCache;
+
+    /**
+     * Columnar storage of entries levels, null if entries hold their own levels.
+     */
+    private ColumnarEntryStore entryStore;
+
+    /**
+     * Index mapped from file, if set parameter has no index on heap.
+     */
+    private MappedLevelIndex mappedIndex;
+
     /**
      * Number of input (criteria) levels.
      * Zero means this is no-criteria parameter.
@@ -69,6 +105,8 @@ public class PreparedParameter {
      */
     private final Map<String, Integer> levelNameMap = new HashMap<String, Integer>();
 
+    private final Map<String, Integer> levelNameMapView = Collections.unmodifiableMap(levelNameMap);
+
     private final char arraySeparator;
 
     public PreparedParameter(RepositoryName sourceRepository, Parameter parameter, PreparedLevel[] levels) {
@@ -82,18 +120,88 @@ public class PreparedParameter {
     }
 
     /**
-     * Returns prepared search index.
+     * Returns prepared search index. Parameters with compiled or mapped index
+     * do not keep the tree until it is needed: it is rebuilt from that index
+     * once, on first call (which costs about as much as preparing the index
+     * again), and kept from then on.
      *
      * @return search index
      */
     public LevelIndex<PreparedEntry> getIndex() {
-        return index;
+        if (index != null || (compiledIndex == null && mappedIndex == null)) {
+            return index;
+        }
+        LevelIndex<PreparedEntry> rebuilt = rebuiltIndex;
+        if (rebuilt == null) {
+            rebuilt = rebuildIndex();
+        }
+        return rebuilt;
+    }
+
+    private synchronized LevelIndex<PreparedEntry> rebuildIndex() {
+        if (rebuiltIndex == null) {
+            rebuiltIndex = compiledIndex != null ? compiledIndex.toLevelIndex() : mappedIndex.toLevelIndex(ENTRY_DECODER);
+        }
+        return rebuiltIndex;
     }
 
     public void setIndex(LevelIndex<PreparedEntry> index) {
         this.index = index;
     }
 
+    /**
+     * Returns compiled search index, might be null if parameter was prepared
+     * without it.
+     *
+     * @return compiled search index
+     */
+    public CompiledLevelIndex<PreparedEntry> getCompiledIndex() {
+        return compiledIndex;
+    }
+
+    public void setCompiledIndex(CompiledLevelIndex<PreparedEntry> compiledIndex) {
+        this.compiledIndex = compiledIndex;
+    }
+
+    /**
+     * Returns cache of memoized lookup results, might be null if results of
+     * this parameter are not memoized.
+     *
+     * @return lookup results cache
+     */
+    public ParamValueCache getValueCache() {
+        return valueCache;
+    }
+
+    public void setValueCache(ParamValueCache valueCache) {
+        this.valueCache = valueCache;
+    }
+
+    /**
+     * Returns columnar storage of entries levels, null if entries hold their
+     * own level arrays.
+     */
+    public ColumnarEntryStore getEntryStore() {
+        return entryStore;
+    }
+
+    public void setEntryStore(ColumnarEntryStore entryStore) {
+        this.entryStore = entryStore;
+    }
+
+    /**
+     * Returns index mapped from file or null if parameter keeps its index on
+     * heap. Tree returned by {@link #getIndex()} for mapped parameter is
+     * rebuilt from this index.
+     */
+    public MappedLevelIndex getMappedIndex() {
+        return mappedIndex;
+    }
+
+    public void setMappedIndex(MappedLevelIndex mappedIndex) {
+        this.mappedIndex = mappedIndex;
+    }
+
     public PreparedLevel[] getLevels() {
         return levels;
     }
@@ -138,7 +246,7 @@ public class PreparedParameter {
     }
 
     public Map<String, Integer> getLevelNameMap() {
-        return Collections.unmodifiableMap(levelNameMap);
+        return levelNameMapView;
     }
 
     public void setLevelNameMap(Map<String, Integer> levelNameMap) {
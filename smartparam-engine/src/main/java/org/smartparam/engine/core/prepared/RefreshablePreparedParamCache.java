@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import org.smartparam.engine.core.parameter.request.ParameterRequest;
+
+/**
+ * {@link PreparedParamCache} which is able to rebuild invalidated parameters
+ * on its own, instead of dropping them.
+ *
+ * @author Adam Dubiel
+ */
+public interface RefreshablePreparedParamCache extends PreparedParamCache {
+
+    /**
+     * Register request used to load and prepare refreshed parameters. Request
+     * is expected to put refreshed parameter into this cache and return it or
+     * to return null if parameter no longer exists.
+     */
+    void refreshUsing(ParameterRequest request);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Thread safe dictionary holding values weakly, so it can be shared among
+ * all parameters without pinning values of parameters that were evicted.
+ *
+ * Values are spread over {@link #STRIPES} independently locked weak maps by
+ * their hash, so parameters prepared in parallel (warm-up, parallel index
+ * build) do not serialize on single lock.
+ *
+ * @author Adam Dubiel
+ */
+public class WeakLevelValueDictionary implements LevelValueDictionary {
+
+    static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public WeakLevelValueDictionary() {
+        for (int index = 0; index < STRIPES; ++index) {
+            stripes[index] = new Stripe();
+        }
+    }
+
+    @Override
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        return stripeFor(value).canonical(value);
+    }
+
+    private Stripe stripeFor(String value) {
+        int hash = value.hashCode();
+        // mix high bits in, stripe is picked by low ones only
+        hash ^= (hash >>> 16);
+        return stripes[hash & (STRIPES - 1)];
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+
+        private final Map<String, WeakReference<String>> values = new WeakHashMap<String, WeakReference<String>>();
+
+        synchronized String canonical(String value) {
+            WeakReference<String> reference = values.get(value);
+            String canonical = reference != null ? reference.get() : null;
+            if (canonical == null) {
+                values.put(value, new WeakReference<String>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+    }
+}
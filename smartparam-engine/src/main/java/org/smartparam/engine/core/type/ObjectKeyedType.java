@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.type;
+
+/**
+ * Type, which values can be identified by key object (with proper equals and
+ * hashCode) cheaper to compute than canonical String form. Index can use these
+ * keys to look up exact-match levels.
+ *
+ * Keys have to be consistent with {@link Type#encode(org.smartparam.engine.core.type.ValueHolder) }:
+ * keys of two values are equal if and only if their encoded forms are equal.
+ *
+ * @param <H> supported value holder
+ *
+ * @author Adam Dubiel
+ */
+public interface ObjectKeyedType<H extends ValueHolder> extends Type<H> {
+
+    /**
+     * Returns key of level value, which might be either String or any object
+     * accepted by {@link Type#convert(java.lang.Object) }. Value is never null
+     * nor blank String. Throws exception if value can't be converted.
+     */
+    Object objectKey(Object levelValue);
+}
@@ -18,7 +18,9 @@ package org.smartparam.engine.matchers;
 import org.smartparam.engine.annotated.annotations.ParamMatcher;
 import org.smartparam.engine.annotated.annotations.ObjectInstance;
 import org.smartparam.engine.core.index.Star;
-import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
+import org.smartparam.engine.core.matcher.RangeMatcher;
+import org.smartparam.engine.core.matcher.RangePattern;
 import org.smartparam.engine.core.type.ValueHolder;
 import org.smartparam.engine.core.type.Type;
 import org.smartparam.engine.util.EngineUtil;
@@ -45,7 +47,7 @@ import org.smartparam.engine.util.EngineUtil;
     @ObjectInstance(value = BetweenMatcher.BETWEEN_II, constructorArgs = {"true", "true"}),
     @ObjectInstance(value = BetweenMatcher.BETWEEN_EE, constructorArgs = {"false", "false"})
 })
-public class BetweenMatcher implements Matcher {
+public class BetweenMatcher implements RangeMatcher {
 
     private static final char[] DEFAULT_SEPARATORS = {'~', ':', '-', ','};
 
@@ -101,6 +103,34 @@ public class BetweenMatcher implements Matcher {
         return lowerCondition(v, lower, type) && upperCondition(v, upper, type);
     }
 
+    @Override
+    public <T extends ValueHolder> RangePattern decodeRange(String pattern, Type<T> type) {
+        char separator = findSeparator(pattern);
+
+        String[] tokens = EngineUtil.split2(pattern, separator);
+        String lower = tokens[0].trim();
+        String upper = tokens[1].trim();
+
+        return new RangePattern(decodeBound(lower, type), lowerInclusive, decodeBound(upper, type), upperInclusive);
+    }
+
+    @Override
+    public <T extends ValueHolder> CompiledPattern compile(String pattern, Type<T> type) {
+        return decodeRange(pattern, type);
+    }
+
+    @Override
+    public <T extends ValueHolder> Object decodeValue(String value, Type<T> type) {
+        return type.decode(value);
+    }
+
+    private <T extends ValueHolder> T decodeBound(String bound, Type<T> type) {
+        if (Star.SYMBOL.equals(bound) || "".equals(bound)) {
+            return null;
+        }
+        return type.decode(bound);
+    }
+
     private char findSeparator(String pattern) {
         for (char ch : separators) {
             if (pattern.indexOf(ch) >= 0) {
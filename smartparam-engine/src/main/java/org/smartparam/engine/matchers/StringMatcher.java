@@ -16,7 +16,8 @@
 package org.smartparam.engine.matchers;
 
 import org.smartparam.engine.annotated.annotations.ParamMatcher;
-import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.matcher.CompilableMatcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
 import org.smartparam.engine.core.type.ValueHolder;
 import org.smartparam.engine.core.type.Type;
 
@@ -27,7 +28,7 @@ import org.smartparam.engine.core.type.Type;
  * @author Przemek Hertel
  */
 @ParamMatcher(StringMatcher.STRING)
-public class StringMatcher implements Matcher {
+public class StringMatcher implements CompilableMatcher {
 
     public static final String STRING = "equals/string";
 
@@ -48,4 +49,40 @@ public class StringMatcher implements Matcher {
         return false;
     }
 
+    /**
+     * Pattern is compared in its final form: as is or, if case insensitive,
+     * folded once to the form which value is also folded to once per lookup.
+     */
+    @Override
+    public <T extends ValueHolder> CompiledPattern compile(String pattern, Type<T> type) {
+        final String comparedPattern = caseSensitive ? pattern : fold(pattern);
+        return new CompiledPattern() {
+            @Override
+            public boolean matches(Object decodedValue) {
+                return comparedPattern != null && comparedPattern.equals(decodedValue);
+            }
+        };
+    }
+
+    @Override
+    public <T extends ValueHolder> Object decodeValue(String value, Type<T> type) {
+        return caseSensitive ? value : fold(value);
+    }
+
+    /**
+     * Folds each character the same way {@link String#equalsIgnoreCase(String)}
+     * compares them, so folded strings are equal exactly when originals are
+     * equal ignoring case.
+     */
+    private static String fold(String value) {
+        if (value == null) {
+            return null;
+        }
+        char[] folded = new char[value.length()];
+        for (int index = 0; index < folded.length; ++index) {
+            folded[index] = Character.toLowerCase(Character.toUpperCase(value.charAt(index)));
+        }
+        return new String(folded);
+    }
+
 }
@@ -17,7 +17,8 @@ package org.smartparam.engine.matchers;
 
 import org.smartparam.engine.annotated.annotations.ParamMatcher;
 import org.smartparam.engine.core.index.Star;
-import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.matcher.CompilableMatcher;
+import org.smartparam.engine.core.matcher.CompiledPattern;
 import org.smartparam.engine.core.type.ValueHolder;
 import org.smartparam.engine.core.type.Type;
 
@@ -26,10 +27,17 @@ import org.smartparam.engine.core.type.Type;
  * @author Adam Dubiel
  */
 @ParamMatcher(TypeMatcher.TYPE)
-public class TypeMatcher implements Matcher {
+public class TypeMatcher implements CompilableMatcher {
 
     public static final String TYPE = "equals/type";
 
+    private static final CompiledPattern ANY_VALUE = new CompiledPattern() {
+        @Override
+        public boolean matches(Object decodedValue) {
+            return true;
+        }
+    };
+
     @Override
     public <T extends ValueHolder> boolean matches(String value, String pattern, Type<T> type) {
         if (Star.SYMBOL.equals(pattern)) {
@@ -39,6 +47,30 @@ public class TypeMatcher implements Matcher {
         T patternObject = type.decode(pattern);
         T valueObject = type.decode(value);
 
+        return holdersEqual(patternObject, valueObject);
+    }
+
+    @Override
+    public <T extends ValueHolder> CompiledPattern compile(String pattern, Type<T> type) {
+        if (Star.SYMBOL.equals(pattern)) {
+            return ANY_VALUE;
+        }
+
+        final T patternObject = type.decode(pattern);
+        return new CompiledPattern() {
+            @Override
+            public boolean matches(Object decodedValue) {
+                return holdersEqual(patternObject, (ValueHolder) decodedValue);
+            }
+        };
+    }
+
+    @Override
+    public <T extends ValueHolder> Object decodeValue(String value, Type<T> type) {
+        return type.decode(value);
+    }
+
+    private static boolean holdersEqual(ValueHolder patternObject, ValueHolder valueObject) {
         if (patternObject.isComparable()) {
             return patternObject.compareTo(valueObject) == 0;
         }
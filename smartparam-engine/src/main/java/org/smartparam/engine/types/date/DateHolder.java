@@ -17,6 +17,7 @@ package org.smartparam.engine.types.date;
 
 import java.util.Date;
 import org.smartparam.engine.core.type.AbstractValueHolder;
+import org.smartparam.engine.core.type.ValueHolder;
 
 /**
  * in progress..
@@ -28,19 +29,75 @@ public class DateHolder extends AbstractValueHolder {
     private final Date date;
 
     public DateHolder(Date date) {
-        this.date = date;
+        this.date = copy(date);
+    }
+
+    /**
+     * Holders are shared between lookups, so date is copied when it enters or
+     * leaves holder to keep holder immutable.
+     */
+    private static Date copy(Date date) {
+        return date != null ? new Date(date.getTime()) : null;
     }
 
     @Override
     public Date getValue() {
-        return date;
+        return copy(date);
     }
 
     @Override
     public Date getDate() {
+        return copy(date);
+    }
+
+    /**
+     * Held date itself, not a copy, for engine internals that only read it.
+     * It must never be modified or handed out to caller.
+     */
+    Date sharedDate() {
         return date;
     }
 
+    /**
+     * Compares held dates without copying them, as holders are compared
+     * on every range lookup.
+     */
+    @Override
+    public int compareTo(ValueHolder o) {
+        if (!(o instanceof DateHolder)) {
+            return super.compareTo(o);
+        }
+        Date other = ((DateHolder) o).date;
+        if (date != null) {
+            return other != null ? date.compareTo(other) : 1;
+        }
+        return other != null ? -1 : 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        Date other = ((DateHolder) obj).date;
+        return date != null ? date.equals(other) : other == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() ^ (date != null ? date.hashCode() : 1);
+    }
+
+    @Override
+    public boolean isNull() {
+        return date == null;
+    }
+
+    @Override
+    public boolean isNotNull() {
+        return date != null;
+    }
+
     @Override
     public String getString() {
         return getString(DateType.getDefaultOutputPattern());
@@ -19,7 +19,7 @@ import java.text.ParseException;
 import java.util.Calendar;
 import java.util.Date;
 import org.smartparam.engine.annotated.annotations.ParamType;
-import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.LongKeyedType;
 import org.smartparam.engine.util.EngineUtil;
 
 /**
@@ -27,11 +27,24 @@ import org.smartparam.engine.util.EngineUtil;
  * @since 1.0.0
  */
 @ParamType(DateType.TYPE_NAME)
-public class DateType implements Type<DateHolder> {
+public class DateType implements LongKeyedType<DateHolder> {
 
     public static final String TYPE_NAME = "date";
 
-    private static String defaultOutputPattern = "yyyy-MM-dd";
+    private static final String DAY_PATTERN = "yyyy-MM-dd";
+
+    private static String defaultOutputPattern = DAY_PATTERN;
+
+    private static final int YEAR_KEY_MULTIPLIER = 10000;
+
+    private static final int MONTH_KEY_MULTIPLIER = 100;
+
+    private static final ThreadLocal<Calendar> KEY_CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
 
     @Override
     public String encode(DateHolder holder) {
@@ -66,6 +79,29 @@ public class DateType implements Type<DateHolder> {
         throw new IllegalArgumentException("conversion not supported for: " + obj.getClass());
     }
 
+    /**
+     * Long keys are available only when dates are encoded with day precision
+     * (default output pattern).
+     */
+    @Override
+    public boolean hasLongKeys() {
+        return DAY_PATTERN.equals(defaultOutputPattern);
+    }
+
+    /**
+     * Key is yyyyMMdd number of day in default time zone, same as encoded form.
+     */
+    @Override
+    public long longKey(Object levelValue) {
+        Date date = levelValue instanceof Date ? (Date) levelValue : convert(levelValue).sharedDate();
+
+        Calendar calendar = KEY_CALENDAR.get();
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR) * YEAR_KEY_MULTIPLIER
+                + (calendar.get(Calendar.MONTH) + 1) * MONTH_KEY_MULTIPLIER
+                + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
     @Override
     public DateHolder[] newArray(int size) {
         return new DateHolder[size];
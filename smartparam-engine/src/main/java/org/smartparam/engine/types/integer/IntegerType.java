@@ -16,7 +16,7 @@
 package org.smartparam.engine.types.integer;
 
 import org.smartparam.engine.annotated.annotations.ParamType;
-import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.LongKeyedType;
 import org.smartparam.engine.util.EngineUtil;
 
 /**
@@ -34,7 +34,7 @@ import org.smartparam.engine.util.EngineUtil;
  * @since 1.0.0
  */
 @ParamType(IntegerType.TYPE_NAME)
-public class IntegerType implements Type<IntegerHolder> {
+public class IntegerType implements LongKeyedType<IntegerHolder> {
 
     public static final String TYPE_NAME = "integer";
 
@@ -120,6 +120,22 @@ public class IntegerType implements Type<IntegerHolder> {
         throw new IllegalArgumentException("conversion not supported for: " + obj.getClass());
     }
 
+    @Override
+    public boolean hasLongKeys() {
+        return true;
+    }
+
+    @Override
+    public long longKey(Object levelValue) {
+        if (levelValue instanceof Long || levelValue instanceof Integer || levelValue instanceof Short || levelValue instanceof Byte) {
+            return ((Number) levelValue).longValue();
+        }
+        if (levelValue instanceof String) {
+            return Long.parseLong(((String) levelValue).trim());
+        }
+        return convert(levelValue).longValue();
+    }
+
     @Override
     public IntegerHolder[] newArray(int size) {
         return new IntegerHolder[size];
@@ -18,7 +18,7 @@ package org.smartparam.engine.types.number;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import org.smartparam.engine.annotated.annotations.ParamType;
-import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ObjectKeyedType;
 import org.smartparam.engine.util.EngineUtil;
 
 /**
@@ -33,7 +33,7 @@ import org.smartparam.engine.util.EngineUtil;
  * @since 1.0.0
  */
 @ParamType(NumberType.TYPE_NAME)
-public class NumberType implements Type<NumberHolder> {
+public class NumberType implements ObjectKeyedType<NumberHolder> {
 
     public static final String TYPE_NAME = "number";
 
@@ -99,6 +99,24 @@ public class NumberType implements Type<NumberHolder> {
         throw new IllegalArgumentException("conversion not supported for: " + obj.getClass());
     }
 
+    /**
+     * Key is BigDecimal with non-negative scale, two such numbers are equal
+     * if and only if their plain string forms are equal (so 1.0 and 1.00
+     * are different keys, just like their encoded forms).
+     */
+    @Override
+    public Object objectKey(Object levelValue) {
+        BigDecimal value;
+        if (levelValue instanceof BigDecimal) {
+            value = (BigDecimal) levelValue;
+        } else if (levelValue instanceof String) {
+            value = parse((String) levelValue);
+        } else {
+            value = convert(levelValue).getValue();
+        }
+        return value.scale() < 0 ? value.setScale(0) : value;
+    }
+
     @Override
     public NumberHolder[] newArray(int size) {
         return new NumberHolder[size];
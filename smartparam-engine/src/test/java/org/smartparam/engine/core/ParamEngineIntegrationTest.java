@@ -21,6 +21,7 @@ import org.smartparam.engine.config.ParamEngineConfigBuilder;
 import org.smartparam.engine.config.ParamEngineFactory;
 import org.smartparam.engine.core.context.DefaultContext;
 import org.smartparam.engine.core.context.LevelValues;
+import org.smartparam.engine.core.context.ParamContext;
 import org.smartparam.engine.core.function.FunctionInvoker;
 import org.smartparam.engine.core.function.FunctionRepository;
 import org.smartparam.engine.core.parameter.ParamRepository;
@@ -32,20 +33,35 @@ import org.smartparam.engine.core.function.Function;
 import org.smartparam.engine.types.date.DateType;
 import org.smartparam.engine.types.integer.IntegerType;
 import org.smartparam.engine.types.string.StringType;
+import org.testng.SkipException;
 import org.testng.annotations.BeforeMethod;
+import org.smartparam.engine.types.string.StringHolder;
 import org.testng.annotations.Test;
 
+import com.sun.management.ThreadMXBean;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.assertj.core.api.Assertions;
 import org.smartparam.engine.core.output.DetailedParamValue;
 
 import org.smartparam.engine.core.output.GettingKeyNotIdentifiableParameterException;
 import org.smartparam.engine.core.output.GettingWrongTypeException;
 import org.smartparam.engine.core.output.entry.MapEntry;
+import org.smartparam.engine.core.prepared.ParamValueCache;
+import org.smartparam.engine.core.prepared.ColumnarEntryStore;
+import org.smartparam.engine.core.prepared.PreparedParamCache;
+import org.smartparam.engine.core.prepared.PreparedParameter;
 import static com.googlecode.catchexception.CatchException.catchException;
 import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.mockito.Mockito.*;
@@ -414,6 +430,27 @@ public class ParamEngineIntegrationTest {
         assertThat(value).hasArray(0, "B", "C");
     }
 
+    @Test
+    public void shouldNotLetCallerChangeArrayReturnedByNextLookups() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("string").array().build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "B,C").build()
+        };
+        Parameter parameter = parameter().withArraySeparator(',').withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+        engine.get("parameter", "A").row().getArray(0)[0] = new StringHolder("X");
+
+        // when
+        ParamValue value = engine.get("parameter", "A");
+
+        // then
+        assertThat(value).hasArray(0, "B", "C");
+    }
+
     @Test
     public void shouldReturnKeysForResultingParameterEntriesWhenIdentifiableParameterFlagIsSet() {
         // given
@@ -636,6 +673,29 @@ public class ParamEngineIntegrationTest {
         assertThat(value).hasIntValue(5);
     }
 
+    @Test
+    public void shouldReturnSameValueForTypedAndTextLevelValues() {
+
+        // given
+        Level[] levels = new Level[]{
+            level().withType("integer").build(), // input
+            level().withType("integer").build() // output
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("17", "5").build(),
+            parameterEntry().withLevels("*", "9").build()
+        };
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when - then
+        assertThat(engine.get("parameter", 17L)).hasIntValue(5);
+        assertThat(engine.get("parameter", (short) 17)).hasIntValue(5);
+        assertThat(engine.get("parameter", " 17 ")).hasIntValue(5);
+        assertThat(engine.get("parameter", 18)).hasIntValue(9);
+        assertThat(engine.get("parameter", "17x")).hasIntValue(9);
+    }
+
     private Date parseDate(String text) throws ParseException {
         return new SimpleDateFormat("yyyy-MM-dd").parse(text);
     }
@@ -711,4 +771,334 @@ public class ParamEngineIntegrationTest {
         // then
         assertThat(caughtException()).isInstanceOf(InvalidFunctionToCallException.class);
     }
+
+    @Test
+    public void shouldMemoizeLookupResultsAndDropThemWhenParameterIsInvalidated() {
+        // given
+        ParamEngineConfig config = ParamEngineConfigBuilder.paramEngineConfig()
+                .withType("string", new StringType())
+                .withType("integer", new IntegerType())
+                .withParameterRepository(paramRepository)
+                .withParamValueCache(100, "parameter")
+                .withAnnotationScanDisabled()
+                .build();
+        ParamEngine memoizingEngine = ParamEngineFactory.paramEngine(config);
+
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build()};
+        Parameter parameter = parameter().withName("parameter").withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        memoizingEngine.get("parameter", "A");
+        ParamValue memoizedValue = memoizingEngine.get("parameter", "A");
+        PreparedParamCache paramCache = memoizingEngine.runtimeConfiguration().getParamCache();
+        ParamValueCache valueCache = paramCache.get("parameter").getValueCache();
+        paramCache.invalidate("parameter");
+        memoizingEngine.get("parameter", "A");
+
+        // then
+        assertThat(memoizedValue).hasValue(42L);
+        Assertions.assertThat(valueCache.hitCount()).isEqualTo(1);
+        Assertions.assertThat(valueCache.missCount()).isEqualTo(1);
+        Assertions.assertThat(paramCache.get("parameter").getValueCache()).isNotSameAs(valueCache);
+    }
+
+    @Test
+    public void shouldReadEntriesFromColumnarStoreWhenEnabled() {
+        // given
+        ParamEngineConfig config = ParamEngineConfigBuilder.paramEngineConfig()
+                .withType("string", new StringType())
+                .withType("integer", new IntegerType())
+                .withParameterRepository(paramRepository)
+                .withColumnarEntryStore("parameter")
+                .withAnnotationScanDisabled()
+                .build();
+        ParamEngine columnarEngine = ParamEngineFactory.paramEngine(config);
+
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build(),
+            parameterEntry().withLevels("B", "7").build()};
+        Parameter parameter = parameter().withName("parameter").withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        ParamValue value = columnarEngine.get("parameter", "B");
+
+        // then
+        assertThat(value).hasValue(7L);
+        ColumnarEntryStore entryStore = columnarEngine.runtimeConfiguration().getParamCache().get("parameter").getEntryStore();
+        Assertions.assertThat(entryStore.getRowCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldServeParameterFromMappedIndexWhenEnabled() throws IOException {
+        // given
+        File indexDirectory = File.createTempFile("smartparam", "index");
+        indexDirectory.delete();
+        ParamEngineConfig config = ParamEngineConfigBuilder.paramEngineConfig()
+                .withType("string", new StringType())
+                .withType("integer", new IntegerType())
+                .withParameterRepository(paramRepository)
+                .withMappedIndex(indexDirectory, "parameter")
+                .withAnnotationScanDisabled()
+                .build();
+        ParamEngine mappedEngine = ParamEngineFactory.paramEngine(config);
+
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build(),
+            parameterEntry().withLevels("*", "7").build()};
+        Parameter parameter = parameter().withName("parameter").withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        ParamValue value = mappedEngine.get("parameter", "A");
+        ParamValue defaultValue = mappedEngine.get("parameter", "B");
+
+        // then
+        assertThat(value).hasValue(42L);
+        assertThat(defaultValue).hasValue(7L);
+        PreparedParameter preparedParameter = mappedEngine.runtimeConfiguration().getParamCache().get("parameter");
+        Assertions.assertThat(preparedParameter.getCompiledIndex()).isNull();
+        Assertions.assertThat(preparedParameter.getMappedIndex().entryCount()).isEqualTo(2);
+        Assertions.assertThat(indexDirectory.list()).hasSize(1);
+    }
+
+    @Test
+    public void shouldReturnValuesForAllContextsInInputOrderWhenEvaluatingBatch() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "1").build(),
+            parameterEntry().withLevels("B", "2").build()};
+        Parameter parameter = parameter().nullable().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        List<ParamValue> values = engine.getAll("parameter", Arrays.asList(new LevelValues("B"), new LevelValues("X"), new LevelValues("A")));
+
+        // then
+        Assertions.assertThat(values).hasSize(3);
+        assertThat(values.get(0)).hasValue(2L);
+        Assertions.assertThat(values.get(1).isEmpty()).isTrue();
+        assertThat(values.get(2)).hasValue(1L);
+    }
+
+    @Test
+    public void shouldReturnValuesForAllLevelValuesInInputOrderWhenEvaluatingBatch() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "B", "1").build(),
+            parameterEntry().withLevels("A", "*", "2").build()};
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(2).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        List<ParamValue> values = engine.getAll("parameter", new Object[][]{{"A", "C"}, {"A", "B"}});
+
+        // then
+        assertThat(values.get(0)).hasValue(2L);
+        assertThat(values.get(1)).hasValue(1L);
+    }
+
+    @Test
+    public void shouldReturnSameValuesAsSerialBatchWhenEvaluatingBatchInParallel() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[100];
+        for (int index = 0; index < entries.length; ++index) {
+            entries[index] = parameterEntry().withLevels("V" + index, Integer.toString(index)).build();
+        }
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        List<ParamContext> contexts = new ArrayList<ParamContext>();
+        for (int index = 0; index < 5000; ++index) {
+            contexts.add(new LevelValues("V" + (index * 7) % 100));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // when
+        List<ParamValue> values;
+        try {
+            values = engine.getAll("parameter", contexts, executorService);
+        } finally {
+            executorService.shutdown();
+        }
+
+        // then
+        Assertions.assertThat(values).hasSize(contexts.size());
+        for (int index = 0; index < contexts.size(); ++index) {
+            assertThat(values.get(index)).hasValue((long) (index * 7) % 100);
+        }
+    }
+
+    @Test
+    public void shouldRethrowLookupExceptionWhenEvaluatingBatchInParallel() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "1").build()};
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        // when
+        try {
+            catchException(engine).getAll("parameter", Arrays.asList(new LevelValues("A"), new LevelValues("B")), executorService);
+        } finally {
+            executorService.shutdown();
+        }
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ParameterValueNotFoundException.class);
+    }
+
+    @Test
+    public void shouldReturnPrimitiveValuesOfFirstOutputLevel() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build()};
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        long longValue = engine.getLong("parameter", new LevelValues("A"));
+        BigDecimal decimalValue = engine.getDecimal("parameter", new LevelValues("A"));
+
+        // then
+        Assertions.assertThat(longValue).isEqualTo(42L);
+        Assertions.assertThat(decimalValue).isEqualByComparingTo(BigDecimal.valueOf(42));
+    }
+
+    @Test
+    public void shouldReturnPrimitiveValueOfNoncacheableParameter() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build()};
+        Parameter parameter = parameter().withName("parameter").noncacheable().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+        when(paramRepository.findEntries("parameter", new String[]{"A"})).thenReturn(new HashSet<ParameterEntry>(Arrays.asList(entries)));
+
+        // when
+        long value = engine.getLong("parameter", new LevelValues("A"));
+
+        // then
+        Assertions.assertThat(value).isEqualTo(42L);
+    }
+
+    @Test
+    public void shouldReturnNullDecimalWhenNoValueFoundForNullableParameter() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build()};
+        Parameter parameter = parameter().nullable().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        BigDecimal value = engine.getDecimal("parameter", new LevelValues("B"));
+
+        // then
+        Assertions.assertThat(value).isNull();
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenNoPrimitiveValueFoundForNullableParameter() {
+        // given
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42").build()};
+        Parameter parameter = parameter().nullable().withLevels(levels).withEntries(entries).withInputLevels(1).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        // when
+        catchException(engine).getLong("parameter", new LevelValues("B"));
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ParameterValueNotFoundException.class);
+    }
+
+    @Test
+    public void shouldNotAllocateMemoryWhenReadingPrimitiveValueInSteadyState() {
+        // given
+        ThreadMXBean threadBean = allocationCountingThreadBean();
+        Level[] levels = new Level[]{
+            level().withType("string").build(),
+            level().withType("string").build(),
+            level().withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "B", "42").build(),
+            parameterEntry().withLevels("A", "*", "7").build()};
+        Parameter parameter = parameter().withLevels(levels).withEntries(entries).withInputLevels(2).build();
+        when(paramRepository.load("parameter")).thenReturn(parameter);
+
+        LevelValues context = new LevelValues("A", "C");
+        long sum = 0;
+        for (int call = 0; call < 20000; ++call) {
+            sum += engine.getLong("parameter", context);
+        }
+
+        // when
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int call = 0; call < 100000; ++call) {
+            sum += engine.getLong("parameter", context);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        // then
+        Assertions.assertThat(sum).isEqualTo(120000L * 7);
+        Assertions.assertThat(allocated).isLessThan(10000L);
+    }
+
+    private ThreadMXBean allocationCountingThreadBean() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof ThreadMXBean) || !((ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            throw new SkipException("allocated memory counting not supported by JVM");
+        }
+        ThreadMXBean allocationCountingBean = (ThreadMXBean) threadBean;
+        allocationCountingBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationCountingBean;
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.smartparam.engine.cache.BoundedPreparedParamCache;
+import org.smartparam.engine.core.index.CompiledLevelIndex;
+import org.smartparam.engine.core.index.LevelIndex;
+import org.smartparam.engine.core.prepared.PreparedEntry;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.prepared.PreparedParameterTestBuilder.preparedParameter;
+
+/**
+ * @author Adam Dubiel
+ */
+public class BoundedPreparedParamCacheTest {
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        // given
+        BoundedPreparedParamCache cache = new BoundedPreparedParamCache(10000);
+        PreparedParameter parameter = parameterNamed("A");
+        cache.put("A", parameter);
+
+        // when
+        PreparedParameter hit = cache.get("A");
+        PreparedParameter miss = cache.get("B");
+
+        // then
+        assertThat(hit).isSameAs(parameter);
+        assertThat(miss).isNull();
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEvictLeastFrequentlyUsedParameterWhenBudgetExceeded() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(30, weights("A", 10, "B", 10, "C", 10, "D", 10));
+        cache.put("A", parameterNamed("A"));
+        cache.put("B", parameterNamed("B"));
+        cache.put("C", parameterNamed("C"));
+        cache.get("A");
+        cache.get("A");
+        cache.get("C");
+
+        // when
+        cache.put("D", parameterNamed("D"));
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("A", "C", "D");
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(30);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedAmongEquallyUsedParameters() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(20, weights("A", 10, "B", 10, "C", 10));
+        cache.put("A", parameterNamed("A"));
+        cache.put("B", parameterNamed("B"));
+        cache.get("B");
+        cache.get("A");
+
+        // when
+        cache.put("C", parameterNamed("C"));
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("A", "C");
+    }
+
+    @Test
+    public void shouldKeepFreshParameterWhenNextParameterIsPut() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(20, weights("A", 10, "B", 10, "C", 10, "D", 10));
+        cache.put("A", parameterNamed("A"));
+        cache.put("B", parameterNamed("B"));
+        cache.get("B");
+        cache.get("B");
+        cache.get("B");
+        cache.put("C", parameterNamed("C"));
+
+        // when
+        cache.put("D", parameterNamed("D"));
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("C", "D");
+    }
+
+    @Test
+    public void shouldCountHitsOfEvictedParameters() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(10, weights("A", 10, "B", 10));
+        cache.put("A", parameterNamed("A"));
+        cache.get("A");
+        cache.get("A");
+
+        // when
+        cache.put("B", parameterNamed("B"));
+        cache.get("B");
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("B");
+        assertThat(cache.hitCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldEvictAsManyParametersAsNeededToFitHeavyParameter() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(30, weights("A", 10, "B", 10, "C", 10, "D", 25));
+        cache.put("A", parameterNamed("A"));
+        cache.put("B", parameterNamed("B"));
+        cache.put("C", parameterNamed("C"));
+
+        // when
+        cache.put("D", parameterNamed("D"));
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("D");
+        assertThat(cache.evictionCount()).isEqualTo(3);
+        assertThat(cache.weight()).isEqualTo(25);
+    }
+
+    @Test
+    public void shouldKeepJustPutParameterEvenIfItExceedsBudgetAlone() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(30, weights("A", 10, "B", 50));
+        cache.put("A", parameterNamed("A"));
+
+        // when
+        cache.put("B", parameterNamed("B"));
+
+        // then
+        assertThat(cache.cachedParameterNames()).containsOnly("B");
+        assertThat(cache.weight()).isEqualTo(50);
+    }
+
+    @Test
+    public void shouldReleaseWeightOfInvalidatedAndReplacedParameters() {
+        // given
+        BoundedPreparedParamCache cache = new WeightedCache(100, weights("A", 10, "B", 20));
+        cache.put("A", parameterNamed("A"));
+        cache.put("B", parameterNamed("B"));
+        cache.put("B", parameterNamed("B"));
+
+        // when
+        cache.invalidate("A");
+
+        // then
+        assertThat(cache.weight()).isEqualTo(20);
+        assertThat(cache.size()).isEqualTo(1);
+        cache.invalidate();
+        assertThat(cache.weight()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldWeighParametersByIndexSize() {
+        // given
+        BoundedPreparedParamCache cache = new BoundedPreparedParamCache(1000000);
+        PreparedParameter small = parameterNamed("small");
+        small.setCompiledIndex(compiledIndex(10));
+        PreparedParameter big = parameterNamed("big");
+        big.setCompiledIndex(compiledIndex(1000));
+
+        // when
+        cache.put("small", small);
+        long smallWeight = cache.weight();
+        cache.put("big", big);
+        long bigWeight = cache.weight() - smallWeight;
+
+        // then
+        assertThat(bigWeight).isGreaterThan(smallWeight * 50);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldNotAllowNonPositiveBudget() {
+        // when
+        new BoundedPreparedParamCache(0);
+    }
+
+    private CompiledLevelIndex<PreparedEntry> compiledIndex(int entryCount) {
+        LevelIndex<PreparedEntry> index = new LevelIndex<PreparedEntry>(1);
+        for (int entry = 0; entry < entryCount; ++entry) {
+            index.add(new String[]{"V" + entry}, new PreparedEntry(new String[]{"V" + entry}));
+        }
+        return new CompiledLevelIndex<PreparedEntry>(index);
+    }
+
+    private PreparedParameter parameterNamed(String name) {
+        return preparedParameter().forParameter(parameter().withName(name).build()).build();
+    }
+
+    private Map<String, Long> weights(Object... namesAndWeights) {
+        Map<String, Long> weights = new HashMap<String, Long>();
+        for (int index = 0; index < namesAndWeights.length; index += 2) {
+            weights.put((String) namesAndWeights[index], ((Integer) namesAndWeights[index + 1]).longValue());
+        }
+        return weights;
+    }
+
+    private static class WeightedCache extends BoundedPreparedParamCache {
+
+        private final Map<String, Long> weights;
+
+        WeightedCache(long maxWeight, Map<String, Long> weights) {
+            super(maxWeight);
+            this.weights = weights;
+        }
+
+        @Override
+        protected long weigh(PreparedParameter parameter) {
+            return weights.get(parameter.getName());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.cache;
+
+import java.util.ArrayList;
+import org.smartparam.engine.cache.LruParamValueCache;
+import org.smartparam.engine.core.output.DefaultMultiValue;
+import org.smartparam.engine.core.output.DefaultParamValue;
+import org.smartparam.engine.core.output.MultiValue;
+import org.smartparam.engine.types.string.StringHolder;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * @author Adam Dubiel
+ */
+public class LruParamValueCacheTest {
+
+    @Test
+    public void shouldReturnNullAndCountMissIfNothingMemoized() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(10);
+
+        // when
+        DefaultParamValue value = cache.get(new String[]{"A", "B"});
+
+        // then
+        assertThat(value).isNull();
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnValueMemoizedForEqualLevelValuesAndCountHit() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(10);
+        cache.put(new String[]{"A", "B"}, paramValue("value"));
+
+        // when
+        DefaultParamValue value = cache.get(new String[]{"A", "B"});
+
+        // then
+        assertThat(value.getString()).isEqualTo("value");
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnValuesWithIndependentIterationState() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(10);
+        cache.put(new String[]{"A"}, paramValue("first", "second"));
+        DefaultParamValue firstValue = cache.get(new String[]{"A"});
+        firstValue.row().nextString();
+
+        // when
+        DefaultParamValue secondValue = cache.get(new String[]{"A"});
+
+        // then
+        assertThat(secondValue.row().nextString()).isEqualTo("first");
+    }
+
+    @Test
+    public void shouldNotBeAffectedByChangesInLevelValuesArrayUsedAsKey() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(10);
+        String[] levelValues = new String[]{"A"};
+        cache.put(levelValues, paramValue("value"));
+        levelValues[0] = "B";
+
+        // when
+        DefaultParamValue value = cache.get(new String[]{"A"});
+
+        // then
+        assertThat(value).isNotNull();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedValueWhenFull() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(2);
+        cache.put(new String[]{"A"}, paramValue("A"));
+        cache.put(new String[]{"B"}, paramValue("B"));
+        cache.get(new String[]{"A"});
+
+        // when
+        cache.put(new String[]{"C"}, paramValue("C"));
+
+        // then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(new String[]{"A"})).isNotNull();
+        assertThat(cache.get(new String[]{"B"})).isNull();
+        assertThat(cache.get(new String[]{"C"})).isNotNull();
+    }
+
+    @Test
+    public void shouldNeverHoldMoreValuesThanMaximumSize() {
+        // given
+        LruParamValueCache cache = new LruParamValueCache(1000);
+
+        // when
+        for (int key = 0; key < 5000; ++key) {
+            cache.put(new String[]{"V" + key}, paramValue("value"));
+        }
+
+        // then
+        assertThat(cache.size()).isLessThanOrEqualTo(1000);
+    }
+
+    private DefaultParamValue paramValue(String... values) {
+        Object[] holders = new Object[values.length];
+        for (int index = 0; index < values.length; ++index) {
+            holders[index] = new StringHolder(values[index]);
+        }
+        ArrayList<MultiValue> rows = new ArrayList<MultiValue>();
+        rows.add(new DefaultMultiValue(holders));
+        return new DefaultParamValue(rows, null);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.smartparam.engine.cache.MapPreparedParamCache;
+import org.smartparam.engine.cache.RefreshAheadPreparedParamCache;
+import org.smartparam.engine.core.parameter.request.ParameterRequest;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.prepared.PreparedParameterTestBuilder.preparedParameter;
+
+/**
+ * @author Adam Dubiel
+ */
+public class RefreshAheadPreparedParamCacheTest {
+
+    private ScheduledExecutorService executorService;
+
+    private RefreshAheadPreparedParamCache cache;
+
+    @BeforeMethod
+    public void initialize() {
+        executorService = Executors.newScheduledThreadPool(2);
+        cache = new RefreshAheadPreparedParamCache(new MapPreparedParamCache(), executorService);
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldKeepServingOldParameterUntilRefreshedOneIsReady() throws InterruptedException {
+        // given
+        final PreparedParameter oldParameter = parameterNamed("param");
+        final PreparedParameter newParameter = parameterNamed("param");
+        final CountDownLatch refreshStarted = new CountDownLatch(1);
+        final CountDownLatch refreshReleased = new CountDownLatch(1);
+        final CountDownLatch refreshDone = new CountDownLatch(1);
+        cache.refreshUsing(new ParameterRequest() {
+            @Override
+            public PreparedParameter loadAndPrepare(String parameterName) {
+                refreshStarted.countDown();
+                await(refreshReleased);
+                cache.put(parameterName, newParameter);
+                refreshDone.countDown();
+                return newParameter;
+            }
+        });
+        cache.put("param", oldParameter);
+
+        // when
+        cache.invalidate("param");
+        refreshStarted.await(5, TimeUnit.SECONDS);
+        PreparedParameter duringRefresh = cache.get("param");
+        refreshReleased.countDown();
+        refreshDone.await(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(duringRefresh).isSameAs(oldParameter);
+        assertThat(cache.get("param")).isSameAs(newParameter);
+    }
+
+    @Test
+    public void shouldDropParameterWhenItNoLongerExists() throws InterruptedException {
+        // given
+        cache.refreshUsing(new ParameterRequest() {
+            @Override
+            public PreparedParameter loadAndPrepare(String parameterName) {
+                return null;
+            }
+        });
+        cache.put("param", parameterNamed("param"));
+
+        // when
+        cache.invalidate("param");
+        awaitRefreshes(1);
+
+        // then
+        assertThat(cache.get("param")).isNull();
+    }
+
+    @Test
+    public void shouldDropParameterWhenRefreshFails() throws InterruptedException {
+        // given
+        cache.refreshUsing(new ParameterRequest() {
+            @Override
+            public PreparedParameter loadAndPrepare(String parameterName) {
+                throw new IllegalStateException("repository is down");
+            }
+        });
+        cache.put("param", parameterNamed("param"));
+
+        // when
+        cache.invalidate("param");
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(cache.get("param")).isNull();
+        assertThat(cache.failedRefreshCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDropParameterImmediatelyWhenNoRequestRegistered() {
+        // given
+        cache.put("param", parameterNamed("param"));
+
+        // when
+        cache.invalidate("param");
+
+        // then
+        assertThat(cache.get("param")).isNull();
+    }
+
+    @Test
+    public void shouldRefreshParameterPeriodically() throws InterruptedException {
+        // given
+        final CountDownLatch refreshes = new CountDownLatch(3);
+        cache.refreshUsing(new ParameterRequest() {
+            @Override
+            public PreparedParameter loadAndPrepare(String parameterName) {
+                PreparedParameter parameter = parameterNamed(parameterName);
+                cache.put(parameterName, parameter);
+                refreshes.countDown();
+                return parameter;
+            }
+        });
+        cache.setRefreshInterval("param", 10, TimeUnit.MILLISECONDS);
+
+        // when
+        cache.put("param", parameterNamed("param"));
+        cache.put("other", parameterNamed("other"));
+
+        // then
+        assertThat(refreshes.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cache.cachedParameterNames()).contains("param", "other");
+    }
+
+    private void awaitRefreshes(int count) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && cache.refreshCount() < count; ++attempt) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PreparedParameter parameterNamed(String name) {
+        return preparedParameter().forParameter(parameter().withName(name).build()).build();
+    }
+}
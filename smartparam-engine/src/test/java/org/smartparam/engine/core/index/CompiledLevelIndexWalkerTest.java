@@ -0,0 +1,320 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.core.type.ValueHolder;
+import org.smartparam.engine.matchers.BetweenMatcher;
+import org.smartparam.engine.types.integer.IntegerType;
+import org.smartparam.engine.types.number.NumberType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.index.LevelIndexTestBuilder.levelIndex;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class CompiledLevelIndexWalkerTest {
+
+    @Test
+    public void shouldFavourConcreteValuesOverDefaultWhenLookingForValue() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(1).build();
+        levelIndex.add(new String[]{"*"}, 11);
+        levelIndex.add(new String[]{"A"}, 42);
+
+        CompiledLevelIndexWalker<Integer> walker = new CompiledLevelIndexWalker<Integer>(new CompiledLevelIndex<Integer>(levelIndex), "A");
+
+        // when
+        List<Integer> node = walker.find();
+
+        // then
+        assertThat(node).containsExactly(42);
+    }
+
+    @Test
+    public void shouldReturnNullIfNothingFound() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(1).build();
+        levelIndex.add(new String[]{"A"}, 10);
+
+        CompiledLevelIndexWalker<Integer> walker = new CompiledLevelIndexWalker<Integer>(new CompiledLevelIndex<Integer>(levelIndex), "B");
+
+        // when
+        List<Integer> node = walker.find();
+
+        // then
+        assertThat(node).isNull();
+    }
+
+    @Test
+    public void shouldReturnAllValuesStoredInLeafInInsertionOrder() {
+        // given
+        LevelIndex<String> levelIndex = levelIndex().withLevelCount(2).build();
+        levelIndex.add(new String[]{"A", "B"}, "match1");
+        levelIndex.add(new String[]{"A", "*"}, "default");
+        levelIndex.add(new String[]{"A", "B"}, "match2");
+
+        CompiledLevelIndexWalker<String> walker = new CompiledLevelIndexWalker<String>(new CompiledLevelIndex<String>(levelIndex), "A", "B");
+
+        // when
+        List<String> node = walker.find();
+
+        // then
+        assertThat(node).containsExactly("match1", "match2");
+    }
+
+    @Test
+    public void shouldRebuildTreeWithSamePatternsAndLeavesAsCompiledIndex() {
+        // given
+        LevelIndex<String> levelIndex = levelIndex().withLevelCount(2).build();
+        levelIndex.add(new String[]{"A", "B"}, "match1");
+        levelIndex.add(new String[]{"A", "*"}, "default");
+        levelIndex.add(new String[]{"A", "B"}, "match2");
+        levelIndex.add(new String[]{"*", "C"}, "anyA");
+
+        // when
+        LevelIndex<String> rebuilt = new CompiledLevelIndex<String>(levelIndex).toLevelIndex();
+
+        // then
+        assertThat(new FastLevelIndexWalker<String>(rebuilt, "A", "B").find()).containsExactly("match1", "match2");
+        assertThat(new FastLevelIndexWalker<String>(rebuilt, "A", "X").find()).containsExactly("default");
+        assertThat(new FastLevelIndexWalker<String>(rebuilt, "X", "C").find()).containsExactly("anyA");
+        assertThat(new FastLevelIndexWalker<String>(rebuilt, "X", "X").find()).isNull();
+    }
+
+    @DataProvider(name = "findNodeSearchSet")
+    public Object[][] provideFindNodeSearchSets() {
+        return new Object[][]{
+            {new String[]{"A", "B", "C"}, 1},
+            {new String[]{"A", "B", "X"}, 9},
+            {new String[]{"A", "E", "D"}, 11},
+            {new String[]{"A", "X", "D"}, 12},
+            {new String[]{"A", "X", "X"}, 13},
+            {new String[]{"V", "Z", "Z"}, 21},
+            {new String[]{"V", "Z", "A"}, 22},
+            {new String[]{"V", "V", "V"}, 99}
+        };
+    }
+
+    @Test(dataProvider = "findNodeSearchSet")
+    public void shouldFindNodeFromTestSet(String[] levelValues, int expectedValue) {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(3).build();
+
+        levelIndex.add(new String[]{"A", "B", "C"}, 1);
+        levelIndex.add(new String[]{"A", "B", "*"}, 9);
+        levelIndex.add(new String[]{"A", "E", "D"}, 11);
+        levelIndex.add(new String[]{"A", "*", "D"}, 12);
+        levelIndex.add(new String[]{"A", "*", "*"}, 13);
+        levelIndex.add(new String[]{"*", "Z", "Z"}, 21);
+        levelIndex.add(new String[]{"*", "Z", "*"}, 22);
+        levelIndex.add(new String[]{"*", "*", "*"}, 99);
+
+        CompiledLevelIndexWalker<Integer> walker = new CompiledLevelIndexWalker<Integer>(new CompiledLevelIndex<Integer>(levelIndex), levelValues);
+
+        // when
+        List<Integer> node = walker.find();
+
+        // then
+        assertThat(node).containsExactly(expectedValue);
+    }
+
+    @Test
+    public void shouldReturnSameResultsAsFastLevelIndexWalkerForRandomIndex() {
+        // given
+        Random random = new Random(42);
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(3).withMatchers(null, new LastCharacterMatcher(), null).build();
+        for (int entry = 0; entry < 2000; ++entry) {
+            levelIndex.add(new String[]{randomValue(random, 20), randomValue(random, 30), randomValue(random, 10)}, entry);
+        }
+        CompiledLevelIndex<Integer> compiledIndex = new CompiledLevelIndex<Integer>(levelIndex);
+
+        for (int query = 0; query < 2000; ++query) {
+            String[] levelValues = new String[]{randomValue(random, 25), randomValue(random, 35), randomValue(random, 12)};
+
+            // when
+            List<Integer> compiledResult = new CompiledLevelIndexWalker<Integer>(compiledIndex, levelValues).find();
+            List<Integer> fastResult = new FastLevelIndexWalker<Integer>(levelIndex, levelValues).find();
+
+            // then
+            if (fastResult == null) {
+                assertThat(compiledResult).isNull();
+            } else {
+                assertThat(compiledResult).containsExactly(fastResult.toArray(new Integer[fastResult.size()]));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReturnFirstMatchingRangeWhenRangesOverlap() {
+        // given
+        LevelIndex<String> levelIndex = levelIndex().withLevelCount(2)
+                .withTypes(new IntegerType(), null).withMatchers(new BetweenMatcher(), null).build();
+        levelIndex.add(new String[]{"10 ~ 20", "A"}, "first");
+        levelIndex.add(new String[]{"15 ~ 30", "B"}, "second");
+        levelIndex.add(new String[]{"* ~ 100", "B"}, "third");
+
+        CompiledLevelIndex<String> compiledIndex = new CompiledLevelIndex<String>(levelIndex);
+
+        // when
+        List<String> value = new CompiledLevelIndexWalker<String>(compiledIndex, "17", "B").find();
+
+        // then
+        assertThat(value).isEqualTo(new FastLevelIndexWalker<String>(levelIndex, "17", "B").find());
+    }
+
+    @DataProvider(name = "betweenMatchers")
+    public Object[][] provideBetweenMatchers() {
+        return new Object[][]{
+            {new BetweenMatcher(true, false, null)},
+            {new BetweenMatcher(false, true, null)},
+            {new BetweenMatcher(true, true, null)},
+            {new BetweenMatcher(false, false, null)}
+        };
+    }
+
+    @Test(dataProvider = "betweenMatchers")
+    public void shouldReturnSameResultsAsFastLevelIndexWalkerForRangeLevel(BetweenMatcher matcher) {
+        // given
+        Random random = new Random(7);
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(2)
+                .withTypes(new IntegerType(), null).withMatchers(matcher, null).build();
+        for (int entry = 0; entry < 500; ++entry) {
+            levelIndex.add(new String[]{randomRange(random), randomValue(random, 3)}, entry);
+        }
+        CompiledLevelIndex<Integer> compiledIndex = new CompiledLevelIndex<Integer>(levelIndex);
+        assertThat(compiledIndex.rangeIndex(compiledIndex.root())).isNotNull();
+
+        for (int query = -5; query < 1005; ++query) {
+            String[] levelValues = new String[]{Integer.toString(query), randomValue(random, 3)};
+
+            // when
+            List<Integer> compiledResult = new CompiledLevelIndexWalker<Integer>(compiledIndex, levelValues).find();
+            List<Integer> fastResult = new FastLevelIndexWalker<Integer>(levelIndex, levelValues).find();
+
+            // then
+            assertThat(compiledResult).isEqualTo(fastResult);
+        }
+    }
+
+    @Test
+    public void shouldFindValueUsingTypedKeysWhenLevelTypeSupportsThem() {
+        // given
+        LevelIndex<String> levelIndex = levelIndex().withLevelCount(3)
+                .withTypes(new IntegerType(), new NumberType(), null).build();
+        levelIndex.add(new String[]{"17", "1.50", "A"}, "first");
+        levelIndex.add(new String[]{"17", "100", "*"}, "second");
+        levelIndex.add(new String[]{"*", "*", "*"}, "default");
+
+        CompiledLevelIndex<String> compiledIndex = new CompiledLevelIndex<String>(levelIndex);
+        LevelKeys levelKeys = new LevelKeys(3);
+        levelKeys.setLongKey(0, 17L);
+        levelKeys.setObjectKey(1, new NumberType().objectKey(new BigDecimal("1E2")));
+        levelKeys.setValue(2, "B");
+
+        // when
+        List<String> value = new CompiledLevelIndexWalker<String>(compiledIndex, levelKeys).find();
+
+        // then
+        assertThat(compiledIndex.getKeyKind(0)).isEqualTo(CompiledLevelIndex.LONG_KEY);
+        assertThat(compiledIndex.getKeyKind(1)).isEqualTo(CompiledLevelIndex.OBJECT_KEY);
+        assertThat(compiledIndex.getKeyKind(2)).isEqualTo(CompiledLevelIndex.STRING_KEY);
+        assertThat(value).containsExactly("second");
+    }
+
+    @Test
+    public void shouldNotMatchNumberKeysWithDifferentScale() {
+        // given
+        LevelIndex<String> levelIndex = levelIndex().withLevelCount(1).withTypes(new NumberType()).build();
+        levelIndex.add(new String[]{"1.00"}, "value");
+        levelIndex.add(new String[]{"*"}, "default");
+
+        CompiledLevelIndex<String> compiledIndex = new CompiledLevelIndex<String>(levelIndex);
+        LevelKeys levelKeys = new LevelKeys(1);
+        levelKeys.setObjectKey(0, new NumberType().objectKey("1.0"));
+
+        // when
+        List<String> value = new CompiledLevelIndexWalker<String>(compiledIndex, levelKeys).find();
+
+        // then
+        assertThat(value).isEqualTo(new FastLevelIndexWalker<String>(levelIndex, "1.0").find()).containsExactly("default");
+    }
+
+    @DataProvider(name = "levelCardinalities")
+    public Object[][] provideLevelCardinalities() {
+        return new Object[][]{
+            {5, LevelStrategy.INLINE},
+            {40, LevelStrategy.SORTED},
+            {300, LevelStrategy.HASH}
+        };
+    }
+
+    @Test(dataProvider = "levelCardinalities")
+    public void shouldReturnSameResultsAsFastLevelIndexWalkerForEachLevelStrategy(int cardinality, LevelStrategy expectedStrategy) {
+        // given
+        Random random = new Random(cardinality);
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(2).withTypes(new IntegerType(), null).build();
+        for (int entry = 0; entry < 1000; ++entry) {
+            int value = random.nextInt(cardinality + 1);
+            levelIndex.add(new String[]{value == cardinality ? "*" : Integer.toString(value), randomValue(random, 3)}, entry);
+        }
+        CompiledLevelIndex<Integer> compiledIndex = new CompiledLevelIndex<Integer>(levelIndex);
+        assertThat(compiledIndex.getStrategy(0)).isEqualTo(expectedStrategy);
+
+        for (int query = -2; query < cardinality + 2; ++query) {
+            String[] levelValues = new String[]{Integer.toString(query), randomValue(random, 3)};
+            LevelKeys levelKeys = LevelKeys.of(levelValues);
+            levelKeys.setLongKey(0, query);
+
+            // when
+            List<Integer> compiledResult = new CompiledLevelIndexWalker<Integer>(compiledIndex, levelValues).find();
+            List<Integer> typedResult = new CompiledLevelIndexWalker<Integer>(compiledIndex, levelKeys).find();
+            List<Integer> fastResult = new FastLevelIndexWalker<Integer>(levelIndex, levelValues).find();
+
+            // then
+            assertThat(compiledResult).isEqualTo(fastResult);
+            assertThat(typedResult).isEqualTo(fastResult);
+        }
+    }
+
+    private String randomRange(Random random) {
+        int from = random.nextInt(1000);
+        int to = from + random.nextInt(20);
+        String lower = random.nextInt(250) == 0 ? "*" : Integer.toString(from);
+        String upper = random.nextInt(250) == 0 ? "" : Integer.toString(to);
+        return lower + " ~ " + upper;
+    }
+
+    private String randomValue(Random random, int cardinality) {
+        int value = random.nextInt(cardinality + 1);
+        return value == cardinality ? "*" : "V" + value;
+    }
+
+    private static class LastCharacterMatcher implements Matcher {
+
+        @Override
+        public <T extends ValueHolder> boolean matches(String value, String pattern, Type<T> type) {
+            return value.charAt(value.length() - 1) == pattern.charAt(pattern.length() - 1);
+        }
+    }
+}
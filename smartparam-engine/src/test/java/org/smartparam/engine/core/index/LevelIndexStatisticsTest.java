@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import org.smartparam.engine.matchers.BetweenMatcher;
+import org.smartparam.engine.matchers.StringMatcher;
+import org.smartparam.engine.types.integer.IntegerType;
+import org.smartparam.engine.types.string.StringType;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.index.LevelIndexTestBuilder.levelIndex;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class LevelIndexStatisticsTest {
+
+    @Test
+    public void shouldGatherCardinalityOfEachLevel() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(2).build();
+        levelIndex.add(new String[]{"A", "X"}, 1);
+        levelIndex.add(new String[]{"A", "Y"}, 2);
+        levelIndex.add(new String[]{"B", "X"}, 3);
+        levelIndex.add(new String[]{"*", "*"}, 4);
+
+        // when
+        LevelIndexStatistics statistics = LevelIndexStatistics.gather(levelIndex);
+
+        // then
+        assertThat(statistics.getLevelCount()).isEqualTo(2);
+        LevelStatistics first = statistics.getLevel(0);
+        assertThat(first.getNodeCount()).isEqualTo(1);
+        assertThat(first.getChildCount()).isEqualTo(2);
+        assertThat(first.getDistinctValueCount()).isEqualTo(2);
+        assertThat(first.getDefaultCount()).isEqualTo(1);
+
+        LevelStatistics second = statistics.getLevel(1);
+        assertThat(second.getNodeCount()).isEqualTo(3);
+        assertThat(second.getChildCount()).isEqualTo(3);
+        assertThat(second.getMaxChildCount()).isEqualTo(2);
+        assertThat(second.getDistinctValueCount()).isEqualTo(2);
+        assertThat(second.getDefaultCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldChooseInlineStrategyForLevelsWithFewValues() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(1).build();
+        levelIndex.add(new String[]{"A"}, 1);
+        levelIndex.add(new String[]{"B"}, 2);
+
+        // when
+        LevelIndexStatistics statistics = LevelIndexStatistics.gather(levelIndex);
+
+        // then
+        assertThat(statistics.getStrategy(0)).isEqualTo(LevelStrategy.INLINE);
+    }
+
+    @Test
+    public void shouldChooseHashStrategyForLevelsWithManyValues() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(2).withTypes(new StringType(), new IntegerType()).build();
+        for (int value = 0; value < 100; ++value) {
+            levelIndex.add(new String[]{"V" + value, Integer.toString(value)}, value);
+            levelIndex.add(new String[]{"A", Integer.toString(value)}, value);
+        }
+
+        // when
+        LevelIndexStatistics statistics = LevelIndexStatistics.gather(levelIndex);
+
+        // then
+        assertThat(statistics.getStrategy(0)).isEqualTo(LevelStrategy.HASH);
+        assertThat(statistics.getStrategy(1)).isEqualTo(LevelStrategy.HASH);
+    }
+
+    @Test
+    public void shouldChooseSortedStrategyForLongKeyedLevelsWithModerateNumberOfValues() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(1).withTypes(new IntegerType()).build();
+        for (int value = 0; value < 20; ++value) {
+            levelIndex.add(new String[]{Integer.toString(value)}, value);
+        }
+
+        // when
+        LevelIndexStatistics statistics = LevelIndexStatistics.gather(levelIndex);
+
+        // then
+        assertThat(statistics.getStrategy(0)).isEqualTo(LevelStrategy.SORTED);
+    }
+
+    @Test
+    public void shouldChooseMatcherStrategiesForLevelsWithMatchers() {
+        // given
+        LevelIndex<Integer> levelIndex = levelIndex().withLevelCount(3)
+                .withTypes(new IntegerType(), null, null).withMatchers(new BetweenMatcher(), new StringMatcher(), null).build();
+        levelIndex.add(new String[]{"1 ~ 10", "A", "*"}, 1);
+
+        // when
+        LevelIndexStatistics statistics = LevelIndexStatistics.gather(levelIndex);
+
+        // then
+        assertThat(statistics.getStrategy(0)).isEqualTo(LevelStrategy.RANGE);
+        assertThat(statistics.getStrategy(1)).isEqualTo(LevelStrategy.SCAN);
+        assertThat(statistics.getStrategy(2)).isEqualTo(LevelStrategy.DEFAULT_ONLY);
+        assertThat(statistics.printStatistics()).contains("level 0: RANGE").contains("level 2: DEFAULT_ONLY");
+    }
+}
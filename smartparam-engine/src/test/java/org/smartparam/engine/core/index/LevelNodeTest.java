@@ -15,6 +15,8 @@
  */
 package org.smartparam.engine.core.index;
 
+import org.smartparam.engine.matchers.StringMatcher;
+import org.smartparam.engine.types.string.StringType;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.smartparam.engine.test.ParamEngineAssertions.*;
@@ -52,4 +54,31 @@ public class LevelNodeTest {
         // then
         assertThat(root).hasNoLeaves().hasDirectChild("A");
     }
+
+    @Test
+    public void shouldStorePatternCompiledByLevelMatcherInChildNode() {
+        // given
+        LevelIndex<Integer> levelindex = levelIndex().withLevelCount(1)
+                .withTypes(new StringType()).withMatchers(new StringMatcher()).build();
+        LevelNode<Integer> root = new LevelNode<Integer>(levelindex);
+
+        // when
+        root.add(new String[]{"A"}, 10, 0);
+
+        // then
+        assertThat(root.getChildren().get("A").getPattern().matches("a")).isTrue();
+    }
+
+    @Test
+    public void shouldNotCompilePatternWhenLevelHasNoMatcher() {
+        // given
+        LevelIndex<Integer> levelindex = levelIndex().withLevelCount(1).build();
+        LevelNode<Integer> root = new LevelNode<Integer>(levelindex);
+
+        // when
+        root.add(new String[]{"A"}, 10, 0);
+
+        // then
+        assertThat(root.getChildren().get("A").getPattern()).isNull();
+    }
 }
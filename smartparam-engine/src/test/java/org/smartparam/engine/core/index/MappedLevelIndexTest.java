@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.smartparam.engine.core.matcher.Matcher;
+import org.smartparam.engine.core.type.Type;
+import org.smartparam.engine.matchers.BetweenMatcher;
+import org.smartparam.engine.types.integer.IntegerType;
+import org.smartparam.engine.types.string.StringType;
+import org.testng.annotations.Test;
+import static com.googlecode.catchexception.CatchException.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.index.LevelIndexTestBuilder.levelIndex;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class MappedLevelIndexTest {
+
+    private static final MappedLevelIndexWriter.LeafEncoder<Integer> ENCODER = new MappedLevelIndexWriter.LeafEncoder<Integer>() {
+        @Override
+        public String[] encode(Integer leaf) {
+            return new String[]{leaf.toString(), null};
+        }
+    };
+
+    @Test
+    public void shouldFindSameLeavesAsFastWalkerOverHeapIndex() throws IOException {
+        // given
+        Type<?>[] types = new Type<?>[]{new StringType(), new IntegerType()};
+        Matcher[] matchers = new Matcher[]{null, new BetweenMatcher()};
+        LevelIndex<Integer> index = levelIndex().withLevelCount(2).withTypes(types).withMatchers(matchers).build();
+        int leaf = 0;
+        for (int code = 0; code < 50; ++code) {
+            index.add(new String[]{"K" + code, "0 ~ 10"}, leaf++);
+            index.add(new String[]{"K" + code, "10 ~ 20"}, leaf++);
+            index.add(new String[]{"K" + code, "*"}, leaf++);
+        }
+        index.add(new String[]{"K7", "0 ~ 10"}, leaf++);
+        index.add(new String[]{"*", "5 ~ 15"}, leaf);
+
+        // when
+        MappedLevelIndex mappedIndex = new MappedLevelIndex(ByteBuffer.wrap(MappedLevelIndexWriter.serialize(index, ENCODER)), types, matchers);
+
+        // then
+        assertThat(mappedIndex.entryCount()).isEqualTo(152);
+        for (String code : new String[]{"K0", "K7", "K49", "K50", null}) {
+            for (String value : new String[]{"5", "10", "15", "25"}) {
+                assertThat(leavesOf(mappedIndex.find(code, value)))
+                        .isEqualTo(new FastLevelIndexWalker<Integer>(index, code, value).find());
+            }
+        }
+    }
+
+    @Test
+    public void shouldReturnNullWhenNothingMatches() throws IOException {
+        // given
+        LevelIndex<Integer> index = levelIndex().withLevelCount(1).build();
+        index.add(new String[]{"A"}, 1);
+        MappedLevelIndex mappedIndex = new MappedLevelIndex(ByteBuffer.wrap(MappedLevelIndexWriter.serialize(index, ENCODER)), null, null);
+
+        // when
+        List<String[]> rows = mappedIndex.find("B");
+
+        // then
+        assertThat(rows).isNull();
+    }
+
+    @Test
+    public void shouldSerializeSameIndexToSameBytes() {
+        // given
+        LevelIndex<Integer> index = levelIndex().withLevelCount(1).build();
+        index.add(new String[]{"A"}, 1);
+        index.add(new String[]{"B"}, 2);
+
+        // when
+        byte[] first = MappedLevelIndexWriter.serialize(index, ENCODER);
+        byte[] second = MappedLevelIndexWriter.serialize(index, ENCODER);
+
+        // then
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    public void shouldRefuseToReadTruncatedIndex() throws IOException {
+        // given
+        LevelIndex<Integer> index = levelIndex().withLevelCount(1).build();
+        index.add(new String[]{"A"}, 1);
+        byte[] content = MappedLevelIndexWriter.serialize(index, ENCODER);
+        ByteBuffer truncated = ByteBuffer.wrap(content, 0, content.length - 1).slice();
+
+        // when
+        catchException(this).wrap(truncated);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(IOException.class);
+    }
+
+    public MappedLevelIndex wrap(ByteBuffer buffer) throws IOException {
+        return new MappedLevelIndex(buffer, null, null);
+    }
+
+    private List<Integer> leavesOf(List<String[]> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> leaves = new ArrayList<Integer>();
+        for (String[] row : rows) {
+            leaves.add(Integer.valueOf(row[0]));
+        }
+        return leaves;
+    }
+}
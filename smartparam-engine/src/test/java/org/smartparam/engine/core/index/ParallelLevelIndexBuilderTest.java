@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.index.LevelIndexTestBuilder.levelIndex;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ParallelLevelIndexBuilderTest {
+
+    private ExecutorService executorService;
+
+    @BeforeMethod
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldBuildSameTreeAsSequentialBuilderKeepingOrderOfLeavesInEachNode() {
+        // given
+        List<String[]> levelValues = new ArrayList<String[]>();
+        List<Integer> leaves = new ArrayList<Integer>();
+        for (int i = 0; i < 2000; ++i) {
+            levelValues.add(new String[]{i % 10 == 0 ? "*" : "K" + (i % 7), "V" + (i % 3)});
+            leaves.add(i);
+        }
+        LevelIndex<Integer> sequentialIndex = levelIndex().withLevelCount(2).build();
+        LevelIndex<Integer> parallelIndex = levelIndex().withLevelCount(2).build();
+
+        // when
+        new SequentialLevelIndexBuilder().addAll(sequentialIndex, levelValues, leaves);
+        new ParallelLevelIndexBuilder(executorService, 100).addAll(parallelIndex, levelValues, leaves);
+
+        // then
+        for (String first : new String[]{"K0", "K3", "K6"}) {
+            for (String second : new String[]{"V0", "V1", "V2"}) {
+                assertThat(find(parallelIndex, first, second)).isEqualTo(find(sequentialIndex, first, second)).isNotEmpty();
+            }
+        }
+        assertThat(parallelIndex.getRoot().getDefaultNode().getChildren().get("V1").getLeafList())
+                .isEqualTo(sequentialIndex.getRoot().getDefaultNode().getChildren().get("V1").getLeafList());
+    }
+
+    @Test
+    public void shouldAddToSubtreesAlreadyPresentInIndex() {
+        // given
+        LevelIndex<Integer> index = levelIndex().withLevelCount(1).build();
+        index.add(new String[]{"A"}, 0);
+        List<String[]> levelValues = new ArrayList<String[]>();
+        List<Integer> leaves = new ArrayList<Integer>();
+        levelValues.add(new String[]{"A"});
+        leaves.add(1);
+        levelValues.add(new String[]{"B"});
+        leaves.add(2);
+
+        // when
+        new ParallelLevelIndexBuilder(executorService, 1).addAll(index, levelValues, leaves);
+
+        // then
+        assertThat(index.getRoot().getChildren().get("A").getLeafList()).containsExactly(0, 1);
+        assertThat(index.getRoot().getChildren().get("B").getLeafList()).containsExactly(2);
+    }
+
+    @Test
+    public void shouldBuildSubtreesOnCallingThreadWhenExecutorRejectsTasks() {
+        // given
+        executorService.shutdown();
+        LevelIndex<Integer> index = levelIndex().withLevelCount(1).build();
+        List<String[]> levelValues = new ArrayList<String[]>();
+        List<Integer> leaves = new ArrayList<Integer>();
+        levelValues.add(new String[]{"A"});
+        leaves.add(1);
+        levelValues.add(new String[]{"B"});
+        leaves.add(2);
+
+        // when
+        new ParallelLevelIndexBuilder(executorService, 1).addAll(index, levelValues, leaves);
+
+        // then
+        assertThat(index.getRoot().getChildren()).hasSize(2);
+    }
+
+    private List<Integer> find(LevelIndex<Integer> index, String... levelValues) {
+        return new FastLevelIndexWalker<Integer>(index, levelValues).find();
+    }
+}
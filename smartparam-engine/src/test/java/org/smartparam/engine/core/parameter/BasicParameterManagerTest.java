@@ -15,10 +15,12 @@
  */
 package org.smartparam.engine.core.parameter;
 
+import org.smartparam.engine.core.parameter.request.ParameterRequest;
 import org.smartparam.engine.core.parameter.request.SimpleParameterRequestQueue;
 import org.smartparam.engine.core.prepared.ParamPreparer;
 import org.smartparam.engine.core.prepared.PreparedParamCache;
 import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.smartparam.engine.core.prepared.RefreshablePreparedParamCache;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import static org.mockito.Matchers.any;
@@ -60,7 +62,7 @@ public class BasicParameterManagerTest {
         // given
         Parameter parameter = parameter().withEntries().build();
         when(cache.get("param")).thenReturn(null).thenReturn(preparedParameter().forParameter(parameter).build());
-        when(paramProvider.load("param")).thenReturn(repositoryParameter(parameter).build());
+        when(paramProvider.batchLoad("param")).thenReturn(repositoryParameter(parameter).build());
 
         // when
         manager.getPreparedParameter("param");
@@ -71,12 +73,24 @@ public class BasicParameterManagerTest {
         verify(cache, times(1)).put(eq("param"), any(PreparedParameter.class));
     }
 
+    @Test
+    public void shouldRegisterRequestInRefreshableCache() {
+        // given
+        RefreshablePreparedParamCache refreshableCache = mock(RefreshablePreparedParamCache.class);
+
+        // when
+        new BasicParameterManager(preparer, paramProvider, refreshableCache, new SimpleParameterRequestQueue());
+
+        // then
+        verify(refreshableCache).refreshUsing(any(ParameterRequest.class));
+    }
+
     @Test
     public void shouldReturnPreparedParameter() {
         // given
         Parameter parameter = parameter().withEntries().build();
         when(cache.get("param")).thenReturn(null);
-        when(paramProvider.load("param")).thenReturn(repositoryParameter(parameter).build());
+        when(paramProvider.batchLoad("param")).thenReturn(repositoryParameter(parameter).build());
         when(preparer.prepare(any(ParameterFromRepository.class))).thenReturn(preparedParameter().forParameter(parameter).build());
 
         // when
@@ -89,7 +103,7 @@ public class BasicParameterManagerTest {
     @Test
     public void shouldReturnNullWhenParameterNotFound() {
         // given
-        when(paramProvider.load("param")).thenReturn(null);
+        when(paramProvider.batchLoad("param")).thenReturn(null);
 
         // when
         PreparedParameter preparedParameter = manager.getPreparedParameter("param");
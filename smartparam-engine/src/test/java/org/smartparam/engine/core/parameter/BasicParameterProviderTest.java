@@ -15,6 +15,7 @@
  */
 package org.smartparam.engine.core.parameter;
 
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -64,4 +65,46 @@ public class BasicParameterProviderTest {
         // then
         assertThat(parameter).isNull();
     }
+
+    @Test
+    public void shouldFallBackToLoadingWholeParameterWhenRepositoryDoesNotSupportBatchLoading() {
+        // given
+        BasicParameterProvider provider = new BasicParameterProvider();
+
+        ParamRepository repository = mock(ParamRepository.class);
+        when(repository.batchLoad("parameter")).thenThrow(new UnsupportedOperationException());
+        when(repository.load("parameter")).thenReturn(parameter().build());
+
+        provider.register(namedRepository(repository).named("repository").build());
+
+        // when
+        ParameterFromRepository param = provider.batchLoad("parameter");
+
+        // then
+        assertThat(param.repositoryName().value()).isEqualTo("repository");
+        assertThat(param.entryLoader()).isNull();
+    }
+
+    @Test
+    public void shouldReturnParameterWithEntryLoaderFromFirstRepositoryThatHasParameter() {
+        // given
+        BasicParameterProvider provider = new BasicParameterProvider();
+
+        ParamRepository repositoryWithoutParam = mock(ParamRepository.class);
+        when(repositoryWithoutParam.batchLoad("parameter")).thenReturn(null);
+
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        ParamRepository repositoryWithParam = mock(ParamRepository.class);
+        when(repositoryWithParam.batchLoad("parameter")).thenReturn(new ParameterBatchLoader(parameter().build(), entryLoader));
+
+        provider.register(namedRepository(repositoryWithoutParam).named("without").build());
+        provider.register(namedRepository(repositoryWithParam).named("with").build());
+
+        // when
+        ParameterFromRepository param = provider.batchLoad("parameter");
+
+        // then
+        assertThat(param.repositoryName().value()).isEqualTo("with");
+        assertThat(param.entryLoader()).isSameAs(entryLoader);
+    }
 }
@@ -15,11 +15,23 @@
  */
 package org.smartparam.engine.core.parameter.request;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.smartparam.engine.core.prepared.PreparedParameter;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.prepared.PreparedParameterTestBuilder.preparedParameter;
 
 /**
  *
@@ -49,6 +61,126 @@ public class QueuingParameterRequestResolverTest {
         assertThat(request.invocations).isLessThanOrEqualTo(2);
     }
 
+    @Test
+    public void shouldExecuteSingleRequestAndShareItsResultAmongConcurrentCallers() throws Exception {
+        // given
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        QueuingParameterRequestResolver singleFlightResolver = new QueuingParameterRequestResolver(Executors.newFixedThreadPool(2));
+        final LatchedRequest latchedRequest = new LatchedRequest();
+        List<Future<PreparedParameter>> results = new ArrayList<Future<PreparedParameter>>();
+
+        // when
+        for (int caller = 0; caller < 4; ++caller) {
+            results.add(callers.submit(resolveCall(singleFlightResolver, latchedRequest)));
+        }
+        for (int attempt = 0; attempt < 500 && singleFlightResolver.coalescedRequestCount() < 3; ++attempt) {
+            Thread.sleep(10);
+        }
+        latchedRequest.release.countDown();
+
+        // then
+        for (Future<PreparedParameter> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(latchedRequest.result);
+        }
+        assertThat(latchedRequest.invocations.get()).isEqualTo(1);
+        assertThat(singleFlightResolver.requestCount()).isEqualTo(1);
+        assertThat(singleFlightResolver.coalescedRequestCount()).isEqualTo(3);
+        callers.shutdown();
+    }
+
+    @Test
+    public void shouldExecuteNewRequestOncePreviousOneCompleted() {
+        // given
+        QueuingParameterRequestResolver singleFlightResolver = new QueuingParameterRequestResolver(Executors.newFixedThreadPool(2));
+        LatchedRequest latchedRequest = new LatchedRequest();
+        latchedRequest.release.countDown();
+
+        // when
+        singleFlightResolver.resolve("test", latchedRequest);
+        singleFlightResolver.resolve("test", latchedRequest);
+
+        // then
+        assertThat(latchedRequest.invocations.get()).isEqualTo(2);
+        assertThat(singleFlightResolver.coalescedRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnPreparedParameterToCallerArrivingAfterPreviousRequestCompleted() {
+        // given
+        QueuingParameterRequestResolver singleFlightResolver = new QueuingParameterRequestResolver(Executors.newFixedThreadPool(2));
+        CachingRequest cachingRequest = new CachingRequest();
+        cachingRequest.release.countDown();
+        PreparedParameter firstResult = singleFlightResolver.resolve("test", cachingRequest);
+
+        // when
+        PreparedParameter secondResult = singleFlightResolver.resolve("test", cachingRequest);
+
+        // then
+        assertThat(secondResult).isSameAs(firstResult);
+        assertThat(cachingRequest.invocations.get()).isEqualTo(1);
+        assertThat(singleFlightResolver.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenParameterNotResolvedInTime() {
+        // given
+        QueuingParameterRequestResolver timedResolver = new QueuingParameterRequestResolver(Executors.newFixedThreadPool(2), 20, TimeUnit.MILLISECONDS);
+        LatchedRequest latchedRequest = new LatchedRequest();
+
+        // when
+        catchException(timedResolver).resolve("test", latchedRequest);
+
+        // then
+        assertThat((Throwable) caughtException()).isInstanceOf(ParameterRequestException.class);
+        assertThat(timedResolver.timedOutRequestCount()).isEqualTo(1);
+        latchedRequest.release.countDown();
+    }
+
+    private Callable<PreparedParameter> resolveCall(final QueuingParameterRequestResolver resolver, final ParameterRequest request) {
+        return new Callable<PreparedParameter>() {
+            @Override
+            public PreparedParameter call() {
+                return resolver.resolve("test", request);
+            }
+        };
+    }
+
+    private static class LatchedRequest implements ParameterRequest {
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        final PreparedParameter result = preparedParameter().forParameter(parameter().withName("test").build()).build();
+
+        @Override
+        public PreparedParameter loadAndPrepare(String parameterName) {
+            invocations.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+
+    private static class CachingRequest extends LatchedRequest implements CacheAwareParameterRequest {
+
+        volatile PreparedParameter cached;
+
+        @Override
+        public PreparedParameter findPrepared(String parameterName) {
+            return cached;
+        }
+
+        @Override
+        public PreparedParameter loadAndPrepare(String parameterName) {
+            cached = super.loadAndPrepare(parameterName);
+            return cached;
+        }
+    }
+
     private static class WaitingRequest implements ParameterRequest {
 
         int invocations = 0;
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.snapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.smartparam.engine.core.parameter.ParamRepository;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.engine.core.parameter.ParameterBatchLoader;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.parameter.entry.ParameterEntryTestBuilder.parameterEntry;
+import static org.smartparam.engine.core.parameter.level.LevelTestBuilder.level;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class SnapshotParamRepositoryTest {
+
+    private File snapshotDirectory;
+
+    private ParamRepository repository;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        snapshotDirectory = File.createTempFile("smartparam", "snapshot");
+        snapshotDirectory.delete();
+        repository = mock(ParamRepository.class);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        File[] files = snapshotDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        snapshotDirectory.delete();
+    }
+
+    @Test
+    public void shouldReadParameterFromSnapshotWrittenOnFirstLoad() {
+        // given
+        Parameter sample = sampleParameter();
+        when(repository.load("parameter")).thenReturn(sample);
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("1"));
+        snapshotRepository.load("parameter");
+
+        // when
+        Parameter parameter = snapshotRepository.load("parameter");
+
+        // then
+        verify(repository, times(1)).load("parameter");
+        assertThat(snapshotRepository.hitCount()).isEqualTo(1);
+        assertThat(snapshotRepository.missCount()).isEqualTo(1);
+        assertThat(parameter.getName()).isEqualTo("parameter");
+        assertThat(parameter.getInputLevels()).isEqualTo(1);
+        assertThat(parameter.isNullable()).isTrue();
+        assertThat(parameter.getArraySeparator()).isEqualTo('^');
+        assertThat(parameter.getLevels()).hasSize(2);
+        assertThat(parameter.getLevels().get(0).getMatcher()).isEqualTo("between/ie");
+        assertThat(parameter.getLevels().get(1).isArray()).isTrue();
+        assertThat(levelsOf(parameter.getEntries())).containsOnly("A|1", "B|null", "*|3")
+                .isEqualTo(levelsOf(sample.getEntries()));
+    }
+
+    @Test
+    public void shouldLoadParameterFromRepositoryWhenSnapshotIsStale() {
+        // given
+        when(repository.load("parameter")).thenReturn(sampleParameter());
+        new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("1")).load("parameter");
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("2"));
+
+        // when
+        snapshotRepository.load("parameter");
+        snapshotRepository.load("parameter");
+
+        // then
+        verify(repository, times(2)).load("parameter");
+        assertThat(snapshotRepository.hitCount()).isEqualTo(1);
+        assertThat(snapshotRepository.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReplaceCorruptedSnapshotWithParameterFromRepository() throws IOException {
+        // given
+        when(repository.load("parameter")).thenReturn(sampleParameter());
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("1"));
+        FileOutputStream corruptedSnapshot = new FileOutputStream(snapshotRepository.snapshotFile("parameter"));
+        corruptedSnapshot.write(new byte[]{1, 2, 3});
+        corruptedSnapshot.close();
+
+        // when
+        Parameter parameter = snapshotRepository.load("parameter");
+
+        // then
+        assertThat(parameter.getEntries()).hasSize(3);
+        assertThat(snapshotRepository.load("parameter").getEntries()).hasSize(3);
+        assertThat(snapshotRepository.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBypassSnapshotWhenVersionOfParameterIsUnknown() {
+        // given
+        when(repository.load("parameter")).thenReturn(sampleParameter());
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource(null));
+
+        // when
+        snapshotRepository.load("parameter");
+
+        // then
+        assertThat(snapshotRepository.snapshotFile("parameter").exists()).isFalse();
+    }
+
+    @Test
+    public void shouldWriteSnapshotWhileStreamingEntriesAndStreamThemFromSnapshotLater() {
+        // given
+        Parameter sample = sampleParameter();
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true, false);
+        when(entryLoader.nextBatch(anyInt())).thenReturn(new ArrayList<ParameterEntry>(sample.getEntries()));
+        when(repository.batchLoad("parameter")).thenReturn(new ParameterBatchLoader(sample, entryLoader));
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("1"));
+        drain(snapshotRepository.batchLoad("parameter"));
+
+        // when
+        List<ParameterEntry> entries = drain(snapshotRepository.batchLoad("parameter"));
+
+        // then
+        verify(repository, times(1)).batchLoad("parameter");
+        verify(entryLoader).close();
+        assertThat(levelsOf(entries)).isEqualTo(levelsOf(sample.getEntries()));
+    }
+
+    @Test
+    public void shouldNotCommitSnapshotWhenEntriesWereNotReadToTheEnd() {
+        // given
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true);
+        when(repository.batchLoad("parameter")).thenReturn(new ParameterBatchLoader(sampleParameter(), entryLoader));
+        SnapshotParamRepository snapshotRepository = new SnapshotParamRepository(repository, snapshotDirectory, new ConstantVersionSource("1"));
+
+        // when
+        snapshotRepository.batchLoad("parameter").getEntryLoader().close();
+
+        // then
+        assertThat(snapshotDirectory.list()).isEmpty();
+    }
+
+    private Parameter sampleParameter() {
+        return parameter().withName("parameter").withInputLevels(1).nullable().withArraySeparator('^')
+                .withLevels(level().withName("code").withType("string").withMatcher("between/ie").build(),
+                        level().withName("values").withType("integer").array().build())
+                .withEntries(parameterEntry().withLevels("A", "1").build(),
+                        parameterEntry().withLevels("B", null).build(),
+                        parameterEntry().withLevels("*", "3").build())
+                .build();
+    }
+
+    private List<ParameterEntry> drain(ParameterBatchLoader batchLoader) {
+        List<ParameterEntry> entries = new ArrayList<ParameterEntry>();
+        ParameterEntryBatchLoader entryLoader = batchLoader.getEntryLoader();
+        while (entryLoader.hasMore()) {
+            entries.addAll(entryLoader.nextBatch(2));
+        }
+        entryLoader.close();
+        return entries;
+    }
+
+    private List<String> levelsOf(Iterable<ParameterEntry> entries) {
+        List<String> levels = new ArrayList<String>();
+        for (ParameterEntry entry : entries) {
+            levels.add(Arrays.toString(entry.getLevels()).replaceAll("[\\[\\] ]", "").replace(',', '|'));
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.parameter.warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.smartparam.engine.core.parameter.ParamRepository;
+import org.smartparam.engine.core.parameter.ParameterManager;
+import org.smartparam.engine.core.parameter.ParameterProvider;
+import org.smartparam.engine.core.prepared.PreparedParameter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.smartparam.engine.core.parameter.NamedParamRepositoryBuilder.namedRepository;
+import static org.smartparam.engine.core.parameter.warmup.WarmUpRequest.warmUpRequest;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ParameterWarmUpTest {
+
+    private ParameterManager parameterManager;
+
+    private ParameterProvider parameterProvider;
+
+    private ParameterWarmUp warmUp;
+
+    private ExecutorService executorService;
+
+    @BeforeMethod
+    public void initialize() {
+        parameterManager = mock(ParameterManager.class);
+        parameterProvider = mock(ParameterProvider.class);
+        warmUp = new ParameterWarmUp(parameterManager, parameterProvider);
+        executorService = Executors.newFixedThreadPool(2);
+
+        ParamRepository first = mock(ParamRepository.class);
+        when(first.listParameters()).thenReturn(new HashSet<String>(Arrays.asList("tax.rate", "tax.limit", "discount")));
+        ParamRepository second = mock(ParamRepository.class);
+        when(second.listParameters()).thenReturn(new HashSet<String>(Arrays.asList("discount", "bonus")));
+        when(parameterProvider.registeredItems()).thenReturn(Arrays.asList(namedRepository(first).build(), namedRepository(second).build()));
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    public void shouldPrepareAllParametersFromAllRepositories() {
+        // when
+        WarmUpReport report = warmUp.warmUp(warmUpRequest(), executorService);
+
+        // then
+        assertThat(report.getPreparationTimes().keySet()).containsOnly("tax.rate", "tax.limit", "discount", "bonus");
+        verify(parameterManager).getPreparedParameter("discount");
+        verify(parameterManager).getPreparedParameter("bonus");
+    }
+
+    @Test
+    public void shouldPrepareOnlyParametersMatchingPatternsAndPrioritizedOnes() {
+        // when
+        WarmUpReport report = warmUp.warmUp(warmUpRequest().matching("tax\\..*").withPriority("bonus", "unknown"), executorService);
+
+        // then
+        assertThat(report.getPreparationTimes().keySet()).containsOnly("bonus", "tax.rate", "tax.limit");
+        verify(parameterManager, never()).getPreparedParameter("discount");
+        verify(parameterManager, never()).getPreparedParameter("unknown");
+    }
+
+    @Test
+    public void shouldPreparePrioritizedParametersFirst() {
+        // given
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        RecordingListener listener = new RecordingListener();
+
+        // when
+        warmUp.warmUp(warmUpRequest().withPriority("tax.rate", "bonus").withListener(listener), singleThreadExecutor);
+
+        // then
+        assertThat(listener.prepared).containsExactly("tax.rate", "bonus", "discount", "tax.limit");
+        assertThat(listener.lastCompleted).isEqualTo(4);
+        singleThreadExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldReportFailuresAndContinueWarmUp() {
+        // given
+        RuntimeException failure = new IllegalStateException("corrupted parameter");
+        when(parameterManager.getPreparedParameter("discount")).thenThrow(failure);
+
+        // when
+        WarmUpReport report = warmUp.warmUp(warmUpRequest(), executorService);
+
+        // then
+        assertThat(report.getFailures()).hasSize(1).containsKey("discount");
+        assertThat(report.getPreparedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldWaitForAllParametersEvenIfOneOfTasksBrokeDown() {
+        // given
+        when(parameterManager.getPreparedParameter("tax.rate")).thenThrow(new AssertionError("broken"));
+        when(parameterManager.getPreparedParameter("bonus")).thenAnswer(new Answer<PreparedParameter>() {
+            @Override
+            public PreparedParameter answer(InvocationOnMock invocation) throws InterruptedException {
+                Thread.sleep(50);
+                return null;
+            }
+        });
+
+        // when
+        WarmUpReport report = warmUp.warmUp(warmUpRequest().withPriority("tax.rate"), executorService);
+
+        // then
+        assertThat(report.getPreparationTimes()).hasSize(3).containsKey("bonus");
+    }
+
+    @Test
+    public void shouldRecordListenerFailuresAndContinueWarmUp() {
+        // given
+        RuntimeException listenerFailure = new IllegalStateException("listener failure");
+        WarmUpListener listener = mock(WarmUpListener.class);
+        doThrow(listenerFailure).when(listener).parameterPrepared(eq("discount"), anyLong(), anyInt(), anyInt());
+
+        // when
+        WarmUpReport report = warmUp.warmUp(warmUpRequest().withListener(listener), executorService);
+
+        // then
+        assertThat(report.getListenerFailures()).hasSize(1);
+        assertThat(report.getListenerFailures().get("discount")).isSameAs(listenerFailure);
+        assertThat(report.getPreparedCount()).isEqualTo(4);
+    }
+
+    private static class RecordingListener implements WarmUpListener {
+
+        final List<String> prepared = new CopyOnWriteArrayList<String>();
+
+        volatile int lastCompleted;
+
+        @Override
+        public void parameterPrepared(String parameterName, long preparationTimeMillis, int completed, int total) {
+            prepared.add(parameterName);
+            lastCompleted = completed;
+        }
+
+        @Override
+        public void parameterFailed(String parameterName, Exception exception, int completed, int total) {
+            lastCompleted = completed;
+        }
+    }
+}
@@ -15,15 +15,20 @@
  */
 package org.smartparam.engine.core.prepared;
 
+import java.util.Arrays;
 import org.testng.annotations.BeforeMethod;
 
 import org.smartparam.engine.core.parameter.Parameter;
 import static org.mockito.Mockito.*;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
 import org.smartparam.engine.core.parameter.level.Level;
 import org.smartparam.engine.core.index.FastLevelIndexWalker;
 import org.smartparam.engine.core.parameter.ParameterFromRepository;
 import org.smartparam.engine.core.repository.RepositoryName;
+import org.smartparam.engine.types.integer.IntegerHolder;
+import org.smartparam.engine.types.integer.IntegerType;
+import org.smartparam.engine.types.string.StringType;
 import org.testng.annotations.Test;
 import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
 import static org.smartparam.engine.core.parameter.entry.ParameterEntryTestBuilder.parameterEntry;
@@ -62,7 +67,7 @@ public class BasicParamPreparerTest {
         PreparedParameter preparedParameter = paramPreparer.prepare(new ParameterFromRepository(parameter, RepositoryName.from("test")));
 
         // then
-        assertThat(preparedParameter).hasName("param").hasInputLevels(1).hasArraySeparator('^').hasIndex()
+        assertThat(preparedParameter).hasName("param").hasInputLevels(1).hasArraySeparator('^').hasIndex().hasCompiledIndex()
                 .hasLevelNameEntry("outputLevel", 0);
     }
 
@@ -119,4 +124,92 @@ public class BasicParamPreparerTest {
         // then
         assertThat(preparedParameter).hasName("param").hasNoIndex();
     }
+
+    @Test
+    public void shouldBuildIndexFromEntryBatchesAndCloseLoaderWhenParameterComesWithEntryLoader() {
+        // given
+        Level[] levels = new Level[]{
+            level().withName("level").withType("string").build(),
+            level().withName("outputLevel").withType("string").build()
+        };
+        Parameter parameter = parameter().withName("param").withInputLevels(1)
+                .withLevels(levels).withEntries().build();
+        when(levelPreparer.prepare(any(Level.class))).thenReturn(preparedLevel().withType(new StringType()).build())
+                .thenReturn(preparedLevel().withType(new StringType()).build());
+
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true, true, false);
+        when(entryLoader.nextBatch(anyInt())).thenReturn(Arrays.asList(parameterEntry().withLevels("A", "1").build()))
+                .thenReturn(Arrays.asList(parameterEntry().withLevels("B", "2").build()));
+
+        // when
+        PreparedParameter preparedParameter = paramPreparer.prepare(new ParameterFromRepository(parameter, RepositoryName.from("test"), entryLoader));
+
+        // then
+        assertThat(new FastLevelIndexWalker<PreparedEntry>(preparedParameter.getIndex(), "A").find()).hasSize(1);
+        assertThat(new FastLevelIndexWalker<PreparedEntry>(preparedParameter.getIndex(), "B").find()).hasSize(1);
+        verify(entryLoader).close();
+    }
+
+    @Test
+    public void shouldCloseEntryLoaderWithoutReadingEntriesForNoncacheableParameter() {
+        // given
+        Parameter parameter = parameter().withName("param").withInputLevels(1).noncacheable().withEntries().withLevels().build();
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+
+        // when
+        paramPreparer.prepare(new ParameterFromRepository(parameter, RepositoryName.from("test"), entryLoader));
+
+        // then
+        verify(entryLoader, never()).nextBatch(anyInt());
+        verify(entryLoader).close();
+    }
+
+    @Test
+    public void shouldDecodeOutputLevelsOfEntriesWhenPreparingParameter() {
+        // given
+        Level[] levels = new Level[]{
+            level().withName("level").withType("string").build(),
+            level().withName("outputLevel").withType("integer").build(),
+            level().withName("arrayLevel").withType("integer").array().build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("A", "42", "1,2").build()
+        };
+        Parameter parameter = parameter().withName("param").withInputLevels(1)
+                .withLevels(levels).withEntries(entries).build();
+        when(levelPreparer.prepare(any(Level.class))).thenReturn(preparedLevel().withType(new StringType()).build())
+                .thenReturn(preparedLevel().withType(new IntegerType()).build())
+                .thenReturn(preparedLevel().withType(new IntegerType()).array().build());
+
+        // when
+        PreparedParameter preparedParameter = paramPreparer.prepare(new ParameterFromRepository(parameter, RepositoryName.from("test")));
+
+        // then
+        FastLevelIndexWalker<PreparedEntry> walker = new FastLevelIndexWalker<PreparedEntry>(preparedParameter.getIndex(), "A");
+        Object[] outputValues = walker.find().get(0).getOutputValues();
+        assertThat(outputValues[0]).isEqualTo(new IntegerHolder(42L));
+        assertThat((IntegerHolder[]) outputValues[1]).containsExactly(new IntegerHolder(1L), new IntegerHolder(2L));
+    }
+
+    @Test
+    public void shouldLeaveOutputLevelsToBeDecodedOnDemandWhenTheyCanNotBeDecoded() {
+        // given
+        Level[] levels = new Level[]{
+            level().withName("outputLevel").withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("not a number").build()
+        };
+        Parameter parameter = parameter().withName("param").withInputLevels(0)
+                .withLevels(levels).withEntries(entries).build();
+        when(levelPreparer.prepare(any(Level.class))).thenReturn(preparedLevel().withType(new IntegerType()).build());
+
+        // when
+        PreparedParameter preparedParameter = paramPreparer.prepare(new ParameterFromRepository(parameter, RepositoryName.from("test")));
+
+        // then
+        FastLevelIndexWalker<PreparedEntry> walker = new FastLevelIndexWalker<PreparedEntry>(preparedParameter.getIndex());
+        assertThat(walker.find().get(0).getOutputValues()).isNull();
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import org.testng.annotations.Test;
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ColumnarEntryStoreTest {
+
+    @Test
+    public void shouldReturnSameLevelsAsRowEntryWithTrailingNullsTrimmed() {
+        // given
+        ColumnarEntryStore store = new ColumnarEntryStore(3);
+
+        // when
+        PreparedEntry full = store.append(new String[]{"A", "B", "C"}, null);
+        PreparedEntry trimmed = store.append(new String[]{"A", null, null}, null);
+        PreparedEntry shorter = store.append(new String[]{null, "B"}, null);
+        store.compact();
+
+        // then
+        assertThat(full.getLevels()).containsExactly("A", "B", "C");
+        assertThat(trimmed.getLevels()).containsExactly("A");
+        assertThat(shorter.getLevels()).containsExactly(null, "B");
+        assertThat(shorter.getLevel(2)).isNull();
+        assertThat(shorter.getLevel(5)).isNull();
+    }
+
+    @Test
+    public void shouldKeepEachDistinctValueOncePerLevel() {
+        // given
+        ColumnarEntryStore store = new ColumnarEntryStore(2);
+
+        // when
+        for (int row = 0; row < 1000; ++row) {
+            store.append(new String[]{"K" + (row % 10), "V" + row}, null);
+        }
+        store.compact();
+
+        // then
+        assertThat(store.getRowCount()).isEqualTo(1000);
+        assertThat(store.getDistinctValueCount(0)).isEqualTo(10);
+        assertThat(store.getDistinctValueCount(1)).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldReadSameValuesAfterNarrowingCodesOnCompaction() {
+        // given
+        ColumnarEntryStore store = new ColumnarEntryStore(2);
+        PreparedEntry[] entries = new PreparedEntry[70000];
+        for (int row = 0; row < entries.length; ++row) {
+            entries[row] = store.append(new String[]{"K" + (row % 200), "V" + row}, null);
+        }
+
+        // when
+        store.compact();
+
+        // then
+        assertThat(entries[199].getLevel(0)).isEqualTo("K199");
+        assertThat(entries[69999].getLevel(0)).isEqualTo("K199");
+        assertThat(entries[69999].getLevel(1)).isEqualTo("V69999");
+        // byte codes for 200 values, int codes for 70000 values
+        long firstLevelSize = 70000L + 201 * ColumnarEntryStore.DICTIONARY_VALUE_WEIGHT;
+        long secondLevelSize = 70000L * 4 + 70001 * ColumnarEntryStore.DICTIONARY_VALUE_WEIGHT;
+        assertThat(store.estimatedSize()).isEqualTo(firstLevelSize + secondLevelSize);
+    }
+
+    @Test
+    public void shouldNotAllowToAppendRowsAfterCompaction() {
+        // given
+        ColumnarEntryStore store = new ColumnarEntryStore(1);
+        store.compact();
+
+        // when
+        catchException(store).append(new String[]{"A"}, null);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.smartparam.engine.core.index.LevelIndex;
+import org.smartparam.engine.core.index.MappedLevelIndex;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.smartparam.engine.core.index.LevelIndexTestBuilder.levelIndex;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.prepared.PreparedParameterTestBuilder.preparedParameter;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class FileMappedLevelIndexFactoryTest {
+
+    private File indexDirectory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        indexDirectory = File.createTempFile("smartparam", "index");
+        indexDirectory.delete();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        File[] files = indexDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        indexDirectory.delete();
+    }
+
+    @Test
+    public void shouldRemoveFileOfPreviousVersionWhenParameterIsReplaced() {
+        // given
+        FileMappedLevelIndexFactory factory = new FileMappedLevelIndexFactory(indexDirectory);
+        PreparedParameter parameter = preparedParameter().forParameter(parameter().withName("parameter").build()).build();
+        factory.create(parameter, index("A"));
+
+        // when
+        MappedLevelIndex mappedIndex = factory.create(parameter, index("B"));
+
+        // then
+        assertThat(mappedIndex).isNotNull();
+        assertThat(indexDirectory.list()).hasSize(1);
+    }
+
+    @Test
+    public void shouldRemoveStaleFilesNotMappedByFactoryOnCleanUp() {
+        // given
+        PreparedParameter parameter = preparedParameter().forParameter(parameter().withName("parameter").build()).build();
+        new FileMappedLevelIndexFactory(indexDirectory).create(parameter, index("A"));
+        File[] staleFiles = indexDirectory.listFiles();
+        staleFiles[0].setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+
+        FileMappedLevelIndexFactory factory = new FileMappedLevelIndexFactory(indexDirectory);
+        factory.create(parameter, index("B"));
+
+        // when
+        int removed = factory.cleanUp(1, TimeUnit.HOURS);
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(staleFiles[0]).doesNotExist();
+        assertThat(indexDirectory.list()).hasSize(1);
+    }
+
+    @Test
+    public void shouldKeepFilesMappedByFactoryOnCleanUp() {
+        // given
+        FileMappedLevelIndexFactory factory = new FileMappedLevelIndexFactory(indexDirectory);
+        PreparedParameter parameter = preparedParameter().forParameter(parameter().withName("parameter").build()).build();
+        factory.create(parameter, index("A"));
+
+        // when
+        int removed = factory.cleanUp(0, TimeUnit.HOURS);
+
+        // then
+        assertThat(removed).isEqualTo(0);
+        assertThat(indexDirectory.list()).hasSize(1);
+    }
+
+    private LevelIndex<PreparedEntry> index(String value) {
+        LevelIndex<PreparedEntry> index = levelIndex().withLevelCount(1).build();
+        index.add(new String[]{value}, new PreparedEntry(new String[]{value, "1"}));
+        return index;
+    }
+}
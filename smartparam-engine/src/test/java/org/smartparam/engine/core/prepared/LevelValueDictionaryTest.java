@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.core.prepared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class LevelValueDictionaryTest {
+
+    @Test
+    public void shouldReturnFirstOccurrenceOfValueForAllEqualValues() {
+        // given
+        HashLevelValueDictionary dictionary = new HashLevelValueDictionary();
+        String first = new String("value");
+        dictionary.canonical(first);
+
+        // when
+        String canonical = dictionary.canonical(new String("value"));
+
+        // then
+        assertThat(canonical).isSameAs(first);
+        assertThat(dictionary.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldShareValuesAmongParametersWhenUsingEngineScopedDictionary() {
+        // given
+        EngineScopedDictionaryFactory factory = new EngineScopedDictionaryFactory();
+        String first = new String("value");
+        factory.create(null).canonical(first);
+
+        // when
+        String canonical = factory.create(null).canonical(new String("value"));
+
+        // then
+        assertThat(canonical).isSameAs(first);
+    }
+
+    @Test
+    public void shouldReturnSameInstanceToAllThreadsWhenUsingWeakDictionaryConcurrently() throws Exception {
+        // given
+        final WeakLevelValueDictionary dictionary = new WeakLevelValueDictionary();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+
+        // when
+        for (int thread = 0; thread < 4; ++thread) {
+            results.add(executor.submit(new Callable<String[]>() {
+                @Override
+                public String[] call() {
+                    String[] canonical = new String[1000];
+                    for (int index = 0; index < canonical.length; ++index) {
+                        canonical[index] = dictionary.canonical(new String("value" + index));
+                    }
+                    return canonical;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        // then
+        String[] first = results.get(0).get();
+        for (Future<String[]> result : results) {
+            String[] canonical = result.get();
+            for (int index = 0; index < canonical.length; ++index) {
+                assertThat(canonical[index]).isSameAs(first[index]);
+            }
+        }
+        assertThat(dictionary.size()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldUseSeparateDictionaryForEachParameterWhenUsingParameterScopedDictionary() {
+        // given
+        ParameterScopedDictionaryFactory factory = new ParameterScopedDictionaryFactory();
+        String first = new String("value");
+        factory.create(null).canonical(first);
+
+        // when
+        String canonical = factory.create(null).canonical(new String("value"));
+
+        // then
+        assertThat(canonical).isNotSameAs(first);
+    }
+
+    @Test
+    public void shouldDeduplicateLevelsOfPreparedEntries() {
+        // given
+        HashLevelValueDictionary dictionary = new HashLevelValueDictionary();
+        PreparedEntry first = new PreparedEntry(new String[]{new String("A"), new String("B")}, dictionary);
+
+        // when
+        PreparedEntry second = new PreparedEntry(new String[]{new String("A"), null, new String("B")}, dictionary);
+
+        // then
+        assertThat(second.getLevel(0)).isSameAs(first.getLevel(0));
+        assertThat(second.getLevel(2)).isSameAs(first.getLevel(1));
+    }
+}
@@ -40,6 +40,12 @@ public class PreparedParameterAssert extends AbstractAssert<PreparedParameterAss
 
     public PreparedParameterAssert hasNoIndex() {
         ParamEngineAssertions.assertThat(actual.getIndex()).isNull();
+        ParamEngineAssertions.assertThat(actual.getCompiledIndex()).isNull();
+        return this;
+    }
+
+    public PreparedParameterAssert hasCompiledIndex() {
+        ParamEngineAssertions.assertThat(actual.getCompiledIndex()).isNotNull();
         return this;
     }
 
@@ -15,6 +15,9 @@
  */
 package org.smartparam.engine.core.prepared;
 
+import org.smartparam.engine.core.index.CompiledLevelIndex;
+import org.smartparam.engine.core.index.FastLevelIndexWalker;
+import org.smartparam.engine.core.index.LevelIndex;
 import org.testng.annotations.Test;
 import static org.assertj.core.api.Assertions.*;
 import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
@@ -32,4 +35,21 @@ public class PreparedParameterTest {
         // then
         assertThat(parameter.isNotNull()).isFalse();
     }
+
+    @Test
+    public void shouldRebuildTreeFromCompiledIndexOnceAndKeepIt() {
+        // given
+        LevelIndex<PreparedEntry> index = new LevelIndex<PreparedEntry>(1);
+        index.add(new String[]{"A"}, new PreparedEntry(new String[]{"A", "1"}));
+        PreparedParameter parameter = new PreparedParameter(null, parameter().build(), null);
+        parameter.setCompiledIndex(new CompiledLevelIndex<PreparedEntry>(index));
+
+        // when
+        LevelIndex<PreparedEntry> firstTree = parameter.getIndex();
+        LevelIndex<PreparedEntry> secondTree = parameter.getIndex();
+
+        // then
+        assertThat(firstTree).isNotNull().isSameAs(secondTree);
+        assertThat(new FastLevelIndexWalker<PreparedEntry>(firstTree, "A").find()).hasSize(1);
+    }
 }
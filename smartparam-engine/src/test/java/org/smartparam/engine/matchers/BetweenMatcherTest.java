@@ -109,6 +109,8 @@ public class BetweenMatcherTest {
 
             // weryfikacja
             assertEquals(expectedResult, result);
+            assertEquals(expectedResult, ((BetweenMatcher) matcher).decodeRange(pattern, type).contains(type.decode(value)));
+            assertEquals(expectedResult, ((BetweenMatcher) matcher).compile(pattern, type).matches(((BetweenMatcher) matcher).decodeValue(value, type)));
         }
     }
 }
@@ -60,6 +60,30 @@ public class EqMatcherTest {
         assertThat(equals).isTrue();
     }
 
+    @Test
+    public void shouldMatchValueUsingCompiledPatternWhenCaseDoesNotMatchButIsCaseInsensitive() {
+        // given
+        StringMatcher matcher = new StringMatcher(false);
+
+        // when
+        boolean equals = matcher.compile("ABC", new StringType()).matches(matcher.decodeValue("abc", new StringType()));
+
+        // then
+        assertThat(equals).isTrue();
+    }
+
+    @Test
+    public void shouldNotMatchValueUsingCompiledPatternWhenValueIsNull() {
+        // given
+        StringMatcher matcher = new StringMatcher(false);
+
+        // when
+        boolean equals = matcher.compile("ABC", new StringType()).matches(null);
+
+        // then
+        assertThat(equals).isFalse();
+    }
+
     @Test
     public void shouldNotMatchValueWhenValueIsNull() {
         // given
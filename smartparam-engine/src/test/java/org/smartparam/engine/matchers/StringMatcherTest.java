@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.matchers;
+
+import org.smartparam.engine.core.matcher.CompiledPattern;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class StringMatcherTest {
+
+    @Test
+    public void shouldMatchUsingCompiledPatternSameAsUsingRawPatternWhenIgnoringCase() {
+        // given
+        StringMatcher matcher = new StringMatcher();
+        String[] values = new String[]{"abc", "ABC", "aBc", "abd", "ab", "STRASSE", "stra\u00dfe", "\u0130", "i", "\u0131", "I"};
+
+        // when
+        for (String pattern : values) {
+            CompiledPattern compiledPattern = matcher.compile(pattern, null);
+            for (String value : values) {
+                // then
+                assertThat(compiledPattern.matches(matcher.decodeValue(value, null)))
+                        .isEqualTo(matcher.matches(value, pattern, null));
+            }
+        }
+    }
+
+    @Test
+    public void shouldRespectCaseOfCompiledPatternWhenCaseSensitive() {
+        // given
+        StringMatcher matcher = new StringMatcher(true);
+        CompiledPattern pattern = matcher.compile("abc", null);
+
+        // when
+        boolean matchesSame = pattern.matches(matcher.decodeValue("abc", null));
+        boolean matchesOtherCase = pattern.matches(matcher.decodeValue("ABC", null));
+
+        // then
+        assertThat(matchesSame).isTrue();
+        assertThat(matchesOtherCase).isFalse();
+    }
+
+    @Test
+    public void shouldNotMatchNullValueWithCompiledPattern() {
+        // given
+        StringMatcher matcher = new StringMatcher();
+
+        // when
+        boolean matches = matcher.compile("abc", null).matches(matcher.decodeValue(null, null));
+
+        // then
+        assertThat(matches).isFalse();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.engine.matchers;
+
+import org.smartparam.engine.core.matcher.CompiledPattern;
+import org.smartparam.engine.types.number.NumberType;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class TypeMatcherTest {
+
+    @Test
+    public void shouldMatchDecodedValuesEvenIfTheirRepresentationDiffers() {
+        // given
+        TypeMatcher matcher = new TypeMatcher();
+
+        // when
+        boolean matches = matcher.matches("1.50", "1.5", new NumberType());
+
+        // then
+        assertThat(matches).isTrue();
+    }
+
+    @Test
+    public void shouldMatchUsingCompiledPatternSameAsUsingRawPattern() {
+        // given
+        TypeMatcher matcher = new TypeMatcher();
+        NumberType type = new NumberType();
+        CompiledPattern pattern = matcher.compile("1.5", type);
+
+        // when
+        boolean matchesSame = pattern.matches(matcher.decodeValue("1.50", type));
+        boolean matchesOther = pattern.matches(matcher.decodeValue("2", type));
+
+        // then
+        assertThat(matchesSame).isTrue();
+        assertThat(matchesOther).isFalse();
+    }
+
+    @Test
+    public void shouldMatchAnyValueWhenCompiledPatternIsStar() {
+        // given
+        TypeMatcher matcher = new TypeMatcher();
+        NumberType type = new NumberType();
+
+        // when
+        boolean matches = matcher.compile("*", type).matches(matcher.decodeValue("42", type));
+
+        // then
+        assertThat(matches).isTrue();
+    }
+}
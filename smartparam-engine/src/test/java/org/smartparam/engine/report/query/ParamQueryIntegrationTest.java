@@ -15,6 +15,8 @@
  */
 package org.smartparam.engine.report.query;
 
+import java.io.File;
+import java.io.IOException;
 import org.smartparam.engine.config.ParamEngineConfig;
 import org.smartparam.engine.config.ParamEngineConfigBuilder;
 import org.smartparam.engine.config.ParamEngineFactory;
@@ -162,6 +164,58 @@ public class ParamQueryIntegrationTest {
         assertThat(paramValue.get()).isEqualTo(50L);
     }
 
+    @Test
+    public void shouldQueryParameterServedFromMappedIndex() throws IOException {
+        // given
+        File indexDirectory = File.createTempFile("smartparam", "index");
+        indexDirectory.delete();
+        ParamEngineConfig config = ParamEngineConfigBuilder.paramEngineConfig()
+                .withParameterRepository(repository)
+                .withMappedIndex(indexDirectory, "test")
+                .build();
+        ParamEngine mappedEngine = ParamEngineFactory.paramEngine(config);
+
+        Level[] levels = new Level[]{
+            level().withName("first").withType("string").build(),
+            level().withName("ambigous").withMatcher(BetweenMatcher.BETWEEN_IE).withType("integer").build(),
+            level().withName("value").withType("integer").build()
+        };
+        ParameterEntry[] entries = new ParameterEntry[]{
+            parameterEntry().withLevels("FIRST", "0-10", "10").build(),
+            parameterEntry().withLevels("FIRST", "5-15", "6").build(),
+            parameterEntry().withLevels("FIRST", "*", "50").build()
+        };
+
+        Parameter parameter = ParameterTestBuilder.parameter()
+                .withName("test")
+                .withInputLevels(2)
+                .withEntries(entries)
+                .withLevels(levels).build();
+        when(repository.load("test")).thenReturn(parameter);
+
+        ReportSkeleton skeleton = ReportSkeleton.reportSkeleton();
+        skeleton.withLevel(
+                "FIRST", ReportLevel.level().withChild(
+                        ReportLevel.level()
+                )
+        );
+        skeleton.withAmbigousLevel("ambigous");
+
+        // when
+        DetailedParamValue paramValue = ParamQuery.select(mappedEngine)
+                .fromParameter("test")
+                .fillingIn(skeleton)
+                .withGreedyLevels("ambigous")
+                .askingFor(new LevelValues("FIRST", "5"))
+                .makingChoiceUsing(new HigherValueChooser())
+                .execute();
+
+        // then
+        assertThat(mappedEngine.runtimeConfiguration().getParamCache().get("test").getMappedIndex()).isNotNull();
+        assertThat(paramValue).hasSize(1);
+        assertThat(paramValue.get()).isEqualTo(50L);
+    }
+
     private static class HigherValueChooser extends DecodedValueChooser {
 
         @Override
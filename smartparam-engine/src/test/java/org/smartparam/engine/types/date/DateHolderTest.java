@@ -45,6 +45,31 @@ public class DateHolderTest {
         assertNull(h3.getValue());
     }
 
+    @Test
+    public void testValueIsNotAffectedByChangesOfReturnedDate() {
+
+        Date value = h1.getDate();
+        value.setTime(0);
+
+        assertEquals(d1, h1.getDate());
+    }
+
+    @Test
+    public void testCompareToEqualsAndHashCodeFollowHeldDates() {
+
+        DateHolder sameAsH1 = new DateHolder(new Date(d1.getTime()));
+
+        assertTrue(h1.compareTo(h2) < 0);
+        assertTrue(h2.compareTo(h1) > 0);
+        assertEquals(0, h1.compareTo(sameAsH1));
+        assertTrue(h3.compareTo(h1) < 0);
+        assertTrue(h1.compareTo(h3) > 0);
+        assertTrue(h1.equals(sameAsH1));
+        assertFalse(h1.equals(h2));
+        assertFalse(h1.equals(h3));
+        assertEquals(h1.hashCode(), sameAsH1.hashCode());
+    }
+
     @Test
     public void testIsNull() {
 
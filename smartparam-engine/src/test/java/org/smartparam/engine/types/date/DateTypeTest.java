@@ -219,4 +219,25 @@ public class DateTypeTest {
         return sdf;
     }
 
+    @Test
+    public void testLongKey() {
+
+        DateType.setDefaultOutputPattern("yyyy-MM-dd");
+
+        // klucz odpowiada dniu, tak samo jak wartosc zakodowana
+        assertTrue(type.hasLongKeys());
+        assertEquals(20000228L, type.longKey(d("28-02-2000")));
+        assertEquals(20000228L, type.longKey("2000-02-28"));
+        assertEquals(type.longKey(new Timestamp(d("28-02-2000").getTime() + 3600000L)), type.longKey(d("28-02-2000")));
+    }
+
+    @Test
+    public void testLongKey__outputPattern() {
+
+        // klucze dzienne nie odpowiadaja wartosciom zakodowanym innym wzorcem
+        DateType.setDefaultOutputPattern("yyyy/MM");
+
+        assertFalse(type.hasLongKeys());
+        DateType.setDefaultOutputPattern("yyyy-MM-dd");
+    }
 }
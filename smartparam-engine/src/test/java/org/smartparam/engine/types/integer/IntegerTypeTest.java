@@ -133,4 +133,24 @@ public class IntegerTypeTest {
             }
         }
     }
+
+    @Test
+    public void testLongKey() {
+
+        // przypadki testowe: [argument][oczekiwany klucz]
+        Object[][] testCases = {
+            {new Long(17), 17L},
+            {new Integer(50), 50L},
+            {(byte) 100, 100L},
+            {(short) 2000, 2000L},
+            {" 123 ", 123L},
+            {String.valueOf(Long.MIN_VALUE), Long.MIN_VALUE}
+        };
+
+        // wykonanie testow
+        assertTrue(type.hasLongKeys());
+        for (Object[] testCase : testCases) {
+            assertEquals(((Long) testCase[1]).longValue(), type.longKey(testCase[0]));
+        }
+    }
 }
@@ -165,4 +165,15 @@ public class NumberTypeTest {
     private NumberHolder num2(BigDecimal n) {
         return new NumberHolder(n);
     }
+
+    @Test
+    public void testObjectKey() {
+
+        // klucze musza byc rowne wtedy i tylko wtedy, gdy rowne sa wartosci zakodowane
+        assertEquals(type.objectKey("100"), type.objectKey(new BigDecimal("1E2")));
+        assertEquals(type.objectKey(" 1.5 "), type.objectKey(1.5d));
+        assertEquals(type.objectKey("1,5"), type.objectKey(new BigDecimal("1.5")));
+        assertFalse(type.objectKey("1.0").equals(type.objectKey("1.00")));
+        assertFalse(type.objectKey("1").equals(type.objectKey("1.0")));
+    }
 }
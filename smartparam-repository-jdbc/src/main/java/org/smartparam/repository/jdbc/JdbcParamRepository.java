@@ -16,14 +16,21 @@
 package org.smartparam.repository.jdbc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.smartparam.repository.jdbc.batch.JdbcParameterEntryBatchLoaderFactory;
+import org.smartparam.repository.jdbc.batch.SnapshotParameterEntryBatchLoader;
 import java.util.Set;
 import org.polyjdbc.core.exception.TransactionInterruptedException;
+import org.polyjdbc.core.key.KeyGeneratorRegistry;
 import org.polyjdbc.core.query.TransactionWrapper;
 import org.polyjdbc.core.query.TransactionRunner;
 import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.query.TransactionalQueryRunner;
 import org.polyjdbc.core.query.VoidTransactionWrapper;
+import org.polyjdbc.core.transaction.Transaction;
+import org.polyjdbc.core.transaction.TransactionManager;
+import org.polyjdbc.core.util.TheCloser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.smartparam.editor.core.capabilities.RepositoryCapabilities;
@@ -43,13 +50,16 @@ import org.smartparam.engine.core.parameter.entry.ParameterEntryKey;
 import org.smartparam.engine.core.parameter.ParameterKey;
 import org.smartparam.editor.core.ViewableParamRepository;
 import org.smartparam.editor.core.ViewableRepositoryCapability;
-import org.smartparam.repository.jdbc.batch.JdbcParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
 import org.smartparam.repository.jdbc.dao.JdbcRepository;
 import org.smartparam.repository.jdbc.exception.ParameterAlreadyExistsException;
+import org.smartparam.repository.jdbc.model.EntryChangeOperation;
 import org.smartparam.repository.jdbc.model.JdbcLevelKey;
 import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntryChange;
 import org.smartparam.repository.jdbc.model.JdbcParameterEntryKey;
 import org.smartparam.repository.jdbc.model.JdbcParameterKey;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
 import org.smartparam.repository.jdbc.schema.SchemaCreator;
 
 /**
@@ -60,22 +70,27 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
 
     private static final Logger logger = LoggerFactory.getLogger(JdbcParamRepository.class);
 
-    private static final int LOADED_BATCH_SIZE = 500;
-
     private final TransactionRunner transactionRunner;
 
+    private final TransactionManager transactionManager;
+
     private final JdbcParameterEntryBatchLoaderFactory batchLoaderFactory;
 
     private final JdbcRepository dao;
 
     private final SchemaCreator schemaCreator;
 
-    public JdbcParamRepository(TransactionRunner operationRunner, JdbcParameterEntryBatchLoaderFactory batchLoaderFactory,
-            JdbcRepository dao, SchemaCreator schemaCreator) {
+    private final DefaultJdbcConfig configuration;
+
+    public JdbcParamRepository(TransactionRunner operationRunner, TransactionManager transactionManager,
+            JdbcParameterEntryBatchLoaderFactory batchLoaderFactory, JdbcRepository dao, SchemaCreator schemaCreator,
+            DefaultJdbcConfig configuration) {
         this.dao = dao;
         this.schemaCreator = schemaCreator;
         this.batchLoaderFactory = batchLoaderFactory;
         this.transactionRunner = operationRunner;
+        this.transactionManager = transactionManager;
+        this.configuration = configuration;
     }
 
     @Override
@@ -102,6 +117,10 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
 
     @Override
     public Parameter load(final String parameterName) {
+        if (configuration.parameterSnapshots()) {
+            JdbcParameterSnapshot snapshot = loadFromSnapshot(parameterName);
+            return snapshot != null ? snapshot.toParameter() : null;
+        }
         return transactionRunner.run(new TransactionWrapper<Parameter>() {
             @Override
             public Parameter perform(QueryRunner queryRunner) {
@@ -112,17 +131,54 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
 
     @Override
     public ParameterBatchLoader batchLoad(final String parameterName) {
+        if (configuration.parameterSnapshots()) {
+            JdbcParameterSnapshot snapshot = loadFromSnapshot(parameterName);
+            if (snapshot != null) {
+                return new ParameterBatchLoader(snapshot.getMetadata(), new SnapshotParameterEntryBatchLoader(snapshot.getEntries()));
+            }
+        }
         return transactionRunner.run(new TransactionWrapper<ParameterBatchLoader>() {
             @Override
             public ParameterBatchLoader perform(QueryRunner queryRunner) {
                 JdbcParameter metadata = dao.getParameterMetadata(queryRunner, parameterName);
-                JdbcParameterEntryBatchLoader entryLoader = batchLoaderFactory.create(parameterName);
+                ParameterEntryBatchLoader entryLoader = batchLoaderFactory.create(parameterName);
 
                 return new ParameterBatchLoader(metadata, entryLoader);
             }
         });
     }
 
+    /**
+     * Snapshot is read using raw connection.
+     */
+    private JdbcParameterSnapshot loadFromSnapshot(final String parameterName) {
+        return runWithConnection(new ConnectionTransactionWrapper<JdbcParameterSnapshot>() {
+            @Override
+            public JdbcParameterSnapshot perform(Transaction transaction, QueryRunner queryRunner) {
+                return dao.getParameterFromSnapshot(transaction, queryRunner, parameterName);
+            }
+        });
+    }
+
+    /**
+     * Run operation that needs raw connection in transaction opened here
+     * instead of {@link TransactionRunner}, commit it or roll back on failure.
+     */
+    private <T> T runWithConnection(ConnectionTransactionWrapper<T> operation) {
+        Transaction transaction = transactionManager.openTransaction();
+        QueryRunner queryRunner = new TransactionalQueryRunner(transaction, KeyGeneratorRegistry.keyGenerator(configuration.dialect()));
+        try {
+            T result = operation.perform(transaction, queryRunner);
+            queryRunner.commit();
+            return result;
+        } catch (RuntimeException exception) {
+            queryRunner.rollback();
+            throw exception;
+        } finally {
+            TheCloser.close(queryRunner);
+        }
+    }
+
     @Override
     public Set<ParameterEntry> findEntries(String parameterName, String[] levelValues) {
         logger.info("trying to load parameter {}, but {} does not support non-cacheable parameters", parameterName, getClass().getSimpleName());
@@ -139,28 +195,36 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
         });
     }
 
+    /**
+     * Entries are inserted using JDBC batches, which needs raw connection, so
+     * whole write runs in transaction opened here instead of {@link TransactionRunner}.
+     */
     @Override
-    public void write(final ParameterBatchLoader batchLoader) {
-        transactionRunner.run(new VoidTransactionWrapper() {
-            @Override
-            public void performVoid(QueryRunner queryRunner) {
-                String parameterName = batchLoader.getMetadata().getName();
-
-                try {
-                    write(queryRunner, batchLoader.getMetadata());
-                    queryRunner.commit();
-
-                    ParameterEntryBatchLoader entryLoader = batchLoader.getEntryLoader();
-                    while (entryLoader.hasMore()) {
-                        dao.writeParameterEntries(queryRunner, parameterName, entryLoader.nextBatch(LOADED_BATCH_SIZE));
-                        queryRunner.commit();
-                    }
-                } catch (ParamBatchLoadingException batchException) {
-                    queryRunner.rollback();
-                    throw new TransactionInterruptedException(batchException);
-                }
+    public void write(ParameterBatchLoader batchLoader) {
+        Transaction transaction = transactionManager.openTransaction();
+        QueryRunner queryRunner = new TransactionalQueryRunner(transaction, KeyGeneratorRegistry.keyGenerator(configuration.dialect()));
+        try {
+            long parameterId = write(queryRunner, batchLoader.getMetadata());
+            queryRunner.commit();
+
+            String parameterName = batchLoader.getMetadata().getName();
+            ParameterEntryBatchLoader entryLoader = batchLoader.getEntryLoader();
+            while (entryLoader.hasMore()) {
+                dao.batchWriteParameterEntries(transaction, parameterId, entryLoader.nextBatch(configuration.entryBatchSize()));
+                // load between batches might have stored snapshot of entries written so far
+                dao.dropParameterSnapshot(queryRunner, parameterName);
+                queryRunner.commit();
             }
-        });
+
+            // reload logged with metadata was seen before any entry was written
+            dao.logParameterReload(queryRunner, parameterName);
+            queryRunner.commit();
+        } catch (ParamBatchLoadingException batchException) {
+            queryRunner.rollback();
+            throw new TransactionInterruptedException(batchException);
+        } finally {
+            TheCloser.close(queryRunner);
+        }
     }
 
     @Override
@@ -175,20 +239,24 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
         });
     }
 
-    private void write(QueryRunner queryRunner, Parameter parameter) {
+    private long write(QueryRunner queryRunner, Parameter parameter) {
         String parameterName = parameter.getName();
         if (dao.parameterExists(queryRunner, parameterName)) {
             dao.deleteParameter(queryRunner, parameterName);
         }
-        dao.createParameter(queryRunner, parameter);
+        long parameterId = dao.createParameter(queryRunner, parameter);
+        dao.logParameterReload(queryRunner, parameterName);
+        return parameterId;
     }
 
     @Override
     public void writeParameterEntries(final String parameterName, final Iterable<ParameterEntry> parameterEntries) {
-        transactionRunner.run(new VoidTransactionWrapper() {
+        runWithConnection(new ConnectionTransactionWrapper<Void>() {
             @Override
-            public void performVoid(QueryRunner queryRunner) {
-                dao.writeParameterEntries(queryRunner, parameterName, parameterEntries);
+            public Void perform(Transaction transaction, QueryRunner queryRunner) {
+                List<Long> entriesIds = dao.writeParameterEntries(queryRunner, parameterName, parameterEntries);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.ADD, entriesIds);
+                return null;
             }
         });
     }
@@ -199,6 +267,7 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
             @Override
             public void performVoid(QueryRunner queryRunner) {
                 dao.deleteParameter(queryRunner, parameterName);
+                dao.logParameterReload(queryRunner, parameterName);
             }
         });
     }
@@ -221,7 +290,9 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
                 if (dao.parameterExists(queryRunner, parameter.getName())) {
                     throw new ParameterAlreadyExistsException("Parameter with name " + parameter.getName() + " already exists in this repository.");
                 }
-                return new JdbcParameterKey(dao.createParameter(queryRunner, parameter));
+                long parameterId = dao.createParameter(queryRunner, parameter);
+                dao.logParameterReload(queryRunner, parameter.getName());
+                return new JdbcParameterKey(parameterId);
             }
         });
     }
@@ -232,6 +303,10 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
             @Override
             public void performVoid(QueryRunner queryRunner) {
                 dao.updateParameter(queryRunner, parameterName, parameter);
+                dao.logParameterReload(queryRunner, parameterName);
+                if (!parameterName.equals(parameter.getName())) {
+                    dao.logParameterReload(queryRunner, parameter.getName());
+                }
             }
         });
     }
@@ -247,23 +322,25 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
             @Override
             public LevelKey perform(QueryRunner queryRunner) {
                 long levelId = dao.addLevel(queryRunner, parameterName, level);
+                dao.logParameterReload(queryRunner, parameterName);
                 return new JdbcLevelKey(levelId);
             }
         });
     }
 
     @Override
-    public void updateLevel(String parameterName, final LevelKey levelKey, final Level level) {
+    public void updateLevel(final String parameterName, final LevelKey levelKey, final Level level) {
         transactionRunner.run(new VoidTransactionWrapper() {
             @Override
             public void performVoid(QueryRunner queryRunner) {
                 dao.updateLevel(queryRunner, new JdbcLevelKey(levelKey).levelId(), level);
+                dao.logParameterReload(queryRunner, parameterName);
             }
         });
     }
 
     @Override
-    public void reorderLevels(String parameterName, final List<LevelKey> orderedLevels) {
+    public void reorderLevels(final String parameterName, final List<LevelKey> orderedLevels) {
         transactionRunner.run(new VoidTransactionWrapper() {
             @Override
             public void performVoid(QueryRunner queryRunner) {
@@ -273,6 +350,7 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
                 }
 
                 dao.reorderLevels(queryRunner, orderedLevelIds);
+                dao.logParameterReload(queryRunner, parameterName);
             }
         });
     }
@@ -283,6 +361,7 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
             @Override
             public void performVoid(QueryRunner queryRunner) {
                 dao.deleteLevel(queryRunner, parameterName, new JdbcLevelKey(levelKey).levelId());
+                dao.logParameterReload(queryRunner, parameterName);
             }
         });
     }
@@ -313,10 +392,11 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
 
     @Override
     public ParameterEntryKey addEntry(final String parameterName, final ParameterEntry entry) {
-        return transactionRunner.run(new TransactionWrapper<ParameterEntryKey>() {
+        return runWithConnection(new ConnectionTransactionWrapper<ParameterEntryKey>() {
             @Override
-            public ParameterEntryKey perform(QueryRunner queryRunner) {
+            public ParameterEntryKey perform(Transaction transaction, QueryRunner queryRunner) {
                 long entryId = dao.addParameterEntry(queryRunner, parameterName, entry);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.ADD, Arrays.asList(entryId));
                 return new JdbcParameterEntryKey(entryId);
             }
         });
@@ -324,10 +404,11 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
 
     @Override
     public List<ParameterEntryKey> addEntries(final String parameterName, final Iterable<ParameterEntry> entries) {
-        return transactionRunner.run(new TransactionWrapper<List<ParameterEntryKey>>() {
+        return runWithConnection(new ConnectionTransactionWrapper<List<ParameterEntryKey>>() {
             @Override
-            public List<ParameterEntryKey> perform(QueryRunner queryRunner) {
+            public List<ParameterEntryKey> perform(Transaction transaction, QueryRunner queryRunner) {
                 List<Long> entriesIds = dao.writeParameterEntries(queryRunner, parameterName, entries);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.ADD, entriesIds);
 
                 List<ParameterEntryKey> keys = new ArrayList<ParameterEntryKey>(entriesIds.size());
                 for (Long entryId : entriesIds) {
@@ -340,36 +421,44 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
     }
 
     @Override
-    public void updateEntry(String parameterName, final ParameterEntryKey entryKey, final ParameterEntry entry) {
-        transactionRunner.run(new VoidTransactionWrapper() {
+    public void updateEntry(final String parameterName, final ParameterEntryKey entryKey, final ParameterEntry entry) {
+        runWithConnection(new ConnectionTransactionWrapper<Void>() {
             @Override
-            public void performVoid(QueryRunner queryRunner) {
-                dao.updateParameterEntry(queryRunner, new JdbcParameterEntryKey(entryKey).entryId(), entry);
+            public Void perform(Transaction transaction, QueryRunner queryRunner) {
+                long entryId = new JdbcParameterEntryKey(entryKey).entryId();
+                dao.updateParameterEntry(queryRunner, entryId, entry);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.UPDATE, Arrays.asList(entryId));
+                return null;
             }
         });
     }
 
     @Override
-    public void deleteEntry(String parameterName, final ParameterEntryKey entryKey) {
-        transactionRunner.run(new VoidTransactionWrapper() {
+    public void deleteEntry(final String parameterName, final ParameterEntryKey entryKey) {
+        runWithConnection(new ConnectionTransactionWrapper<Void>() {
             @Override
-            public void performVoid(QueryRunner queryRunner) {
-                dao.deleteParameterEntry(queryRunner, new JdbcParameterEntryKey(entryKey).entryId());
+            public Void perform(Transaction transaction, QueryRunner queryRunner) {
+                long entryId = new JdbcParameterEntryKey(entryKey).entryId();
+                dao.deleteParameterEntry(queryRunner, entryId);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.DELETE, Arrays.asList(entryId));
+                return null;
             }
         });
     }
 
     @Override
-    public void deleteEntries(String parameterName, final Iterable<ParameterEntryKey> entryKeys) {
-        transactionRunner.run(new VoidTransactionWrapper() {
+    public void deleteEntries(final String parameterName, final Iterable<ParameterEntryKey> entryKeys) {
+        runWithConnection(new ConnectionTransactionWrapper<Void>() {
             @Override
-            public void performVoid(QueryRunner queryRunner) {
+            public Void perform(Transaction transaction, QueryRunner queryRunner) {
                 List<Long> ids = new ArrayList<Long>();
                 for (ParameterEntryKey key : entryKeys) {
                     ids.add(new JdbcParameterEntryKey(key).entryId());
                 }
 
                 dao.deleteParameterEntries(queryRunner, ids);
+                dao.logEntryChanges(transaction, queryRunner, parameterName, EntryChangeOperation.DELETE, ids);
+                return null;
             }
         });
     }
@@ -380,8 +469,44 @@ public class JdbcParamRepository implements WritableParamRepository, EditablePar
             @Override
             public void performVoid(QueryRunner queryRunner) {
                 dao.deleteParameterEntries(queryRunner, parameterName);
+                dao.logParameterReload(queryRunner, parameterName);
             }
         });
     }
 
+    /**
+     * Current version of entries of parameter in change log, 0 if nothing has
+     * been logged yet. Requires entry change log to be enabled in configuration.
+     */
+    public long entryChangeVersion(final String parameterName) {
+        return transactionRunner.run(new TransactionWrapper<Long>() {
+            @Override
+            public Long perform(QueryRunner queryRunner) {
+                return dao.getEntryChangeVersion(queryRunner, parameterName);
+            }
+        });
+    }
+
+    /**
+     * Changes of entries of parameter logged after given version, ordered by
+     * version. Applying them to parameter loaded at that version gives current
+     * state, unless any of them is {@link EntryChangeOperation#RELOAD}.
+     * Requires entry change log to be enabled in configuration.
+     */
+    public List<JdbcParameterEntryChange> entryChangesSince(final String parameterName, final long version) {
+        return transactionRunner.run(new TransactionWrapper<List<JdbcParameterEntryChange>>() {
+            @Override
+            public List<JdbcParameterEntryChange> perform(QueryRunner queryRunner) {
+                return dao.getEntryChanges(queryRunner, parameterName, version);
+            }
+        });
+    }
+
+    /**
+     * Operation run by {@link #runWithConnection(ConnectionTransactionWrapper)}.
+     */
+    private interface ConnectionTransactionWrapper<T> {
+
+        T perform(Transaction transaction, QueryRunner queryRunner);
+    }
 }
@@ -29,9 +29,11 @@ import org.smartparam.repository.jdbc.batch.JdbcParameterEntryBatchLoaderFactory
 import org.smartparam.repository.jdbc.config.JdbcConfig;
 import org.smartparam.repository.jdbc.dao.JdbcRepository;
 import org.smartparam.repository.jdbc.dao.SimpleJdbcRepository;
+import org.smartparam.repository.jdbc.dao.EntryChangeLogDAO;
 import org.smartparam.repository.jdbc.dao.LevelDAO;
 import org.smartparam.repository.jdbc.dao.ParameterDAO;
 import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
+import org.smartparam.repository.jdbc.dao.ParameterSnapshotDAO;
 import org.smartparam.repository.jdbc.schema.DefaultSchemaCreator;
 import static org.smartparam.engine.config.pico.ComponentDefinition.component;
 
@@ -59,6 +61,8 @@ public class JdbcParamRepositoryConfig extends ComponentConfig {
         components.add(component(ParameterDAO.class, ParameterDAO.class));
         components.add(component(LevelDAO.class, LevelDAO.class));
         components.add(component(ParameterEntryDAO.class, ParameterEntryDAO.class));
+        components.add(component(EntryChangeLogDAO.class, EntryChangeLogDAO.class));
+        components.add(component(ParameterSnapshotDAO.class, ParameterSnapshotDAO.class));
         components.add(component(SimpleQueryRunner.class, SimpleQueryRunner.class));
         components.add(component(DefaultSchemaCreator.class, DefaultSchemaCreator.class));
         components.add(component(TransactionRunner.class, TransactionRunner.class));
@@ -16,6 +16,9 @@
 package org.smartparam.repository.jdbc.batch;
 
 import org.polyjdbc.core.query.QueryRunnerFactory;
+import org.polyjdbc.core.transaction.TransactionManager;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
 import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
 
 /**
@@ -26,14 +29,36 @@ public class JdbcParameterEntryBatchLoaderFactory {
 
     private final QueryRunnerFactory queryRunnerFactory;
 
+    private final TransactionManager transactionManager;
+
     private final ParameterEntryDAO parameterEntryDAO;
 
-    public JdbcParameterEntryBatchLoaderFactory(QueryRunnerFactory queryRunnerFactory, ParameterEntryDAO parameterEntryDAO) {
+    private final DefaultJdbcConfig configuration;
+
+    public JdbcParameterEntryBatchLoaderFactory(QueryRunnerFactory queryRunnerFactory, TransactionManager transactionManager,
+            ParameterEntryDAO parameterEntryDAO, DefaultJdbcConfig configuration) {
         this.queryRunnerFactory = queryRunnerFactory;
+        this.transactionManager = transactionManager;
         this.parameterEntryDAO = parameterEntryDAO;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Create loader streaming entries from single cursor or, if configured,
+     * reading id ranges of entries in parallel.
+     */
+    public ParameterEntryBatchLoader create(String parameterName) {
+        if (configuration.entryLoadPartitions() > 1 && configuration.entryLoadExecutor() != null) {
+            return new ParallelJdbcParameterEntryBatchLoader(queryRunnerFactory, transactionManager, parameterEntryDAO, configuration, parameterName);
+        }
+        return new StreamingJdbcParameterEntryBatchLoader(transactionManager, parameterEntryDAO, configuration, parameterName);
     }
 
-    public JdbcParameterEntryBatchLoader create(String parameterName) {
+    /**
+     * Create loader reading entries page by page, each page in separate query
+     * and transaction.
+     */
+    public JdbcParameterEntryBatchLoader createPaged(String parameterName) {
         return new JdbcParameterEntryBatchLoader(queryRunnerFactory.create(), parameterEntryDAO, parameterName);
     }
 }
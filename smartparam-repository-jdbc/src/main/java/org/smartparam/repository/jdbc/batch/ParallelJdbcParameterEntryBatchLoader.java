@@ -0,0 +1,241 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.batch;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.query.QueryRunnerFactory;
+import org.polyjdbc.core.transaction.Transaction;
+import org.polyjdbc.core.transaction.TransactionManager;
+import org.smartparam.engine.core.parameter.ParamBatchLoadingException;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.dao.JdbcParameterEntryMapper;
+import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
+
+/**
+ * Batch loader that splits id range of parameter entries into
+ * {@link DefaultJdbcConfig#entryLoadPartitions()} partitions and reads them
+ * concurrently on {@link DefaultJdbcConfig#entryLoadExecutor()}, each partition
+ * on separate connection. Partitions are handed out in order of ids, so entries
+ * come in same order as from sequential loader.
+ *
+ * Each partition reads ahead at most {@link DefaultJdbcConfig#entryBatchSize()}
+ * entries and waits for them to be consumed, so no more than that many entries
+ * per partition are held on heap.
+ *
+ * @author Adam Dubiel
+ */
+public class ParallelJdbcParameterEntryBatchLoader implements ParameterEntryBatchLoader {
+
+    private static final long MIN_PARTITION_SPAN = 1000;
+
+    private static final Object END_OF_PARTITION = new Object();
+
+    private final QueryRunnerFactory queryRunnerFactory;
+
+    private final TransactionManager transactionManager;
+
+    private final ParameterEntryDAO parameterEntryDAO;
+
+    private final JdbcParameterEntryMapper entryMapper;
+
+    private final String parameterName;
+
+    private final int partitionCount;
+
+    private final int lookahead;
+
+    private final ExecutorService executor;
+
+    private List<PartitionLoad> partitions;
+
+    private int nextPartition;
+
+    private ParameterEntry currentEntry;
+
+    private boolean hasMore = true;
+
+    public ParallelJdbcParameterEntryBatchLoader(QueryRunnerFactory queryRunnerFactory, TransactionManager transactionManager,
+            ParameterEntryDAO parameterEntryDAO, DefaultJdbcConfig configuration, String parameterName) {
+        this.queryRunnerFactory = queryRunnerFactory;
+        this.transactionManager = transactionManager;
+        this.parameterEntryDAO = parameterEntryDAO;
+        this.entryMapper = new JdbcParameterEntryMapper(configuration);
+        this.parameterName = parameterName;
+        this.partitionCount = configuration.entryLoadPartitions();
+        this.lookahead = Math.max(1, configuration.entryBatchSize());
+        this.executor = configuration.entryLoadExecutor();
+    }
+
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public Collection<ParameterEntry> nextBatch(int batchSize) {
+        if (partitions == null) {
+            startPartitions();
+        }
+
+        List<ParameterEntry> entries = new ArrayList<ParameterEntry>();
+        while (entries.size() < batchSize && advance()) {
+            entries.add(currentEntry);
+            currentEntry = null;
+        }
+        hasMore = advance();
+
+        return entries;
+    }
+
+    private void startPartitions() {
+        partitions = new ArrayList<PartitionLoad>();
+
+        QueryRunner queryRunner = queryRunnerFactory.create();
+        long[] idRange;
+        try {
+            idRange = parameterEntryDAO.getParameterEntryIdRange(queryRunner, parameterName);
+        } finally {
+            queryRunner.close();
+        }
+        if (idRange == null) {
+            return;
+        }
+
+        long span = idRange[1] - idRange[0] + 1;
+        int count = (int) Math.max(1, Math.min(partitionCount, span / MIN_PARTITION_SPAN));
+        long partitionSpan = (span + count - 1) / count;
+
+        for (long fromId = idRange[0]; fromId <= idRange[1]; fromId += partitionSpan) {
+            PartitionLoad partition = new PartitionLoad(fromId, Math.min(idRange[1], fromId + partitionSpan - 1));
+            partition.future = executor.submit(partition);
+            partitions.add(partition);
+        }
+    }
+
+    /**
+     * Make sure there is an unread entry, moving to next partition (and
+     * waiting for it) if needed. Returns false if all entries have been read.
+     */
+    private boolean advance() {
+        while (currentEntry == null) {
+            if (nextPartition >= partitions.size()) {
+                return false;
+            }
+            Object next = take(partitions.get(nextPartition));
+            if (next == END_OF_PARTITION) {
+                partitions.set(nextPartition, null);
+                nextPartition++;
+            } else if (next instanceof PartitionFailure) {
+                close();
+                Throwable cause = ((PartitionFailure) next).cause;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ParamBatchLoadingException("Failed to load entries of parameter " + parameterName, cause);
+            } else {
+                currentEntry = (ParameterEntry) next;
+            }
+        }
+        return true;
+    }
+
+    private Object take(PartitionLoad partition) {
+        try {
+            return partition.entries.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new ParamBatchLoadingException("Interrupted while loading entries of parameter " + parameterName, exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        hasMore = false;
+        if (partitions != null) {
+            // interrupts partitions waiting for free space in their queues
+            for (PartitionLoad partition : partitions) {
+                if (partition != null) {
+                    partition.future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static class PartitionFailure {
+
+        private final Throwable cause;
+
+        PartitionFailure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private class PartitionLoad implements Runnable {
+
+        private final long fromId;
+
+        private final long toId;
+
+        private final BlockingQueue<Object> entries = new ArrayBlockingQueue<Object>(lookahead);
+
+        private Future<?> future;
+
+        PartitionLoad(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Transaction transaction = transactionManager.openTransaction();
+                try {
+                    ResultSet cursor = parameterEntryDAO.streamParameterEntries(transaction, parameterName, fromId, toId);
+                    while (cursor.next()) {
+                        entries.put(entryMapper.createObject(cursor));
+                    }
+                } finally {
+                    transaction.close();
+                }
+                entries.put(END_OF_PARTITION);
+            } catch (InterruptedException exception) {
+                // loader was closed, nobody waits for remaining entries
+                Thread.currentThread().interrupt();
+            } catch (Throwable exception) {
+                fail(exception);
+            }
+        }
+
+        private void fail(Throwable exception) {
+            try {
+                entries.put(new PartitionFailure(exception));
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.batch;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.polyjdbc.core.transaction.Transaction;
+import org.polyjdbc.core.transaction.TransactionManager;
+import org.smartparam.engine.core.parameter.ParamBatchLoadingException;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.dao.JdbcParameterEntryMapper;
+import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
+
+/**
+ * Batch loader reading entries from single forward-only cursor. Rows are
+ * mapped straight into returned batch, no query is repeated and nothing is
+ * collected in between. Transaction holding the cursor is opened on first
+ * {@link #nextBatch(int)} and stays open until loader is closed.
+ *
+ * @author Adam Dubiel
+ */
+public class StreamingJdbcParameterEntryBatchLoader implements ParameterEntryBatchLoader {
+
+    private final TransactionManager transactionManager;
+
+    private final ParameterEntryDAO parameterEntryDAO;
+
+    private final JdbcParameterEntryMapper entryMapper;
+
+    private final String parameterName;
+
+    private Transaction transaction;
+
+    private ResultSet cursor;
+
+    private boolean hasMore = true;
+
+    public StreamingJdbcParameterEntryBatchLoader(TransactionManager transactionManager, ParameterEntryDAO parameterEntryDAO,
+            DefaultJdbcConfig configuration, String parameterName) {
+        this.transactionManager = transactionManager;
+        this.parameterEntryDAO = parameterEntryDAO;
+        this.entryMapper = new JdbcParameterEntryMapper(configuration);
+        this.parameterName = parameterName;
+    }
+
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public Collection<ParameterEntry> nextBatch(int batchSize) {
+        List<ParameterEntry> entries = new ArrayList<ParameterEntry>();
+        try {
+            if (cursor == null) {
+                transaction = transactionManager.openTransaction();
+                cursor = parameterEntryDAO.streamParameterEntries(transaction, parameterName);
+                hasMore = cursor.next();
+            }
+
+            while (hasMore && entries.size() < batchSize) {
+                entries.add(entryMapper.createObject(cursor));
+                hasMore = cursor.next();
+            }
+        } catch (SQLException exception) {
+            hasMore = false;
+            throw new ParamBatchLoadingException("Failed to stream entries of parameter " + parameterName, exception);
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() {
+        if (transaction != null) {
+            transaction.close();
+            transaction = null;
+            cursor = null;
+        }
+    }
+}
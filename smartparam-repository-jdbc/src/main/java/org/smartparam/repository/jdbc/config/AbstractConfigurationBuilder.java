@@ -59,6 +59,21 @@ public abstract class AbstractConfigurationBuilder<C extends DefaultJdbcConfig,
         return self();
     }
 
+    public B withParameterEntryChangeSufix(String parameterEntryChangeSufix) {
+        config.parameterEntryChangeSufix(parameterEntryChangeSufix);
+        return self();
+    }
+
+    public B withParameterSnapshotSufix(String parameterSnapshotSufix) {
+        config.parameterSnapshotSufix(parameterSnapshotSufix);
+        return self();
+    }
+
+    public B withParameterVersionSufix(String parameterVersionSufix) {
+        config.parameterVersionSufix(parameterVersionSufix);
+        return self();
+    }
+
     public B withLevelSufix(String levelEntitySufix) {
         config.levelSufix(levelEntitySufix);
         return self();
@@ -15,6 +15,10 @@
  */
 package org.smartparam.repository.jdbc.config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.polyjdbc.core.dialect.Dialect;
 
 /**
@@ -46,6 +50,10 @@ public class DefaultJdbcConfig implements JdbcConfig {
 
     private static final int DEFAULT_LEVEL_COUNT = 8;
 
+    private static final int DEFAULT_ENTRY_BATCH_SIZE = 500;
+
+    private static final int DEFAULT_ENTRY_FETCH_SIZE = 1000;
+
     private Dialect dialect;
 
     private String parameterSufix = "parameter";
@@ -54,6 +62,12 @@ public class DefaultJdbcConfig implements JdbcConfig {
 
     private String parameterEntrySufix = "parameter_entry";
 
+    private String parameterEntryChangeSufix = "parameter_entry_change";
+
+    private String parameterSnapshotSufix = "parameter_snapshot";
+
+    private String parameterVersionSufix = "parameter_version";
+
     private String entityPrefix = "sp_";
 
     private String sequencePrefix = "seq_";
@@ -68,6 +82,18 @@ public class DefaultJdbcConfig implements JdbcConfig {
 
     private int levelColumnCount = DEFAULT_LEVEL_COUNT;
 
+    private int entryBatchSize = DEFAULT_ENTRY_BATCH_SIZE;
+
+    private int entryFetchSize = DEFAULT_ENTRY_FETCH_SIZE;
+
+    private int entryLoadPartitions = 1;
+
+    private ExecutorService entryLoadExecutor;
+
+    private boolean entryChangeLog = false;
+
+    private boolean parameterSnapshots = false;
+
     public DefaultJdbcConfig() {
     }
 
@@ -86,7 +112,15 @@ public class DefaultJdbcConfig implements JdbcConfig {
 
     @Override
     public String[] managedEntities() {
-        return new String[]{parameterEntityName(), levelEntityName(), parameterEntryEntityName()};
+        List<String> entities = new ArrayList<String>(Arrays.asList(parameterEntityName(), levelEntityName(), parameterEntryEntityName()));
+        if (entryChangeLog) {
+            entities.add(parameterEntryChangeEntityName());
+            entities.add(parameterVersionEntityName());
+        }
+        if (parameterSnapshots) {
+            entities.add(parameterSnapshotEntityName());
+        }
+        return entities.toArray(new String[entities.size()]);
     }
 
     public String sequencePrefix() {
@@ -120,6 +154,18 @@ public class DefaultJdbcConfig implements JdbcConfig {
         return entityPrefix + parameterEntrySufix;
     }
 
+    public String parameterEntryChangeEntityName() {
+        return entityPrefix + parameterEntryChangeSufix;
+    }
+
+    public String parameterSnapshotEntityName() {
+        return entityPrefix + parameterSnapshotSufix;
+    }
+
+    public String parameterVersionEntityName() {
+        return entityPrefix + parameterVersionSufix;
+    }
+
     void parameterSufix(String parameterSufix) {
         this.parameterSufix = parameterSufix;
     }
@@ -132,6 +178,18 @@ public class DefaultJdbcConfig implements JdbcConfig {
         this.parameterEntrySufix = parameterEntrySufix;
     }
 
+    void parameterEntryChangeSufix(String parameterEntryChangeSufix) {
+        this.parameterEntryChangeSufix = parameterEntryChangeSufix;
+    }
+
+    void parameterSnapshotSufix(String parameterSnapshotSufix) {
+        this.parameterSnapshotSufix = parameterSnapshotSufix;
+    }
+
+    void parameterVersionSufix(String parameterVersionSufix) {
+        this.parameterVersionSufix = parameterVersionSufix;
+    }
+
     @Override
     public String parameterSequenceName() {
         return sequencePrefix + parameterSufix;
@@ -147,6 +205,10 @@ public class DefaultJdbcConfig implements JdbcConfig {
         return sequencePrefix + parameterEntrySufix;
     }
 
+    public String parameterEntryChangeSequenceName() {
+        return sequencePrefix + parameterEntryChangeSufix;
+    }
+
     public char excessLevelsSeparator() {
         return excessLevelsSeparator;
     }
@@ -163,6 +225,80 @@ public class DefaultJdbcConfig implements JdbcConfig {
         this.levelColumnCount = levelColumnCount;
     }
 
+    /**
+     * Number of entries read from batch loader and sent to database in single
+     * JDBC batch when writing parameter.
+     */
+    public int entryBatchSize() {
+        return entryBatchSize;
+    }
+
+    void entryBatchSize(int entryBatchSize) {
+        this.entryBatchSize = entryBatchSize;
+    }
+
+    /**
+     * Fetch size hint for cursor streaming entries when batch loading
+     * parameter. Driver specific, for MySQL use {@link Integer#MIN_VALUE} to
+     * turn on row-by-row streaming.
+     */
+    public int entryFetchSize() {
+        return entryFetchSize;
+    }
+
+    void entryFetchSize(int entryFetchSize) {
+        this.entryFetchSize = entryFetchSize;
+    }
+
+    /**
+     * Number of id ranges entries of parameter are split into and loaded
+     * concurrently, each on separate connection; 1 means sequential loading.
+     */
+    public int entryLoadPartitions() {
+        return entryLoadPartitions;
+    }
+
+    void entryLoadPartitions(int entryLoadPartitions) {
+        this.entryLoadPartitions = entryLoadPartitions;
+    }
+
+    /**
+     * Executor running partitions of parallel entry loading, shared by all
+     * loads. Each partition task blocks while entries it has read wait for
+     * the consumer, so executor should run tasks in order of submission.
+     */
+    public ExecutorService entryLoadExecutor() {
+        return entryLoadExecutor;
+    }
+
+    void entryLoadExecutor(ExecutorService entryLoadExecutor) {
+        this.entryLoadExecutor = entryLoadExecutor;
+    }
+
+    /**
+     * Should changes of entries be recorded in change log relation, so that
+     * they can be fetched incrementally.
+     */
+    public boolean entryChangeLog() {
+        return entryChangeLog;
+    }
+
+    void entryChangeLog(boolean entryChangeLog) {
+        this.entryChangeLog = entryChangeLog;
+    }
+
+    /**
+     * Should compressed snapshot of each parameter be kept in single row, so
+     * that parameter can be loaded using one query.
+     */
+    public boolean parameterSnapshots() {
+        return parameterSnapshots;
+    }
+
+    void parameterSnapshots(boolean parameterSnapshots) {
+        this.parameterSnapshots = parameterSnapshots;
+    }
+
     public String indexPrefix() {
         return indexPrefix;
     }
@@ -15,6 +15,11 @@
  */
 package org.smartparam.repository.jdbc.config;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  *
  * @author Adam Dubiel
@@ -39,6 +44,53 @@ public final class JdbcConfigBuilder extends AbstractConfigurationBuilder<Defaul
         return this;
     }
 
+    public JdbcConfigBuilder withEntryBatchSize(int entryBatchSize) {
+        configuration().entryBatchSize(entryBatchSize);
+        return this;
+    }
+
+    public JdbcConfigBuilder withEntryFetchSize(int entryFetchSize) {
+        configuration().entryFetchSize(entryFetchSize);
+        return this;
+    }
+
+    /**
+     * Load entries in given number of partitions, using pool of daemon threads
+     * created once for this configuration.
+     */
+    public JdbcConfigBuilder withParallelEntryLoading(int partitions) {
+        return withParallelEntryLoading(partitions, Executors.newFixedThreadPool(partitions, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "smartparam-entry-loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    /**
+     * Load entries in given number of partitions, running them on provided
+     * executor. Executor is not shut down by repository.
+     */
+    public JdbcConfigBuilder withParallelEntryLoading(int partitions, ExecutorService executor) {
+        configuration().entryLoadPartitions(partitions);
+        configuration().entryLoadExecutor(executor);
+        return this;
+    }
+
+    public JdbcConfigBuilder withEntryChangeLog() {
+        configuration().entryChangeLog(true);
+        return this;
+    }
+
+    public JdbcConfigBuilder withParameterSnapshots() {
+        configuration().parameterSnapshots(true);
+        return this;
+    }
+
     public JdbcConfigBuilder withExcessLevelSeparator(char separator) {
         configuration().excessLevelsSeparator(separator);
         return this;
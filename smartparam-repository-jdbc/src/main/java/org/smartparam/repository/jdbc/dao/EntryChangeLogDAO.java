@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.polyjdbc.core.exception.QueryExecutionException;
+import org.polyjdbc.core.key.KeyGenerator;
+import org.polyjdbc.core.key.KeyGeneratorRegistry;
+import org.polyjdbc.core.query.InsertQuery;
+import org.polyjdbc.core.query.Order;
+import org.polyjdbc.core.query.QueryFactory;
+import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.query.SelectQuery;
+import org.polyjdbc.core.query.UpdateQuery;
+import org.polyjdbc.core.query.mapper.ObjectMapper;
+import org.polyjdbc.core.transaction.Transaction;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.model.EntryChangeOperation;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntryChange;
+
+/**
+ * Writes and reads entry change log. Versions are counted per parameter name,
+ * so they keep growing when parameter is removed and created again.
+ *
+ * @author Adam Dubiel
+ */
+public class EntryChangeLogDAO {
+
+    private static final ObjectMapper<Long> VERSION_MAPPER = new ObjectMapper<Long>() {
+        @Override
+        public Long createObject(ResultSet resultSet) throws SQLException {
+            return resultSet.getLong(1);
+        }
+    };
+
+    private final DefaultJdbcConfig configuration;
+
+    public EntryChangeLogDAO(DefaultJdbcConfig configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean enabled() {
+        return configuration.entryChangeLog();
+    }
+
+    /**
+     * Record changes of given entries under new version of parameter. Rows
+     * are written in JDBC batches of {@link DefaultJdbcConfig#entryBatchSize()}
+     * using connection of given transaction.
+     */
+    public long insert(Transaction transaction, QueryRunner queryRunner, String parameterName, EntryChangeOperation operation, Iterable<Long> entryIds) {
+        long version = nextVersion(queryRunner, parameterName);
+
+        boolean useSequence = configuration.dialect().supportsSequences();
+        KeyGenerator keyGenerator = KeyGeneratorRegistry.keyGenerator(configuration.dialect());
+        int batchSize = configuration.entryBatchSize();
+
+        PreparedStatement statement = null;
+        try {
+            statement = transaction.getConnection().prepareStatement(batchInsertSql(useSequence));
+
+            int batchedRows = 0;
+            for (Long entryId : entryIds) {
+                int column = 1;
+                if (useSequence) {
+                    statement.setLong(column++, keyGenerator.generateKey(configuration.parameterEntryChangeSequenceName(), transaction));
+                }
+                statement.setString(column++, parameterName);
+                statement.setLong(column++, version);
+                statement.setString(column++, operation.name());
+                if (entryId != null) {
+                    statement.setLong(column, entryId);
+                } else {
+                    statement.setNull(column, Types.BIGINT);
+                }
+                statement.addBatch();
+
+                if (++batchedRows == batchSize) {
+                    statement.executeBatch();
+                    batchedRows = 0;
+                }
+            }
+            if (batchedRows > 0) {
+                statement.executeBatch();
+            }
+        } catch (SQLException exception) {
+            throw new QueryExecutionException("INSERT_ERROR", "Failed to log changes of entries of parameter " + parameterName, exception);
+        } finally {
+            closeStatement(statement);
+        }
+        return version;
+    }
+
+    public long insertReload(QueryRunner queryRunner, String parameterName) {
+        long version = nextVersion(queryRunner, parameterName);
+        InsertQuery query = QueryFactory.insert().into(configuration.parameterEntryChangeEntityName())
+                .sequence("id", configuration.parameterEntryChangeSequenceName())
+                .value("parameter_name", parameterName)
+                .value("version", version)
+                .value("operation", EntryChangeOperation.RELOAD.name());
+        queryRunner.insert(query);
+        return version;
+    }
+
+    /**
+     * Versions are counted in separate row per parameter name, which (unlike
+     * row of parameter) is never removed. It is locked before being raised,
+     * so concurrent writers of the same parameter can't produce the same
+     * version. There is nothing to lock before version row is created, so
+     * writers creating it are queued on row of parameter instead and the one
+     * coming second raises version created by the first.
+     */
+    private long nextVersion(QueryRunner queryRunner, String parameterName) {
+        List<Long> versions = lockVersion(queryRunner, parameterName);
+        if (versions.isEmpty()) {
+            lockParameter(queryRunner, parameterName);
+            versions = lockVersion(queryRunner, parameterName);
+        }
+
+        if (versions.isEmpty()) {
+            // log might hold versions written before version row was created
+            long nextVersion = currentVersion(queryRunner, parameterName) + 1;
+            InsertQuery query = QueryFactory.insert().into(configuration.parameterVersionEntityName())
+                    .value("parameter_name", parameterName)
+                    .value("version", nextVersion);
+            queryRunner.insert(query);
+            return nextVersion;
+        }
+
+        long version = versions.get(0);
+        UpdateQuery query = QueryFactory.update(configuration.parameterVersionEntityName())
+                .set("version", version + 1)
+                .where("parameter_name = :parameterName").withArgument("parameterName", parameterName);
+        queryRunner.update(query);
+        return version + 1;
+    }
+
+    private List<Long> lockVersion(QueryRunner queryRunner, String parameterName) {
+        SelectQuery query = QueryFactory.select("version").from(configuration.parameterVersionEntityName())
+                .where("parameter_name = :parameterName").withArgument("parameterName", parameterName).append(" for update");
+        return queryRunner.queryList(query, VERSION_MAPPER);
+    }
+
+    private void lockParameter(QueryRunner queryRunner, String parameterName) {
+        SelectQuery query = QueryFactory.select("id").from(configuration.parameterEntityName())
+                .where("name = :name").withArgument("name", parameterName).append(" for update");
+        queryRunner.queryExistence(query);
+    }
+
+    private String batchInsertSql(boolean withId) {
+        String entityName = configuration.parameterEntryChangeEntityName();
+        if (withId) {
+            return "INSERT INTO " + entityName + " (id, parameter_name, version, operation, entry_id) VALUES (?, ?, ?, ?, ?)";
+        }
+        return "INSERT INTO " + entityName + " (parameter_name, version, operation, entry_id) VALUES (?, ?, ?, ?)";
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException exception) {
+                // statement is of no use anyway, failure is reported by transaction
+            }
+        }
+    }
+
+    public long currentVersion(QueryRunner queryRunner, String parameterName) {
+        SelectQuery query = QueryFactory.select("max(version)").from(configuration.parameterEntryChangeEntityName())
+                .where("parameter_name = :parameterName").withArgument("parameterName", parameterName);
+        return queryRunner.queryUnique(query, VERSION_MAPPER);
+    }
+
+    public List<JdbcParameterEntryChange> changesSince(QueryRunner queryRunner, String parameterName, long version) {
+        SelectQuery query = QueryFactory.selectAll().from(configuration.parameterEntryChangeEntityName())
+                .where("parameter_name = :parameterName and version > :version")
+                .withArgument("parameterName", parameterName).withArgument("version", version)
+                .orderBy("version", Order.ASC).orderBy("id", Order.ASC);
+        return queryRunner.queryList(query, new ObjectMapper<JdbcParameterEntryChange>() {
+            @Override
+            public JdbcParameterEntryChange createObject(ResultSet resultSet) throws SQLException {
+                Long entryId = resultSet.getLong("entry_id");
+                if (resultSet.wasNull()) {
+                    entryId = null;
+                }
+                return new JdbcParameterEntryChange(resultSet.getLong("version"),
+                        EntryChangeOperation.valueOf(resultSet.getString("operation")), entryId);
+            }
+        });
+    }
+}
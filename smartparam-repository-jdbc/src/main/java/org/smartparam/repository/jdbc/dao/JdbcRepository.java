@@ -18,12 +18,16 @@ package org.smartparam.repository.jdbc.dao;
 import java.util.List;
 import java.util.Set;
 import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.transaction.Transaction;
 import org.smartparam.editor.core.filters.ParameterEntriesFilter;
 import org.smartparam.editor.core.filters.ParameterFilter;
 import org.smartparam.engine.core.parameter.level.Level;
 import org.smartparam.engine.core.parameter.Parameter;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.repository.jdbc.model.EntryChangeOperation;
 import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntryChange;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
 
 /**
  * @author Przemek Hertel
@@ -39,6 +43,14 @@ public interface JdbcRepository {
 
     JdbcParameter getParameterMetadata(QueryRunner runner, String parameterName);
 
+    /**
+     * Read parameter from its snapshot, if there is none yet it is built from
+     * rows and stored. Runner has to run in given transaction. Same as
+     * {@link #getParameter(org.polyjdbc.core.query.QueryRunner, java.lang.String)}
+     * if snapshots are disabled. Entries are ordered by id either way.
+     */
+    JdbcParameterSnapshot getParameterFromSnapshot(Transaction transaction, QueryRunner runner, String parameterName);
+
     Set<String> listParameterNames();
 
     List<String> listParameterNames(ParameterFilter filter);
@@ -47,6 +59,8 @@ public interface JdbcRepository {
 
     List<Long> writeParameterEntries(QueryRunner runner, String parameterName, Iterable<ParameterEntry> entries);
 
+    List<Long> batchWriteParameterEntries(Transaction transaction, long parameterId, Iterable<ParameterEntry> entries);
+
     void deleteParameter(QueryRunner runner, String parameterName);
 
     void updateParameter(QueryRunner runner, String parameterName, Parameter parameter);
@@ -72,4 +86,26 @@ public interface JdbcRepository {
     void deleteParameterEntries(QueryRunner runner, Iterable<Long> entriesIds);
 
     void deleteParameterEntries(QueryRunner runner, String parameterName);
+
+    /**
+     * Record changes of entries in change log and drop snapshot of parameter,
+     * each only if enabled. Log is written using raw connection of transaction
+     * runner works in.
+     */
+    void logEntryChanges(Transaction transaction, QueryRunner runner, String parameterName, EntryChangeOperation operation, Iterable<Long> entriesIds);
+
+    /**
+     * Record that parameter has to be reloaded as a whole and drop its
+     * snapshot, each only if enabled.
+     */
+    void logParameterReload(QueryRunner runner, String parameterName);
+
+    /**
+     * Drop snapshot of parameter if enabled, without logging any change.
+     */
+    void dropParameterSnapshot(QueryRunner runner, String parameterName);
+
+    long getEntryChangeVersion(QueryRunner runner, String parameterName);
+
+    List<JdbcParameterEntryChange> getEntryChanges(QueryRunner runner, String parameterName, long sinceVersion);
 }
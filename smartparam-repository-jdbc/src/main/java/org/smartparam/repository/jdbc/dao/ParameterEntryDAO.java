@@ -15,6 +15,11 @@
  */
 package org.smartparam.repository.jdbc.dao;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -22,6 +27,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.polyjdbc.core.exception.QueryExecutionException;
+import org.polyjdbc.core.key.KeyGenerator;
+import org.polyjdbc.core.key.KeyGeneratorRegistry;
 import org.polyjdbc.core.query.DeleteQuery;
 import org.polyjdbc.core.query.InsertQuery;
 import org.polyjdbc.core.query.Order;
@@ -29,6 +37,8 @@ import org.polyjdbc.core.query.QueryFactory;
 import org.polyjdbc.core.query.QueryRunner;
 import org.polyjdbc.core.query.SelectQuery;
 import org.polyjdbc.core.query.UpdateQuery;
+import org.polyjdbc.core.query.mapper.ObjectMapper;
+import org.polyjdbc.core.transaction.Transaction;
 import org.polyjdbc.core.util.StringUtils;
 import org.smartparam.editor.core.filters.LevelFilter;
 import org.smartparam.editor.core.filters.LevelSorting;
@@ -59,37 +69,192 @@ public class ParameterEntryDAO {
     }
 
     public List<Long> insert(QueryRunner queryRunner, Iterable<ParameterEntry> parameterEntries, long parameterId) {
-        int maxDistinctLevels = configuration.levelColumnCount();
         List<Long> insertedEntriesIds = new LinkedList<Long>();
 
         InsertQuery query;
-        int levelIndex;
+        String[] levelColumns;
         for (ParameterEntry entry : parameterEntries) {
             query = QueryFactory.insert().into(configuration.parameterEntryEntityName())
                     .sequence("id", configuration.parameterEntrySequenceName())
                     .value("fk_parameter", parameterId);
 
-            for (levelIndex = 0; levelIndex < maxDistinctLevels - 1 && levelIndex < entry.getLevels().length; ++levelIndex) {
-                query.value(level(levelIndex), entry.getLevels()[levelIndex]);
+            levelColumns = levelColumns(entry.getLevels());
+            for (int levelIndex = 0; levelIndex < levelColumns.length; ++levelIndex) {
+                if (levelColumns[levelIndex] != null) {
+                    query.value(level(levelIndex), levelColumns[levelIndex]);
+                }
             }
 
-            if (entry.getLevels().length > maxDistinctLevels) {
-                query.value(lastLevel(), concatenateLastLevels(entry.getLevels(), maxDistinctLevels));
-            } else if (entry.getLevels().length == maxDistinctLevels) {
-                query.value(lastLevel(), entry.getLevels()[maxDistinctLevels - 1]);
+            insertedEntriesIds.add(queryRunner.insert(query));
+        }
+
+        return insertedEntriesIds;
+    }
+
+    /**
+     * Insert entries using single prepared statement and JDBC batches of
+     * {@link DefaultJdbcConfig#entryBatchSize()} rows. Ids are taken from the same
+     * key generator {@link QueryRunner} uses, which allocates sequence values in
+     * blocks, or read from generated keys if dialect has no sequences.
+     */
+    public List<Long> insertBatch(Transaction transaction, Iterable<ParameterEntry> parameterEntries, long parameterId) {
+        boolean useSequence = configuration.dialect().supportsSequences();
+        KeyGenerator keyGenerator = KeyGeneratorRegistry.keyGenerator(configuration.dialect());
+        int batchSize = configuration.entryBatchSize();
+        int levelColumnCount = configuration.levelColumnCount();
+
+        List<Long> insertedEntriesIds = new ArrayList<Long>();
+        PreparedStatement statement = null;
+        try {
+            if (useSequence) {
+                statement = transaction.getConnection().prepareStatement(batchInsertSql(true));
+            } else {
+                statement = transaction.getConnection().prepareStatement(batchInsertSql(false), Statement.RETURN_GENERATED_KEYS);
             }
 
-            insertedEntriesIds.add(queryRunner.insert(query));
+            int batchedRows = 0;
+            for (ParameterEntry entry : parameterEntries) {
+                int column = 1;
+                if (useSequence) {
+                    long entryId = keyGenerator.generateKey(configuration.parameterEntrySequenceName(), transaction);
+                    statement.setLong(column++, entryId);
+                    insertedEntriesIds.add(entryId);
+                }
+                statement.setLong(column++, parameterId);
+
+                String[] levelColumns = levelColumns(entry.getLevels());
+                for (int levelIndex = 0; levelIndex < levelColumnCount; ++levelIndex) {
+                    statement.setString(column++, levelColumns[levelIndex]);
+                }
+                statement.addBatch();
+
+                if (++batchedRows == batchSize) {
+                    executeBatch(statement, useSequence, insertedEntriesIds);
+                    batchedRows = 0;
+                }
+            }
+            if (batchedRows > 0) {
+                executeBatch(statement, useSequence, insertedEntriesIds);
+            }
+        } catch (SQLException exception) {
+            throw new QueryExecutionException("INSERT_ERROR", "Failed to insert batch of entries of parameter with id " + parameterId, exception);
+        } finally {
+            closeStatement(statement);
         }
 
         return insertedEntriesIds;
     }
 
+    private void executeBatch(PreparedStatement statement, boolean useSequence, List<Long> insertedEntriesIds) throws SQLException {
+        statement.executeBatch();
+        if (!useSequence) {
+            ResultSet generatedKeys = statement.getGeneratedKeys();
+            try {
+                while (generatedKeys.next()) {
+                    insertedEntriesIds.add(generatedKeys.getLong(1));
+                }
+            } finally {
+                generatedKeys.close();
+            }
+        }
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException exception) {
+                // statement is of no use anyway, failure is reported by transaction
+            }
+        }
+    }
+
+    private String batchInsertSql(boolean withId) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(configuration.parameterEntryEntityName()).append(" (");
+        StringBuilder values = new StringBuilder();
+        if (withId) {
+            sql.append("id, ");
+            values.append("?, ");
+        }
+        sql.append("fk_parameter");
+        values.append('?');
+        for (int levelIndex = 0; levelIndex < configuration.levelColumnCount(); ++levelIndex) {
+            sql.append(", ").append(level(levelIndex));
+            values.append(", ?");
+        }
+        return sql.append(") VALUES (").append(values).append(')').toString();
+    }
+
+    private String[] levelColumns(String[] entryLevels) {
+        int maxDistinctLevels = configuration.levelColumnCount();
+        String[] levelColumns = new String[maxDistinctLevels];
+        for (int levelIndex = 0; levelIndex < maxDistinctLevels - 1 && levelIndex < entryLevels.length; ++levelIndex) {
+            levelColumns[levelIndex] = entryLevels[levelIndex];
+        }
+
+        if (entryLevels.length > maxDistinctLevels) {
+            levelColumns[maxDistinctLevels - 1] = concatenateLastLevels(entryLevels, maxDistinctLevels);
+        } else if (entryLevels.length == maxDistinctLevels) {
+            levelColumns[maxDistinctLevels - 1] = entryLevels[maxDistinctLevels - 1];
+        }
+        return levelColumns;
+    }
+
     private String concatenateLastLevels(String[] entryLevels, int maxDistinctLevels) {
         String[] excessLevels = Arrays.copyOfRange(entryLevels, maxDistinctLevels - 1, entryLevels.length);
         return StringUtils.concatenate(configuration.excessLevelsSeparator(), (Object[]) excessLevels);
     }
 
+    /**
+     * Open forward-only, read-only cursor over all entries of parameter ordered
+     * by id, with {@link DefaultJdbcConfig#entryFetchSize()} fetch size. Statement
+     * and cursor are registered in transaction and closed together with it.
+     */
+    public ResultSet streamParameterEntries(Transaction transaction, String parameterName) throws SQLException {
+        return streamParameterEntries(transaction, parameterName, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #streamParameterEntries(Transaction, String)}, limited to
+     * entries with ids in given (inclusive) range.
+     */
+    public ResultSet streamParameterEntries(Transaction transaction, String parameterName, long fromId, long toId) throws SQLException {
+        String sql = "SELECT * FROM " + configuration.parameterEntryEntityName()
+                + " WHERE fk_parameter = (SELECT id FROM " + configuration.parameterEntityName() + " WHERE name = ?)"
+                + " AND id BETWEEN ? AND ? ORDER BY id";
+
+        PreparedStatement statement = transaction.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        transaction.registerStatement(statement);
+        statement.setFetchSize(configuration.entryFetchSize());
+        statement.setString(1, parameterName);
+        statement.setLong(2, fromId);
+        statement.setLong(3, toId);
+
+        ResultSet resultSet = statement.executeQuery();
+        transaction.registerCursor(resultSet);
+        return resultSet;
+    }
+
+    /**
+     * Returns lowest and highest id of entries of parameter or null if parameter
+     * has no entries.
+     */
+    public long[] getParameterEntryIdRange(QueryRunner queryRunner, String parameterName) {
+        SelectQuery query = QueryFactory.select("min(id), max(id)").from(configuration.parameterEntryEntityName())
+                .where("fk_parameter = (select id from " + configuration.parameterEntityName() + " where name = :parameterName)")
+                .withArgument("parameterName", parameterName);
+        return queryRunner.queryUnique(query, new ObjectMapper<long[]>() {
+            @Override
+            public long[] createObject(ResultSet resultSet) throws SQLException {
+                long minId = resultSet.getLong(1);
+                if (resultSet.wasNull()) {
+                    return null;
+                }
+                return new long[]{minId, resultSet.getLong(2)};
+            }
+        }, false);
+    }
+
     public Set<ParameterEntry> getParameterEntries(QueryRunner queryRunner, String parameterName) {
         return queryRunner.querySet(createSelectQuery(parameterName), new ParameterEntryMapper(configuration));
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.repository.jdbc.model.JdbcLevel;
+import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntry;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
+
+/**
+ * Binary, deflated form of parameter with all levels and entries. Database
+ * ids are kept, so parameter decoded from snapshot can be edited the same way
+ * as parameter read from rows. Entries are stored ordered by id and decoded
+ * in stored order.
+ *
+ * @author Adam Dubiel
+ */
+final class ParameterSnapshotCodec {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int NULL_LENGTH = -1;
+
+    private ParameterSnapshotCodec() {
+    }
+
+    static byte[] encode(JdbcParameter parameter) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(content)));
+
+        output.writeInt(FORMAT_VERSION);
+        output.writeLong(parameter.getId());
+        writeString(output, parameter.getName());
+        output.writeInt(parameter.getInputLevels());
+        output.writeBoolean(parameter.isCacheable());
+        output.writeBoolean(parameter.isNullable());
+        output.writeBoolean(parameter.isIdentifyEntries());
+        output.writeChar(parameter.getArraySeparator());
+
+        output.writeInt(parameter.getLevels().size());
+        for (Level level : parameter.getLevels()) {
+            JdbcLevel jdbcLevel = (JdbcLevel) level;
+            output.writeLong(jdbcLevel.getId());
+            output.writeInt(jdbcLevel.getOrderNo());
+            writeString(output, level.getName());
+            writeString(output, level.getType());
+            writeString(output, level.getMatcher());
+            writeString(output, level.getLevelCreator());
+            output.writeBoolean(level.isArray());
+        }
+
+        List<ParameterEntry> entries = JdbcParameterSnapshot.sortedEntries(parameter);
+        output.writeInt(entries.size());
+        for (ParameterEntry entry : entries) {
+            output.writeLong(((JdbcParameterEntry) entry).getId());
+            String[] levels = entry.getLevels();
+            output.writeInt(levels.length);
+            for (String level : levels) {
+                writeString(output, level);
+            }
+        }
+
+        output.close();
+        return content.toByteArray();
+    }
+
+    static JdbcParameterSnapshot decode(byte[] content) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(content))));
+        try {
+            int formatVersion = input.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("unsupported snapshot format version " + formatVersion + ", expected " + FORMAT_VERSION);
+            }
+
+            long parameterId = input.readLong();
+            String name = readString(input);
+            JdbcParameter parameter = new JdbcParameter(parameterId, name, input.readInt());
+            parameter.setCacheable(input.readBoolean());
+            parameter.setNullable(input.readBoolean());
+            parameter.setIdentifyEntries(input.readBoolean());
+            parameter.setArraySeparator(input.readChar());
+
+            int levelCount = input.readInt();
+            List<Level> levels = new ArrayList<Level>(levelCount);
+            for (int index = 0; index < levelCount; ++index) {
+                JdbcLevel level = new JdbcLevel(input.readLong(), input.readInt());
+                level.setName(readString(input));
+                level.setType(readString(input));
+                level.setMatcher(readString(input));
+                level.setLevelCreator(readString(input));
+                level.setArray(input.readBoolean());
+                levels.add(level);
+            }
+            parameter.setLevels(levels);
+
+            int entryCount = input.readInt();
+            List<ParameterEntry> entries = new ArrayList<ParameterEntry>(entryCount);
+            for (int index = 0; index < entryCount; ++index) {
+                long entryId = input.readLong();
+                String[] entryLevels = new String[input.readInt()];
+                for (int levelIndex = 0; levelIndex < entryLevels.length; ++levelIndex) {
+                    entryLevels[levelIndex] = readString(input);
+                }
+                entries.add(new JdbcParameterEntry(entryId, entryLevels));
+            }
+
+            return new JdbcParameterSnapshot(parameter, entries);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.dao;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.polyjdbc.core.exception.QueryExecutionException;
+import org.polyjdbc.core.query.DeleteQuery;
+import org.polyjdbc.core.query.QueryFactory;
+import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.query.SelectQuery;
+import org.polyjdbc.core.transaction.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.exception.JdbcRepositoryException;
+import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
+
+/**
+ * Keeps compressed snapshot of whole parameter in single row. Snapshot content
+ * is binary, which polyjdbc queries can't bind, so it is read and written
+ * using connection of transaction.
+ *
+ * Row of parameter is locked before snapshot is stored or removed, so
+ * snapshot built from rows read by one transaction can't outlive changes made
+ * concurrently by another.
+ *
+ * @author Adam Dubiel
+ */
+public class ParameterSnapshotDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParameterSnapshotDAO.class);
+
+    private final DefaultJdbcConfig configuration;
+
+    public ParameterSnapshotDAO(DefaultJdbcConfig configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean enabled() {
+        return configuration.parameterSnapshots();
+    }
+
+    /**
+     * Returns null if there is no snapshot or it can't be decoded, which
+     * happens after snapshot format changes - such snapshot is rebuilt on next
+     * store.
+     */
+    public JdbcParameterSnapshot get(Transaction transaction, String parameterName) {
+        byte[] content = readContent(transaction, parameterName);
+        if (content == null) {
+            return null;
+        }
+        try {
+            return ParameterSnapshotCodec.decode(content);
+        } catch (IOException exception) {
+            logger.warn("failed to decode snapshot of parameter {}, falling back to reading rows: {}", parameterName, exception.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] readContent(Transaction transaction, String parameterName) {
+        PreparedStatement statement = null;
+        try {
+            statement = transaction.getConnection().prepareStatement("SELECT content FROM "
+                    + configuration.parameterSnapshotEntityName() + " WHERE parameter_name = ?");
+            statement.setString(1, parameterName);
+            ResultSet resultSet = statement.executeQuery();
+            try {
+                return resultSet.next() ? resultSet.getBytes(1) : null;
+            } finally {
+                resultSet.close();
+            }
+        } catch (SQLException exception) {
+            throw new QueryExecutionException("SELECT_ERROR", "Failed to read snapshot of parameter " + parameterName, exception);
+        } finally {
+            closeStatement(statement);
+        }
+    }
+
+    /**
+     * Lock parameter row, so that parameter read afterwards and stored using
+     * {@link #store(org.polyjdbc.core.transaction.Transaction, org.smartparam.repository.jdbc.model.JdbcParameter)}
+     * can't be changed by any other transaction in the meantime.
+     */
+    public void lock(QueryRunner queryRunner, String parameterName) {
+        SelectQuery query = QueryFactory.select("id").from(configuration.parameterEntityName())
+                .where("name = :name").withArgument("name", parameterName).append(" for update");
+        queryRunner.queryExistence(query);
+    }
+
+    public void store(Transaction transaction, JdbcParameter parameter) {
+        byte[] content;
+        try {
+            content = ParameterSnapshotCodec.encode(parameter);
+        } catch (IOException exception) {
+            throw new JdbcRepositoryException("Failed to encode snapshot of parameter " + parameter.getName(), exception);
+        }
+
+        String relationName = configuration.parameterSnapshotEntityName();
+        PreparedStatement statement = null;
+        try {
+            statement = transaction.getConnection().prepareStatement("DELETE FROM " + relationName + " WHERE parameter_name = ?");
+            statement.setString(1, parameter.getName());
+            statement.executeUpdate();
+            closeStatement(statement);
+
+            statement = transaction.getConnection().prepareStatement("INSERT INTO " + relationName + " (parameter_name, content) VALUES (?, ?)");
+            statement.setString(1, parameter.getName());
+            statement.setBytes(2, content);
+            statement.executeUpdate();
+        } catch (SQLException exception) {
+            throw new QueryExecutionException("INSERT_ERROR", "Failed to store snapshot of parameter " + parameter.getName(), exception);
+        } finally {
+            closeStatement(statement);
+        }
+    }
+
+    public void delete(QueryRunner queryRunner, String parameterName) {
+        lock(queryRunner, parameterName);
+        DeleteQuery query = QueryFactory.delete().from(configuration.parameterSnapshotEntityName())
+                .where("parameter_name = :parameterName").withArgument("parameterName", parameterName);
+        queryRunner.delete(query);
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException exception) {
+                // statement is of no use anyway, failure is reported by transaction
+            }
+        }
+    }
+}
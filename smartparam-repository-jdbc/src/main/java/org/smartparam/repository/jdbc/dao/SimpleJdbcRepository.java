@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.transaction.Transaction;
 import org.smartparam.engine.core.exception.SmartParamException;
 import org.smartparam.editor.core.filters.ParameterEntriesFilter;
 import org.smartparam.editor.core.filters.ParameterFilter;
@@ -26,7 +27,11 @@ import org.smartparam.engine.core.parameter.level.Level;
 import org.smartparam.engine.core.parameter.Parameter;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
 import org.smartparam.repository.jdbc.config.JdbcConfig;
+import org.smartparam.repository.jdbc.exception.JdbcRepositoryException;
+import org.smartparam.repository.jdbc.model.EntryChangeOperation;
 import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntryChange;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
 
 /**
  * @author Przemek Hertel
@@ -42,12 +47,19 @@ public class SimpleJdbcRepository implements JdbcRepository {
 
     private final ParameterEntryDAO parameterEntryDAO;
 
-    public SimpleJdbcRepository(JdbcConfig configuration, ParameterDAO parameterDAO, LevelDAO levelDAO, ParameterEntryDAO parameterEntryDAO) {
+    private final EntryChangeLogDAO entryChangeLogDAO;
+
+    private final ParameterSnapshotDAO parameterSnapshotDAO;
+
+    public SimpleJdbcRepository(JdbcConfig configuration, ParameterDAO parameterDAO, LevelDAO levelDAO, ParameterEntryDAO parameterEntryDAO,
+            EntryChangeLogDAO entryChangeLogDAO, ParameterSnapshotDAO parameterSnapshotDAO) {
         this.configuration = configuration;
         checkConfiguration();
         this.parameterDAO = parameterDAO;
         this.levelDAO = levelDAO;
         this.parameterEntryDAO = parameterEntryDAO;
+        this.entryChangeLogDAO = entryChangeLogDAO;
+        this.parameterSnapshotDAO = parameterSnapshotDAO;
     }
 
     private void checkConfiguration() {
@@ -90,6 +102,25 @@ public class SimpleJdbcRepository implements JdbcRepository {
         return parameter;
     }
 
+    @Override
+    public JdbcParameterSnapshot getParameterFromSnapshot(Transaction transaction, QueryRunner runner, String parameterName) {
+        if (!parameterSnapshotDAO.enabled()) {
+            JdbcParameter parameter = getParameter(runner, parameterName);
+            return parameter != null ? JdbcParameterSnapshot.of(parameter) : null;
+        }
+
+        JdbcParameterSnapshot snapshot = parameterSnapshotDAO.get(transaction, parameterName);
+        if (snapshot == null) {
+            parameterSnapshotDAO.lock(runner, parameterName);
+            JdbcParameter parameter = getParameter(runner, parameterName);
+            if (parameter != null) {
+                parameterSnapshotDAO.store(transaction, parameter);
+                snapshot = JdbcParameterSnapshot.of(parameter);
+            }
+        }
+        return snapshot;
+    }
+
     @Override
     public Set<String> listParameterNames() {
         return parameterDAO.getParameterNames();
@@ -111,6 +142,11 @@ public class SimpleJdbcRepository implements JdbcRepository {
         return parameterEntryDAO.insert(runner, entries, parameter.getId());
     }
 
+    @Override
+    public List<Long> batchWriteParameterEntries(Transaction transaction, long parameterId, Iterable<ParameterEntry> entries) {
+        return parameterEntryDAO.insertBatch(transaction, entries, parameterId);
+    }
+
     @Override
     public void deleteParameter(QueryRunner runner, String parameterName) {
         parameterEntryDAO.deleteParameterEntries(runner, parameterName);
@@ -182,4 +218,47 @@ public class SimpleJdbcRepository implements JdbcRepository {
         parameterEntryDAO.deleteParameterEntries(runner, parameterName);
     }
 
+    @Override
+    public void logEntryChanges(Transaction transaction, QueryRunner runner, String parameterName, EntryChangeOperation operation, Iterable<Long> entriesIds) {
+        if (!entriesIds.iterator().hasNext()) {
+            return;
+        }
+        if (entryChangeLogDAO.enabled()) {
+            entryChangeLogDAO.insert(transaction, runner, parameterName, operation, entriesIds);
+        }
+        dropParameterSnapshot(runner, parameterName);
+    }
+
+    @Override
+    public void logParameterReload(QueryRunner runner, String parameterName) {
+        if (entryChangeLogDAO.enabled()) {
+            entryChangeLogDAO.insertReload(runner, parameterName);
+        }
+        dropParameterSnapshot(runner, parameterName);
+    }
+
+    @Override
+    public void dropParameterSnapshot(QueryRunner runner, String parameterName) {
+        if (parameterSnapshotDAO.enabled()) {
+            parameterSnapshotDAO.delete(runner, parameterName);
+        }
+    }
+
+    @Override
+    public long getEntryChangeVersion(QueryRunner runner, String parameterName) {
+        checkChangeLogEnabled();
+        return entryChangeLogDAO.currentVersion(runner, parameterName);
+    }
+
+    @Override
+    public List<JdbcParameterEntryChange> getEntryChanges(QueryRunner runner, String parameterName, long sinceVersion) {
+        checkChangeLogEnabled();
+        return entryChangeLogDAO.changesSince(runner, parameterName, sinceVersion);
+    }
+
+    private void checkChangeLogEnabled() {
+        if (!entryChangeLogDAO.enabled()) {
+            throw new JdbcRepositoryException("Entry change log is disabled, enable it in JDBC repository configuration.");
+        }
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.model;
+
+/**
+ * Kind of change recorded in entry change log.
+ *
+ * @author Adam Dubiel
+ */
+public enum EntryChangeOperation {
+
+    ADD,
+    UPDATE,
+    DELETE,
+    /**
+     * Whole parameter has been written, removed or had all entries deleted,
+     * log does not describe it entry by entry and parameter has to be reloaded.
+     */
+    RELOAD
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.model;
+
+/**
+ * Single row of entry change log. All changes made by one repository call share
+ * the same version.
+ *
+ * @author Adam Dubiel
+ */
+public class JdbcParameterEntryChange {
+
+    private final long version;
+
+    private final EntryChangeOperation operation;
+
+    private final Long entryId;
+
+    public JdbcParameterEntryChange(long version, EntryChangeOperation operation, Long entryId) {
+        this.version = version;
+        this.operation = operation;
+        this.entryId = entryId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public EntryChangeOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Id of changed entry, null for {@link EntryChangeOperation#RELOAD}.
+     */
+    public Long getEntryId() {
+        return entryId;
+    }
+
+    public JdbcParameterEntryKey getEntryKey() {
+        return entryId != null ? new JdbcParameterEntryKey(entryId) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcParameterEntryChange[v" + version + " " + operation + " #" + entryId + "]";
+    }
+}
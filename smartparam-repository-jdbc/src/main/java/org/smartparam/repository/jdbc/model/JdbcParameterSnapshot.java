@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+
+/**
+ * Parameter read from snapshot: metadata with levels, entries kept apart in
+ * order of their ids - the same order in which entries are read from rows in
+ * batches, so overlapping entries resolve the same way in both modes.
+ *
+ * @author Adam Dubiel
+ */
+public class JdbcParameterSnapshot {
+
+    private static final Comparator<ParameterEntry> ENTRY_ID_ORDER = new Comparator<ParameterEntry>() {
+        @Override
+        public int compare(ParameterEntry first, ParameterEntry second) {
+            long firstId = ((JdbcParameterEntry) first).getId();
+            long secondId = ((JdbcParameterEntry) second).getId();
+            return firstId < secondId ? -1 : (firstId == secondId ? 0 : 1);
+        }
+    };
+
+    private final JdbcParameter metadata;
+
+    private final List<ParameterEntry> entries;
+
+    public JdbcParameterSnapshot(JdbcParameter metadata, List<ParameterEntry> entries) {
+        this.metadata = metadata;
+        this.entries = entries;
+    }
+
+    /**
+     * Take entries out of parameter read from rows, ordered by id.
+     */
+    public static JdbcParameterSnapshot of(JdbcParameter parameter) {
+        List<ParameterEntry> entries = sortedEntries(parameter);
+        parameter.getEntries().clear();
+        return new JdbcParameterSnapshot(parameter, entries);
+    }
+
+    public static List<ParameterEntry> sortedEntries(JdbcParameter parameter) {
+        List<ParameterEntry> entries = new ArrayList<ParameterEntry>(parameter.getEntries());
+        Collections.sort(entries, ENTRY_ID_ORDER);
+        return entries;
+    }
+
+    /**
+     * Parameter metadata and levels, without entries.
+     */
+    public JdbcParameter getMetadata() {
+        return metadata;
+    }
+
+    public List<ParameterEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Put entries back into parameter, snapshot should not be used afterwards.
+     */
+    public JdbcParameter toParameter() {
+        metadata.getEntries().addAll(entries);
+        return metadata;
+    }
+}
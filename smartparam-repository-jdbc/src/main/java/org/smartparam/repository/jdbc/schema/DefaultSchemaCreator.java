@@ -15,6 +15,7 @@
  */
 package org.smartparam.repository.jdbc.schema;
 
+import org.polyjdbc.core.schema.DDLQuery;
 import org.polyjdbc.core.schema.SchemaInspector;
 import org.polyjdbc.core.schema.SchemaManager;
 import org.polyjdbc.core.schema.SchemaManagerFactory;
@@ -50,8 +51,16 @@ public class DefaultSchemaCreator implements SchemaCreator {
             createParameterRelation(schema, schemaInspector);
             createLevelRelation(schema, schemaInspector);
             createParameterEntryRelation(schema, schemaInspector);
+            if (config.entryChangeLog()) {
+                createParameterEntryChangeRelation(schema, schemaInspector);
+                createParameterVersionRelation(schema, schemaInspector);
+            }
+            boolean createSnapshotRelation = config.parameterSnapshots() && !schemaInspector.relationExists(config.parameterSnapshotEntityName());
 
             schemaManager.create(schema);
+            if (createSnapshotRelation) {
+                createParameterSnapshotRelation(schemaManager);
+            }
         } finally {
             TheCloser.close(schemaManager, schemaInspector);
         }
@@ -118,6 +127,56 @@ public class DefaultSchemaCreator implements SchemaCreator {
         }
     }
 
+    protected void createParameterEntryChangeRelation(Schema schema, SchemaInspector schemaInspector) {
+        String relationName = config.parameterEntryChangeEntityName();
+        if (!schemaInspector.relationExists(relationName)) {
+            schema.addRelation(relationName)
+                    .withAttribute().longAttr("id").withAdditionalModifiers("AUTO_INCREMENT").notNull().and()
+                    .withAttribute().string("parameter_name").withMaxLength(200).notNull().and()
+                    .withAttribute().longAttr("version").notNull().and()
+                    .withAttribute().string("operation").withMaxLength(10).notNull().and()
+                    .withAttribute().longAttr("entry_id").and()
+                    .primaryKey(primaryKey(relationName)).using("id").and()
+                    .build();
+            schema.addIndex(index(relationName) + "_version").indexing("parameter_name", "version").on(relationName).build();
+            schema.addSequence(config.parameterEntryChangeSequenceName()).build();
+        }
+    }
+
+    protected void createParameterVersionRelation(Schema schema, SchemaInspector schemaInspector) {
+        String relationName = config.parameterVersionEntityName();
+        if (!schemaInspector.relationExists(relationName)) {
+            schema.addRelation(relationName)
+                    .withAttribute().string("parameter_name").withMaxLength(200).notNull().and()
+                    .withAttribute().longAttr("version").notNull().and()
+                    .primaryKey(primaryKey(relationName)).using("parameter_name").and()
+                    .build();
+        }
+    }
+
+    /**
+     * Snapshot content is binary, which has no portable column type, so
+     * relation is created using plain DDL.
+     */
+    protected void createParameterSnapshotRelation(SchemaManager schemaManager) {
+        String relationName = config.parameterSnapshotEntityName();
+        schemaManager.ddl(DDLQuery.ddl("CREATE TABLE " + relationName + " ("
+                + "parameter_name " + config.dialect().types().string(200) + " NOT NULL, "
+                + "content " + binaryType() + " NOT NULL, "
+                + "CONSTRAINT " + primaryKey(relationName) + " PRIMARY KEY (parameter_name))"));
+    }
+
+    private String binaryType() {
+        String dialect = config.dialect().getCode();
+        if ("POSTGRES".equals(dialect)) {
+            return "BYTEA";
+        }
+        if ("MYSQL".equals(dialect)) {
+            return "LONGBLOB";
+        }
+        return "BLOB";
+    }
+
     private String primaryKey(String sufix) {
         return config.foreignKeyPrefix() + sufix;
     }
@@ -146,6 +205,15 @@ public class DefaultSchemaCreator implements SchemaCreator {
             schema.addRelation(config.parameterEntryEntityName()).build();
             schema.addSequence(config.parameterEntrySequenceName()).build();
 
+            if (config.entryChangeLog()) {
+                schema.addRelation(config.parameterEntryChangeEntityName()).build();
+                schema.addSequence(config.parameterEntryChangeSequenceName()).build();
+                schema.addRelation(config.parameterVersionEntityName()).build();
+            }
+            if (config.parameterSnapshots()) {
+                schema.addRelation(config.parameterSnapshotEntityName()).build();
+            }
+
             schemaManager.drop(schema);
         } finally {
             TheCloser.close(schemaManager);
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import org.smartparam.engine.core.parameter.ParameterBatchLoader;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryKey;
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.repository.jdbc.config.JdbcConfigBuilder;
+import org.smartparam.repository.jdbc.model.EntryChangeOperation;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntryChange;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.parameter.entry.ParameterEntryTestBuilder.parameterEntry;
+import static org.smartparam.engine.core.parameter.level.LevelTestBuilder.level;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class JdbcParamRepositoryEntryChangeLogTest extends DatabaseTest {
+
+    @Override
+    protected void customizeConfiguraion(JdbcConfigBuilder builder) {
+        builder.withEntryChangeLog().withEntryBatchSize(2);
+    }
+
+    @Test
+    public void shouldLogEachEntryChangeUnderNextVersion() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        ParameterEntryKey key = repository.addEntry("parameter", parameterEntry().withLevels("A").build());
+        repository.updateEntry("parameter", key, parameterEntry().withLevels("B").build());
+        repository.deleteEntry("parameter", key);
+
+        List<JdbcParameterEntryChange> changes = repository.entryChangesSince("parameter", 0);
+
+        // then
+        assertThat(repository.entryChangeVersion("parameter")).isEqualTo(3);
+        assertThat(changes).hasSize(3);
+        assertThat(changes.get(0).getOperation()).isEqualTo(EntryChangeOperation.ADD);
+        assertThat(changes.get(1).getOperation()).isEqualTo(EntryChangeOperation.UPDATE);
+        assertThat(changes.get(2).getOperation()).isEqualTo(EntryChangeOperation.DELETE);
+        assertThat(changes.get(2).getVersion()).isEqualTo(3);
+        assertThat(changes.get(2).getEntryKey().value()).isEqualTo(key.value());
+    }
+
+    @Test
+    public void shouldReturnOnlyChangesLoggedAfterGivenVersion() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        repository.addEntry("parameter", parameterEntry().withLevels("A").build());
+        long version = repository.entryChangeVersion("parameter");
+        repository.addEntries("parameter", Arrays.asList(
+                parameterEntry().withLevels("B").build(), parameterEntry().withLevels("C").build()));
+
+        // when
+        List<JdbcParameterEntryChange> changes = repository.entryChangesSince("parameter", version);
+
+        // then
+        assertThat(changes).hasSize(2);
+        assertThat(changes.get(0).getVersion()).isEqualTo(version + 1);
+        assertThat(changes.get(1).getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    public void shouldLogReloadWhenWholeParameterIsWritten() {
+        // given
+        Level[] levels = new Level[]{level().withName("lvl1").withType("string").build()};
+        Parameter parameter = parameter().withName("parameter").withLevels(levels)
+                .withEntries(parameterEntry().withLevels("A").build()).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        repository.write(parameter);
+        List<JdbcParameterEntryChange> changes = repository.entryChangesSince("parameter", 0);
+
+        // then
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getOperation()).isEqualTo(EntryChangeOperation.RELOAD);
+        assertThat(changes.get(0).getEntryId()).isNull();
+    }
+
+    @Test
+    public void shouldLogAllEntriesAddedTogetherUnderOneVersionWhenExceedingBatchSize() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        repository.addEntries("parameter", Arrays.asList(parameterEntry().withLevels("A").build(),
+                parameterEntry().withLevels("B").build(), parameterEntry().withLevels("C").build()));
+        List<JdbcParameterEntryChange> changes = repository.entryChangesSince("parameter", 0);
+
+        // then
+        assertThat(changes).hasSize(3);
+        for (JdbcParameterEntryChange change : changes) {
+            assertThat(change.getVersion()).isEqualTo(1);
+            assertThat(change.getOperation()).isEqualTo(EntryChangeOperation.ADD);
+            assertThat(change.getEntryId()).isNotNull();
+        }
+    }
+
+    @Test
+    public void shouldLogReloadAfterAllEntriesFromBatchLoaderAreWritten() {
+        // given
+        Level[] levels = new Level[]{level().withName("lvl1").withType("string").build()};
+        Parameter metadata = parameter().withName("parameter").withLevels(levels).build();
+
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true, true, false);
+        when(entryLoader.nextBatch(anyInt())).thenReturn(
+                Arrays.asList(parameterEntry().withLevels("A").build(), parameterEntry().withLevels("B").build()),
+                Arrays.asList(parameterEntry().withLevels("C").build()));
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        repository.write(new ParameterBatchLoader(metadata, entryLoader));
+        List<JdbcParameterEntryChange> changes = repository.entryChangesSince("parameter", 1);
+
+        // then
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getOperation()).isEqualTo(EntryChangeOperation.RELOAD);
+        assertThat(repository.entryChangeVersion("parameter")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldKeepCountingVersionsWhenParameterIsRemovedAndWrittenAgain() {
+        // given
+        Level[] levels = new Level[]{level().withName("lvl1").withType("string").build()};
+        Parameter parameter = parameter().withName("parameter").withLevels(levels)
+                .withEntries(parameterEntry().withLevels("A").build()).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        repository.write(parameter);
+        repository.delete("parameter");
+
+        // when
+        repository.write(parameter);
+        repository.addEntry("parameter", parameterEntry().withLevels("B").build());
+
+        // then
+        assertThat(repository.entryChangeVersion("parameter")).isEqualTo(4);
+    }
+}
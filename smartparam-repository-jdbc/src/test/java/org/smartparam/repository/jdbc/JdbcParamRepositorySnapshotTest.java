@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.polyjdbc.core.transaction.Transaction;
+import org.smartparam.engine.config.ParamEngineFactory;
+import org.smartparam.engine.core.ParamEngine;
+import org.smartparam.engine.core.parameter.ParamRepository;
+import org.smartparam.engine.core.parameter.Parameter;
+import org.smartparam.engine.core.parameter.ParameterBatchLoader;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.repository.jdbc.batch.JdbcParameterEntryBatchLoaderFactory;
+import org.smartparam.repository.jdbc.config.JdbcConfigBuilder;
+import org.smartparam.repository.jdbc.dao.ParameterSnapshotDAO;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.smartparam.engine.config.ParamEngineConfigBuilder.paramEngineConfig;
+import static org.smartparam.engine.core.parameter.ParameterTestBuilder.parameter;
+import static org.smartparam.engine.core.parameter.entry.ParameterEntryTestBuilder.parameterEntry;
+import static org.smartparam.engine.core.parameter.level.LevelTestBuilder.level;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class JdbcParamRepositorySnapshotTest extends DatabaseTest {
+
+    @Override
+    protected void customizeConfiguraion(JdbcConfigBuilder builder) {
+        builder.withParameterSnapshots();
+    }
+
+    @Test
+    public void shouldStoreSnapshotOnFirstLoadAndReturnSameParameterFromIt() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 2).withParameterEntries("parameter", 5).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        Parameter fromRows = repository.load("parameter");
+
+        // when
+        Parameter fromSnapshot = repository.load("parameter");
+
+        // then
+        JdbcParameterSnapshot snapshot = storedSnapshot("parameter");
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getEntries()).hasSize(5);
+        assertThat(fromSnapshot.getName()).isEqualTo(fromRows.getName());
+        assertThat(fromSnapshot.getLevels()).hasSize(2);
+        assertThat(fromSnapshot.getEntries()).hasSize(5);
+    }
+
+    @Test
+    public void shouldNotServeSnapshotStoredBetweenBatchesOfWrittenParameter() {
+        // given
+        Level[] levels = new Level[]{level().withName("lvl1").withType("string").build()};
+        Parameter metadata = parameter().withName("parameter").withLevels(levels).build();
+        final JdbcParamRepository repository = get(JdbcParamRepository.class);
+        final List<Integer> loadedEntries = new ArrayList<Integer>();
+
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true, true, true, false);
+        when(entryLoader.nextBatch(anyInt())).thenAnswer(new Answer<Collection<ParameterEntry>>() {
+            @Override
+            public Collection<ParameterEntry> answer(InvocationOnMock invocation) {
+                if (loadedEntries.size() < 3) {
+                    // load between batches stores snapshot of entries written so far
+                    loadedEntries.add(repository.load("parameter").getEntries().size());
+                }
+                return Arrays.asList(parameterEntry().withLevels("A" + loadedEntries.size()).build());
+            }
+        });
+
+        // when
+        repository.write(new ParameterBatchLoader(metadata, entryLoader));
+        Parameter parameter = repository.load("parameter");
+
+        // then
+        assertThat(loadedEntries).containsExactly(0, 1, 2);
+        assertThat(parameter.getEntries()).hasSize(3);
+    }
+
+    @Test
+    public void shouldDropSnapshotWhenEntriesOfParameterChange() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).withParameterEntries("parameter", 1).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        repository.load("parameter");
+
+        // when
+        repository.addEntry("parameter", parameterEntry().withLevels("A").build());
+
+        // then
+        assertThat(storedSnapshot("parameter")).isNull();
+        assertThat(repository.load("parameter").getEntries()).hasSize(2);
+    }
+
+    @Test
+    public void shouldDropSnapshotWhenParameterIsDeleted() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).withParameterEntries("parameter", 1).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        repository.load("parameter");
+
+        // when
+        repository.delete("parameter");
+
+        // then
+        assertThat(storedSnapshot("parameter")).isNull();
+        assertThat(repository.load("parameter")).isNull();
+    }
+
+    @Test
+    public void shouldReturnBatchLoaderBackedBySnapshot() {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 2).withParameterEntries("parameter", 5).build();
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        ParameterBatchLoader loader = repository.batchLoad("parameter");
+
+        // then
+        assertThat(storedSnapshot("parameter")).isNotNull();
+        assertThat(loader.getMetadata().getLevels()).hasSize(2);
+        assertThat(loader.getMetadata().getEntries()).isEmpty();
+        assertThat(loader.getEntryLoader().nextBatch(3)).hasSize(3);
+        assertThat(loader.getEntryLoader().nextBatch(3)).hasSize(2);
+        assertThat(loader.getEntryLoader().hasMore()).isFalse();
+    }
+
+    @Test
+    public void shouldResolveOverlappingEntriesToSameValueAsWhenReadingRows() {
+        // given
+        Level[] levels = new Level[]{level().withName("code").withType("string").build(), level().withName("value").withType("string").build()};
+        ParameterEntry[] entries = new ParameterEntry[20];
+        for (int index = 0; index < entries.length; ++index) {
+            entries[index] = parameterEntry().withLevels("A", "V" + index).build();
+        }
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+        repository.write(parameter().withName("parameter").withInputLevels(1).withLevels(levels).withEntries(entries).build());
+
+        ParamRepository rowRepository = mock(ParamRepository.class);
+        when(rowRepository.batchLoad("parameter")).thenReturn(new ParameterBatchLoader(repository.batchLoad("parameter").getMetadata(),
+                get(JdbcParameterEntryBatchLoaderFactory.class).create("parameter")));
+
+        ParamEngine snapshotEngine = ParamEngineFactory.paramEngine(paramEngineConfig().withParameterRepository(repository).build());
+        ParamEngine rowEngine = ParamEngineFactory.paramEngine(paramEngineConfig().withParameterRepository(rowRepository).build());
+
+        // when
+        String fromSnapshot = snapshotEngine.get("parameter", "A").getString();
+        String fromRows = rowEngine.get("parameter", "A").getString();
+
+        // then
+        assertThat(storedSnapshot("parameter")).isNotNull();
+        assertThat(fromSnapshot).isEqualTo(fromRows);
+    }
+
+    private JdbcParameterSnapshot storedSnapshot(String parameterName) {
+        Transaction transaction = transaction();
+        try {
+            return get(ParameterSnapshotDAO.class).get(transaction, parameterName);
+        } finally {
+            transaction.close();
+        }
+    }
+}
@@ -20,8 +20,12 @@ import org.smartparam.engine.core.parameter.ParameterBatchLoader;
 import org.smartparam.engine.core.parameter.level.Level;
 import org.smartparam.engine.core.parameter.Parameter;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.exception.JdbcRepositoryException;
 import org.testng.annotations.Test;
 
+import static com.googlecode.catchexception.CatchException.*;
+import static org.mockito.Mockito.*;
 import static org.smartparam.engine.test.ParamEngineAssertions.assertThat;
 import static org.smartparam.engine.core.parameter.level.LevelTestBuilder.level;
 import static org.smartparam.engine.core.parameter.entry.ParameterEntryTestBuilder.parameterEntry;
@@ -75,6 +79,27 @@ public class JdbcParamRepositoryTest extends DatabaseTest {
         assertDatabase().hasParameter("parameter").hasEntriesForParameter("parameter", 1).hasLevelsForParameter("parameter", 1).close();
     }
 
+    @Test
+    public void shouldWriteParameterWithEntriesFromBatchLoader() throws Exception {
+        // given
+        database().withParameter("parameter").withLevels("parameter", 1).withParameterEntries("parameter", 2).build();
+        Level[] levels = new Level[]{level().withName("lvl1").withType("string").build()};
+        Parameter metadata = parameter().withName("parameter").withLevels(levels).build();
+
+        ParameterEntryBatchLoader entryLoader = mock(ParameterEntryBatchLoader.class);
+        when(entryLoader.hasMore()).thenReturn(true, true, false);
+        when(entryLoader.nextBatch(anyInt())).thenReturn(
+                Arrays.asList(parameterEntry().withLevels("A").build(), parameterEntry().withLevels("B").build()),
+                Arrays.asList(parameterEntry().withLevels("C").build()));
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        repository.write(new ParameterBatchLoader(metadata, entryLoader));
+
+        // then
+        assertDatabase().hasParameter("parameter").hasEntriesForParameter("parameter", 3).hasLevelsForParameter("parameter", 1).close();
+    }
+
     @Test
     public void shouldOverwriteExistingParameterWithSameName() {
         // given
@@ -104,4 +129,16 @@ public class JdbcParamRepositoryTest extends DatabaseTest {
         // then
         assertDatabase().hasParameter("parameter").hasEntriesForParameter("parameter", 2).close();
     }
+
+    @Test
+    public void shouldRefuseToReturnEntryChangesWhenChangeLogIsDisabled() {
+        // given
+        JdbcParamRepository repository = get(JdbcParamRepository.class);
+
+        // when
+        catchException(repository).entryChangesSince("parameter", 0);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(JdbcRepositoryException.class);
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.batch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.polyjdbc.core.query.QueryRunnerFactory;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.entry.ParameterEntryBatchLoader;
+import org.smartparam.repository.jdbc.DatabaseTest;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.config.JdbcConfigBuilder;
+import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntry;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ParallelJdbcParameterEntryBatchLoaderTest extends DatabaseTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Override
+    protected void customizeConfiguraion(JdbcConfigBuilder builder) {
+        builder.withParallelEntryLoading(3, executor).withEntryBatchSize(100);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private ParallelJdbcParameterEntryBatchLoader loader(String parameterName) {
+        return new ParallelJdbcParameterEntryBatchLoader(get(QueryRunnerFactory.class), transactionManager(), get(ParameterEntryDAO.class),
+                get(DefaultJdbcConfig.class), parameterName);
+    }
+
+    @Test
+    public void shouldCreateParallelLoaderWhenConfiguredToUsePartitions() {
+        // given
+        JdbcParameterEntryBatchLoaderFactory factory = get(JdbcParameterEntryBatchLoaderFactory.class);
+
+        // when
+        ParameterEntryBatchLoader loader = factory.create("parameter");
+        loader.close();
+
+        // then
+        assertThat(loader).isInstanceOf(ParallelJdbcParameterEntryBatchLoader.class);
+    }
+
+    @Test
+    public void shouldReturnEmptyBatchAndNoMoreEntriesForParameterWithoutEntries() {
+        // given
+        database().withParameter("parameter").build();
+        ParallelJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        Collection<ParameterEntry> entries = loader.nextBatch(10);
+        boolean hasMore = loader.hasMore();
+        loader.close();
+
+        // then
+        assertThat(entries).isEmpty();
+        assertThat(hasMore).isFalse();
+    }
+
+    @Test
+    public void shouldLoadAllEntriesFromPartitionsInOrderOfIds() {
+        // given
+        database().withParameter("parameter").withParameterEntries("parameter", 3500).build();
+        ParallelJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        List<ParameterEntry> entries = new ArrayList<ParameterEntry>();
+        while (loader.hasMore()) {
+            entries.addAll(loader.nextBatch(400));
+        }
+        loader.close();
+
+        // then
+        assertThat(entries).hasSize(3500);
+        long previousId = Long.MIN_VALUE;
+        for (ParameterEntry entry : entries) {
+            long id = ((JdbcParameterEntry) entry).getId();
+            assertThat(id).isGreaterThan(previousId);
+            previousId = id;
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void shouldReleaseExecutorForNextLoadWhenClosedBeforeReadingAllEntries() {
+        // given
+        database().withParameter("parameter").withParameterEntries("parameter", 3500).build();
+        ParallelJdbcParameterEntryBatchLoader abandonedLoader = loader("parameter");
+        abandonedLoader.nextBatch(10);
+        abandonedLoader.close();
+
+        ParallelJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        int entryCount = 0;
+        while (loader.hasMore()) {
+            entryCount += loader.nextBatch(400).size();
+        }
+        loader.close();
+
+        // then
+        assertThat(entryCount).isEqualTo(3500);
+        assertThat(executor.isShutdown()).isFalse();
+    }
+}
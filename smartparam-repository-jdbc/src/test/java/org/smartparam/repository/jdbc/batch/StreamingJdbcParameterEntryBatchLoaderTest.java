@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.batch;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.repository.jdbc.DatabaseTest;
+import org.smartparam.repository.jdbc.config.DefaultJdbcConfig;
+import org.smartparam.repository.jdbc.config.JdbcConfigBuilder;
+import org.smartparam.repository.jdbc.dao.ParameterEntryDAO;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntry;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class StreamingJdbcParameterEntryBatchLoaderTest extends DatabaseTest {
+
+    @Override
+    protected void customizeConfiguraion(JdbcConfigBuilder builder) {
+        builder.withEntryFetchSize(7);
+    }
+
+    private StreamingJdbcParameterEntryBatchLoader loader(String parameterName) {
+        return new StreamingJdbcParameterEntryBatchLoader(transactionManager(), get(ParameterEntryDAO.class),
+                get(DefaultJdbcConfig.class), parameterName);
+    }
+
+    @Test
+    public void shouldAlwaysRunAtLeastOneLoop() {
+        // given
+        StreamingJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        boolean initialCheck = loader.hasMore();
+        loader.close();
+
+        // then
+        assertThat(initialCheck).isTrue();
+    }
+
+    @Test
+    public void shouldReturnEmptyBatchAndNoMoreEntriesForUnknownParameter() {
+        // given
+        StreamingJdbcParameterEntryBatchLoader loader = loader("empty");
+
+        // when
+        Collection<ParameterEntry> entries = loader.nextBatch(10);
+        boolean hasMore = loader.hasMore();
+        loader.close();
+
+        // then
+        assertThat(entries).isEmpty();
+        assertThat(hasMore).isFalse();
+    }
+
+    @Test
+    public void shouldKnowThereAreNoMoreEntriesRightAfterReadingLastOne() {
+        // given
+        database().withParameter("parameter").withParameterEntries("parameter", 20).build();
+        StreamingJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        Collection<ParameterEntry> entries = loader.nextBatch(20);
+        boolean hasMore = loader.hasMore();
+        loader.close();
+
+        // then
+        assertThat(entries).hasSize(20);
+        assertThat(hasMore).isFalse();
+    }
+
+    @Test
+    public void shouldStreamAllEntriesInMultipleBatchesFromSingleCursor() {
+        // given
+        database().withParameter("parameter").withParameterEntries("parameter", 110).build();
+        StreamingJdbcParameterEntryBatchLoader loader = loader("parameter");
+
+        // when
+        Collection<ParameterEntry> entries = new LinkedList<ParameterEntry>();
+        while (loader.hasMore()) {
+            entries.addAll(loader.nextBatch(50));
+        }
+        loader.close();
+
+        // then
+        Set<Long> ids = new HashSet<Long>();
+        for (ParameterEntry entry : entries) {
+            ids.add(((JdbcParameterEntry) entry).getId());
+        }
+        assertThat(entries).hasSize(110);
+        assertThat(ids).hasSize(110);
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import org.polyjdbc.core.query.QueryRunner;
+import org.polyjdbc.core.transaction.Transaction;
 import org.smartparam.editor.core.filters.ParameterEntriesFilter;
 import org.smartparam.editor.core.filters.SortDirection;
 import org.smartparam.engine.core.parameter.entry.ParameterEntry;
@@ -44,7 +45,7 @@ public class ParameterEntryDAOTest extends DatabaseTest {
 
     @Override
     protected void customizeConfiguraion(JdbcConfigBuilder builder) {
-        builder.withExcessLevelSeparator('|').withLevelColumnCount(2);
+        builder.withExcessLevelSeparator('|').withLevelColumnCount(2).withEntryBatchSize(2);
     }
 
     @Test
@@ -89,6 +90,68 @@ public class ParameterEntryDAOTest extends DatabaseTest {
         assertThat(onlyElement(entries)).hasLevels(4).levelAtEquals(2, "3").levelAtEquals(3, "4");
     }
 
+    @Test
+    public void shouldInsertEntriesUsingJdbcBatchesAndReturnTheirIdsInOrder() {
+        // given
+        database().withParameter("parameter").build();
+        ParameterEntryDAO parameterEntryDAO = get(ParameterEntryDAO.class);
+        QueryRunner runner = queryRunner();
+        JdbcParameter parameter = get(ParameterDAO.class).getParameter(runner, "parameter");
+
+        List<ParameterEntry> entries = Arrays.asList(
+                parameterEntry().withLevels("A").build(),
+                parameterEntry().withLevels("B", "2").build(),
+                parameterEntry().withLevels("C", "3", "4").build());
+        Transaction transaction = transaction();
+
+        // when
+        List<Long> ids = parameterEntryDAO.insertBatch(transaction, entries, parameter.getId());
+        transaction.commit();
+        transaction.close();
+
+        List<ParameterEntry> insertedEntries = parameterEntryDAO.getParameterEntries(runner, ids);
+        runner.close();
+
+        // then
+        assertThat(ids).hasSize(3);
+        assertThat(insertedEntries.get(0)).hasLevels(1).levelAtEquals(0, "A");
+        assertThat(insertedEntries.get(1)).hasLevels(2).levelAtEquals(1, "2");
+        assertThat(insertedEntries.get(2)).hasLevels(3).levelAtEquals(1, "3").levelAtEquals(2, "4");
+    }
+
+    @Test
+    public void shouldStoreSameLevelsWhenInsertingInBatchesAndOneByOne() {
+        // given
+        database().withParameter("parameter").build();
+        ParameterEntryDAO parameterEntryDAO = get(ParameterEntryDAO.class);
+        QueryRunner runner = queryRunner();
+        JdbcParameter parameter = get(ParameterDAO.class).getParameter(runner, "parameter");
+
+        List<ParameterEntry> entries = Arrays.asList(
+                parameterEntry().withLevels("A").build(),
+                parameterEntry().withLevels("B", "2").build(),
+                parameterEntry().withLevels("C", "3", "4").build(),
+                parameterEntry().withLevels("D", "5", "6", "7").build());
+        Transaction transaction = transaction();
+
+        // when
+        List<Long> singleIds = parameterEntryDAO.insert(runner, entries, parameter.getId());
+        runner.commit();
+        List<Long> batchIds = parameterEntryDAO.insertBatch(transaction, entries, parameter.getId());
+        transaction.commit();
+        transaction.close();
+
+        List<ParameterEntry> singleEntries = parameterEntryDAO.getParameterEntries(runner, singleIds);
+        List<ParameterEntry> batchEntries = parameterEntryDAO.getParameterEntries(runner, batchIds);
+        runner.close();
+
+        // then
+        assertThat(batchEntries).hasSize(entries.size());
+        for (int index = 0; index < entries.size(); ++index) {
+            assertThat(batchEntries.get(index).getLevels()).isEqualTo(singleEntries.get(index).getLevels());
+        }
+    }
+
     @Test
     public void shouldReturnListOfEntriesWithGivenIdsInSameOrderAsIds() {
         // given
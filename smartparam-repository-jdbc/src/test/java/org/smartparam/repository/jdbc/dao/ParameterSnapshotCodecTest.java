@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Adam Dubiel, Przemek Hertel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.smartparam.repository.jdbc.dao;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.smartparam.engine.core.parameter.entry.ParameterEntry;
+import org.smartparam.engine.core.parameter.level.Level;
+import org.smartparam.repository.jdbc.model.JdbcLevel;
+import org.smartparam.repository.jdbc.model.JdbcParameter;
+import org.smartparam.repository.jdbc.model.JdbcParameterEntry;
+import org.smartparam.repository.jdbc.model.JdbcParameterSnapshot;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ParameterSnapshotCodecTest {
+
+    @Test
+    public void shouldDecodeParameterWithSameMetadataLevelsAndEntriesAsEncoded() throws IOException {
+        // given
+        JdbcParameter parameter = new JdbcParameter(7, "parameter", 1);
+        parameter.setNullable(true);
+        parameter.setCacheable(false);
+        parameter.setIdentifyEntries(true);
+        parameter.setArraySeparator(';');
+
+        JdbcLevel level = new JdbcLevel(11, 0);
+        level.setName("level");
+        level.setType("string");
+        level.setArray(true);
+        parameter.setLevels(Arrays.<Level>asList(level));
+        parameter.setEntries(new HashSet<ParameterEntry>(Arrays.<ParameterEntry>asList(
+                new JdbcParameterEntry(21, new String[]{"A", null}))));
+
+        // when
+        JdbcParameterSnapshot snapshot = ParameterSnapshotCodec.decode(ParameterSnapshotCodec.encode(parameter));
+        JdbcParameter decoded = snapshot.getMetadata();
+
+        // then
+        assertThat(decoded.getId()).isEqualTo(7);
+        assertThat(decoded.getName()).isEqualTo("parameter");
+        assertThat(decoded.getInputLevels()).isEqualTo(1);
+        assertThat(decoded.isNullable()).isTrue();
+        assertThat(decoded.isCacheable()).isFalse();
+        assertThat(decoded.isIdentifyEntries()).isTrue();
+        assertThat(decoded.getArraySeparator()).isEqualTo(';');
+
+        JdbcLevel decodedLevel = (JdbcLevel) decoded.getLevels().get(0);
+        assertThat(decodedLevel.getId()).isEqualTo(11);
+        assertThat(decodedLevel.getName()).isEqualTo("level");
+        assertThat(decodedLevel.getType()).isEqualTo("string");
+        assertThat(decodedLevel.getMatcher()).isNull();
+        assertThat(decodedLevel.isArray()).isTrue();
+
+        JdbcParameterEntry decodedEntry = (JdbcParameterEntry) snapshot.getEntries().get(0);
+        assertThat(decodedEntry.getId()).isEqualTo(21);
+        assertThat(decodedEntry.getLevels()).containsExactly("A", null);
+    }
+
+    @Test
+    public void shouldDecodeEntriesInOrderOfTheirIds() throws IOException {
+        // given
+        JdbcParameter parameter = new JdbcParameter(7, "parameter", 1);
+        parameter.setLevels(Arrays.<Level>asList(new JdbcLevel(11, 0)));
+        parameter.setEntries(new HashSet<ParameterEntry>(Arrays.<ParameterEntry>asList(
+                new JdbcParameterEntry(30, new String[]{"C"}), new JdbcParameterEntry(10, new String[]{"A"}),
+                new JdbcParameterEntry(20, new String[]{"B"}))));
+
+        // when
+        JdbcParameterSnapshot snapshot = ParameterSnapshotCodec.decode(ParameterSnapshotCodec.encode(parameter));
+
+        // then
+        assertThat(snapshot.getMetadata().getEntries()).isEmpty();
+        assertThat(snapshot.getEntries()).hasSize(3);
+        assertThat(((JdbcParameterEntry) snapshot.getEntries().get(0)).getId()).isEqualTo(10);
+        assertThat(((JdbcParameterEntry) snapshot.getEntries().get(1)).getId()).isEqualTo(20);
+        assertThat(((JdbcParameterEntry) snapshot.getEntries().get(2)).getId()).isEqualTo(30);
+    }
+
+    @Test
+    public void shouldFailToDecodeContentWhichIsNotSnapshot() {
+        // given
+        byte[] content = new byte[]{1, 2, 3};
+
+        // when
+        try {
+            ParameterSnapshotCodec.decode(content);
+            failBecauseExceptionWasNotThrown(IOException.class);
+        } catch (IOException exception) {
+            // then
+            assertThat(exception).isNotNull();
+        }
+    }
+}